@@ -1,11 +1,14 @@
 
 
 import gui.NavigationApp;
+import metrics.SearchHistograms;
 
 import javax.swing.SwingUtilities;
 
 public class Main {
     public static void main(String[] args) {
+        // Com -Dgrafos.searchMetrics=true as buscas ficam visíveis por JMX
+        SearchHistograms.installIfRequested();
         // Garante que a GUI será criada e atualizada na thread de despacho de eventos do Swing
         SwingUtilities.invokeLater(() -> {
             new NavigationApp().setVisible(true);
@@ -1,11 +1,14 @@
+import io.CompressedInput;
+import metrics.ImportPhaseEvent;
 import model.OsmNode;
 import model.OsmWay;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -94,21 +97,26 @@ public class OsmToPolyConverter {
         waysProcessedList.clear();
         totalProcessedWays = 0;
 
-        String polyFilename = osmFilename.substring(0, osmFilename.lastIndexOf('.')) + ".poly";
+        // Aceita também .osm.gz e .osm.bz2: o sufixo de compressão não entra no nome do .poly
+        String baseFilename = CompressedInput.stripCompressionSuffix(osmFilename);
+        String polyFilename = baseFilename.substring(0, baseFilename.lastIndexOf('.')) + ".poly";
 
         System.out.println("--- Iniciando conversão de " + osmFilename + " para " + polyFilename + " ---");
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(osmFilename));
+        try (CompressedInput.PipelineStream input = CompressedInput.open(osmFilename);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
              PrintWriter writer = new PrintWriter(new FileWriter(polyFilename))) {
 
             String line;
             List<String> allLines = new ArrayList<>();
+            ImportPhaseEvent phase = ImportPhaseEvent.start(osmFilename, "Leitura das linhas");
             while ((line = reader.readLine()) != null) {
                 allLines.add(line);
             }
+            phase.finish(allLines.size(), 0, input.getConsumerStats().getBytes());
             
             // --- Primeira Passagem: Coletar e mapear todos os Nós ---
-            System.out.println("DEBUG_CONV: Passagem 1: Coletando nós...");
+            phase = ImportPhaseEvent.start(osmFilename, "Passagem 1: nós");
             int nodesFoundInFile = 0;
             for (String currentLine : allLines) {
                 Matcher nodeMatcher = NODE_PATTERN.matcher(currentLine);
@@ -122,18 +130,18 @@ public class OsmToPolyConverter {
                         OsmNode node = new OsmNode(idOriginal, lat, lon, totalProcessedNodes++);
                         nodesMapByOriginalId.put(idOriginal, node);
                         nodesListByInternalId.add(node); // Mantém em ordem pelo ID interno
-                    } else {
-                        System.out.println("DEBUG_CONV: Aviso: Limite de MAX_NODES (" + MAX_NODES_LIMIT + ") excedido. Ignorando nós restantes.");
                     }
+                    // Acima de MAX_NODES_LIMIT os nós restantes são ignorados (contados no evento)
                 }
             }
-            System.out.println("DEBUG_CONV: Passagem 1 concluída. Nós encontrados no arquivo: " + nodesFoundInFile + ". Nós processados: " + totalProcessedNodes);
+            phase.finish(totalProcessedNodes, nodesFoundInFile - totalProcessedNodes, 0);
 
             // --- Segunda Passagem: Coletar Vias e suas Arestas ---
-            System.out.println("DEBUG_CONV: Passagem 2: Processando vias...");
+            phase = ImportPhaseEvent.start(osmFilename, "Passagem 2: vias");
             boolean insideWay = false;
             OsmWay currentOsmWay = null;
             int waysFoundInFile = 0;
+            int missingRefs = 0;
 
             for (String currentLine : allLines) {
                 if (currentLine.contains("<way")) {
@@ -149,34 +157,33 @@ public class OsmToPolyConverter {
                             currentOsmWay.nodeInternalIds.add(internalId);
                             currentOsmWay.count++;
                         } else {
-                            System.out.println("DEBUG_CONV: Aviso: Via referencia nó OSM " + osmRefId + " que não foi encontrado. Aresta(s) desta via podem ser ignoradas.");
+                            // Nó OSM não encontrado: a(s) aresta(s) desta via que passam por ele ficam de fora
+                            missingRefs++;
                         }
                     }
                 } else if (insideWay && currentLine.contains("</way>")) {
                     insideWay = false;
                     // Uma via deve ter pelo menos 2 nós para formar arestas
+                    // Ways com menos de 2 nós ou acima de MAX_WAYS_LIMIT são ignoradas
                     if (currentOsmWay.count > 1 && totalProcessedWays < MAX_WAYS_LIMIT) { 
                         waysProcessedList.add(currentOsmWay);
                         totalProcessedWays++;
-                    } else {
-                        System.out.println("DEBUG_CONV: Aviso: Way ignorada (menos de 2 nós ou limite " + MAX_WAYS_LIMIT + " excedido).");
                     }
                 }
             }
-            System.out.println("DEBUG_CONV: Passagem 2 concluída. Ways encontradas no arquivo: " + waysFoundInFile + ". Ways processadas para grafo: " + totalProcessedWays);
+            phase.finish(totalProcessedWays, (waysFoundInFile - totalProcessedWays) + missingRefs, 0);
 
             // --- Transformar Coordenadas dos Nós (x/y para visualização no .poly) ---
-            System.out.println("DEBUG_CONV: Transformando coordenadas dos nós...");
-            if (!nodesListByInternalId.isEmpty()) {
-                reduceScaleAndInvertY(nodesListByInternalId); 
-                System.out.println("DEBUG_CONV: Coordenadas transformadas.");
-            } else {
-                System.out.println("DEBUG_CONV: Sem nós para transformar coordenadas.");
+            if (nodesListByInternalId.isEmpty()) {
+                System.out.println("Nenhum nó encontrado em " + osmFilename + "; nada a escrever.");
                 return; // Não há nada para escrever no .poly
             }
+            phase = ImportPhaseEvent.start(osmFilename, "Transformando coordenadas");
+            reduceScaleAndInvertY(nodesListByInternalId); 
+            phase.finish(nodesListByInternalId.size(), 0, 0);
 
             // --- Escrever o Arquivo .poly ---
-            System.out.println("DEBUG_CONV: Escrevendo arquivo .poly...");
+            phase = ImportPhaseEvent.start(polyFilename, "Escrevendo o .poly");
 
             // Cabeçalho dos vértices: <num_vertices> <dim> <attrs> <boundary_markers>
             writer.printf("%d\t%d\t%d\t%d%n", totalProcessedNodes, 2, 0, 1);
@@ -186,14 +193,12 @@ public class OsmToPolyConverter {
                 // Escreve lat/lon ORIGINAIS no .poly, mesmo que x/y foram usados para transformação interna.
                 writer.printf("%d\t%.6f\t%.6f%n", node.idInterno, node.lat, node.lon);
             }
-            System.out.println("DEBUG_CONV: Vértices escritos. ");
 
             // Cabeçalho das arestas: <número de arestas> <limites>
             int numEdgesToWrite = 0;
             for (OsmWay way : waysProcessedList) {
                 numEdgesToWrite += (way.count - 1); // Cada via com N nós gera N-1 arestas
             }
-            System.out.println("DEBUG_CONV: Número total de arestas a serem escritas: " + numEdgesToWrite);
             writer.printf("%d\t%d%n", numEdgesToWrite, 1);
 
             // Dados das arestas: <id aresta> <origem_id_interno> <destino_id_interno> <flag_direcional>
@@ -206,11 +211,10 @@ public class OsmToPolyConverter {
                     writer.printf("%d\t%d\t%d\t%d%n", edgeIdCounter++, fromNodeInternalId, toNodeInternalId, 0);
                 }
             }
-            System.out.println("DEBUG_CONV: Arestas escritas.");
             
             // Linha final do arquivo .poly
             writer.println(0);
-            System.out.println("DEBUG_CONV: Finalizador do .poly escrito.");
+            phase.finish(totalProcessedNodes + numEdgesToWrite, 0, 0);
 
             System.out.println("--- Conversão concluída. Arquivo \"" + polyFilename + "\" criado com sucesso. ---");
 
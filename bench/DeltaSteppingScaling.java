@@ -0,0 +1,86 @@
+package bench;
+
+import io.PolyReader;
+import model.Graph;
+import model.GraphSnapshot;
+import routing.DeltaStepping;
+import routing.SnapshotDijkstra;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Mede o speedup do delta-stepping em função do número de threads.
+ *
+ * Uso: {@code java bench.DeltaSteppingScaling <arquivo.poly> [origens] [delta]}
+ *
+ * Para cada paralelismo (1, 2, 4, ... até o número de núcleos) executa as mesmas
+ * origens e compara todas as distâncias, bit a bit, com o Dijkstra sequencial.
+ */
+public class DeltaSteppingScaling {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: java bench.DeltaSteppingScaling <arquivo.poly> [origens] [delta]");
+            System.exit(1);
+        }
+        Graph graph = new PolyReader().readPolyFile(args[0]);
+        int sourceCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        GraphSnapshot snapshot = GraphSnapshot.of(graph);
+        double delta = args.length > 2 ? Double.parseDouble(args[2]) : DeltaStepping.suggestDelta(snapshot);
+        int n = snapshot.getNumNodes();
+
+        Random random = new Random(7);
+        int[] sources = new int[sourceCount];
+        for (int i = 0; i < sourceCount; i++) sources[i] = random.nextInt(n);
+
+        // Referência sequencial
+        SnapshotDijkstra dijkstra = new SnapshotDijkstra(snapshot);
+        double[][] expected = new double[sourceCount][];
+        long start = System.nanoTime();
+        for (int i = 0; i < sourceCount; i++) expected[i] = dijkstra.distancesFrom(sources[i]);
+        double dijkstraMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        System.out.printf(Locale.ROOT, "%d nós, %d arcos, %d origens, delta = %.1f%n",
+                n, snapshot.getNumArcs(), sourceCount, delta);
+        System.out.printf(Locale.ROOT, "Dijkstra sequencial: %.1f ms%n", dijkstraMs);
+        System.out.println("threads | tempo (ms) | speedup | fases/origem | divergências");
+
+        double baseMs = -1;
+        for (int parallelism : parallelismLevels()) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                DeltaStepping deltaStepping = new DeltaStepping(snapshot, delta, pool);
+                deltaStepping.run(sources[0]); // aquecimento
+                long mismatches = 0;
+                long phases = 0;
+                start = System.nanoTime();
+                for (int i = 0; i < sourceCount; i++) {
+                    DeltaStepping.Result result = deltaStepping.run(sources[i]);
+                    phases += result.phases;
+                    for (int v = 0; v < n; v++) {
+                        if (Double.doubleToRawLongBits(result.distances[v]) != Double.doubleToRawLongBits(expected[i][v])) {
+                            mismatches++;
+                        }
+                    }
+                }
+                double elapsedMs = (System.nanoTime() - start) / 1_000_000.0;
+                if (baseMs < 0) baseMs = elapsedMs;
+                System.out.printf(Locale.ROOT, "%7d | %10.1f | %6.2fx | %12d | %d%n",
+                        parallelism, elapsedMs, baseMs / elapsedMs, phases / sourceCount, mismatches);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static List<Integer> parallelismLevels() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> levels = new ArrayList<>();
+        for (int p = 1; p < cores; p *= 2) levels.add(p);
+        levels.add(cores);
+        return levels;
+    }
+}
@@ -0,0 +1,134 @@
+package bench;
+
+import io.PolyReader;
+import model.Graph;
+import model.GraphGenerator;
+import model.GraphSnapshot;
+import routing.SnapshotDijkstra;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Teste de escala com grafos sintéticos do {@link GraphGenerator}, dobrando o número de nós.
+ *
+ * Uso: {@code java bench.ScaleTest <grid|geometric> [nós iniciais] [nós máximos] [consultas] [mão única] [semente]}
+ *
+ * Para cada tamanho: gera o grafo, grava um .poly temporário e mede a importação pelo
+ * {@link PolyReader}, a montagem direta pelo builder, a memória retida pelo {@link Graph} e
+ * pelo {@link GraphSnapshot} (heap usado após GC) e a latência de consultas entre pares
+ * aleatórios nos dois Dijkstras. A coluna "x" é o quanto a importação cresceu em relação
+ * ao tamanho anterior: perto de 2 é linear. Use um -Xmx que comporte o maior tamanho.
+ */
+public class ScaleTest {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: java bench.ScaleTest <grid|geometric> [nós iniciais] [nós máximos] [consultas] [mão única] [semente]");
+            System.exit(1);
+        }
+        GraphGenerator.Topology topology = GraphGenerator.Topology.valueOf(args[0].toUpperCase(Locale.ROOT));
+        int first = args.length > 1 ? Integer.parseInt(args[1]) : 1 << 16;
+        int last = args.length > 2 ? Integer.parseInt(args[2]) : 1 << 20;
+        int queries = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        double oneway = args.length > 4 ? Double.parseDouble(args[4]) : 0.2;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 42;
+
+        // Aquecimento: JIT do leitor, do builder e dos Dijkstras no menor tamanho, sem imprimir
+        measure(topology, Math.min(first, 1 << 14), queries, oneway, seed);
+
+        System.out.printf(Locale.ROOT, "%s, mão única %.0f%%, %d consultas por tamanho, semente %d%n",
+                topology, oneway * 100, queries, seed);
+        System.out.println("      nós |     arcos | .poly MB | importar ms |     x | builder ms | heap Graph MB | heap snapshot MB"
+                + " | Graph.dijkstra p50/p99 ms | SnapshotDijkstra p50/p99 ms");
+        double previousImportMs = -1;
+        for (long n = first; n <= last; n *= 2) {
+            Row row = measure(topology, (int) n, queries, oneway, seed);
+            String growth = previousImportMs > 0 ? String.format(Locale.ROOT, "%5.2f", row.importMs / previousImportMs) : "    -";
+            previousImportMs = row.importMs;
+            System.out.printf(Locale.ROOT, "%9d | %9d | %8.1f | %11.1f | %s | %10.1f | %13.1f | %16.1f | %11.2f / %11.2f | %13.3f / %11.3f%n",
+                    n, row.arcs, row.polyBytes / 1e6, row.importMs, growth, row.builderMs,
+                    row.graphBytes / 1e6, row.snapshotBytes / 1e6,
+                    percentile(row.graphLatency, 50), percentile(row.graphLatency, 99),
+                    percentile(row.snapshotLatency, 50), percentile(row.snapshotLatency, 99));
+        }
+    }
+
+    private static final class Row {
+        long arcs;
+        long polyBytes;
+        double importMs;
+        double builderMs;
+        long graphBytes;
+        long snapshotBytes;
+        double[] graphLatency;
+        double[] snapshotLatency;
+    }
+
+    private static Row measure(GraphGenerator.Topology topology, int n, int queries, double oneway, long seed) throws Exception {
+        Row row = new Row();
+        File poly = File.createTempFile("escala-", ".poly");
+        try {
+            GraphGenerator.Result generated = new GraphGenerator(topology, n).onewayRatio(oneway).seed(seed).generate();
+            generated.writePoly(poly.getPath());
+            row.polyBytes = poly.length();
+
+            long start = System.nanoTime();
+            generated.toSnapshot();
+            row.builderMs = (System.nanoTime() - start) / 1e6;
+            generated = null;
+
+            long baseline = usedHeapAfterGc();
+            start = System.nanoTime();
+            Graph graph = new PolyReader().readPolyFile(poly.getPath());
+            row.importMs = (System.nanoTime() - start) / 1e6;
+            row.graphBytes = usedHeapAfterGc() - baseline;
+
+            baseline = usedHeapAfterGc();
+            GraphSnapshot snapshot = GraphSnapshot.of(graph);
+            row.snapshotBytes = usedHeapAfterGc() - baseline;
+            row.arcs = snapshot.getNumArcs();
+
+            // Os mesmos pares nos dois algoritmos; IDs de 0 a n-1
+            SplittableRandom random = new SplittableRandom(seed);
+            SnapshotDijkstra snapshotDijkstra = new SnapshotDijkstra(snapshot);
+            row.graphLatency = new double[queries];
+            row.snapshotLatency = new double[queries];
+            for (int i = 0; i < queries; i++) {
+                int origin = random.nextInt(n), destination = random.nextInt(n);
+                start = System.nanoTime();
+                graph.dijkstra(origin, destination);
+                row.graphLatency[i] = (System.nanoTime() - start) / 1e6;
+                start = System.nanoTime();
+                snapshotDijkstra.route(origin, destination);
+                row.snapshotLatency[i] = (System.nanoTime() - start) / 1e6;
+            }
+            Arrays.sort(row.graphLatency);
+            Arrays.sort(row.snapshotLatency);
+            return row;
+        } finally {
+            poly.delete();
+        }
+    }
+
+    /** Heap em uso depois de algumas coletas completas (o que ainda está vivo). */
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+package bench;
+
+import io.PolyReader;
+import model.Graph;
+import model.GraphSnapshot;
+import server.RoutingServer;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Teste de carga do {@link RoutingServer} pela interface de loopback.
+ *
+ * Uso: {@code java bench.ServerLoadTest <arquivo.poly> [clientes] [segundos]}
+ *
+ * Sobe o servidor numa porta livre e dispara {@code clientes} laços concorrentes de
+ * {@code /route} entre pares aleatórios, reaproveitando as conexões (keep-alive). Mostra
+ * requisições por segundo e os percentis de latência vistos pelo cliente, seguidos das
+ * métricas que o próprio servidor registrou.
+ */
+public class ServerLoadTest {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: java bench.ServerLoadTest <arquivo.poly> [clientes] [segundos]");
+            System.exit(1);
+        }
+        Graph graph = new PolyReader().readPolyFile(args[0]);
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        GraphSnapshot snapshot = GraphSnapshot.of(graph);
+        RoutingServer server = new RoutingServer(snapshot, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                Runtime.getRuntime().availableProcessors());
+        server.start();
+        String base = "http://localhost:" + server.getPort();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        int n = snapshot.getNumNodes();
+
+        try {
+            // Aquecimento: JIT e conexões abertas antes de medir
+            runClients(client, base, snapshot, clients, Math.min(2, seconds), n, null);
+            AtomicLong failures = new AtomicLong();
+            long start = System.nanoTime();
+            long[][] latencies = runClients(client, base, snapshot, clients, seconds, n, failures);
+            double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            System.out.printf(Locale.ROOT, "%d nós, %d clientes, %d s, %s%n", n, clients, seconds,
+                    server.usesVirtualThreads() ? "threads virtuais" : "pool de threads");
+            System.out.printf(Locale.ROOT, "%d requisições (%d falhas) -> %.1f req/s%n",
+                    all.length, failures.get(), all.length / wallSeconds);
+            System.out.printf(Locale.ROOT, "latência no cliente (ms): p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  máx %.3f%n",
+                    percentileMs(all, 50), percentileMs(all, 90), percentileMs(all, 99), percentileMs(all, 99.9),
+                    all.length > 0 ? all[all.length - 1] / 1e6 : 0);
+            HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(URI.create(base + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            System.out.println("métricas do servidor: " + metrics.body());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /** Cada cliente repete /route até o prazo; devolve as latências (ns) de cada um. */
+    private static long[][] runClients(HttpClient client, String base, GraphSnapshot snapshot, int clients,
+                                       int seconds, int n, AtomicLong failures) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long[][] latencies = new long[clients][];
+        Thread[] threads = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            final int id = c;
+            threads[c] = new Thread(() -> {
+                Random random = new Random(id);
+                long[] samples = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    int from = snapshot.nodeId(random.nextInt(n));
+                    int to = snapshot.nodeId(random.nextInt(n));
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/route?from=" + from + "&to=" + to)).build();
+                    long t0 = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() != 200 && failures != null) failures.incrementAndGet();
+                    } catch (Exception e) {
+                        if (failures != null) failures.incrementAndGet();
+                        continue;
+                    }
+                    if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+                    samples[count++] = System.nanoTime() - t0;
+                }
+                latencies[id] = Arrays.copyOf(samples, count);
+            }, "cliente-" + c);
+            threads[c].start();
+        }
+        for (Thread thread : threads) thread.join();
+        return latencies;
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+}
\ No newline at end of file
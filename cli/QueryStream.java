@@ -0,0 +1,233 @@
+package cli;
+
+import model.Graph;
+import model.GraphSnapshot;
+import routing.SnapshotDijkstra;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executa consultas origem-destino em várias threads sobre um único {@link GraphSnapshot}
+ * e escreve cada resposta assim que ela fica pronta, na ordem em que terminam.
+ *
+ * O snapshot é só de leitura e é compartilhado; cada thread tem o seu {@link SnapshotDijkstra}.
+ * No máximo {@code 4 × threads} consultas ficam pendentes: {@link #submit} bloqueia quem lê a
+ * entrada até abrir espaço, então a memória não cresce com o tamanho do lote. A saída é
+ * descarregada sempre que não resta nenhuma consulta pendente, o que mantém o uso
+ * interativo (uma consulta por vez num pipe) respondendo na hora sem descarregar a cada linha
+ * nos lotes grandes.
+ *
+ * Formato de cada linha (separada por tabulações):
+ * {@code seq origem destino custo explorados ms [caminho]}, com custo "-" quando não há
+ * caminho e o caminho como IDs separados por espaço.
+ */
+public final class QueryStream {
+    private final ExecutorService pool;
+    private final ThreadLocal<SnapshotDijkstra> workspace;
+    private final Semaphore window;
+    private final int windowSize;
+    private final Writer out;
+    private final boolean writePaths;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong unreachable = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final LatencyRecorder searchLatency = new LatencyRecorder();
+    private final LatencyRecorder responseLatency = new LatencyRecorder();
+    private final int threads;
+    private final long startTime;
+    private volatile IOException writeError;
+
+    /**
+     * @param out        destino das respostas, ou null para só medir
+     * @param writePaths inclui a sequência de nós de cada caminho
+     */
+    public QueryStream(GraphSnapshot snapshot, int threads, Writer out, boolean writePaths) {
+        this.threads = Math.max(1, threads);
+        this.pool = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "consulta");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workspace = ThreadLocal.withInitial(() -> new SnapshotDijkstra(snapshot));
+        this.windowSize = 4 * this.threads;
+        this.window = new Semaphore(windowSize);
+        this.out = out;
+        this.writePaths = writePaths;
+        this.startTime = System.nanoTime();
+    }
+
+    /** Agenda uma consulta; bloqueia enquanto a janela de consultas pendentes estiver cheia. */
+    public void submit(long seq, int origin, int destination) throws InterruptedException, IOException {
+        checkWriteError();
+        long submitted = System.nanoTime();
+        window.acquire();
+        pending.incrementAndGet();
+        pool.execute(() -> {
+            try {
+                answer(seq, origin, destination, submitted);
+            } finally {
+                window.release();
+            }
+        });
+    }
+
+    /** Espera as consultas pendentes, descarrega a saída e encerra as threads. */
+    public Summary finish() throws InterruptedException, IOException {
+        window.acquire(windowSize);
+        window.release(windowSize);
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        double wallMs = (System.nanoTime() - startTime) / 1_000_000.0;
+        checkWriteError();
+        if (out != null) out.flush();
+        return new Summary(threads, responseLatency.count(), unreachable.get(), failures.get(), wallMs,
+                searchLatency.sorted(), responseLatency.sorted());
+    }
+
+    /** Interrompe as consultas em andamento e descarta as que ainda não começaram. */
+    public void abort() {
+        pool.shutdownNow();
+    }
+
+    private void answer(long seq, int origin, int destination, long submitted) {
+        String line;
+        try {
+            Graph.PathResult result = workspace.get().route(origin, destination);
+            searchLatency.record(result.processingTimeMs);
+            if (result.path.isEmpty()) unreachable.incrementAndGet();
+            line = format(seq, origin, destination, result);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            line = seq + "\t" + origin + "\t" + destination + "\terro\t" + e;
+        }
+        write(line);
+        responseLatency.record((System.nanoTime() - submitted) / 1_000_000.0);
+    }
+
+    private String format(long seq, int origin, int destination, Graph.PathResult result) {
+        if (out == null) return null;
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(seq).append('\t').append(origin).append('\t').append(destination).append('\t');
+        if (result.path.isEmpty()) {
+            sb.append('-');
+        } else {
+            sb.append(String.format(Locale.ROOT, "%.3f", result.totalCost));
+        }
+        sb.append('\t').append(result.nodesExplored);
+        sb.append('\t').append(String.format(Locale.ROOT, "%.3f", result.processingTimeMs));
+        if (writePaths) {
+            sb.append('\t');
+            List<Integer> path = result.path;
+            for (int i = 0; i < path.size(); i++) {
+                if (i > 0) sb.append(' ');
+                sb.append(path.get(i));
+            }
+        }
+        return sb.toString();
+    }
+
+    private void write(String line) {
+        if (out == null) {
+            pending.decrementAndGet();
+            return;
+        }
+        synchronized (out) {
+            try {
+                out.write(line);
+                out.write('\n');
+                // Sem nada na fila, ninguém vai descarregar por nós: entrega já o que houver
+                if (pending.decrementAndGet() == 0) out.flush();
+            } catch (IOException e) {
+                writeError = e;
+            }
+        }
+    }
+
+    private void checkWriteError() throws IOException {
+        IOException error = writeError;
+        if (error != null) throw error;
+    }
+
+    /** Vazão e percentis de latência de um lote. */
+    public static final class Summary {
+        public final int threads;
+        public final long queries;
+        public final long unreachable;
+        public final long failures;
+        public final double wallMs;
+        private final double[] searchMs;
+        private final double[] responseMs;
+
+        Summary(int threads, long queries, long unreachable, long failures, double wallMs,
+                double[] searchMs, double[] responseMs) {
+            this.threads = threads;
+            this.queries = queries;
+            this.unreachable = unreachable;
+            this.failures = failures;
+            this.wallMs = wallMs;
+            this.searchMs = searchMs;
+            this.responseMs = responseMs;
+        }
+
+        public double throughput() {
+            return wallMs > 0 ? queries * 1000.0 / wallMs : 0;
+        }
+
+        /** Tempo de busca (só o Dijkstra) no percentil {@code p} (0 a 100). */
+        public double searchPercentile(double p) { return percentile(searchMs, p); }
+
+        /** Tempo entre a leitura da consulta e a escrita da resposta, no percentil {@code p}. */
+        public double responsePercentile(double p) { return percentile(responseMs, p); }
+
+        private static double percentile(double[] sorted, double p) {
+            if (sorted.length == 0) return 0;
+            int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        public String describe() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "consultas: %d (%d sem caminho, %d com erro) em %.1f ms com %d thread(s) -> %.1f consultas/s%n",
+                    queries, unreachable, failures, wallMs, threads, throughput()));
+            sb.append(describeLatency("busca (ms):   ", searchMs));
+            sb.append(describeLatency("resposta (ms):", responseMs));
+            return sb.toString();
+        }
+
+        private static String describeLatency(String label, double[] sorted) {
+            return String.format(Locale.ROOT, "%s p50 %.3f  p90 %.3f  p99 %.3f  máx %.3f%n", label,
+                    percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                    sorted.length > 0 ? sorted[sorted.length - 1] : 0);
+        }
+    }
+
+    /** Amostras de latência de todas as threads; ordenadas só no fim do lote. */
+    private static final class LatencyRecorder {
+        private double[] samples = new double[1024];
+        private int size;
+
+        synchronized void record(double ms) {
+            if (size == samples.length) samples = Arrays.copyOf(samples, size * 2);
+            samples[size++] = ms;
+        }
+
+        synchronized long count() { return size; }
+
+        synchronized double[] sorted() {
+            double[] copy = Arrays.copyOf(samples, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
\ No newline at end of file
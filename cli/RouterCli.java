@@ -0,0 +1,311 @@
+package cli;
+
+import io.CompressedInput;
+import io.OsmConverter;
+import io.PolyReader;
+import io.PolyWriter;
+import io.ProgressListener;
+import io.RoutingProfile;
+import io.TileStore;
+import metrics.AlgorithmHistograms;
+import metrics.SearchHistograms;
+import metrics.SearchMetrics;
+import model.Graph;
+import model.GraphSnapshot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Roteador e conversor de linha de comando, sem interface gráfica (para servidores sem tela).
+ *
+ * <pre>
+ * java cli.RouterCli info    &lt;mapa&gt;
+ * java cli.RouterCli route   &lt;mapa&gt; [pares|-] [-t threads] [-o saida] [--sem-caminho]
+ * java cli.RouterCli convert &lt;entrada&gt; &lt;saida.poly|diretório de tiles&gt; [--nos-por-tile N]
+ * java cli.RouterCli stats   &lt;mapa&gt; [-n consultas] [-t threads] [-s semente]
+ * </pre>
+ *
+ * O mapa pode ser .poly ou .osm (também .osm.gz e .osm.bz2); para .osm, {@code -p} escolhe o
+ * perfil (todas, carro, bicicleta, pe). Os pares do {@code route} vêm um por linha como
+ * "origem destino" (IDs internos, separados por espaço, vírgula ou ponto e vírgula; linhas
+ * vazias e começadas por # são ignoradas), de um arquivo ou da entrada padrão. As respostas
+ * saem no formato de {@link QueryStream}, conforme ficam prontas; andamento e estatísticas
+ * vão para a saída de erro, para não misturar com os resultados. Com
+ * {@code -Dgrafos.searchMetrics=true} o {@code stats} também mostra o trabalho de cada busca.
+ */
+public class RouterCli {
+    private static final int DEFAULT_TILE_NODES = 2000;
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            usage();
+            System.exit(1);
+        }
+        SearchHistograms.installIfRequested();
+        // A saída padrão fica reservada aos resultados (route, stats): qualquer outra impressão vai para stderr
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        try {
+            Options options = new Options(args);
+            switch (args[0]) {
+                case "info": info(options); break;
+                case "route": route(options, stdout); break;
+                case "convert": convert(options); break;
+                case "stats": stats(options, stdout); break;
+                default:
+                    usage();
+                    System.exit(1);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Erro: " + e.getMessage());
+            usage();
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Erro de E/S: " + e.getMessage());
+            System.exit(2);
+        } catch (InterruptedException e) {
+            System.err.println("Interrompido.");
+            System.exit(130);
+        } finally {
+            stdout.flush();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Uso: java cli.RouterCli <comando> ...");
+        System.err.println("  info    <mapa> [-p perfil]");
+        System.err.println("  route   <mapa> [pares|-] [-t threads] [-o saida] [-p perfil] [--sem-caminho]");
+        System.err.println("  convert <entrada> <saida.poly|diretório> [-p perfil] [--nos-por-tile N]");
+        System.err.println("  stats   <mapa> [-n consultas] [-t threads] [-s semente] [-p perfil]");
+        System.err.println("Mapas: .poly, .osm, .osm.gz, .osm.bz2. Perfis: todas, carro, bicicleta, pe.");
+        System.err.println("Acrescente --silencioso para omitir o andamento da leitura.");
+    }
+
+    private static void info(Options options) throws IOException {
+        String mapPath = options.positional(0, "mapa");
+        long start = System.nanoTime();
+        Graph graph = loadMap(mapPath, options);
+        double loadMs = (System.nanoTime() - start) / 1_000_000.0;
+        Runtime runtime = Runtime.getRuntime();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+        System.err.printf(Locale.ROOT, "%s: %d vértices, %d arestas, lido em %.1f ms (%d MB em uso)%n",
+                mapPath, graph.getNumVertices(), graph.getNumEdges(), loadMs, usedMb);
+    }
+
+    private static void route(Options options, PrintStream stdout) throws IOException, InterruptedException {
+        Graph graph = loadMap(options.positional(0, "mapa"), options);
+        GraphSnapshot snapshot = GraphSnapshot.of(graph);
+        String pairsPath = options.positionalOr(1, "-");
+        String outPath = options.value("-o", "-");
+        int threads = options.intValue("-t", Runtime.getRuntime().availableProcessors());
+
+        try (BufferedReader in = new BufferedReader("-".equals(pairsPath)
+                     ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                     : new InputStreamReader(new FileInputStream(pairsPath), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter("-".equals(outPath)
+                     ? new OutputStreamWriter(stdout, StandardCharsets.UTF_8)
+                     : new OutputStreamWriter(new FileOutputStream(outPath), StandardCharsets.UTF_8), 1 << 16)) {
+            QueryStream stream = new QueryStream(snapshot, threads, out, !options.flag("--sem-caminho"));
+            long seq = 0;
+            long skipped = 0;
+            String line;
+            try {
+                while ((line = in.readLine()) != null) {
+                    seq++;
+                    String trimmed = line.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+                    String[] parts = trimmed.split("[\\s,;]+");
+                    int origin;
+                    int destination;
+                    try {
+                        if (parts.length < 2) throw new NumberFormatException("esperados dois IDs");
+                        origin = Integer.parseInt(parts[0]);
+                        destination = Integer.parseInt(parts[1]);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Linha " + seq + " ignorada (" + e.getMessage() + "): " + line);
+                        skipped++;
+                        continue;
+                    }
+                    stream.submit(seq, origin, destination);
+                }
+            } catch (IOException | InterruptedException e) {
+                stream.abort();
+                throw e;
+            }
+            QueryStream.Summary summary = stream.finish();
+            if (skipped > 0) System.err.println(skipped + " linha(s) mal formadas ignoradas.");
+            System.err.print(summary.describe());
+        }
+    }
+
+    private static void convert(Options options) throws IOException {
+        String input = options.positional(0, "entrada");
+        String output = options.positional(1, "saida");
+        Graph graph = loadMap(input, options);
+        long start = System.nanoTime();
+        if (output.toLowerCase(Locale.ROOT).endsWith(".poly")) {
+            new PolyWriter().writePolyFile(graph, output);
+            System.err.printf(Locale.ROOT, "%s: %d vértices, %d arestas gravados em %.1f ms%n",
+                    output, graph.getNumVertices(), graph.getNumEdges(), (System.nanoTime() - start) / 1_000_000.0);
+        } else {
+            int nodesPerTile = options.intValue("--nos-por-tile", DEFAULT_TILE_NODES);
+            TileStore.TileIndex index = TileStore.write(graph, Paths.get(output), nodesPerTile);
+            System.err.printf(Locale.ROOT, "%s: %d tiles (%d vértices, %d arestas) gravados em %.1f ms%n",
+                    output, index.getTileCount(), index.getNumVertices(), index.getNumEdges(),
+                    (System.nanoTime() - start) / 1_000_000.0);
+        }
+    }
+
+    /** Consultas aleatórias (reprodutíveis pela semente) só para medir vazão e latência. */
+    private static void stats(Options options, PrintStream stdout) throws IOException, InterruptedException {
+        String mapPath = options.positional(0, "mapa");
+        long start = System.nanoTime();
+        Graph graph = loadMap(mapPath, options);
+        GraphSnapshot snapshot = GraphSnapshot.of(graph);
+        double loadMs = (System.nanoTime() - start) / 1_000_000.0;
+        int queries = options.intValue("-n", 1000);
+        int threads = options.intValue("-t", Runtime.getRuntime().availableProcessors());
+        Random random = new Random(options.intValue("-s", 42));
+        int n = snapshot.getNumNodes();
+        if (n == 0) throw new IllegalArgumentException("o mapa não tem vértices");
+
+        // Aquecimento fora da medição, para o JIT compilar o laço da busca
+        QueryStream warmup = new QueryStream(snapshot, threads, null, false);
+        for (int i = 0; i < Math.min(200, queries / 10); i++) {
+            warmup.submit(i, snapshot.nodeId(random.nextInt(n)), snapshot.nodeId(random.nextInt(n)));
+        }
+        warmup.finish();
+
+        QueryStream stream = new QueryStream(snapshot, threads, null, false);
+        for (int i = 0; i < queries; i++) {
+            stream.submit(i, snapshot.nodeId(random.nextInt(n)), snapshot.nodeId(random.nextInt(n)));
+        }
+        QueryStream.Summary summary = stream.finish();
+        stdout.printf(Locale.ROOT, "mapa: %s (%d nós, %d arcos), carregado em %.1f ms%n",
+                mapPath, n, snapshot.getNumArcs(), loadMs);
+        stdout.print(summary.describe());
+        // Com -Dgrafos.searchMetrics=true, o trabalho por busca (inclui o aquecimento)
+        if (SearchMetrics.getListener() instanceof SearchHistograms) {
+            for (AlgorithmHistograms algorithm : ((SearchHistograms) SearchMetrics.getListener()).getAll()) {
+                stdout.printf(Locale.ROOT, "%s: %d buscas, assentados méd. %.0f (p99 %d), relaxamentos méd. %.0f, "
+                                + "heap %d inserções / %d decrease-keys, fronteira p99 %d, %.0f bytes/busca%n",
+                        algorithm.getAlgorithm(), algorithm.getQueries(), algorithm.getSettledNodesMean(),
+                        algorithm.getSettledNodesP99(), algorithm.getEdgesRelaxedMean(), algorithm.getHeapPushes(),
+                        algorithm.getDecreaseKeys(), algorithm.getPeakFrontierP99(), algorithm.getAllocatedBytesMean());
+            }
+        }
+    }
+
+    private static Graph loadMap(String path, Options options) throws IOException {
+        ProgressListener progress = options.flag("--silencioso") ? ProgressListener.NONE : new StderrProgress();
+        String base = CompressedInput.stripCompressionSuffix(path).toLowerCase(Locale.ROOT);
+        if (base.endsWith(".poly")) {
+            return new PolyReader().readPolyFile(path, progress);
+        }
+        if (base.endsWith(".osm")) {
+            return new OsmConverter().setProgressListener(progress)
+                    .convertOsmToGraph(path, profile(options.value("-p", "todas")));
+        }
+        throw new IllegalArgumentException("formato de mapa não reconhecido: " + path);
+    }
+
+    private static RoutingProfile profile(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "todas": return RoutingProfile.ANY_HIGHWAY;
+            case "carro": return RoutingProfile.CAR;
+            case "bicicleta": return RoutingProfile.BIKE;
+            case "pe": return RoutingProfile.FOOT;
+            default: throw new IllegalArgumentException("perfil desconhecido: " + name);
+        }
+    }
+
+    /** Uma linha por fase e a cada 10% dela, na saída de erro. */
+    private static final class StderrProgress implements ProgressListener {
+        private String phase;
+        private long lastDecile = -1;
+
+        @Override
+        public void progress(String phase, long done, long total) {
+            if (!phase.equals(this.phase)) {
+                this.phase = phase;
+                lastDecile = -1;
+                System.err.println(phase + "...");
+            }
+            if (total > 0) {
+                long decile = done * 10 / total;
+                if (decile > lastDecile) {
+                    if (lastDecile >= 0) System.err.println("  " + (decile * 10) + "%");
+                    lastDecile = decile;
+                }
+            }
+        }
+    }
+
+    /** Argumentos posicionais e opções "-x valor" / "--flag", em qualquer ordem. */
+    private static final class Options {
+        private static final String[] WITH_VALUE = { "-t", "-o", "-p", "-n", "-s", "--nos-por-tile" };
+
+        private final List<String> positional = new ArrayList<>();
+        private final Map<String, String> values = new HashMap<>();
+
+        Options(String[] args) {
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                if (takesValue(arg)) {
+                    if (i + 1 >= args.length) throw new IllegalArgumentException("falta o valor de " + arg);
+                    values.put(arg, args[++i]);
+                } else if (arg.startsWith("--")) {
+                    values.put(arg, "");
+                } else {
+                    positional.add(arg);
+                }
+            }
+        }
+
+        private static boolean takesValue(String arg) {
+            for (String option : WITH_VALUE) {
+                if (option.equals(arg)) return true;
+            }
+            return false;
+        }
+
+        String positional(int index, String name) {
+            if (index >= positional.size()) throw new IllegalArgumentException("falta o argumento <" + name + ">");
+            return positional.get(index);
+        }
+
+        String positionalOr(int index, String fallback) {
+            return index < positional.size() ? positional.get(index) : fallback;
+        }
+
+        boolean flag(String name) { return values.containsKey(name); }
+
+        String value(String name, String fallback) { return values.getOrDefault(name, fallback); }
+
+        int intValue(String name, int fallback) {
+            String value = values.get(name);
+            if (value == null) return fallback;
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("valor inválido para " + name + ": " + value);
+            }
+        }
+    }
+}
\ No newline at end of file
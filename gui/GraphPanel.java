@@ -1,15 +1,22 @@
 package gui;
 
+import io.TileManager;
+import metrics.PaintEvent;
 import model.Graph;
+import model.GraphSnapshot;
+import model.GridIndex;
 import model.Node;
 import model.Edge;
+import routing.Betweenness;
 
 import javax.swing.JPanel;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Point;
 import java.awt.RenderingHints;
 import java.awt.event.MouseAdapter;
@@ -18,14 +25,22 @@ import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class GraphPanel extends JPanel {
     private Graph graph;
+    private TileManager tileManager; // quando definido, o grafo é paginado em blocos
     private Integer selectedOrigin;
     private Integer selectedDestination;
-    private List<Integer> shortestPath;
+    private RouteOverlay routes = new RouteOverlay();
+    private int[] searchFrontier; // IDs dos nós na fronteira da última busca, ou null
+    private Betweenness.Result centrality; // quando definido, as arestas recebem a rampa de cores
+    private double maxCentrality;
     
     private boolean showEdgeLabels = true;
 
@@ -33,12 +48,60 @@ public class GraphPanel extends JPanel {
     private double scaleY;
     private double offsetX;
     private double offsetY;
+    // Escala = fitScale * ZOOM_FACTOR^zoomLevel: níveis discretos, que servem de chave aos tiles
+    private double fitScale;
+    private int zoomLevel;
     
     private double minXData, maxXData, minYData, maxYData;
 
     private final int NODE_RADIUS = 6;
     private final int CLICK_TOLERANCE_PX = 10;
 
+    // Cores, traços e fonte criados uma vez, não a cada aresta
+    private static final Color UNDIRECTED_EDGE_COLOR = new Color(170, 170, 170); // Cinza para mão dupla
+    private static final Color DIRECTED_EDGE_COLOR = new Color(100, 100, 255);   // Azul para mão única
+    private static final Color NODE_DEFAULT_COLOR = Color.GRAY;
+    private static final Color FRONTIER_COLOR = new Color(0, 150, 70);
+    private static final BasicStroke[] STROKES = {
+            new BasicStroke(0), new BasicStroke(1), new BasicStroke(2), new BasicStroke(3), new BasicStroke(4)
+    };
+    private static final Font LABEL_FONT = new Font("Arial", Font.PLAIN, 10);
+
+    private static final double ZOOM_FACTOR = 1.1;
+
+    /** Lado, em pixels, dos tiles da camada base. */
+    private static final int RASTER_TILE_SIZE = 256;
+    /** Tiles da camada base em cache (256 KB cada); cobre com folga uma tela 4K. */
+    private static final int MAX_RASTER_TILES = 192;
+    /** Folga, em pixels, da área consultada para cada tile: raio dos nós, setas e agregação. */
+    private static final int RASTER_TILE_MARGIN = 16;
+
+    /** Acima disso (zoom afastado) as arestas de um tile saem sem antialiasing, setas e repetições. */
+    private static final int LOD_MAX_DETAILED_ARCS_PER_TILE = 2500;
+    /** Rótulos de aresta só quando há até tantas arestas visíveis (zoom próximo). */
+    private static final int LABEL_MAX_VISIBLE_ARCS = 1500;
+    /** Acima disso os nós de um tile são agregados por célula de tela. */
+    private static final int NODE_AGGREGATION_PER_TILE = 200;
+
+    // Índice espacial do grafo exibido e buffers reaproveitados entre pinturas
+    private GridIndex renderIndex;
+    private Edge[] arcEdges;
+    private Graph indexedGraph;
+    private int indexedModCount;
+    private int[] visibleArcs = new int[1024];
+    private int visibleArcCount;
+    private int[] visibleNodes = new int[1024];
+    private int visibleNodeCount;
+
+    // Camada base: tiles por (nível de zoom, coluna, linha), em ordem de uso (LRU)
+    private final LinkedHashMap<Long, BufferedImage> rasterTiles = new LinkedHashMap<>(64, 0.75f, true);
+    private Graph rasterGraph;
+    private int rasterModCount;
+    private int rasterTilesRendered;
+    // Arcos e nós dos tiles redesenhados na pintura atual (para o PaintEvent)
+    private int paintedArcs;
+    private int paintedNodes;
+
     private Point lastMousePressPoint;
 
     public GraphPanel() {
@@ -54,15 +117,47 @@ public class GraphPanel extends JPanel {
 
     // --- Setters e Getters ---
     public void setGraph(Graph graph) {
+        this.tileManager = null;
+        this.centrality = null;
         this.graph = graph;
         this.scaleX = 0.0;
         this.scaleY = 0.0;
         calculateScalingParameters();
     }
 
+    /**
+     * Exibe um grafo paginado: os blocos são carregados conforme o usuário
+     * navega, e o enquadramento inicial usa os limites do índice de blocos.
+     */
+    public void setTileManager(TileManager tileManager) {
+        this.graph = tileManager.getGraph();
+        this.tileManager = tileManager;
+        this.centrality = null;
+        this.scaleX = 0.0;
+        this.scaleY = 0.0;
+        calculateScalingParameters();
+    }
+
     public void setSelectedOrigin(Integer selectedOrigin) { this.selectedOrigin = selectedOrigin; }
     public void setSelectedDestination(Integer selectedDestination) { this.selectedDestination = selectedDestination; }
-    public void setShortestPath(List<Integer> shortestPath) { this.shortestPath = shortestPath; }
+    /** Destaca um único caminho no estilo padrão (null limpa). */
+    public void setShortestPath(List<Integer> shortestPath) { this.routes = RouteOverlay.of(shortestPath); }
+
+    /** Destaca várias rotas ao mesmo tempo, cada uma com seu estilo (null limpa). */
+    public void setRoutes(RouteOverlay routes) { this.routes = routes != null ? routes : new RouteOverlay(); }
+    public RouteOverlay getRoutes() { return routes; }
+
+    /** Destaca os nós na fronteira da última busca (null esconde). */
+    public void setSearchFrontier(int[] nodeIds) { this.searchFrontier = nodeIds; }
+
+    /** Colore as arestas pela centralidade (null volta às cores normais). */
+    public void setCentrality(Betweenness.Result centrality) {
+        this.centrality = centrality;
+        this.maxCentrality = centrality != null ? centrality.getMaxEdgeScore() : 0.0;
+        clearRasterTiles();
+    }
+
+    public Betweenness.Result getCentrality() { return centrality; }
     public void setShowEdgeLabels(boolean show) { this.showEdgeLabels = show; }
     
     public double getScaleX() { return scaleX; }
@@ -72,6 +167,11 @@ public class GraphPanel extends JPanel {
 
     // --- Métodos de Cálculo de Layout ---
     private void calculateInitialBoundingBox() {
+        if (tileManager != null) {
+            minXData = tileManager.getIndex().minX; maxXData = tileManager.getIndex().maxX;
+            minYData = tileManager.getIndex().minY; maxYData = tileManager.getIndex().maxY;
+            return;
+        }
         if (graph == null || graph.getNodes().isEmpty()) {
             minXData = 0.0; maxXData = 1.0; minYData = 0.0; maxYData = 1.0;
             return;
@@ -98,8 +198,12 @@ public class GraphPanel extends JPanel {
         double rangeY = maxYData - minYData;
         double fitScaleX = (panelWidth - 2 * padding) / (rangeX > 0 ? rangeX : 1.0);
         double fitScaleY = (panelHeight - 2 * padding) / (rangeY > 0 ? rangeY : 1.0);
-        this.scaleX = Math.min(fitScaleX, fitScaleY);
+        this.fitScale = Math.min(fitScaleX, fitScaleY);
+        this.zoomLevel = 0;
+        this.scaleX = fitScale;
         this.scaleY = this.scaleX;
+        // Outro enquadramento: os tiles de todos os níveis ficaram com a escala errada
+        clearRasterTiles();
         recalculateOffsets();
     }
 
@@ -110,105 +214,509 @@ public class GraphPanel extends JPanel {
         double padding = 20.0;
         double contentWidth = (maxXData - minXData) * scaleX;
         double contentHeight = (maxYData - minYData) * scaleY;
-        offsetX = padding + (panelWidth - 2 * padding - contentWidth) / 2.0 - minXData * scaleX;
-        offsetY = padding + (panelHeight - 2 * padding - contentHeight) / 2.0 - minYData * scaleY;
+        // Deslocamentos inteiros: os tiles em cache são copiados para a tela sem reamostragem
+        offsetX = Math.rint(padding + (panelWidth - 2 * padding - contentWidth) / 2.0 - minXData * scaleX);
+        offsetY = Math.rint(padding + (panelHeight - 2 * padding - contentHeight) / 2.0 - minYData * scaleY);
+    }
+
+    // --- Índice espacial para o desenho ---
+
+    /**
+     * Snapshot e grade do grafo exibido, refeitos quando o grafo muda (getModCount), inclusive
+     * quando o TileManager carrega ou descarta blocos: uma vez por janela ou consulta, já que
+     * ele agrupa as inserções com {@link Graph#beginUpdate()}. Arestas com geometria entram na grade
+     * pelo retângulo da polilinha inteira, não só dos extremos.
+     */
+    private GridIndex renderIndex() {
+        if (renderIndex == null || indexedGraph != graph || indexedModCount != graph.getModCount()) {
+            GraphSnapshot snapshot = GraphSnapshot.of(graph);
+            Edge[] edges = new Edge[snapshot.getNumArcs()];
+            double[] arcBounds = null;
+            for (int u = 0; u < snapshot.getNumNodes(); u++) {
+                Map<Integer, Edge> out = graph.getAdj().get(snapshot.nodeId(u));
+                for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                    Edge edge = out.get(snapshot.nodeId(snapshot.head(arc)));
+                    edges[arc] = edge;
+                    if (edge.getGeometry() == null) continue;
+                    if (arcBounds == null) arcBounds = endpointBounds(snapshot);
+                    double[] points = edge.getGeometry().toArray();
+                    for (int i = 0; i < points.length; i += 2) {
+                        arcBounds[4 * arc] = Math.min(arcBounds[4 * arc], points[i]);
+                        arcBounds[4 * arc + 1] = Math.min(arcBounds[4 * arc + 1], points[i + 1]);
+                        arcBounds[4 * arc + 2] = Math.max(arcBounds[4 * arc + 2], points[i]);
+                        arcBounds[4 * arc + 3] = Math.max(arcBounds[4 * arc + 3], points[i + 1]);
+                    }
+                }
+            }
+            renderIndex = GridIndex.build(snapshot, arcBounds);
+            arcEdges = edges;
+            indexedGraph = graph;
+            indexedModCount = graph.getModCount();
+        }
+        return renderIndex;
+    }
+
+    private static double[] endpointBounds(GraphSnapshot snapshot) {
+        double[] bounds = new double[4 * snapshot.getNumArcs()];
+        for (int u = 0; u < snapshot.getNumNodes(); u++) {
+            for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                int v = snapshot.head(arc);
+                bounds[4 * arc] = Math.min(snapshot.x(u), snapshot.x(v));
+                bounds[4 * arc + 1] = Math.min(snapshot.y(u), snapshot.y(v));
+                bounds[4 * arc + 2] = Math.max(snapshot.x(u), snapshot.x(v));
+                bounds[4 * arc + 3] = Math.max(snapshot.y(u), snapshot.y(v));
+            }
+        }
+        return bounds;
     }
 
     // --- MÉTODO DE DESENHO PRINCIPAL ---
+
+    /**
+     * Duas camadas. A base (arestas e nós) só depende do grafo, da centralidade e do nível
+     * de zoom, e fica em tiles de {@value #RASTER_TILE_SIZE} pixels em cache: arrastar o
+     * mapa só copia tiles e desenha os que entraram na tela. A camada dinâmica (rótulos,
+     * fronteira de busca, caminho e seleção) é redesenhada a cada pintura por cima dos
+     * tiles, então trocar a rota não toca na malha viária.
+     */
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-        if (graph == null || graph.getNodes().isEmpty()) return;
+        if (graph == null) return;
+        PaintEvent event = new PaintEvent();
+        event.begin();
+        if (tileManager != null) {
+            if (this.scaleX == 0.0) calculateScalingParameters();
+            // Pagina os blocos que cobrem a área visível antes de desenhar
+            tileManager.ensureRegionLoaded(-offsetX / scaleX, -offsetY / scaleY,
+                    (getWidth() - offsetX) / scaleX, (getHeight() - offsetY) / scaleY);
+        }
+        if (graph.getNodes().isEmpty()) return;
         if (this.scaleX == 0.0) calculateScalingParameters();
 
-        // --- DEFINIÇÃO DAS CORES ---
-        Color undirectedEdgeColor = new Color(170, 170, 170); // Cinza para mão dupla
-        Color directedEdgeColor = new Color(100, 100, 255);   // Azul para mão única
-        Color pathColor = Color.RED;                          // Vermelho para o caminho
-        Color nodeDefaultColor = Color.GRAY;
+        GridIndex index = renderIndex();
+        if (rasterGraph != graph || rasterModCount != graph.getModCount()) {
+            clearRasterTiles();
+            rasterGraph = graph;
+            rasterModCount = graph.getModCount();
+        }
+
+        // --- Camada base: tiles em cache; só os que faltam são desenhados ---
+        int tx0 = Math.floorDiv((int) -offsetX, RASTER_TILE_SIZE);
+        int tx1 = Math.floorDiv((int) (getWidth() - 1 - offsetX), RASTER_TILE_SIZE);
+        int ty0 = Math.floorDiv((int) -offsetY, RASTER_TILE_SIZE);
+        int ty1 = Math.floorDiv((int) (getHeight() - 1 - offsetY), RASTER_TILE_SIZE);
+        int renderedBefore = rasterTilesRendered;
+        paintedArcs = 0;
+        paintedNodes = 0;
+        for (int ty = ty0; ty <= ty1; ty++) {
+            for (int tx = tx0; tx <= tx1; tx++) {
+                g2d.drawImage(rasterTile(index, tx, ty),
+                        tx * RASTER_TILE_SIZE + (int) offsetX, ty * RASTER_TILE_SIZE + (int) offsetY, null);
+            }
+        }
+        evictRasterTiles();
+
+        // --- Camada dinâmica ---
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        if (showEdgeLabels) drawEdgeLabels(g2d, index);
+
+        // Rotas por cima das demais arestas, na ordem em que foram adicionadas
+        for (RouteOverlay.Route route : routes.getRoutes()) {
+            drawRoute(g2d, route);
+        }
+        if (searchFrontier != null) drawFrontier(g2d);
+        // Nós das rotas, origem e destino sempre individualmente e por cima
+        for (RouteOverlay.Route route : routes.getRoutes()) {
+            drawRouteNodes(g2d, route);
+        }
+        drawSelectedNode(g2d, selectedOrigin, Color.BLUE);
+        drawSelectedNode(g2d, selectedDestination, Color.ORANGE);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.width = getWidth();
+            event.height = getHeight();
+            event.zoomLevel = zoomLevel;
+            event.visibleTiles = (tx1 - tx0 + 1) * (ty1 - ty0 + 1);
+            event.renderedTiles = rasterTilesRendered - renderedBefore;
+            event.arcs = paintedArcs;
+            event.nodes = paintedNodes;
+            event.routes = routes.getRoutes().size();
+            event.frontierNodes = searchFrontier != null ? searchFrontier.length : 0;
+            event.commit();
+        }
+    }
+
+    // --- Camada base ---
+
+    private static long rasterKey(int zoomLevel, int tx, int ty) {
+        return ((long) (zoomLevel & 0xFFFF) << 48) | ((long) (tx & 0xFFFFFF) << 24) | (ty & 0xFFFFFF);
+    }
+
+    private BufferedImage rasterTile(GridIndex index, int tx, int ty) {
+        long key = rasterKey(zoomLevel, tx, ty);
+        BufferedImage tile = rasterTiles.get(key); // get() atualiza a ordem LRU
+        if (tile != null) return tile;
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        tile = configuration != null
+                ? configuration.createCompatibleImage(RASTER_TILE_SIZE, RASTER_TILE_SIZE)
+                : new BufferedImage(RASTER_TILE_SIZE, RASTER_TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D tileGraphics = tile.createGraphics();
+        tileGraphics.setColor(getBackground());
+        tileGraphics.fillRect(0, 0, RASTER_TILE_SIZE, RASTER_TILE_SIZE);
+        // O tile (tx, ty) cobre os pixels [tx * SIZE, (tx + 1) * SIZE) do mapa neste zoom
+        drawBase(tileGraphics, index, -(double) tx * RASTER_TILE_SIZE, -(double) ty * RASTER_TILE_SIZE,
+                RASTER_TILE_SIZE, RASTER_TILE_SIZE);
+        paintedArcs += visibleArcCount;
+        paintedNodes += visibleNodeCount;
+        tileGraphics.dispose();
+        rasterTiles.put(key, tile);
+        rasterTilesRendered++;
+        return tile;
+    }
+
+    private void evictRasterTiles() {
+        Iterator<BufferedImage> it = rasterTiles.values().iterator();
+        while (rasterTiles.size() > MAX_RASTER_TILES && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void clearRasterTiles() {
+        rasterTiles.clear();
+    }
+
+    /** Tiles da camada base desenhados desde a criação do painel (os demais vieram do cache). */
+    public int getRasterTilesRendered() { return rasterTilesRendered; }
+
+    /**
+     * Desenha arestas e nós do retângulo {@code [0, width) x [0, height)} de {@code g2d}, com
+     * o grafo posicionado por {@code (ox, oy)} no lugar de {@code (offsetX, offsetY)}. Os
+     * arcos e nós vêm de uma área um pouco maior, para que o que cruza a borda (linhas,
+     * círculos, setas, marcadores agregados) saia igual nos dois tiles vizinhos.
+     */
+    private void drawBase(Graphics2D g2d, GridIndex index, double ox, double oy, int width, int height) {
+        GraphSnapshot snapshot = index.getSnapshot();
+        double marginX = RASTER_TILE_MARGIN / scaleX, marginY = RASTER_TILE_MARGIN / scaleY;
+        double x0 = -ox / scaleX - marginX, y0 = -oy / scaleY - marginY;
+        double x1 = (width - ox) / scaleX + marginX, y1 = (height - oy) / scaleY + marginY;
+
+        collectVisibleArcs(index, x0, y0, x1, y1);
+        // Com muitas arestas no tile cada uma ocupa poucos pixels: sem antialiasing,
+        // sem setas e sem segmentos repetidos no mesmo par de pixels
+        boolean detailed = visibleArcCount <= LOD_MAX_DETAILED_ARCS_PER_TILE;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                detailed ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        SegmentSet drawnSegments = detailed ? null : new SegmentSet(visibleArcCount);
 
         // --- Desenhar Arestas ---
-        for (Map.Entry<Integer, Map<Integer, Edge>> entryU : graph.getAdj().entrySet()) {
-            Node uNode = graph.getNodes().get(entryU.getKey());
-            if (uNode == null) continue;
-
-            double x1 = uNode.getX() * scaleX + offsetX;
-            double y1 = uNode.getY() * scaleY + offsetY;
-
-            for (Map.Entry<Integer, Edge> entryV : entryU.getValue().entrySet()) {
-                Edge edge = entryV.getValue();
-                Node vNode = graph.getNodes().get(edge.getV());
-                if (vNode == null || (!edge.isDirected() && uNode.getIdInterno() > vNode.getIdInterno())) continue;
-
-                double x2 = vNode.getX() * scaleX + offsetX;
-                double y2 = vNode.getY() * scaleY + offsetY;
-
-                Color lineColor;
-                int lineWidth = 1;
-                
-                // --- LÓGICA DE SELEÇÃO DE COR DA ARESTA ATUALIZADA ---
-                if (shortestPath != null && isEdgeInPath(uNode.getIdInterno(), vNode.getIdInterno())) {
-                    lineColor = pathColor;
-                    lineWidth = 2;
-                } else if (edge.isDirected()) {
-                    lineColor = directedEdgeColor; // Cor para mão única
-                } else {
-                    lineColor = undirectedEdgeColor; // Cor para mão dupla
-                }
-                
-                g2d.setColor(lineColor);
-                g2d.setStroke(new BasicStroke(lineWidth));
-                g2d.drawLine((int) x1, (int) y1, (int) x2, (int) y2);
-                
-                if (this.showEdgeLabels) {
-                    g2d.setColor(Color.BLACK);
-                    g2d.setFont(new Font("Arial", Font.PLAIN, 10));
-                    int midX = (int) ((x1 + x2) / 2);
-                    int midY = (int) ((y1 + y2) / 2);
-                    g2d.drawString(edge.getLabel(), midX, midY);
-                }
+        for (int i = 0; i < visibleArcCount; i++) {
+            int arc = visibleArcs[i];
+            Edge edge = arcEdges[arc];
+            int u = snapshot.arcSource(arc);
+            int v = snapshot.head(arc);
+            double sx1 = snapshot.x(u) * scaleX + ox;
+            double sy1 = snapshot.y(u) * scaleY + oy;
+            double sx2 = snapshot.x(v) * scaleX + ox;
+            double sy2 = snapshot.y(v) * scaleY + oy;
+
+            if (edge.getGeometry() == null) {
+                int px1 = (int) Math.floor(sx1), py1 = (int) Math.floor(sy1);
+                int px2 = (int) Math.floor(sx2), py2 = (int) Math.floor(sy2);
+                // Segmento dentro de um único pixel: a aresta vizinha já cobre o ponto
+                if (px1 == px2 && py1 == py2) continue;
+                if (drawnSegments != null && !drawnSegments.add(segmentKey(px1, py1, px2, py2))) continue;
+            }
 
-                if (edge.isDirected()) {
-                    drawArrow(g2d, x1, y1, x2, y2, lineColor);
+            Color lineColor;
+            int lineWidth = 1;
+            if (centrality != null) {
+                double t = centralityLevel(edge.getU(), edge.getV());
+                lineColor = centralityColor(t);
+                lineWidth = 1 + (int) Math.round(t * 3);
+            } else if (edge.isDirected()) {
+                lineColor = DIRECTED_EDGE_COLOR;
+            } else {
+                lineColor = UNDIRECTED_EDGE_COLOR;
+            }
+
+            g2d.setColor(lineColor);
+            g2d.setStroke(STROKES[lineWidth]);
+            double arrowFromX = sx1, arrowFromY = sy1;
+            if (edge.getGeometry() != null) {
+                // Aresta contraída: desenha a forma real da via pelos pontos intermediários
+                double[] points = edge.getGeometry().toArray();
+                Path2D.Double polyline = new Path2D.Double();
+                polyline.moveTo(sx1, sy1);
+                for (int k = 0; k < points.length; k += 2) {
+                    polyline.lineTo(points[k] * scaleX + ox, points[k + 1] * scaleY + oy);
                 }
+                polyline.lineTo(sx2, sy2);
+                g2d.draw(polyline);
+                arrowFromX = points[points.length - 2] * scaleX + ox;
+                arrowFromY = points[points.length - 1] * scaleY + oy;
+            } else {
+                g2d.drawLine((int) Math.floor(sx1), (int) Math.floor(sy1), (int) Math.floor(sx2), (int) Math.floor(sy2));
+            }
+
+            if (edge.isDirected() && detailed) {
+                drawArrow(g2d, arrowFromX, arrowFromY, sx2, sy2, lineColor);
             }
         }
 
         // --- Desenhar Nós ---
-        for (Node node : graph.getNodes().values()) {
-            double x = node.getX() * scaleX + offsetX;
-            double y = node.getY() * scaleY + offsetY;
-            Color nodeColor = nodeDefaultColor;
-            Color outlineColor = Color.DARK_GRAY;
-
-            if (selectedOrigin != null && node.getIdInterno() == selectedOrigin) {
-                nodeColor = Color.BLUE;
-            } else if (selectedDestination != null && node.getIdInterno() == selectedDestination) {
-                nodeColor = Color.ORANGE;
-            } else if (shortestPath != null && shortestPath.contains(node.getIdInterno())) {
-                nodeColor = pathColor;
+        collectVisibleNodes(index, x0, y0, x1, y1);
+        if (visibleNodeCount > NODE_AGGREGATION_PER_TILE) {
+            drawAggregatedNodes(g2d, snapshot, ox, oy, width, height);
+        } else {
+            for (int i = 0; i < visibleNodeCount; i++) {
+                int v = visibleNodes[i];
+                drawNode(g2d, snapshot.x(v) * scaleX + ox, snapshot.y(v) * scaleY + oy, NODE_DEFAULT_COLOR);
+            }
+        }
+    }
+
+    private void collectVisibleArcs(GridIndex index, double x0, double y0, double x1, double y1) {
+        visibleArcCount = 0;
+        index.forEachArcIn(x0, y0, x1, y1, arc -> {
+            if (visibleArcCount == visibleArcs.length) visibleArcs = Arrays.copyOf(visibleArcs, visibleArcCount * 2);
+            visibleArcs[visibleArcCount++] = arc;
+        });
+    }
+
+    private void collectVisibleNodes(GridIndex index, double x0, double y0, double x1, double y1) {
+        visibleNodeCount = 0;
+        index.forEachNodeIn(x0, y0, x1, y1, v -> {
+            if (visibleNodeCount == visibleNodes.length) visibleNodes = Arrays.copyOf(visibleNodes, visibleNodeCount * 2);
+            visibleNodes[visibleNodeCount++] = v;
+        });
+    }
+
+    private static long segmentKey(int px1, int py1, int px2, int py2) {
+        // Mesmo segmento nos dois sentidos gera a mesma chave
+        if (px1 > px2 || (px1 == px2 && py1 > py2)) {
+            int tx = px1, ty = py1;
+            px1 = px2; py1 = py2;
+            px2 = tx; py2 = ty;
+        }
+        return ((long) (px1 & 0xFFFF) << 48) | ((long) (py1 & 0xFFFF) << 32) | ((long) (px2 & 0xFFFF) << 16) | (py2 & 0xFFFF);
+    }
+
+    /**
+     * Com muitos nós no tile, um marcador por célula de {@code 2 * NODE_RADIUS} pixels, no
+     * centroide dos nós da célula. Células com vários nós ganham um marcador mais escuro.
+     * A grade é alinhada aos pixels do mapa, não ao tile, para que uma célula na borda
+     * produza o mesmo marcador nos dois tiles.
+     */
+    private void drawAggregatedNodes(Graphics2D g2d, GraphSnapshot snapshot, double ox, double oy, int width, int height) {
+        int cell = NODE_RADIUS * 2;
+        int firstColumn = (int) Math.floor((-ox - RASTER_TILE_MARGIN) / cell);
+        int firstRow = (int) Math.floor((-oy - RASTER_TILE_MARGIN) / cell);
+        int columns = (width + 2 * RASTER_TILE_MARGIN) / cell + 2, rows = (height + 2 * RASTER_TILE_MARGIN) / cell + 2;
+        int[] counts = new int[columns * rows];
+        double[] sumX = new double[columns * rows];
+        double[] sumY = new double[columns * rows];
+        for (int i = 0; i < visibleNodeCount; i++) {
+            int v = visibleNodes[i];
+            double mapX = snapshot.x(v) * scaleX;
+            double mapY = snapshot.y(v) * scaleY;
+            int c = (int) Math.floor(mapX / cell) - firstColumn;
+            int r = (int) Math.floor(mapY / cell) - firstRow;
+            if (c < 0 || c >= columns || r < 0 || r >= rows) continue;
+            int slot = c + r * columns;
+            counts[slot]++;
+            sumX[slot] += mapX;
+            sumY[slot] += mapY;
+        }
+        int radius = NODE_RADIUS / 2;
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] == 0) continue;
+            int x = (int) Math.floor(sumX[slot] / counts[slot] + ox);
+            int y = (int) Math.floor(sumY[slot] / counts[slot] + oy);
+            g2d.setColor(counts[slot] > 1 ? Color.DARK_GRAY : NODE_DEFAULT_COLOR);
+            g2d.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+        }
+    }
+
+    // --- Camada dinâmica ---
+
+    /**
+     * Rótulos das arestas visíveis. Ficam fora dos tiles para que a escolha de quais cabem
+     * seja feita na tela inteira, sem rótulos cortados na borda de um tile; como só são
+     * desenhados com poucas arestas na tela, o custo por pintura continua limitado.
+     */
+    private void drawEdgeLabels(Graphics2D g2d, GridIndex index) {
+        GraphSnapshot snapshot = index.getSnapshot();
+        double x0 = -offsetX / scaleX, y0 = -offsetY / scaleY;
+        double x1 = (getWidth() - offsetX) / scaleX, y1 = (getHeight() - offsetY) / scaleY;
+        if (index.countArcEntriesIn(x0, y0, x1, y1) > LABEL_MAX_VISIBLE_ARCS) return;
+        collectVisibleArcs(index, x0, y0, x1, y1);
+        LabelGrid labelGrid = new LabelGrid(getWidth(), getHeight());
+        g2d.setFont(LABEL_FONT);
+        // Rótulos das arestas das rotas primeiro, na cor da rota, para não perderem o lugar
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < visibleArcCount; i++) {
+                int arc = visibleArcs[i];
+                Edge edge = arcEdges[arc];
+                RouteOverlay.Route route = routes.isEmpty() ? null : routes.routeOfEdge(edge.getU(), edge.getV());
+                if ((route != null) != (pass == 0)) continue;
+                int u = snapshot.arcSource(arc);
+                int v = snapshot.head(arc);
+                drawEdgeLabel(g2d, labelGrid, edge, route != null ? route.getStyle().getColor() : Color.BLACK,
+                        snapshot.x(u) * scaleX + offsetX, snapshot.y(u) * scaleY + offsetY,
+                        snapshot.x(v) * scaleX + offsetX, snapshot.y(v) * scaleY + offsetY);
             }
+        }
+    }
+
+    private void drawRoute(Graphics2D g2d, RouteOverlay.Route route) {
+        double[] points = route.geometry(graph);
+        if (points.length < 4) return;
+        Path2D.Double polyline = new Path2D.Double();
+        polyline.moveTo(points[0] * scaleX + offsetX, points[1] * scaleY + offsetY);
+        for (int k = 2; k < points.length; k += 2) {
+            polyline.lineTo(points[k] * scaleX + offsetX, points[k + 1] * scaleY + offsetY);
+        }
+        g2d.setColor(route.getStyle().getColor());
+        g2d.setStroke(route.getStyle().getStroke());
+        g2d.draw(polyline);
+    }
+
+    private void drawRouteNodes(Graphics2D g2d, RouteOverlay.Route route) {
+        Color color = route.getStyle().getColor();
+        for (int nodeId : route.getPath()) {
+            Node node = graph.getNodes().get(nodeId);
+            if (node == null) continue;
+            double x = node.getX() * scaleX + offsetX, y = node.getY() * scaleY + offsetY;
+            if (x < -NODE_RADIUS || y < -NODE_RADIUS || x > getWidth() + NODE_RADIUS || y > getHeight() + NODE_RADIUS) continue;
+            drawNode(g2d, x, y, color);
+        }
+    }
+
+    /** Nós rotulados e ainda não assentados pela última busca, como pontos pequenos. */
+    private void drawFrontier(Graphics2D g2d) {
+        int radius = NODE_RADIUS / 2;
+        g2d.setColor(FRONTIER_COLOR);
+        for (int nodeId : searchFrontier) {
+            // Nós de rota já ganham marcador próprio
+            if (routes.routeOfNode(nodeId) != null) continue;
+            Node node = graph.getNodes().get(nodeId);
+            if (node == null) continue;
+            int x = (int) (node.getX() * scaleX + offsetX);
+            int y = (int) (node.getY() * scaleY + offsetY);
+            if (x < -radius || y < -radius || x > getWidth() + radius || y > getHeight() + radius) continue;
+            g2d.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+        }
+    }
+
+    private void drawSelectedNode(Graphics2D g2d, Integer nodeId, Color color) {
+        if (nodeId == null) return;
+        Node node = graph.getNodes().get(nodeId);
+        if (node != null) drawNode(g2d, node.getX() * scaleX + offsetX, node.getY() * scaleY + offsetY, color);
+    }
+
+    private void drawNode(Graphics2D g2d, double x, double y, Color color) {
+        int left = (int) Math.floor(x - NODE_RADIUS), top = (int) Math.floor(y - NODE_RADIUS);
+        g2d.setColor(color);
+        g2d.fillOval(left, top, NODE_RADIUS * 2, NODE_RADIUS * 2);
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.drawOval(left, top, NODE_RADIUS * 2, NODE_RADIUS * 2);
+    }
 
-            g2d.setColor(nodeColor);
-            g2d.fillOval((int) (x - NODE_RADIUS), (int) (y - NODE_RADIUS), NODE_RADIUS * 2, NODE_RADIUS * 2);
-            g2d.setColor(outlineColor);
-            g2d.drawOval((int) (x - NODE_RADIUS), (int) (y - NODE_RADIUS), NODE_RADIUS * 2, NODE_RADIUS * 2);
+    /**
+     * Rótulo no meio da aresta, se couber nela e não colidir com um rótulo já desenhado
+     * nesta pintura.
+     */
+    private void drawEdgeLabel(Graphics2D g2d, LabelGrid labelGrid, Edge edge, Color color,
+                               double x1, double y1, double x2, double y2) {
+        String text = edge.getLabel();
+        FontMetrics metrics = g2d.getFontMetrics();
+        int width = metrics.stringWidth(text);
+        double dx = x2 - x1, dy = y2 - y1;
+        if (dx * dx + dy * dy < (double) width * width) return;
+        int midX = (int) ((x1 + x2) / 2);
+        int midY = (int) ((y1 + y2) / 2);
+        if (!labelGrid.reserve(midX, midY - metrics.getAscent(), width, metrics.getHeight())) return;
+        g2d.setColor(color);
+        g2d.drawString(text, midX, midY);
+    }
+
+    /** Conjunto de chaves de segmento (endereçamento aberto, sem objetos por chave). */
+    private static final class SegmentSet {
+        private final long[] keys;
+        private final boolean[] filled;
+        private final int mask;
+
+        SegmentSet(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            filled = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        /** Falso se a chave já estava no conjunto. */
+        boolean add(long key) {
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while (filled[slot]) {
+                if (keys[slot] == key) return false;
+                slot = (slot + 1) & mask;
+            }
+            filled[slot] = true;
+            keys[slot] = key;
+            return true;
         }
     }
 
-    private boolean isEdgeInPath(int uId, int vId) {
-        if (shortestPath == null || shortestPath.size() < 2) return false;
-        for (int i = 0; i < shortestPath.size() - 1; i++) {
-            int pathU = shortestPath.get(i);
-            int pathV = shortestPath.get(i + 1);
-            if ((pathU == uId && pathV == vId) || (pathU == vId && pathV == uId)) {
-                return true;
+    /** Ocupação da tela em células de poucos pixels, para descartar rótulos sobrepostos. */
+    private static final class LabelGrid {
+        private static final int CELL = 4;
+        private final int columns, rows;
+        private final boolean[] used;
+
+        LabelGrid(int width, int height) {
+            columns = Math.max(1, width / CELL + 1);
+            rows = Math.max(1, height / CELL + 1);
+            used = new boolean[columns * rows];
+        }
+
+        /** Marca o retângulo como ocupado; falso (sem marcar nada) se já havia algo nele. */
+        boolean reserve(int x, int y, int width, int height) {
+            int c0 = Math.max(0, x / CELL), c1 = Math.min(columns - 1, (x + width) / CELL);
+            int r0 = Math.max(0, y / CELL), r1 = Math.min(rows - 1, (y + height) / CELL);
+            if (c0 > c1 || r0 > r1) return false;
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    if (used[c + r * columns]) return false;
+                }
             }
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) used[c + r * columns] = true;
+            }
+            return true;
         }
-        return false;
+    }
+
+    /**
+     * Centralidade da aresta normalizada em [0, 1]. A raiz quadrada espalha os
+     * valores baixos, que são a grande maioria em malhas viárias.
+     */
+    private double centralityLevel(int uId, int vId) {
+        if (maxCentrality <= 0) return 0.0;
+        return Math.sqrt(centrality.edgeScore(uId, vId) / maxCentrality);
+    }
+
+    /** Rampa azul -> amarelo -> vermelho. */
+    private static Color centralityColor(double t) {
+        if (t < 0.5) {
+            double k = t / 0.5;
+            return new Color((int) (60 + k * 195), (int) (110 + k * 110), (int) (220 - k * 190));
+        }
+        double k = (t - 0.5) / 0.5;
+        return new Color(255, (int) (220 - k * 190), (int) (30 - k * 30));
     }
 
     private void drawArrow(Graphics2D g2, double x1, double y1, double x2, double y2, Color color) {
@@ -233,19 +741,14 @@ public class GraphPanel extends JPanel {
     }
     
     public Integer getNearestNodeIdFromClick(int clickX, int clickY) {
-        if (graph == null) return null;
-        Integer nearestNodeId = null;
-        double minDistanceSq = Double.POSITIVE_INFINITY;
-        for (Node node : graph.getNodes().values()) {
-            double nodeXCanvas = node.getX() * scaleX + offsetX;
-            double nodeYCanvas = node.getY() * scaleY + offsetY;
-            double distSq = Math.pow(clickX - nodeXCanvas, 2) + Math.pow(clickY - nodeYCanvas, 2);
-            if (distSq < minDistanceSq && distSq <= Math.pow(CLICK_TOLERANCE_PX, 2)) {
-                minDistanceSq = distSq;
-                nearestNodeId = node.getIdInterno();
-            }
-        }
-        return nearestNodeId;
+        if (graph == null || graph.getNodes().isEmpty() || scaleX == 0.0) return null;
+        GridIndex index = renderIndex();
+        int nearest = index.nearestNode((clickX - offsetX) / scaleX, (clickY - offsetY) / scaleY);
+        if (nearest < 0) return null;
+        GraphSnapshot snapshot = index.getSnapshot();
+        double dx = clickX - (snapshot.x(nearest) * scaleX + offsetX);
+        double dy = clickY - (snapshot.y(nearest) * scaleY + offsetY);
+        return dx * dx + dy * dy <= CLICK_TOLERANCE_PX * CLICK_TOLERANCE_PX ? snapshot.nodeId(nearest) : null;
     }
     
     // --- Handlers de Eventos Internos ---
@@ -275,19 +778,14 @@ public class GraphPanel extends JPanel {
         @Override
         public void mouseWheelMoved(MouseWheelEvent e) {
             if (panel.graph == null) return;
-            double zoomFactor = 1.1;
             double currentScaleX = panel.scaleX;
-            if (e.getWheelRotation() < 0) {
-                panel.scaleX *= zoomFactor;
-                panel.scaleY *= zoomFactor;
-            } else {
-                panel.scaleX /= zoomFactor;
-                panel.scaleY /= zoomFactor;
-            }
+            panel.zoomLevel += e.getWheelRotation() < 0 ? 1 : -1;
+            panel.scaleX = panel.fitScale * Math.pow(ZOOM_FACTOR, panel.zoomLevel);
+            panel.scaleY = panel.scaleX;
             double graphXFixedPoint = (e.getX() - panel.offsetX) / currentScaleX;
             double graphYFixedPoint = (e.getY() - panel.offsetY) / currentScaleX;
-            panel.offsetX = e.getX() - graphXFixedPoint * panel.scaleX;
-            panel.offsetY = e.getY() - graphYFixedPoint * panel.scaleY;
+            panel.offsetX = Math.rint(e.getX() - graphXFixedPoint * panel.scaleX);
+            panel.offsetY = Math.rint(e.getY() - graphYFixedPoint * panel.scaleY);
             panel.repaint();
         }
     }
@@ -1,9 +1,19 @@
 package gui;
 
+import io.EditJournal;
 import io.PolyReader;
 import io.OsmConverter;
+import io.ProgressListener;
+import io.RoutingProfile;
+import io.TileManager;
+import io.TileStore;
+import model.ChainContractor;
 import model.Graph;
+import model.GraphBuilder;
+import model.GraphSnapshot;
 import model.Node;
+import routing.Betweenness;
+import routing.SpeculativeRouter;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -12,16 +22,31 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class NavigationApp extends JFrame {
     private Graph graph;
     private GraphPanel graphPanel;
+    private TileManager tileManager; // não nulo quando o mapa aberto é paginado em blocos
+    // Instância só das consultas de rota, sobre os mesmos blocos: o painel pagina tileManager
+    // na EDT, então a busca em segundo plano não pode tocar no grafo dele
+    private TileManager routingTiles;
 
     private Integer selectedOrigin = null;
     private Integer selectedDestination = null;
     private List<Integer> shortestPath = null;
+    private double[] shortestPathGeometry = null; // polilinha pronta da rota em mapas em blocos
+    private int[] searchFrontier = null; // fronteira da última busca, para exibição
 
     // Em NavigationApp.java, junto com os outros componentes
 
@@ -37,6 +62,15 @@ public class NavigationApp extends JFrame {
     private JButton calculatePathBtn;
     private JButton importGraphPolyBtn;
     private JButton importGraphOsmBtn;
+    private JButton contractChainsBtn;
+    private JButton exportTilesBtn;
+    private JButton openTilesBtn;
+    private JButton centralityBtn;
+    private JButton undoBtn;
+    private JButton redoBtn;
+    private JButton compactJournalBtn;
+    private JButton cancelTaskBtn;
+    private JProgressBar taskProgressBar;
 
     // Checkboxes de controle de exibição
     private JCheckBox showEdgeLabelsCheckbox;
@@ -48,6 +82,26 @@ public class NavigationApp extends JFrame {
     private JRadioButton removeElementRadio;
     private JRadioButton noneModeRadio;
     private Integer firstNodeForEdge = null;
+    private boolean polyWeights = true; // arestas novas com a escala do .poly (falso para grafos OSM)
+    // Diário de edições do grafo atual (null no mapa em blocos, que não é editável de forma persistente)
+    private EditJournal journal;
+    private boolean journalWarningShown; // já avisou que o diário atual ficou só em memória
+    // Snapshot do grafo atual, refeito quando o grafo muda (getModCount), e a busca especulativa sobre ele
+    private GraphSnapshot snapshot;
+    private Graph snapshotGraph;
+    private int snapshotModCount;
+    private SpeculativeRouter speculativeRouter;
+    // Importação ou consulta rodando fora da EDT (uma por vez)
+    private SwingWorker<?, ?> backgroundTask;
+    private boolean backgroundTaskIsRoute;
+    private boolean backgroundTaskReadsGraph; // a tarefa lê o grafo vivo: edições esperam o fim
+
+    private static final int TILE_TARGET_NODES = 2000;
+    private static final int MAX_LOADED_TILES = 64;
+    private static final int SPECULATIVE_MAX_SETTLED = 2_000_000;
+    private static final int EXACT_CENTRALITY_MAX_NODES = 3000;
+    private static final double CENTRALITY_EPSILON = 0.05;
+    private static final double CENTRALITY_CONFIDENCE = 0.95;
 
     public NavigationApp() {
         setTitle("Sistema de Navegação Primitivo (Java)");
@@ -57,6 +111,14 @@ public class NavigationApp extends JFrame {
 
         initComponents();
         createLayout();
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                replaceJournal(null);
+                if (speculativeRouter != null) speculativeRouter.close();
+            }
+        });
     }
 
     private void initComponents() {
@@ -84,6 +146,18 @@ public class NavigationApp extends JFrame {
 
         importGraphPolyBtn = new JButton("Importar .poly");
         importGraphOsmBtn = new JButton("Importar .osm");
+        contractChainsBtn = new JButton("Simplificar (contrair grau 2)");
+        exportTilesBtn = new JButton("Exportar blocos");
+        openTilesBtn = new JButton("Abrir blocos");
+        centralityBtn = new JButton("Centralidade (betweenness)");
+        undoBtn = new JButton("Desfazer");
+        redoBtn = new JButton("Refazer");
+        compactJournalBtn = new JButton("Salvar edições no .poly");
+        updateJournalButtons();
+        cancelTaskBtn = new JButton("Cancelar");
+        cancelTaskBtn.setVisible(false);
+        taskProgressBar = new JProgressBar(0, 100);
+        taskProgressBar.setVisible(false);
 
         showEdgeLabelsCheckbox = new JCheckBox("Rotular Arestas", true);
 
@@ -93,6 +167,16 @@ public class NavigationApp extends JFrame {
         calculatePathBtn.addActionListener(e -> calculateShortestPath());
         importGraphPolyBtn.addActionListener(e -> importPolyGraph());
         importGraphOsmBtn.addActionListener(e -> importOsmGraph());
+        contractChainsBtn.addActionListener(e -> contractChains());
+        exportTilesBtn.addActionListener(e -> exportTiles());
+        openTilesBtn.addActionListener(e -> openTiles());
+        centralityBtn.addActionListener(e -> toggleCentrality());
+        undoBtn.addActionListener(e -> undoEdit());
+        redoBtn.addActionListener(e -> redoEdit());
+        compactJournalBtn.addActionListener(e -> compactJournal());
+        cancelTaskBtn.addActionListener(e -> {
+            if (backgroundTask != null) backgroundTask.cancel(true);
+        });
 
         showEdgeLabelsCheckbox.addActionListener(e -> {
             if (graphPanel != null) {
@@ -133,69 +217,96 @@ public class NavigationApp extends JFrame {
         gbc.gridx = 0;
         gbc.gridy = 1;
         gbc.gridwidth = 2;
-        controlPanel.add(new JSeparator(), gbc);
+        controlPanel.add(contractChainsBtn, gbc);
 
+        gbc.gridx = 0;
         gbc.gridy = 2;
+        controlPanel.add(centralityBtn, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.gridwidth = 1;
+        controlPanel.add(exportTilesBtn, gbc);
+        gbc.gridx = 1;
+        controlPanel.add(openTilesBtn, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        gbc.gridwidth = 2;
+        controlPanel.add(new JSeparator(), gbc);
+
+        gbc.gridy = 5;
         gbc.gridwidth = 1;
         controlPanel.add(new JLabel("Origem:"), gbc);
         gbc.gridx = 1;
         controlPanel.add(originLabel, gbc);
 
         gbc.gridx = 0;
-        gbc.gridy = 3;
+        gbc.gridy = 6;
         controlPanel.add(new JLabel("Destino:"), gbc);
         gbc.gridx = 1;
         controlPanel.add(destinationLabel, gbc);
 
         gbc.gridx = 0;
-        gbc.gridy = 4;
+        gbc.gridy = 7;
         controlPanel.add(selectOriginBtn, gbc);
         gbc.gridx = 1;
         controlPanel.add(selectDestBtn, gbc);
 
         gbc.gridx = 0;
-        gbc.gridy = 5;
+        gbc.gridy = 8;
         gbc.gridwidth = 2;
         controlPanel.add(calculatePathBtn, gbc);
 
-        gbc.gridy = 6;
+        gbc.gridy = 9;
         controlPanel.add(new JSeparator(), gbc);
 
-        gbc.gridy = 7;
+        gbc.gridy = 10;
         controlPanel.add(new JLabel("Modo de Edição:"), gbc);
 
         gbc.gridx = 0;
-        gbc.gridy = 8;
+        gbc.gridy = 11;
         gbc.gridwidth = 1;
         controlPanel.add(noneModeRadio, gbc);
         gbc.gridx = 1;
         controlPanel.add(addEdgeRadio, gbc);
 
         gbc.gridx = 0;
-        gbc.gridy = 9;
+        gbc.gridy = 12;
         controlPanel.add(addNodeRadio, gbc);
         gbc.gridx = 1;
         controlPanel.add(removeElementRadio, gbc);
 
-        gbc.gridy = 10;
+        gbc.gridx = 0;
+        gbc.gridy = 13;
+        controlPanel.add(undoBtn, gbc);
+        gbc.gridx = 1;
+        controlPanel.add(redoBtn, gbc);
+
+        gbc.gridx = 0;
+        gbc.gridy = 14;
+        gbc.gridwidth = 2;
+        controlPanel.add(compactJournalBtn, gbc);
+
+        gbc.gridy = 15;
         gbc.gridx = 0;
         gbc.gridwidth = 2;
         controlPanel.add(showEdgeLabelsCheckbox, gbc);
 
-        gbc.gridy = 11;
+        gbc.gridy = 16;
         controlPanel.add(new JSeparator(), gbc);
 
-        gbc.gridy = 12;
+        gbc.gridy = 17;
         controlPanel.add(new JLabel("Estatísticas do Algoritmo:"), gbc);
 
-        gbc.gridy = 13;
+        gbc.gridy = 18;
         controlPanel.add(procTimeLabel, gbc);
-        gbc.gridy = 14;
+        gbc.gridy = 19;
         controlPanel.add(nodesExploredLabel, gbc);
-        gbc.gridy = 15;
+        gbc.gridy = 20;
         controlPanel.add(totalCostLabel, gbc);
 
-        gbc.gridy = 16;
+        gbc.gridy = 21;
         gbc.weighty = 1.0;
         gbc.fill = GridBagConstraints.VERTICAL;
         controlPanel.add(new JLabel(""), gbc);
@@ -206,6 +317,8 @@ public class NavigationApp extends JFrame {
         JPanel statusBar = new JPanel(new FlowLayout(FlowLayout.LEFT));
         statusBar.setBorder(BorderFactory.createEtchedBorder());
         statusBar.add(statusBarLabel);
+        statusBar.add(taskProgressBar);
+        statusBar.add(cancelTaskBtn);
         add(statusBar, BorderLayout.SOUTH);
     }
 
@@ -214,39 +327,151 @@ public class NavigationApp extends JFrame {
         fileChooser.setFileFilter(new FileNameExtensionFilter("Arquivos Poly (*.poly)", "poly"));
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
             String filepath = fileChooser.getSelectedFile().getAbsolutePath();
-            try {
-                this.graph = new PolyReader().readPolyFile(filepath);
-                graphPanel.setGraph(this.graph);
-                resetSelection();
-                statusBarLabel.setText("Grafo " + filepath + " importado com sucesso.");
+            runInBackground("Importação do .poly", "Erro ao importar o grafo de .poly: ", false, progress -> {
+                Graph loaded = new PolyReader().readPolyFile(filepath, progress);
+                // Reaplica as edições salvas no diário ao lado do arquivo
+                progress.progress("Reaplicando o diário de edições", 0, 0);
+                return EditJournal.open(Paths.get(filepath), loaded);
+            }, loadedJournal -> {
+                polyWeights = true;
+                installGraph(loadedJournal.getGraph(), loadedJournal);
+                statusBarLabel.setText("Grafo " + filepath + " importado com sucesso" + describeReplay(journal) + ".");
                 JOptionPane.showMessageDialog(this, "Grafo importado de .poly com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException | IllegalArgumentException e) {
-                JOptionPane.showMessageDialog(this, "Erro ao importar o grafo de .poly: " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-            }
+            }, NavigationApp::closeDiscardedJournal);
         }
     }
 
     private void importOsmGraph() {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setFileFilter(new FileNameExtensionFilter("Arquivos OSM (*.osm)", "osm"));
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Arquivos OSM (*.osm, *.osm.gz, *.osm.bz2)", "osm", "gz", "bz2"));
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
             String filepath = fileChooser.getSelectedFile().getAbsolutePath();
-            try {
-                this.graph = new OsmConverter().convertOsmToGraph(filepath);
-                graphPanel.setGraph(this.graph);
-                resetSelection();
-                statusBarLabel.setText("Mapa OSM " + filepath + " importado e convertido com sucesso.");
-                JOptionPane.showMessageDialog(this, "Mapa OSM importado e convertido com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Erro ao importar e converter mapa OSM: " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-            }
+            RoutingProfile profile = (RoutingProfile) JOptionPane.showInputDialog(this, "Perfil de roteamento:", "Importar .osm",
+                    JOptionPane.QUESTION_MESSAGE, null, RoutingProfile.values(), RoutingProfile.ANY_HIGHWAY);
+            if (profile == null) return;
+            runInBackground("Importação do .osm", "Erro ao importar e converter mapa OSM: ", false,
+                    progress -> new OsmConverter().setProgressListener(progress).convertOsmToGraph(filepath, profile),
+                    loaded -> {
+                        polyWeights = false;
+                        installGraph(loaded, EditJournal.inMemory(loaded));
+                        statusBarLabel.setText("Mapa OSM " + filepath + " importado e convertido com sucesso (perfil: " + profile + ").");
+                        JOptionPane.showMessageDialog(this, "Mapa OSM importado e convertido com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
+                    }, null);
+        }
+    }
+
+    /**
+     * Passa a exibir {@code next}, já completo, de uma vez e na EDT: grafo, diário, painel e
+     * seleção mudam juntos, e o grafo anterior continua intacto até aqui.
+     */
+    private void installGraph(Graph next, EditJournal nextJournal) {
+        this.graph = next;
+        this.tileManager = null;
+        this.routingTiles = null;
+        replaceJournal(nextJournal);
+        graphPanel.setGraph(next);
+        resetSelection();
+    }
+
+    private void contractChains() {
+        if (graph == null || graph.getNodes().isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Importe um grafo antes de simplificá-lo.", "Aviso", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (tileManager != null) {
+            // Só a região visível está carregada, e o painel altera esse grafo ao paginar
+            JOptionPane.showMessageDialog(this, "Mapas em blocos não podem ser simplificados; abra o grafo completo.", "Aviso", JOptionPane.WARNING_MESSAGE);
+            return;
         }
+        Graph source = graph;
+        int verticesBefore = graph.getNumVertices();
+        runReadingGraph("Simplificação do grafo", "Erro ao simplificar o grafo: ",
+                progress -> new ChainContractor().contract(source),
+                contracted -> {
+                    installGraph(contracted, EditJournal.inMemory(contracted));
+                    statusBarLabel.setText(String.format("Grafo simplificado: %d -> %d vértices, %d arestas.",
+                            verticesBefore, graph.getNumVertices(), graph.getNumEdges()));
+                });
+    }
+
+    private void exportTiles() {
+        if (graph == null || graph.getNodes().isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Importe um grafo antes de exportá-lo em blocos.", "Aviso", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (tileManager != null) {
+            // O grafo de um mapa em blocos só tem a região visível, e o painel o altera ao paginar
+            JOptionPane.showMessageDialog(this, "O mapa aberto já está em blocos.", "Aviso", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Graph source = graph;
+        runReadingGraph("Exportação em blocos", "Erro ao exportar blocos: ",
+                progress -> TileStore.write(source, chooser.getSelectedFile().toPath(), TILE_TARGET_NODES),
+                index -> statusBarLabel.setText("Grafo exportado em " + index.getTileCount() + " blocos."));
+    }
+
+    private void openTiles() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        runInBackground("Abertura do mapa em blocos", "Erro ao abrir blocos: ", false,
+                progress -> new TileManager(chooser.getSelectedFile().toPath(), MAX_LOADED_TILES),
+                opened -> {
+                    this.tileManager = opened;
+                    this.routingTiles = new TileManager(opened);
+                    this.graph = opened.getGraph();
+                    replaceJournal(null);
+                    graphPanel.setTileManager(opened);
+                    resetSelection();
+                    statusBarLabel.setText("Mapa em blocos aberto: " + opened.getIndex().getTileCount() + " blocos, "
+                            + opened.getIndex().getNumVertices() + " vértices no total.");
+                }, null);
+    }
+
+    /**
+     * Mostra ou esconde a rampa de centralidade das arestas. Grafos grandes usam
+     * origens amostradas, com a margem de erro informada na barra de status.
+     */
+    private void toggleCentrality() {
+        if (graphPanel.getCentrality() != null) {
+            graphPanel.setCentrality(null);
+            centralityBtn.setText("Centralidade (betweenness)");
+            graphPanel.repaint();
+            return;
+        }
+        if (graph == null || graph.getNodes().isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Importe um grafo antes de calcular a centralidade.", "Aviso", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        Betweenness betweenness = new Betweenness(currentSnapshot());
+        boolean exact = graph.getNumVertices() <= EXACT_CENTRALITY_MAX_NODES;
+        Graph requestGraph = graph;
+        int requestModCount = graph.getModCount();
+        runInBackground("Cálculo da centralidade", "Erro ao calcular a centralidade: ", false, progress -> {
+            if (exact) return betweenness.computeExact();
+            int samples = betweenness.samplesFor(CENTRALITY_EPSILON, CENTRALITY_CONFIDENCE);
+            return betweenness.computeSampled(samples, CENTRALITY_CONFIDENCE, System.nanoTime());
+        }, result -> {
+            if (graph != requestGraph || graph.getModCount() != requestModCount) {
+                statusBarLabel.setText("Centralidade descartada: o grafo mudou durante o cálculo.");
+                return;
+            }
+            graphPanel.setCentrality(result);
+            centralityBtn.setText("Ocultar centralidade");
+            statusBarLabel.setText("Centralidade: " + result + ".");
+            graphPanel.repaint();
+        }, null);
     }
 
     private void drawGraph() {
         graphPanel.setSelectedOrigin(selectedOrigin);
         graphPanel.setSelectedDestination(selectedDestination);
-        graphPanel.setShortestPath(shortestPath);
+        if (shortestPathGeometry != null) graphPanel.setRoutes(RouteOverlay.of(shortestPath, shortestPathGeometry));
+        else graphPanel.setShortestPath(shortestPath);
+        graphPanel.setSearchFrontier(searchFrontier);
         graphPanel.repaint();
     }
 
@@ -267,6 +492,8 @@ public class NavigationApp extends JFrame {
                     }
                 }
             }
+        } else if (backgroundTaskReadsGraph) {
+            statusBarLabel.setText("Aguarde o fim da tarefa em andamento para editar o grafo.");
         } else if (addNodeRadio.isSelected()) {
             addNewNode(e.getX(), e.getY());
         } else if (addEdgeRadio.isSelected()) {
@@ -287,7 +514,10 @@ public class NavigationApp extends JFrame {
         if (clickedNodeId != null) { // Usuário clicou perto de um nó
             int confirm = JOptionPane.showConfirmDialog(this, "Remover nó " + clickedNodeId + " e todas as suas arestas?", "Confirmar Remoção", JOptionPane.YES_NO_OPTION);
             if (confirm == JOptionPane.YES_OPTION) {
-                graph.removeNode(clickedNodeId);
+                applyEdit(j -> j.removeNode(clickedNodeId), () -> {
+                    graph.removeNode(clickedNodeId);
+                    return true;
+                });
                 resetSelection();
             }
         } else { // Usuário clicou fora de um nó, assume que quer remover uma aresta
@@ -299,7 +529,7 @@ public class NavigationApp extends JFrame {
                         int u = Integer.parseInt(parts[0].trim());
                         int v = Integer.parseInt(parts[1].trim());
                         
-                        if (graph.removeEdge(u, v)) {
+                        if (applyEdit(j -> j.removeEdge(u, v), () -> graph.removeEdge(u, v))) {
                             JOptionPane.showMessageDialog(this, "Aresta entre " + u + " e " + v + " removida com sucesso.", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
                         } else {
                             JOptionPane.showMessageDialog(this, "Aresta entre " + u + " e " + v + " não encontrada.", "Aviso", JOptionPane.WARNING_MESSAGE);
@@ -317,6 +547,8 @@ public class NavigationApp extends JFrame {
     private void addNewNode(int clickX, int clickY) {
         if (graph == null) {
             graph = new Graph();
+            polyWeights = true;
+            replaceJournal(EditJournal.inMemory(graph));
             graphPanel.setGraph(graph);
         }
         
@@ -329,7 +561,10 @@ public class NavigationApp extends JFrame {
         }
         
         Node newNode = new Node(newId, graphX, graphY);
-        graph.addNode(newNode);
+        applyEdit(j -> j.addNode(newNode), () -> {
+            graph.addNode(newNode);
+            return true;
+        });
     }
 
     private void handleEdgeAdditionClick(int clickX, int clickY) {
@@ -351,14 +586,273 @@ public class NavigationApp extends JFrame {
             Node node1 = graph.getNodes().get(firstNodeForEdge);
             Node node2 = graph.getNodes().get(clickedNodeId);
 
-            double weight = Math.sqrt(Math.pow(node1.getX() - node2.getX(), 2) + Math.pow(node1.getY() - node2.getY(), 2));
-            graph.addEdge(firstNodeForEdge, clickedNodeId, weight, false);
+            // Mesma conta da leitura do grafo: o .poly não guarda pesos e os relê assim
+            double weight = polyWeights ? PolyReader.edgeWeight(node1, node2)
+                    : GraphBuilder.euclideanWeight(node1.getX(), node1.getY(), node2.getX(), node2.getY(), 1, PolyReader.MINIMUM_WEIGHT);
+            int u = firstNodeForEdge;
+            int v = clickedNodeId;
+            boolean added = applyEdit(j -> j.addEdge(u, v, weight, false), () -> {
+                graph.addEdge(u, v, weight, false);
+                return true;
+            });
             
-            statusBarLabel.setText("Aresta adicionada entre " + firstNodeForEdge + " e " + clickedNodeId + ".");
+            statusBarLabel.setText(added ? "Aresta adicionada entre " + u + " e " + v + "."
+                    : "Já existe uma aresta entre " + u + " e " + v + ".");
             firstNodeForEdge = null;
         }
     }
 
+    /** Uma edição feita pelo diário; falso quando não mudou nada. */
+    private interface JournalEdit {
+        boolean apply(EditJournal journal) throws IOException;
+    }
+
+    /**
+     * Aplica a edição pelo diário (persistida e desfazível) ou, sem diário, direto no grafo.
+     * Uma falha de gravação é avisada, mas a edição já está no grafo em memória.
+     */
+    private boolean applyEdit(JournalEdit edit, BooleanSupplier direct) {
+        if (journal == null) return direct.getAsBoolean();
+        boolean changed;
+        try {
+            changed = edit.apply(journal);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Erro ao gravar o diário de edições: " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+            changed = true;
+        }
+        if (changed && journal.shouldCompact()) compactJournal();
+        updateJournalButtons();
+        return changed;
+    }
+
+    private void undoEdit() {
+        if (journal == null || backgroundTaskReadsGraph) return;
+        try {
+            if (journal.undo()) {
+                // A rota e a seleção podem citar nós que acabaram de sumir
+                resetSelection();
+                statusBarLabel.setText("Edição desfeita.");
+            }
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Erro ao gravar o diário de edições: " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        }
+        updateJournalButtons();
+        drawGraph();
+    }
+
+    private void redoEdit() {
+        if (journal == null || backgroundTaskReadsGraph) return;
+        try {
+            if (journal.redo()) {
+                resetSelection();
+                statusBarLabel.setText("Edição refeita.");
+            }
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Erro ao gravar o diário de edições: " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        }
+        updateJournalButtons();
+        drawGraph();
+    }
+
+    /**
+     * Incorpora o diário ao .poly de origem. Chamado pelo botão e automaticamente quando o
+     * diário cresce demais em relação ao arquivo base.
+     */
+    private void compactJournal() {
+        if (journal == null || !journal.isPersistent()) {
+            JOptionPane.showMessageDialog(this, "Só grafos importados de .poly têm um arquivo onde salvar as edições.", "Aviso", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        try {
+            long journalBytes = journal.getJournalBytes();
+            journal.compact();
+            statusBarLabel.setText(String.format("Edições salvas no .poly (diário de %d KB compactado).", journalBytes / 1024));
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Erro ao compactar o diário de edições: " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /** Fecha o diário atual (sincronizando o que falta) e passa a usar {@code next}. */
+    private void replaceJournal(EditJournal next) {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar o diário de edições: " + e.getMessage());
+            }
+        }
+        journal = next;
+        journalWarningShown = false;
+        updateJournalButtons();
+    }
+
+    private void updateJournalButtons() {
+        undoBtn.setEnabled(!backgroundTaskReadsGraph && journal != null && journal.canUndo());
+        redoBtn.setEnabled(!backgroundTaskReadsGraph && journal != null && journal.canRedo());
+        compactJournalBtn.setEnabled(journal != null && journal.isPersistent());
+        warnIfJournalInMemory();
+    }
+
+    /**
+     * Avisa, uma vez por diário, que ele não pôde ser gravado (diretório só de leitura, por
+     * exemplo) e que as edições seguem valendo, mas só até fechar o mapa.
+     */
+    private void warnIfJournalInMemory() {
+        if (journal == null || journalWarningShown || journal.getPersistenceError() == null) return;
+        journalWarningShown = true;
+        statusBarLabel.setText("Diário de edições indisponível; edições só em memória.");
+        JOptionPane.showMessageDialog(this, "Não foi possível gravar o diário de edições ("
+                + journal.getPersistenceError().getMessage() + ").\nAs edições continuam valendo, mas só até fechar o mapa.",
+                "Aviso", JOptionPane.WARNING_MESSAGE);
+    }
+
+    private static String describeReplay(EditJournal journal) {
+        StringBuilder text = new StringBuilder();
+        if (journal.getReplayedActions() > 0) text.append(" (").append(journal.getReplayedActions()).append(" edições do diário reaplicadas)");
+        if (journal.hasTruncatedTail()) text.append(" [última edição do diário estava incompleta e foi descartada]");
+        if (journal.hasDiscardedStaleJournal()) text.append(" [diário de outra versão do arquivo renomeado para .old]");
+        return text.toString();
+    }
+
+    // --- Tarefas em segundo plano ---
+
+    /** Trabalho de uma tarefa em segundo plano; recebe o canal de progresso. */
+    private interface BackgroundWork<T> {
+        T run(ProgressListener progress) throws Exception;
+    }
+
+    /** Andamento publicado pela tarefa para a EDT. */
+    private static final class TaskProgress {
+        final String phase;
+        final long done;
+        final long total;
+
+        TaskProgress(String phase, long done, long total) {
+            this.phase = phase;
+            this.done = done;
+            this.total = total;
+        }
+    }
+
+    /**
+     * Roda {@code work} numa SwingWorker, com a fase e o andamento na barra de status e o
+     * botão Cancelar visível; uma tarefa por vez. {@code onSuccess} recebe o resultado na
+     * EDT. Cancelar interrompe a thread da tarefa (leitores e busca param na próxima
+     * verificação); um resultado que fique pronto mesmo assim vai para {@code onDiscard},
+     * quando informado, em vez de ser aplicado.
+     */
+    private <T> void runInBackground(String title, String errorPrefix, boolean route, BackgroundWork<T> work,
+                                     Consumer<T> onSuccess, Consumer<T> onDiscard) {
+        if (backgroundTask != null) return;
+        SwingWorker<T, TaskProgress> worker = new SwingWorker<T, TaskProgress>() {
+            // Resultado ainda não entregue a onSuccess nem a onDiscard
+            private final AtomicReference<T> unclaimed = new AtomicReference<>();
+
+            @Override
+            protected T doInBackground() throws Exception {
+                T result = work.run((phase, done, total) -> publish(new TaskProgress(phase, done, total)));
+                unclaimed.set(result);
+                // Cancelada enquanto terminava: done() pode já ter rodado sem ver o resultado
+                if (isCancelled()) discardUnclaimed();
+                return result;
+            }
+
+            @Override
+            protected void process(List<TaskProgress> chunks) {
+                if (backgroundTask == this) showTaskProgress(chunks.get(chunks.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                if (backgroundTask == this) endBackgroundTask();
+                if (isCancelled()) {
+                    discardUnclaimed();
+                    statusBarLabel.setText(title + ": cancelado.");
+                    return;
+                }
+                unclaimed.set(null);
+                try {
+                    onSuccess.accept(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof InterruptedIOException || cause instanceof CancellationException) {
+                        statusBarLabel.setText(title + ": cancelado.");
+                    } else {
+                        statusBarLabel.setText(title + ": falhou.");
+                        JOptionPane.showMessageDialog(NavigationApp.this, errorPrefix + cause.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }
+
+            private void discardUnclaimed() {
+                T result = unclaimed.getAndSet(null);
+                if (result != null && onDiscard != null) onDiscard.accept(result);
+            }
+        };
+        backgroundTask = worker;
+        backgroundTaskIsRoute = route;
+        setTaskButtonsEnabled(false);
+        taskProgressBar.setIndeterminate(true);
+        taskProgressBar.setVisible(true);
+        cancelTaskBtn.setVisible(true);
+        statusBarLabel.setText(title + "...");
+        worker.execute();
+    }
+
+    /**
+     * Como {@link #runInBackground}, para tarefas que leem o próprio {@link #graph} e não um
+     * snapshot: as edições ficam bloqueadas até a tarefa terminar.
+     */
+    private <T> void runReadingGraph(String title, String errorPrefix, BackgroundWork<T> work, Consumer<T> onSuccess) {
+        if (backgroundTask != null) return;
+        runInBackground(title, errorPrefix, false, work, onSuccess, null);
+        backgroundTaskReadsGraph = true;
+        updateJournalButtons();
+    }
+
+    private void showTaskProgress(TaskProgress progress) {
+        if (progress.total > 0) {
+            int percent = (int) Math.min(100, progress.done * 100 / progress.total);
+            taskProgressBar.setIndeterminate(false);
+            taskProgressBar.setValue(percent);
+            statusBarLabel.setText(progress.phase + "... " + percent + "%");
+        } else {
+            taskProgressBar.setIndeterminate(true);
+            statusBarLabel.setText(progress.phase + "...");
+        }
+    }
+
+    private void endBackgroundTask() {
+        backgroundTask = null;
+        backgroundTaskIsRoute = false;
+        backgroundTaskReadsGraph = false;
+        taskProgressBar.setVisible(false);
+        cancelTaskBtn.setVisible(false);
+        setTaskButtonsEnabled(true);
+        updateJournalButtons();
+    }
+
+    /** Ações que trocam o grafo ou disparam outra tarefa ficam bloqueadas enquanto uma roda. */
+    private void setTaskButtonsEnabled(boolean enabled) {
+        importGraphPolyBtn.setEnabled(enabled);
+        importGraphOsmBtn.setEnabled(enabled);
+        openTilesBtn.setEnabled(enabled);
+        contractChainsBtn.setEnabled(enabled);
+        exportTilesBtn.setEnabled(enabled);
+        calculatePathBtn.setEnabled(enabled);
+        centralityBtn.setEnabled(enabled);
+    }
+
+    private static void closeDiscardedJournal(EditJournal discarded) {
+        try {
+            discarded.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o diário de edições: " + e.getMessage());
+        }
+    }
+
     private void startSelectOrigin() {
         resetSelection();
         statusBarLabel.setText("Clique no nó no gráfico para definir como ORIGEM.");
@@ -371,6 +865,8 @@ public class NavigationApp extends JFrame {
             return;
         }
         shortestPath = null;
+        shortestPathGeometry = null;
+        searchFrontier = null;
         selectedDestination = null;
         destinationLabel.setText("Aguardando clique...");
         drawGraph();
@@ -384,39 +880,139 @@ public class NavigationApp extends JFrame {
             return;
         }
 
-        Graph.PathResult result = graph.dijkstra(selectedOrigin, selectedDestination);
+        if (tileManager != null) {
+            calculateTiledPath();
+            return;
+        }
+
+        SpeculativeRouter router = speculativeRouter();
+        Graph requestGraph = graph;
+        int requestModCount = graph.getModCount();
+        Integer origin = selectedOrigin, destination = selectedDestination;
+        runInBackground("Cálculo da rota", "Erro ao calcular a rota: ", true,
+                progress -> router.query(origin, destination),
+                answer -> {
+                    if (graph != requestGraph || graph.getModCount() != requestModCount
+                            || !origin.equals(selectedOrigin) || !destination.equals(selectedDestination)) {
+                        statusBarLabel.setText("Rota descartada: o grafo ou a seleção mudaram durante o cálculo.");
+                        return;
+                    }
+                    // A consulta interrompe a busca de fundo, então a fronteira fica parada para exibição
+                    searchFrontier = router.getFrontier();
+                    showPathResult(answer.result, answer, null);
+                }, null);
+    }
 
+    /**
+     * Rota em mapa paginado: a busca roda em segundo plano sobre {@link #routingTiles}, que
+     * carrega os próprios blocos, e só o caminho e a sua polilinha voltam para a EDT.
+     */
+    private void calculateTiledPath() {
+        TileManager requestTiles = tileManager;
+        TileManager routing = routingTiles;
+        Node start = graph.getNodes().get(selectedOrigin);
+        Node end = graph.getNodes().get(selectedDestination);
+        if (start == null || end == null) return;
+        Integer origin = selectedOrigin, destination = selectedDestination;
+        runInBackground("Cálculo da rota", "Erro ao calcular a rota: ", true, progress -> {
+            // Uma consulta cancelada ainda pode estar terminando quando a próxima começa
+            synchronized (routing) {
+                return routing.route(start, end);
+            }
+        }, route -> {
+            if (tileManager != requestTiles || !origin.equals(selectedOrigin) || !destination.equals(selectedDestination)) {
+                statusBarLabel.setText("Rota descartada: o mapa ou a seleção mudaram durante o cálculo.");
+                return;
+            }
+            showPathResult(route.result, null, route.geometry);
+        }, null);
+    }
+
+    private void showPathResult(Graph.PathResult result, SpeculativeRouter.Answer answer, double[] geometry) {
         procTimeLabel.setText(String.format("Tempo: %.2f ms", result.processingTimeMs));
         nodesExploredLabel.setText(String.format("Nós Explorados: %d", result.nodesExplored));
         totalCostLabel.setText(String.format("Custo Total: %.2f", result.totalCost));
 
         if (result.path != null && !result.path.isEmpty()) {
             shortestPath = result.path;
-            statusBarLabel.setText(String.format("Caminho encontrado de %d para %d com custo %.2f.", selectedOrigin, selectedDestination, result.totalCost));
+            shortestPathGeometry = geometry;
+            statusBarLabel.setText(String.format("Caminho encontrado de %d para %d com custo %.2f%s.", selectedOrigin, selectedDestination,
+                    result.totalCost, describeAnswer(answer)));
         } else {
             shortestPath = null;
+            shortestPathGeometry = null;
             statusBarLabel.setText(String.format("Não foi possível encontrar um caminho entre %d e %d.", selectedOrigin, selectedDestination));
         }
         drawGraph();
     }
 
+    /**
+     * Snapshot do grafo atual, reaproveitado enquanto o grafo não muda. Refazê-lo descarta
+     * a busca especulativa, que se referia ao snapshot anterior.
+     */
+    private GraphSnapshot currentSnapshot() {
+        if (snapshot == null || snapshotGraph != graph || snapshotModCount != graph.getModCount()) {
+            if (speculativeRouter != null) {
+                speculativeRouter.close();
+                speculativeRouter = null;
+            }
+            snapshot = GraphSnapshot.of(graph);
+            snapshotGraph = graph;
+            snapshotModCount = graph.getModCount();
+        }
+        return snapshot;
+    }
+
+    private SpeculativeRouter speculativeRouter() {
+        GraphSnapshot current = currentSnapshot();
+        if (speculativeRouter == null) {
+            speculativeRouter = new SpeculativeRouter(current, SPECULATIVE_MAX_SETTLED);
+        }
+        return speculativeRouter;
+    }
+
+    private static String describeAnswer(SpeculativeRouter.Answer answer) {
+        if (answer == null) return "";
+        switch (answer.source) {
+            case SPECULATIVE_TREE:
+                return String.format(" (da árvore especulativa: destino já assentado entre %d nós)", answer.settledBeforeQuery);
+            case RESUMED_SEARCH:
+                return String.format(" (árvore especulativa com %d nós continuada até o destino)", answer.settledBeforeQuery);
+            default:
+                return " (sem árvore especulativa, busca completa)";
+        }
+    }
+
     private void resetSelection() {
+        // A árvore especulativa e uma consulta em andamento pertencem à seleção descartada
+        if (backgroundTask != null && backgroundTaskIsRoute) backgroundTask.cancel(true);
+        if (speculativeRouter != null) speculativeRouter.cancel();
         selectedOrigin = null;
         selectedDestination = null;
         shortestPath = null;
+        shortestPathGeometry = null;
+        searchFrontier = null;
         originLabel.setText("N/A");
         destinationLabel.setText("N/A");
         procTimeLabel.setText("N/A");
         nodesExploredLabel.setText("N/A");
         totalCostLabel.setText("N/A");
         statusBarLabel.setText("Seleção reiniciada. Escolha uma nova origem.");
-        if (graphPanel != null) drawGraph();
+        if (graphPanel != null) {
+            // Trocar o grafo descarta a centralidade calculada
+            centralityBtn.setText(graphPanel.getCentrality() != null ? "Ocultar centralidade" : "Centralidade (betweenness)");
+            drawGraph();
+        }
     }
 
     public void setSelectedOrigin(Integer node) {
         this.selectedOrigin = node;
         this.originLabel.setText(node != null ? node.toString() : "N/A");
         statusBarLabel.setText("Origem selecionada: " + (node != null ? node : "Nenhum") + ". Selecione um destino.");
+        // Adianta a árvore de menores caminhos enquanto o usuário escolhe o destino
+        if (node != null && graph != null && tileManager == null) {
+            speculativeRouter().start(node);
+        }
     }
 
     public void setSelectedDestination(Integer node) {
@@ -0,0 +1,201 @@
+package gui;
+
+import model.Graph;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rotas destacadas pelo {@link GraphPanel} (principal, alternativas, comparações), cada
+ * uma com seu estilo.
+ *
+ * Cada rota guarda os seus nós e as suas arestas, montados uma vez ao ser adicionada:
+ * perguntar se um nó ou aresta está em alguma rota custa O(1) por rota, e não o tamanho do
+ * caminho. Os nós vão para um BitSet quando os IDs são não negativos e pequenos perto do
+ * tamanho do caminho; senão (IDs negativos ou esparsos) para um conjunto hash, como as arestas. A geometria (com os pontos intermediários das
+ * arestas contraídas) também é calculada uma vez por versão do grafo.
+ * Rotas adicionadas depois são desenhadas por cima das anteriores.
+ */
+public final class RouteOverlay {
+
+    /** Cor, espessura e tracejado de uma rota. */
+    public static final class Style {
+        private final Color color;
+        private final BasicStroke stroke;
+
+        public Style(Color color, float width, boolean dashed) {
+            this.color = color;
+            this.stroke = dashed
+                    ? new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 10f, new float[]{3 * width, 2 * width}, 0f)
+                    : new BasicStroke(width, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+        }
+
+        public Color getColor() { return color; }
+        public BasicStroke getStroke() { return stroke; }
+    }
+
+    /** Estilo da rota principal: o vermelho sólido de sempre. */
+    public static final Style PRIMARY = new Style(Color.RED, 2f, false);
+    /** Estilo sugerido para alternativas e comparações. */
+    public static final Style ALTERNATIVE = new Style(new Color(150, 60, 200), 2f, true);
+
+    /** Uma rota: caminho (IDs internos), estilo e índices de nós e arestas. */
+    public static final class Route {
+        // Bits por nó do caminho aceitos no BitSet antes de trocá-lo pelo conjunto hash
+        private static final long DENSE_BITS_PER_NODE = 64;
+        private static final long DENSE_MIN_BITS = 1 << 16;
+
+        private final List<Integer> path;
+        private final Style style;
+        private final BitSet denseNodes;    // null quando os nós estão em sparseNodes
+        private final LongSet sparseNodes;
+        private final LongSet edges;
+        private final double[] fixedGeometry; // dada por quem criou a rota; não depende do grafo
+        private Graph geometryGraph;
+        private int geometryModCount;
+        private double[] geometry;
+
+        Route(List<Integer> path, Style style, double[] fixedGeometry) {
+            this.path = Collections.unmodifiableList(new ArrayList<>(path));
+            this.style = style;
+            this.fixedGeometry = fixedGeometry;
+            this.edges = new LongSet(path.size());
+            int min = Integer.MAX_VALUE, max = -1;
+            for (int id : path) {
+                min = Math.min(min, id);
+                max = Math.max(max, id);
+            }
+            boolean dense = min >= 0 && max < Math.max(DENSE_MIN_BITS, DENSE_BITS_PER_NODE * path.size());
+            this.denseNodes = dense ? new BitSet(max + 1) : null;
+            this.sparseNodes = dense ? null : new LongSet(path.size());
+            for (int i = 0; i < path.size(); i++) {
+                int id = path.get(i);
+                if (dense) denseNodes.set(id);
+                else sparseNodes.add(id);
+                if (i > 0) edges.add(LongSet.pair(path.get(i - 1), id));
+            }
+        }
+
+        public List<Integer> getPath() { return path; }
+        public Style getStyle() { return style; }
+
+        public boolean containsNode(int nodeId) {
+            if (denseNodes != null) return nodeId >= 0 && denseNodes.get(nodeId);
+            return sparseNodes.contains(nodeId);
+        }
+
+        /** Aresta percorrida de {@code u} para {@code v} por esta rota. */
+        public boolean containsEdge(int u, int v) {
+            return edges.contains(LongSet.pair(u, v));
+        }
+
+        /** Polilinha da rota em coordenadas do grafo, refeita só quando o grafo muda. */
+        double[] geometry(Graph graph) {
+            if (fixedGeometry != null) return fixedGeometry;
+            if (geometry == null || geometryGraph != graph || geometryModCount != graph.getModCount()) {
+                geometry = graph.getPathGeometry(path);
+                geometryGraph = graph;
+                geometryModCount = graph.getModCount();
+            }
+            return geometry;
+        }
+    }
+
+    private final List<Route> routes = new ArrayList<>();
+
+    /** Rota vazia, sem nada destacado. */
+    public RouteOverlay() {
+    }
+
+    /** Atalho para uma única rota no estilo {@link #PRIMARY} (null ou vazio: nenhuma rota). */
+    public static RouteOverlay of(List<Integer> path) {
+        RouteOverlay overlay = new RouteOverlay();
+        if (path != null && !path.isEmpty()) overlay.add(path, PRIMARY);
+        return overlay;
+    }
+
+    /**
+     * Como {@link #of(List)}, com a polilinha já pronta: para rotas cujos nós podem não
+     * estar todos no grafo desenhado (mapas em blocos, que só carregam a região visível).
+     */
+    public static RouteOverlay of(List<Integer> path, double[] geometry) {
+        RouteOverlay overlay = new RouteOverlay();
+        if (path != null && !path.isEmpty()) overlay.add(path, PRIMARY, geometry);
+        return overlay;
+    }
+
+    public Route add(List<Integer> path, Style style) {
+        return add(path, style, null);
+    }
+
+    /** Rota com a polilinha {@code geometry} (coordenadas do grafo) em vez da calculada pelo grafo. */
+    public Route add(List<Integer> path, Style style, double[] geometry) {
+        Route route = new Route(path, style, geometry);
+        routes.add(route);
+        return route;
+    }
+
+    public void clear() { routes.clear(); }
+    public boolean isEmpty() { return routes.isEmpty(); }
+    public List<Route> getRoutes() { return Collections.unmodifiableList(routes); }
+
+    /** Rota mais ao topo que passa pelo nó, ou null. */
+    public Route routeOfNode(int nodeId) {
+        for (int i = routes.size() - 1; i >= 0; i--) {
+            if (routes.get(i).containsNode(nodeId)) return routes.get(i);
+        }
+        return null;
+    }
+
+    /** Rota mais ao topo que percorre a aresta {u, v} em qualquer sentido, ou null. */
+    public Route routeOfEdge(int u, int v) {
+        for (int i = routes.size() - 1; i >= 0; i--) {
+            Route route = routes.get(i);
+            if (route.containsEdge(u, v) || route.containsEdge(v, u)) return route;
+        }
+        return null;
+    }
+
+    /** Conjunto de longs (IDs de nós ou pares (u, v)) em endereçamento aberto, sem objetos por elemento. */
+    private static final class LongSet {
+        private final long[] keys;
+        private final boolean[] filled;
+        private final int mask;
+
+        LongSet(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            filled = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        static long pair(int u, int v) {
+            return ((long) u << 32) | (v & 0xFFFFFFFFL);
+        }
+
+        private int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        }
+
+        void add(long key) {
+            int slot = slot(key);
+            while (filled[slot]) {
+                if (keys[slot] == key) return;
+                slot = (slot + 1) & mask;
+            }
+            filled[slot] = true;
+            keys[slot] = key;
+        }
+
+        boolean contains(long key) {
+            for (int slot = slot(key); filled[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return true;
+            }
+            return false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,318 @@
+package io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Abre arquivos de mapa (.osm, .osm.gz, .osm.bz2) de forma transparente.
+ *
+ * Arquivos comprimidos são descomprimidos em uma thread própria que preenche
+ * um buffer limitado de blocos; o parser XML consome esses blocos em paralelo,
+ * sobrepondo descompressão e análise. Cada estágio mede sua própria vazão.
+ */
+public final class CompressedInput {
+
+    /** Tamanho de cada bloco descomprimido entregue ao consumidor. */
+    private static final int CHUNK_SIZE = 256 * 1024;
+    /** Número máximo de blocos em trânsito entre as duas threads. */
+    private static final int QUEUE_CAPACITY = 16;
+
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    public enum Format { PLAIN, GZIP, BZIP2 }
+
+    private CompressedInput() {}
+
+    /**
+     * Detecta o formato pela extensão e, na falta dela, pelos bytes mágicos do arquivo.
+     */
+    public static Format detectFormat(String filepath) throws IOException {
+        String lower = filepath.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".gz")) return Format.GZIP;
+        if (lower.endsWith(".bz2")) return Format.BZIP2;
+
+        try (InputStream in = new FileInputStream(filepath)) {
+            int b0 = in.read();
+            int b1 = in.read();
+            int b2 = in.read();
+            if (b0 == 0x1f && b1 == 0x8b) return Format.GZIP;
+            if (b0 == 'B' && b1 == 'Z' && b2 == 'h') return Format.BZIP2;
+        }
+        return Format.PLAIN;
+    }
+
+    /**
+     * Remove as extensões de compressão (.gz/.bz2) do nome do arquivo.
+     */
+    public static String stripCompressionSuffix(String filepath) {
+        String lower = filepath.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".gz")) return filepath.substring(0, filepath.length() - 3);
+        if (lower.endsWith(".bz2")) return filepath.substring(0, filepath.length() - 4);
+        return filepath;
+    }
+
+    /**
+     * Abre o arquivo para leitura. Para arquivos comprimidos a descompressão roda
+     * em uma thread separada; o stream retornado apenas consome os blocos prontos.
+     */
+    public static PipelineStream open(String filepath) throws IOException {
+        File file = new File(filepath);
+        if (!file.isFile()) {
+            throw new IOException("Arquivo não encontrado: " + filepath);
+        }
+        Format format = detectFormat(filepath);
+        StageStats decompressStats = new StageStats(format == Format.PLAIN ? "leitura" : "descompressão");
+        StageStats parseStats = new StageStats("parser");
+
+        if (format == Format.PLAIN) {
+            return new PipelineStream(new BufferedInputStream(new FileInputStream(file), CHUNK_SIZE), null, null,
+                    decompressStats, parseStats);
+        }
+
+        Process process = null;
+        InputStream decompressed;
+        if (format == Format.GZIP) {
+            decompressed = new GZIPInputStream(new FileInputStream(file), CHUNK_SIZE);
+        } else {
+            // A JDK não traz um descompressor bzip2; delegamos ao utilitário do sistema,
+            // o que mantém a descompressão fora da thread do parser da mesma forma.
+            try {
+                process = new ProcessBuilder("bzip2", "-dc", file.getAbsolutePath())
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+            } catch (IOException e) {
+                throw new IOException("Não foi possível executar 'bzip2' para descomprimir " + filepath
+                        + ". Instale o bzip2 ou descomprima o arquivo manualmente.", e);
+            }
+            decompressed = process.getInputStream();
+        }
+
+        BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        Decompressor decompressor = new Decompressor(decompressed, queue, decompressStats, process);
+        Thread thread = new Thread(decompressor, "decompress-" + file.getName());
+        thread.setDaemon(true);
+        thread.start();
+        decompressStats.compressedBytes = file.length();
+
+        return new PipelineStream(null, queue, decompressor, decompressStats, parseStats);
+    }
+
+    /**
+     * Estatísticas de um estágio do pipeline (bytes produzidos e tempo ativo).
+     */
+    public static final class StageStats {
+        private final String name;
+        private volatile long bytes;
+        private volatile long busyNanos;
+        private volatile long compressedBytes;
+
+        StageStats(String name) { this.name = name; }
+
+        public String getName() { return name; }
+        public long getBytes() { return bytes; }
+        public long getBusyNanos() { return busyNanos; }
+
+        /** Vazão do estágio em MB/s considerando apenas o tempo em que esteve ocupado. */
+        public double getThroughputMBs() {
+            if (busyNanos == 0) return 0.0;
+            return (bytes / (1024.0 * 1024.0)) / (busyNanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            String s = String.format(Locale.ROOT, "%s: %.1f MB em %.1f ms (%.1f MB/s)",
+                    name, bytes / (1024.0 * 1024.0), busyNanos / 1_000_000.0, getThroughputMBs());
+            if (compressedBytes > 0 && bytes > 0) {
+                s += String.format(Locale.ROOT, ", taxa de compressão %.1fx", (double) bytes / compressedBytes);
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Thread produtora: lê do stream descomprimido e publica blocos na fila limitada.
+     */
+    private static final class Decompressor implements Runnable {
+        private final InputStream source;
+        private final BlockingQueue<byte[]> queue;
+        private final StageStats stats;
+        private final Process process;
+        private volatile IOException failure;
+        private volatile boolean cancelled;
+
+        Decompressor(InputStream source, BlockingQueue<byte[]> queue, StageStats stats, Process process) {
+            this.source = source;
+            this.queue = queue;
+            this.stats = stats;
+            this.process = process;
+        }
+
+        @Override
+        public void run() {
+            try (InputStream in = source) {
+                while (!cancelled) {
+                    long start = System.nanoTime();
+                    byte[] chunk = new byte[CHUNK_SIZE];
+                    int filled = 0;
+                    int n;
+                    while (filled < CHUNK_SIZE && (n = in.read(chunk, filled, CHUNK_SIZE - filled)) > 0) {
+                        filled += n;
+                    }
+                    stats.busyNanos += System.nanoTime() - start;
+                    if (filled == 0) break;
+                    stats.bytes += filled;
+                    if (filled < CHUNK_SIZE) {
+                        byte[] shrunk = new byte[filled];
+                        System.arraycopy(chunk, 0, shrunk, 0, filled);
+                        chunk = shrunk;
+                    }
+                    put(chunk);
+                }
+                if (process != null && !cancelled) {
+                    int exit = process.waitFor();
+                    if (exit != 0) {
+                        failure = new IOException("bzip2 terminou com código " + exit);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            } finally {
+                if (process != null && cancelled) process.destroy();
+                offerEndOfStream();
+            }
+        }
+
+        private void put(byte[] chunk) throws InterruptedException {
+            while (!cancelled) {
+                if (queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) return;
+            }
+        }
+
+        private void offerEndOfStream() {
+            try {
+                put(END_OF_STREAM);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stream consumido pelo parser. Contabiliza o tempo gasto pelo consumidor
+     * (parser) entre leituras, de modo que as duas vazões possam ser comparadas.
+     */
+    public static final class PipelineStream extends InputStream {
+        private final InputStream direct;
+        private final BlockingQueue<byte[]> queue;
+        private final Decompressor decompressor;
+        private final StageStats sourceStats;
+        private final StageStats consumerStats;
+
+        private byte[] current;
+        private int position;
+        private boolean finished;
+        private long waitNanos;
+        private final long openedAt = System.nanoTime();
+        private long closedAt;
+
+        PipelineStream(InputStream direct, BlockingQueue<byte[]> queue, Decompressor decompressor,
+                       StageStats sourceStats, StageStats consumerStats) {
+            this.direct = direct;
+            this.queue = queue;
+            this.decompressor = decompressor;
+            this.sourceStats = sourceStats;
+            this.consumerStats = consumerStats;
+        }
+
+        /** Estágio produtor: leitura direta ou descompressão em thread separada. */
+        public StageStats getSourceStats() { return sourceStats; }
+
+        /** Estágio consumidor: tempo do parser, descontando esperas por dados. */
+        public StageStats getConsumerStats() {
+            long end = closedAt != 0 ? closedAt : System.nanoTime();
+            consumerStats.busyNanos = Math.max(0, end - openedAt - waitNanos);
+            return consumerStats;
+        }
+
+        /** Resumo legível da vazão de cada estágio. */
+        public String describeThroughput() {
+            return getSourceStats() + " | " + getConsumerStats();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n <= 0 ? -1 : (one[0] & 0xff);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (direct != null) {
+                long start = System.nanoTime();
+                int n = direct.read(b, off, len);
+                long elapsed = System.nanoTime() - start;
+                waitNanos += elapsed;
+                sourceStats.busyNanos += elapsed;
+                if (n > 0) {
+                    sourceStats.bytes += n;
+                    consumerStats.bytes += n;
+                }
+                return n;
+            }
+            if (!ensureChunk()) return -1;
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            consumerStats.bytes += n;
+            return n;
+        }
+
+        private boolean ensureChunk() throws IOException {
+            while (current == null || position >= current.length) {
+                if (finished) return false;
+                long start = System.nanoTime();
+                try {
+                    current = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new java.io.InterruptedIOException("Leitura interrompida durante a descompressão.");
+                } finally {
+                    waitNanos += System.nanoTime() - start;
+                }
+                position = 0;
+                if (current == END_OF_STREAM) {
+                    finished = true;
+                    if (decompressor.failure != null) {
+                        throw new IOException("Falha ao descomprimir: " + decompressor.failure.getMessage(), decompressor.failure);
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closedAt == 0) closedAt = System.nanoTime();
+            if (direct != null) {
+                direct.close();
+            } else if (!finished) {
+                decompressor.cancelled = true;
+                queue.clear();
+            }
+        }
+    }
+}
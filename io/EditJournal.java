@@ -0,0 +1,614 @@
+package io;
+
+import model.Edge;
+import model.EdgeGeometry;
+import model.Graph;
+import model.Node;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Diário binário, só de acréscimo, das edições feitas sobre um grafo carregado de um
+ * arquivo base (.poly). Cada ação do usuário (adicionar nó, remover aresta...) vira um
+ * registro {@code [tamanho][ações][CRC32]} anexado ao fim do arquivo; salvar uma pequena
+ * mudança custa alguns bytes em vez de reescrever o mapa inteiro.
+ *
+ * <ul>
+ *   <li>O fsync é feito em lotes: a cada {@code syncEvery} ações ou quando passou
+ *       {@code syncIntervalMs} desde o último, e sempre em {@link #sync()}/{@link #close()}.
+ *       Uma queda de energia perde no máximo o lote pendente, nunca corrompe o que já foi
+ *       sincronizado.</li>
+ *   <li>Desfazer/refazer anexam as operações inversas como uma nova ação marcada; o custo
+ *       é proporcional às operações desfeitas. A remoção de um nó grava antes a remoção de
+ *       cada aresta incidente (com peso e geometria) para poder ser invertida.</li>
+ *   <li>{@link #open} carrega as ações sobre o grafo base já lido e reconstrói as pilhas
+ *       de desfazer/refazer. Um registro final incompleto ou com CRC inválido (escrita
+ *       interrompida) é descartado e o arquivo truncado no último registro íntegro. Sem
+ *       diário anterior, o arquivo só é criado na primeira edição: abrir um mapa para
+ *       consulta não escreve nada, nem exige diretório gravável.</li>
+ *   <li>Se o diário não puder ser criado ou aberto para escrita, ele passa a funcionar só
+ *       em memória ({@link #getPersistenceError()}) em vez de falhar a edição.</li>
+ *   <li>{@link #compact()} grava o grafo atual como novo arquivo base e recomeça o
+ *       diário vazio. O cabeçalho guarda tamanho e data do arquivo base; um diário que
+ *       não corresponde mais à base (compactação interrompida entre as duas trocas de
+ *       arquivo, ou base substituída) é renomeado para {@code .old} em vez de aplicado.</li>
+ * </ul>
+ *
+ * Sem arquivo ({@link #inMemory}), o diário só mantém as pilhas de desfazer/refazer.
+ */
+public class EditJournal implements Closeable {
+    private static final int MAGIC = 0x474A4E4C; // "GJNL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+    private static final int MAX_RECORD_BYTES = 1 << 28;
+
+    private static final byte ADD_NODE = 1;
+    private static final byte REMOVE_NODE = 2;
+    private static final byte ADD_EDGE = 3;
+    private static final byte REMOVE_EDGE = 4;
+
+    private static final byte KIND_DO = 0;
+    private static final byte KIND_UNDO = 1;
+    private static final byte KIND_REDO = 2;
+
+    public static final int DEFAULT_SYNC_EVERY = 32;
+    public static final long DEFAULT_SYNC_INTERVAL_MS = 1000;
+    /** Ações mais antigas que isso saem da pilha de desfazer (continuam no diário). */
+    public static final int MAX_HISTORY = 1000;
+    /** Tamanho mínimo do diário antes de {@link #shouldCompact()} sugerir compactar. */
+    private static final long COMPACT_MIN_BYTES = 1 << 20;
+
+    private final Graph graph;
+    private final Path baseFile;
+    private final Path journalFile;
+    private FileChannel channel;
+    private long journalBytes;
+    private long baseBytes;
+
+    private final Deque<List<Op>> undoStack = new ArrayDeque<>();
+    private final Deque<List<Op>> redoStack = new ArrayDeque<>();
+
+    private int syncEvery = DEFAULT_SYNC_EVERY;
+    private long syncIntervalMs = DEFAULT_SYNC_INTERVAL_MS;
+    private int unsyncedActions;
+    private long lastSyncNanos = System.nanoTime();
+
+    private int replayedActions;
+    private boolean discardedStaleJournal;
+    private boolean truncatedTail;
+    private IOException persistenceError;
+    private boolean closed;
+
+    private EditJournal(Graph graph, Path baseFile, Path journalFile) {
+        this.graph = graph;
+        this.baseFile = baseFile;
+        this.journalFile = journalFile;
+    }
+
+    /** Diário sem arquivo: só desfazer/refazer, nada é persistido. */
+    public static EditJournal inMemory(Graph graph) {
+        return new EditJournal(graph, null, null);
+    }
+
+    /** Caminho padrão do diário de um arquivo base: {@code mapa.poly.journal}. */
+    public static Path journalPathFor(Path baseFile) {
+        return baseFile.resolveSibling(baseFile.getFileName() + ".journal");
+    }
+
+    /**
+     * Abre o diário {@link #journalPathFor(Path) ao lado} de {@code baseFile} e
+     * reaplica suas ações sobre {@code graph}, que deve ter acabado de ser lido desse arquivo.
+     * Se ainda não há diário, nada é gravado até a primeira edição.
+     */
+    public static EditJournal open(Path baseFile, Graph graph) throws IOException {
+        EditJournal journal = new EditJournal(graph, baseFile, journalPathFor(baseFile));
+        journal.load();
+        return journal;
+    }
+
+    private void load() throws IOException {
+        baseBytes = Files.size(baseFile);
+        long goodBytes = 0;
+        if (Files.exists(journalFile) && Files.size(journalFile) > HEADER_BYTES) {
+            goodBytes = replay();
+            if (goodBytes < 0) {
+                goodBytes = 0;
+                try {
+                    Files.move(journalFile, journalFile.resolveSibling(journalFile.getFileName() + ".old"),
+                            StandardCopyOption.REPLACE_EXISTING);
+                    discardedStaleJournal = true;
+                } catch (IOException e) {
+                    // Sem o rename, criar o diário novo apagaria o antigo
+                    disablePersistence(e);
+                }
+            }
+        }
+        // Sem ações a manter, o arquivo fica para ensureChannel(), na primeira edição
+        if (goodBytes == 0) return;
+        try {
+            channel = FileChannel.open(journalFile, StandardOpenOption.WRITE);
+            if (channel.size() > goodBytes) {
+                channel.truncate(goodBytes);
+                channel.force(false);
+            }
+            channel.position(goodBytes);
+            journalBytes = goodBytes;
+        } catch (IOException e) {
+            // As ações já foram reaplicadas; só as próximas deixam de ser gravadas
+            disablePersistence(e);
+        }
+    }
+
+    /**
+     * Aplica os registros íntegros do diário. Retorna a posição logo após o último deles,
+     * ou -1 se o diário pertence a outra versão do arquivo base.
+     */
+    private long replay() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile), 1 << 16))) {
+            long position;
+            try {
+                if (in.readInt() != MAGIC) throw new IOException("Arquivo de diário inválido: " + journalFile);
+                int version = in.readInt();
+                if (version != VERSION) throw new IOException("Versão de diário não suportada: " + version);
+                long size = in.readLong();
+                long modified = in.readLong();
+                if (size != Files.size(baseFile) || modified != Files.getLastModifiedTime(baseFile).toMillis()) {
+                    return -1;
+                }
+                position = HEADER_BYTES;
+            } catch (EOFException e) {
+                throw new IOException("Cabeçalho do diário incompleto: " + journalFile, e);
+            }
+
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if (in.readInt() != (int) crc.getValue()) break;
+                } catch (EOFException e) {
+                    break;
+                }
+                byte kind = payload[0];
+                List<Op> ops = decode(payload);
+                try {
+                    for (Op op : ops) apply(op);
+                } catch (IllegalStateException e) {
+                    throw new IOException("Diário inconsistente com o arquivo base na posição " + position, e);
+                }
+                // As pilhas guardam sempre a ação no sentido original
+                switch (kind) {
+                    case KIND_DO:
+                        pushHistory(ops);
+                        redoStack.clear();
+                        break;
+                    case KIND_UNDO:
+                        if (!undoStack.isEmpty()) redoStack.push(undoStack.pop());
+                        break;
+                    case KIND_REDO:
+                        if (!redoStack.isEmpty()) undoStack.push(redoStack.pop());
+                        break;
+                    default:
+                        throw new IOException("Tipo de registro desconhecido no diário: " + kind);
+                }
+                replayedActions++;
+                position += 4 + payload.length + 4;
+            }
+            truncatedTail = position < Files.size(journalFile);
+            return position;
+        }
+    }
+
+    private static void writeEmptyJournal(Path journal, Path base) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(Files.size(base)).putLong(Files.getLastModifiedTime(base).toMillis());
+        header.flip();
+        try (FileChannel out = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) out.write(header);
+            out.force(true);
+        }
+    }
+
+    // --- Edições ---
+
+    /** Adiciona o nó; falso se o ID já existe. */
+    public boolean addNode(Node node) throws IOException {
+        if (graph.getNodes().containsKey(node.getIdInterno())) return false;
+        List<Op> ops = new ArrayList<>(1);
+        ops.add(Op.node(ADD_NODE, node.getIdInterno(), node.getX(), node.getY(), node.getLabel()));
+        perform(ops);
+        return true;
+    }
+
+    /**
+     * Adiciona a aresta; falso se uma extremidade não existe ou se já há arco entre os nós
+     * (em qualquer sentido, para mão dupla, já que ela ocuparia os dois).
+     */
+    public boolean addEdge(int uId, int vId, double weight, boolean isDirected) throws IOException {
+        Map<Integer, Map<Integer, Edge>> adj = graph.getAdj();
+        if (uId == vId || !graph.getNodes().containsKey(uId) || !graph.getNodes().containsKey(vId)) return false;
+        if (adj.get(uId).containsKey(vId) || (!isDirected && adj.get(vId).containsKey(uId))) return false;
+        List<Op> ops = new ArrayList<>(1);
+        ops.add(Op.edge(ADD_EDGE, uId, vId, weight, isDirected, null));
+        perform(ops);
+        return true;
+    }
+
+    /** Remove a aresta u -> v (e a reversa, se de mão dupla); falso se não existe. */
+    public boolean removeEdge(int uId, int vId) throws IOException {
+        Map<Integer, Edge> out = graph.getAdj().get(uId);
+        Edge edge = out != null ? out.get(vId) : null;
+        if (edge == null) return false;
+        List<Op> ops = new ArrayList<>(1);
+        ops.add(removeOp(edge));
+        perform(ops);
+        return true;
+    }
+
+    /** Remove o nó e todas as suas arestas; falso se não existe. */
+    public boolean removeNode(int nodeId) throws IOException {
+        Node node = graph.getNodes().get(nodeId);
+        if (node == null) return false;
+        List<Op> ops = new ArrayList<>();
+        Map<Integer, Edge> outgoing = graph.getAdj().get(nodeId);
+        if (outgoing != null) {
+            for (Edge edge : outgoing.values()) ops.add(removeOp(edge));
+        }
+        // Chegadas: só as de mão única; as de mão dupla já saíram junto com a reversa acima
+        for (Map<Integer, Edge> neighborMap : graph.getAdj().values()) {
+            Edge edge = neighborMap.get(nodeId);
+            if (edge != null && edge.isDirected()) ops.add(removeOp(edge));
+        }
+        ops.add(Op.node(REMOVE_NODE, nodeId, node.getX(), node.getY(), node.getLabel()));
+        perform(ops);
+        return true;
+    }
+
+    private static Op removeOp(Edge edge) {
+        EdgeGeometry geometry = edge.getGeometry();
+        return Op.edge(REMOVE_EDGE, edge.getU(), edge.getV(), edge.getWeight(), edge.isDirected(),
+                geometry != null ? geometry.toArray() : null);
+    }
+
+    public boolean canUndo() { return !undoStack.isEmpty(); }
+    public boolean canRedo() { return !redoStack.isEmpty(); }
+
+    /** Desfaz a última ação; falso se não há o que desfazer. */
+    public boolean undo() throws IOException {
+        if (undoStack.isEmpty()) return false;
+        List<Op> action = undoStack.peek();
+        List<Op> inverse = new ArrayList<>(action.size());
+        for (int i = action.size() - 1; i >= 0; i--) inverse.add(action.get(i).inverse());
+        for (Op op : inverse) apply(op);
+        append(KIND_UNDO, inverse);
+        redoStack.push(undoStack.pop());
+        return true;
+    }
+
+    /** Refaz a última ação desfeita; falso se não há o que refazer. */
+    public boolean redo() throws IOException {
+        if (redoStack.isEmpty()) return false;
+        List<Op> action = redoStack.peek();
+        for (Op op : action) apply(op);
+        append(KIND_REDO, action);
+        undoStack.push(redoStack.pop());
+        return true;
+    }
+
+    private void perform(List<Op> ops) throws IOException {
+        for (Op op : ops) apply(op);
+        append(KIND_DO, ops);
+        pushHistory(ops);
+        redoStack.clear();
+    }
+
+    private void pushHistory(List<Op> ops) {
+        undoStack.push(ops);
+        if (undoStack.size() > MAX_HISTORY) undoStack.removeLast();
+    }
+
+    private void apply(Op op) {
+        switch (op.type) {
+            case ADD_NODE:
+                Node node = new Node(op.a, op.x, op.y);
+                if (op.label != null) node.setLabel(op.label);
+                graph.addNode(node);
+                break;
+            case REMOVE_NODE:
+                // As arestas incidentes foram removidas por operações anteriores da mesma ação
+                graph.removeDetachedNode(op.a);
+                break;
+            case ADD_EDGE:
+                EdgeGeometry geometry = null;
+                if (op.geometry != null) {
+                    int count = op.geometry.length / 2;
+                    double[] xs = new double[count];
+                    double[] ys = new double[count];
+                    for (int i = 0; i < count; i++) {
+                        xs[i] = op.geometry[2 * i];
+                        ys[i] = op.geometry[2 * i + 1];
+                    }
+                    geometry = EdgeGeometry.encode(xs, ys, count);
+                }
+                graph.addEdge(op.a, op.b, op.x, op.directed, geometry);
+                break;
+            case REMOVE_EDGE:
+                graph.removeEdge(op.a, op.b);
+                break;
+            default:
+                throw new IllegalStateException("Operação desconhecida: " + op.type);
+        }
+    }
+
+    // --- Persistência ---
+
+    private void append(byte kind, List<Op> ops) throws IOException {
+        if (!ensureChannel()) return;
+        byte[] payload = encode(kind, ops);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer record = ByteBuffer.allocate(4 + payload.length + 4);
+        record.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        record.flip();
+        while (record.hasRemaining()) channel.write(record);
+        journalBytes += record.capacity();
+        unsyncedActions++;
+        if (unsyncedActions >= syncEvery || System.nanoTime() - lastSyncNanos >= syncIntervalMs * 1_000_000L) {
+            sync();
+        }
+    }
+
+    /**
+     * Garante o arquivo do diário aberto, criando-o (só com o cabeçalho) se preciso. Falso
+     * para diários em memória ou que já não conseguiram gravar.
+     */
+    private boolean ensureChannel() {
+        if (channel != null) return true;
+        if (journalFile == null || persistenceError != null) return false;
+        // Recriar depois de close() truncaria o diário de outra instância sobre o mesmo arquivo
+        if (closed) throw new IllegalStateException("Diário de edições já fechado.");
+        try {
+            writeEmptyJournal(journalFile, baseFile);
+            channel = FileChannel.open(journalFile, StandardOpenOption.WRITE);
+            channel.position(HEADER_BYTES);
+            journalBytes = HEADER_BYTES;
+            return true;
+        } catch (IOException e) {
+            disablePersistence(e);
+            return false;
+        }
+    }
+
+    /** Passa a manter as edições só em memória, guardando a causa para quem exibe o diário. */
+    private void disablePersistence(IOException cause) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // O canal já falhou; o que importa é a causa original
+            }
+            channel = null;
+        }
+        persistenceError = cause;
+    }
+
+    /** Força as ações ainda não sincronizadas para o disco. */
+    public void sync() throws IOException {
+        if (channel != null && unsyncedActions > 0) {
+            channel.force(false);
+        }
+        unsyncedActions = 0;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    /** Ajusta o lote de fsync: a cada {@code actions} ações ou {@code intervalMs} ms, o que vier antes. */
+    public void setSyncPolicy(int actions, long intervalMs) {
+        if (actions < 1 || intervalMs < 0) throw new IllegalArgumentException("Política de sincronização inválida.");
+        this.syncEvery = actions;
+        this.syncIntervalMs = intervalMs;
+    }
+
+    /** Verdadeiro quando o diário já passa de metade do arquivo base (e de 1 MB). */
+    public boolean shouldCompact() {
+        return channel != null && journalBytes > Math.max(COMPACT_MIN_BYTES, baseBytes / 2);
+    }
+
+    /**
+     * Grava o grafo atual como novo arquivo base e recomeça o diário vazio. O novo base e o
+     * novo diário são escritos em arquivos temporários e trocados por rename atômico; as
+     * pilhas de desfazer/refazer em memória continuam válidas. Sem diário criado ainda, só
+     * o arquivo base é regravado.
+     */
+    public void compact() throws IOException {
+        if (!isPersistent()) throw new IllegalStateException("Diário em memória não tem arquivo base.");
+        sync();
+        Path tmpBase = baseFile.resolveSibling(baseFile.getFileName() + ".tmp");
+        new PolyWriter().writePolyFile(graph, tmpBase.toString());
+        if (channel == null) {
+            Files.move(tmpBase, baseFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // Um diário só com cabeçalho, da base antiga, seria descartado como obsoleto no open()
+            Files.deleteIfExists(journalFile);
+            syncDirectory(baseFile.toAbsolutePath().getParent());
+            baseBytes = Files.size(baseFile);
+            return;
+        }
+        Path tmpJournal = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        writeEmptyJournal(tmpJournal, tmpBase);
+
+        channel.close();
+        channel = null;
+        // Queda entre os dois renames deixa o diário antigo apontando para a base antiga;
+        // open() detecta pela assinatura e o descarta (seu conteúdo já está na base nova).
+        Files.move(tmpBase, baseFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmpJournal, journalFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(baseFile.toAbsolutePath().getParent());
+
+        baseBytes = Files.size(baseFile);
+        channel = FileChannel.open(journalFile, StandardOpenOption.WRITE);
+        channel.position(HEADER_BYTES);
+        journalBytes = HEADER_BYTES;
+        unsyncedActions = 0;
+    }
+
+    private static void syncDirectory(Path directory) {
+        if (directory == null) return;
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Nem todo sistema permite abrir diretórios; o rename continua atômico, só não durável
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (channel == null) return;
+        sync();
+        channel.close();
+        channel = null;
+    }
+
+    public Graph getGraph() { return graph; }
+    /** Verdadeiro se as edições são gravadas em arquivo (ainda que ele só seja criado na primeira). */
+    public boolean isPersistent() { return journalFile != null && persistenceError == null; }
+    public Path getJournalFile() { return journalFile; }
+    public long getJournalBytes() { return journalBytes; }
+    /** Ações reaplicadas por {@link #open}. */
+    public int getReplayedActions() { return replayedActions; }
+    /** Verdadeiro se {@link #open} encontrou um diário de outra versão da base e o renomeou. */
+    public boolean hasDiscardedStaleJournal() { return discardedStaleJournal; }
+    /** Verdadeiro se {@link #open} descartou um registro final incompleto ou corrompido. */
+    public boolean hasTruncatedTail() { return truncatedTail; }
+    /** Falha que fez o diário passar a funcionar só em memória, ou null. */
+    public IOException getPersistenceError() { return persistenceError; }
+
+    // --- Codificação ---
+
+    private static byte[] encode(byte kind, List<Op> ops) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + ops.size() * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(kind);
+        out.writeInt(ops.size());
+        for (Op op : ops) {
+            out.writeByte(op.type);
+            if (op.type == ADD_NODE || op.type == REMOVE_NODE) {
+                out.writeInt(op.a);
+                out.writeDouble(op.x);
+                out.writeDouble(op.y);
+                out.writeBoolean(op.label != null);
+                if (op.label != null) out.writeUTF(op.label);
+            } else {
+                out.writeInt(op.a);
+                out.writeInt(op.b);
+                out.writeDouble(op.x);
+                out.writeBoolean(op.directed);
+                out.writeInt(op.geometry != null ? op.geometry.length : -1);
+                if (op.geometry != null) {
+                    for (double value : op.geometry) out.writeDouble(value);
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static List<Op> decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        in.readByte(); // tipo do registro, tratado por quem chama
+        int count = in.readInt();
+        List<Op> ops = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte type = in.readByte();
+            if (type == ADD_NODE || type == REMOVE_NODE) {
+                int id = in.readInt();
+                double x = in.readDouble();
+                double y = in.readDouble();
+                String label = in.readBoolean() ? in.readUTF() : null;
+                ops.add(Op.node(type, id, x, y, label));
+            } else if (type == ADD_EDGE || type == REMOVE_EDGE) {
+                int u = in.readInt();
+                int v = in.readInt();
+                double weight = in.readDouble();
+                boolean directed = in.readBoolean();
+                int length = in.readInt();
+                double[] geometry = null;
+                if (length >= 0) {
+                    geometry = new double[length];
+                    for (int j = 0; j < length; j++) geometry[j] = in.readDouble();
+                }
+                ops.add(Op.edge(type, u, v, weight, directed, geometry));
+            } else {
+                throw new IOException("Operação desconhecida no diário: " + type);
+            }
+        }
+        return ops;
+    }
+
+    /**
+     * Uma operação elementar. Para nós, {@code a} é o ID e (x, y) a posição; para arestas,
+     * {@code a -> b} são as extremidades e {@code x} o peso. A inversa tem os mesmos dados.
+     */
+    private static final class Op {
+        final byte type;
+        final int a, b;
+        final double x, y;
+        final boolean directed;
+        final String label;
+        final double[] geometry;
+
+        private Op(byte type, int a, int b, double x, double y, boolean directed, String label, double[] geometry) {
+            this.type = type;
+            this.a = a;
+            this.b = b;
+            this.x = x;
+            this.y = y;
+            this.directed = directed;
+            this.label = label;
+            this.geometry = geometry;
+        }
+
+        static Op node(byte type, int id, double x, double y, String label) {
+            return new Op(type, id, 0, x, y, false, label, null);
+        }
+
+        static Op edge(byte type, int uId, int vId, double weight, boolean isDirected, double[] geometry) {
+            return new Op(type, uId, vId, weight, 0, isDirected, null, geometry);
+        }
+
+        Op inverse() {
+            byte inverseType;
+            switch (type) {
+                case ADD_NODE: inverseType = REMOVE_NODE; break;
+                case REMOVE_NODE: inverseType = ADD_NODE; break;
+                case ADD_EDGE: inverseType = REMOVE_EDGE; break;
+                default: inverseType = ADD_EDGE; break;
+            }
+            return new Op(inverseType, a, b, x, y, directed, label, geometry);
+        }
+    }
+}
\ No newline at end of file
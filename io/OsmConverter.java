@@ -1,231 +1,391 @@
 package io;
 
+import metrics.ImportPhaseEvent;
 import model.Graph;
-import model.Node;
-import org.xml.sax.Attributes;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
-
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import model.GraphBuilder;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+/**
+ * Importa um .osm (XML, opcionalmente .gz/.bz2) como um grafo por perfil de roteamento.
+ *
+ * O arquivo é lido uma única vez, em pedaços de {@value #CHUNK_BYTES} bytes cortados no
+ * início de um {@code <node}, {@code <way} ou {@code <relation}; cada pedaço é lido por um
+ * {@link OsmXmlScanner} no pool, enquanto a thread chamadora já lê o próximo. Há no máximo
+ * {@code 2 * paralelismo} pedaços em voo, e os resultados são recolhidos na ordem do arquivo.
+ * As ways só são ligadas aos nós depois que todos foram lidos, de modo que a ordem dos
+ * elementos no arquivo não importa; e cada perfil percorre as ways na ordem do arquivo, então
+ * os IDs internos são sempre os mesmos, qualquer que seja o paralelismo.
+ */
 public class OsmConverter {
+    /** Tamanho nominal dos pedaços do arquivo entregues ao pool. */
+    private static final int CHUNK_BYTES = 4 << 20;
+    private static final String READ_PHASE = "Lendo nós e vias";
+
+    private final ForkJoinPool pool;
+    private ProgressListener progress = ProgressListener.NONE;
+
+    public OsmConverter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public OsmConverter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Acompanha as próximas conversões: bytes lidos do arquivo e a montagem final. O total da
+     * leitura só é conhecido para arquivos sem compressão. Se a thread for interrompida a
+     * conversão para com {@link InterruptedIOException}.
+     */
+    public OsmConverter setProgressListener(ProgressListener progress) {
+        this.progress = progress != null ? progress : ProgressListener.NONE;
+        return this;
+    }
 
     /**
      * Ponto de entrada principal para a conversão.
-     * Orquestra a leitura em dois passos para garantir a integridade dos dados.
+     * Mantém o comportamento original: toda way com highway=* entra no grafo.
      */
     public Graph convertOsmToGraph(String filepath) throws IOException {
-        try {
-            // --- PASSO 1: Mapear todos os nós e suas coordenadas ---
-            System.out.println("DEBUG_OSM_CONV: Iniciando PASSO 1 - Mapeando todos os nós...");
-            Map<Long, OsmNode> allNodes = mapAllNodes(filepath);
-            System.out.println("DEBUG_OSM_CONV: PASSO 1 Concluído. Total de " + allNodes.size() + " nós únicos mapeados.");
-
-            if (allNodes.isEmpty()) {
-                System.out.println("DEBUG_OSM_CONV: Aviso: Nenhum nó foi encontrado no arquivo. Retornando grafo vazio.");
-                return new Graph();
-            }
+        return convertOsmToGraph(filepath, RoutingProfile.ANY_HIGHWAY);
+    }
 
-            // --- PASSO 2: Construir o grafo processando as 'ways' ---
-            System.out.println("DEBUG_OSM_CONV: Iniciando PASSO 2 - Construindo o grafo a partir das 'ways'...");
-            Graph finalGraph = buildGraphFromWays(filepath, allNodes);
+    /**
+     * Converte o arquivo usando um perfil de roteamento (carro, bicicleta, a pé...).
+     */
+    public Graph convertOsmToGraph(String filepath, RoutingProfile profile) throws IOException {
+        return convertOsmToGraphs(filepath, profile).get(profile);
+    }
 
-            System.out.println("DEBUG_OSM_CONV: Conversão finalizada.");
-            return finalGraph;
+    /**
+     * Gera um grafo por perfil em uma única leitura do arquivo. Ways que nenhum
+     * perfil aceita são descartadas durante o parse e nunca chegam a ocupar memória.
+     */
+    public Map<RoutingProfile, Graph> convertOsmToGraphs(String filepath, RoutingProfile... profiles) throws IOException {
+        if (profiles.length == 0) {
+            throw new IllegalArgumentException("Informe ao menos um perfil de roteamento.");
+        }
+        long plainBytes = CompressedInput.detectFormat(filepath) == CompressedInput.Format.PLAIN ? new File(filepath).length() : 0;
+        List<OsmXmlScanner.Chunk> chunks = readChunks(filepath, profiles, plainBytes);
+        NodeTable nodes = new NodeTable(chunks);
 
-        } catch (ParserConfigurationException | SAXException e) {
-            throw new IOException("Erro ao analisar (parse) o arquivo XML do OSM: " + e.getMessage(), e);
+        if (nodes.size() == 0) {
+            // Nenhum nó no arquivo: grafos vazios
+            Map<RoutingProfile, Graph> empty = new LinkedHashMap<>();
+            for (RoutingProfile profile : profiles) empty.put(profile, new Graph());
+            return empty;
         }
+        return buildGraphs(filepath, nodes, chunks, profiles);
     }
 
     /**
-     * PASSO 1: Lê o arquivo OSM e mapeia todos os nós para um Map.
+     * Lê o arquivo (que pode estar comprimido; a descompressão roda em outra thread) e
+     * entrega os pedaços ao pool. Retorna os resultados na ordem do arquivo.
      */
-    private Map<Long, OsmNode> mapAllNodes(String filepath) throws ParserConfigurationException, SAXException, IOException {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        SAXParser saxParser = factory.newSAXParser();
-        NodeHandler nodeHandler = new NodeHandler();
-        saxParser.parse(new File(filepath), nodeHandler);
-        return nodeHandler.getNodesMap();
+    private List<OsmXmlScanner.Chunk> readChunks(String filepath, RoutingProfile[] profiles, long totalBytes) throws IOException {
+        List<OsmXmlScanner.Chunk> chunks = new ArrayList<>();
+        Deque<Future<OsmXmlScanner.Chunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = 2 * Math.max(1, pool.getParallelism());
+
+        try (CompressedInput.PipelineStream in = CompressedInput.open(filepath)) {
+            progress.progress(READ_PHASE, 0, totalBytes);
+            ImportPhaseEvent event = ImportPhaseEvent.start(filepath, READ_PHASE);
+            try {
+                // O que sobrou do bloco anterior depois do último corte começa o próximo
+                byte[] tail = new byte[0];
+                int tailFrom = 0, tailLength = 0;
+                boolean firstBlock = true;
+                while (true) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Importação do OSM cancelada.");
+                    }
+                    byte[] block = new byte[Math.max(CHUNK_BYTES, tailLength * 2)];
+                    System.arraycopy(tail, tailFrom, block, 0, tailLength);
+                    int length = tailLength + readFully(in, block, tailLength);
+                    boolean eof = length < block.length;
+                    // O primeiro elemento do arquivo tem de ser o <osm>
+                    int root = firstBlock ? OsmXmlScanner.rootStart(block, length) : 0;
+                    if (firstBlock && (root >= 0 || eof)) {
+                        if (!OsmXmlScanner.isOsmRoot(block, length, root)) {
+                            throw new IOException("O arquivo não é um XML do OSM (falta o elemento <osm>): " + filepath);
+                        }
+                        firstBlock = false;
+                    }
+                    int cut = eof ? length : OsmXmlScanner.lastElementStart(block, length);
+                    if ((cut <= 0 || root < 0) && !eof) {
+                        // Nenhum corte possível (um elemento ou o prólogo maior que o bloco): lê um bloco maior
+                        tail = block;
+                        tailFrom = 0;
+                        tailLength = length;
+                        continue;
+                    }
+                    drain(inFlight, maxInFlight - 1, chunks);
+                    int chunkEnd = cut;
+                    inFlight.addLast(pool.submit(() -> new OsmXmlScanner(profiles).scan(block, 0, chunkEnd)));
+                    progress.progress(READ_PHASE, in.getConsumerStats().getBytes(), totalBytes);
+                    if (eof) break;
+                    tail = block;
+                    tailFrom = cut;
+                    tailLength = length - cut;
+                }
+                drain(inFlight, 0, chunks);
+            } finally {
+                for (Future<OsmXmlScanner.Chunk> pending : inFlight) pending.cancel(true);
+            }
+
+            long elements = 0, skipped = 0;
+            for (OsmXmlScanner.Chunk chunk : chunks) {
+                elements += chunk.elements;
+                skipped += chunk.skipped;
+            }
+            if (skipped > 0) {
+                System.err.println("AVISO: " + skipped + " nós ou <nd> com número inválido foram ignorados.");
+            }
+            event.finish(elements, skipped, in.getConsumerStats().getBytes());
+        }
+        return chunks;
     }
-    
-    /**
-     * PASSO 2: Lê o arquivo OSM novamente, construindo o grafo a partir das 'ways'
-     * e usando o mapa de nós pré-processado.
-     */
-    private Graph buildGraphFromWays(String filepath, Map<Long, OsmNode> allNodes) throws ParserConfigurationException, SAXException, IOException {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        SAXParser saxParser = factory.newSAXParser();
-        WayHandler wayHandler = new WayHandler(allNodes);
-        saxParser.parse(new File(filepath), wayHandler);
-        return wayHandler.getGraph();
+
+    /** Lê até encher {@code block} a partir de {@code from} ou o arquivo acabar; retorna quantos bytes leu. */
+    private static int readFully(InputStream in, byte[] block, int from) throws IOException {
+        int offset = from;
+        while (offset < block.length) {
+            int n = in.read(block, offset, block.length - offset);
+            if (n < 0) break;
+            offset += n;
+        }
+        return offset - from;
+    }
+
+    /** Recolhe, em ordem, os pedaços mais antigos até restarem no máximo {@code keep} em voo. */
+    private static <T> void drain(Deque<Future<T>> inFlight, int keep, List<T> results) throws IOException {
+        while (inFlight.size() > keep) {
+            results.add(await(inFlight.pollFirst()));
+        }
     }
 
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Importação do OSM cancelada.");
+        } catch (ExecutionException e) {
+            // O ForkJoinPool embrulha as exceções verificadas das tarefas em RuntimeException e
+            // ainda pode repassar uma cópia dela: a causa real é a primeira IOException da cadeia
+            Throwable cause = e.getCause();
+            for (Throwable t = cause; t != null; t = t.getCause()) {
+                if (t instanceof IOException) {
+                    cause = t;
+                    break;
+                }
+            }
+            if (cause instanceof InterruptedIOException) throw (InterruptedIOException) cause;
+            throw new IOException("Erro ao analisar (parse) o arquivo XML do OSM: " + cause.getMessage(), cause);
+        }
+    }
 
     /**
-     * Classe auxiliar interna para guardar temporariamente os dados de um nó OSM.
+     * Resolve as referências das ways para posições na tabela de nós (em paralelo, por
+     * pedaço) e monta um grafo por perfil, cada um numa tarefa do pool.
      */
-    private static class OsmNode {
-        final double lat;
-        final double lon;
+    private Map<RoutingProfile, Graph> buildGraphs(String filepath, NodeTable nodes, List<OsmXmlScanner.Chunk> chunks,
+                                                   RoutingProfile[] profiles) throws IOException {
+        progress.progress("Montando o grafo", 0, 0);
+        ImportPhaseEvent event = ImportPhaseEvent.start(filepath, "Montando o grafo");
+        List<Future<?>> resolving = new ArrayList<>();
+        for (OsmXmlScanner.Chunk chunk : chunks) {
+            if (chunk.wayCount > 0) resolving.add(pool.submit(() -> nodes.resolve(chunk)));
+        }
+        for (Future<?> future : resolving) await(future);
 
-        public OsmNode(double lat, double lon) {
-            this.lat = lat;
-            this.lon = lon;
+        List<Future<Graph>> building = new ArrayList<>();
+        for (int p = 0; p < profiles.length; p++) {
+            int profileIndex = p;
+            building.add(pool.submit(() -> new ProfileGraph(profileIndex, profiles.length, nodes)
+                    .addWays(chunks).build()));
         }
+        Map<RoutingProfile, Graph> graphs = new LinkedHashMap<>();
+        long items = 0;
+        for (int p = 0; p < profiles.length; p++) {
+            Graph graph = await(building.get(p));
+            graphs.put(profiles[p], graph);
+            items += graph.getNumVertices() + graph.getNumEdges();
+        }
+        event.finish(items, 0, 0);
+        return graphs;
     }
 
     /**
-     * Handler SAX customizado para processar apenas os elementos <node> do arquivo OSM (PASSO 1).
+     * Todos os nós do arquivo em arrays paralelos, na ordem em que aparecem. Os extratos do
+     * OSM vêm ordenados por ID, e a busca é binária; se não vierem, cai num mapa de IDs. Um
+     * ID repetido fica com a última definição, como num {@code Map.put}.
      */
-    private static class NodeHandler extends DefaultHandler {
-        private final Map<Long, OsmNode> nodesMap = new HashMap<>();
-
-        public Map<Long, OsmNode> getNodesMap() { return nodesMap; }
-
-        @Override
-        public void startElement(String uri, String localName, String qName, Attributes attributes) {
-            if ("node".equals(qName)) {
-                try {
-                    String idStr = attributes.getValue("id");
-                    String latStr = attributes.getValue("lat");
-                    String lonStr = attributes.getValue("lon");
-                    if (idStr != null && latStr != null && lonStr != null) {
-                        nodesMap.put(Long.parseLong(idStr), new OsmNode(Double.parseDouble(latStr), Double.parseDouble(lonStr)));
-                    }
-                } catch (NumberFormatException e) {
-                    System.err.println("AVISO (NodeHandler): Ignorando nó com formato de número inválido.");
-                }
+    private static class NodeTable {
+        private final long[] ids;
+        private final double[] lats;
+        private final double[] lons;
+        private final int size;
+        private final Map<Long, Integer> unsortedIndex;
+
+        NodeTable(List<OsmXmlScanner.Chunk> chunks) {
+            int total = 0;
+            for (OsmXmlScanner.Chunk chunk : chunks) total += chunk.nodeCount;
+            ids = new long[total];
+            lats = new double[total];
+            lons = new double[total];
+            int n = 0;
+            for (OsmXmlScanner.Chunk chunk : chunks) {
+                System.arraycopy(chunk.nodeIds, 0, ids, n, chunk.nodeCount);
+                System.arraycopy(chunk.nodeLats, 0, lats, n, chunk.nodeCount);
+                System.arraycopy(chunk.nodeLons, 0, lons, n, chunk.nodeCount);
+                n += chunk.nodeCount;
+                chunk.nodeIds = null;
+                chunk.nodeLats = null;
+                chunk.nodeLons = null;
+            }
+            size = n;
+
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) sorted = ids[i - 1] < ids[i];
+            if (sorted) {
+                unsortedIndex = null;
+            } else {
+                unsortedIndex = new HashMap<>();
+                for (int i = 0; i < size; i++) unsortedIndex.put(ids[i], i);
             }
         }
+
+        int size() { return size; }
+
+        /** Posição do nó na tabela, ou -1 se ele não foi definido no arquivo. */
+        int indexOf(long osmId) {
+            if (unsortedIndex != null) {
+                Integer index = unsortedIndex.get(osmId);
+                return index != null ? index : -1;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, osmId);
+            return index >= 0 ? index : -1;
+        }
+
+        void resolve(OsmXmlScanner.Chunk chunk) {
+            int[] indices = new int[chunk.refCount];
+            for (int i = 0; i < chunk.refCount; i++) indices[i] = indexOf(chunk.refs[i]);
+            chunk.refIndices = indices;
+            chunk.refs = null;
+        }
     }
 
     /**
-     * Handler SAX customizado para processar os elementos <way> e construir o grafo (PASSO 2).
+     * Grafo em construção de um perfil, com seu próprio mapeamento de IDs do OSM. Os sentidos
+     * e fatores de velocidade do perfil já vêm calculados pelo {@link OsmXmlScanner}.
+     * Nós e arestas vão para um {@link GraphBuilder}; o {@link Graph} só é montado
+     * no final, de uma vez.
      */
-    private static class WayHandler extends DefaultHandler {
-        private final Graph graph = new Graph();
-        private final Map<Long, OsmNode> allNodes; // Mapa de nós do Passo 1
-
-        // Estado do Way atual
-        private List<Long> currentWayNodes;
-        private boolean isHighway;
-        private boolean isOneWay;
-        
-        // Mapeamento para evitar duplicar nós no nosso grafo final
+    private static class ProfileGraph {
+        private final int profileIndex;
+        private final int profileCount;
+        private final NodeTable nodes;
+        private final GraphBuilder builder;
+
+        // Mapeamento para evitar duplicar nós no nosso grafo final: ID interno por posição na tabela
         private int internalNodeIdCounter = 0;
-        private final Map<Long, Integer> osmIdToInternalId = new HashMap<>();
+        private final int[] internalIdByNode;
 
-        public WayHandler(Map<Long, OsmNode> allNodes) {
-            this.allNodes = allNodes;
+        ProfileGraph(int profileIndex, int profileCount, NodeTable nodes) {
+            this.profileIndex = profileIndex;
+            this.profileCount = profileCount;
+            this.nodes = nodes;
+            this.builder = new GraphBuilder(nodes.size(), nodes.size());
+            this.internalIdByNode = new int[nodes.size()];
+            Arrays.fill(internalIdByNode, -1);
         }
 
-        public Graph getGraph() { return graph; }
-        
-        @Override
-        public void startElement(String uri, String localName, String qName, Attributes attributes) {
-            if ("way".equals(qName)) {
-                // Inicia um novo 'way', reseta o estado
-                currentWayNodes = new ArrayList<>();
-                isHighway = false;
-                isOneWay = false;
-            } else if ("nd".equals(qName)) {
-                // Adiciona uma referência de nó à lista do 'way' atual
-                if (currentWayNodes != null) {
-                    try {
-                        currentWayNodes.add(Long.parseLong(attributes.getValue("ref")));
-                    } catch (NumberFormatException e) {
-                        System.err.println("AVISO (WayHandler): Ignorando <nd> com 'ref' inválido.");
-                    }
-                }
-            } else if ("tag".equals(qName)) {
-                // Verifica as tags para determinar se é uma rua e se é mão única
-                String key = attributes.getValue("k");
-                if ("highway".equals(key)) {
-                    isHighway = true;
-                } else if ("oneway".equals(key) && "yes".equals(attributes.getValue("v"))) {
-                    isOneWay = true;
-                }
-            }
+        Graph build() {
+            return builder.buildGraph();
         }
 
-        @Override
-        public void endElement(String uri, String localName, String qName) {
-            // O elemento 'way' terminou, hora de processar e construir as arestas
-            if ("way".equals(qName)) {
-                if (isHighway && currentWayNodes != null && currentWayNodes.size() > 1) {
+        /** Percorre as ways na ordem do arquivo, criando as arestas nos sentidos que o perfil permite. */
+        ProfileGraph addWays(List<OsmXmlScanner.Chunk> chunks) {
+            for (OsmXmlScanner.Chunk chunk : chunks) {
+                for (int w = 0; w < chunk.wayCount; w++) {
+                    int directions = chunk.directions[w * profileCount + profileIndex];
+                    if (directions == RoutingProfile.NONE) continue;
+                    double speedFactor = chunk.speedFactors[w * profileCount + profileIndex];
+
                     // Itera sobre os pares de nós consecutivos para criar as arestas
-                    for (int i = 0; i < currentWayNodes.size() - 1; i++) {
-                        long osmUId = currentWayNodes.get(i);
-                        long osmVId = currentWayNodes.get(i + 1);
-                        
-                        // Processa a criação da aresta
-                        processEdge(osmUId, osmVId, isOneWay);
+                    for (int i = chunk.wayOffsets[w]; i < chunk.wayOffsets[w + 1] - 1; i++) {
+                        int u = chunk.refIndices[i];
+                        int v = chunk.refIndices[i + 1];
+                        if (directions == RoutingProfile.BACKWARD) {
+                            // oneway=-1: a via só pode ser percorrida contra a ordem dos nós
+                            processEdge(v, u, true, speedFactor);
+                        } else {
+                            processEdge(u, v, directions == RoutingProfile.FORWARD, speedFactor);
+                        }
                     }
                 }
-                // Limpa o estado para o próximo 'way'
-                currentWayNodes = null;
             }
+            return this;
         }
-        
+
         /**
          * Cria os nós no nosso grafo (se já não existirem) e a aresta entre eles.
          */
-        private void processEdge(long osmUId, long osmVId, boolean directed) {
-            Node u = getOrCreateNode(osmUId);
-            Node v = getOrCreateNode(osmVId);
+        private void processEdge(int nodeU, int nodeV, boolean directed, double speedFactor) {
+            int u = getOrCreateNode(nodeU);
+            int v = getOrCreateNode(nodeV);
 
-            // Se ambos os nós são válidos (foram encontrados no mapa do Passo 1)
-            if (u != null && v != null) {
+            // Se ambos os nós são válidos (foram definidos no arquivo)
+            if (u >= 0 && v >= 0) {
                 // Calcula o peso como distância euclidiana (simplificado)
                 // Para maior precisão, usar a fórmula de Haversine com lat/lon
-                double weight = Math.sqrt(Math.pow(u.getX() - v.getX(), 2) + Math.pow(u.getY() - v.getY(), 2));
+                double weight = Math.sqrt(Math.pow(builder.nodeX(u) - builder.nodeX(v), 2) + Math.pow(builder.nodeY(u) - builder.nodeY(v), 2));
+                weight /= speedFactor; // vias mais lentas custam proporcionalmente mais
                 if (weight == 0) weight = 0.001; // Evita peso zero
                 
-                graph.addEdge(u.getIdInterno(), v.getIdInterno(), weight, directed);
+                builder.addEdge(u, v, weight, directed);
             }
         }
         
         /**
-         * Verifica se um nó do OSM já foi adicionado ao nosso grafo.
-         * Se não, ele cria um novo model.Node, adiciona ao grafo e o retorna.
-         * Se sim, apenas o retorna.
+         * Verifica se um nó da tabela já foi adicionado ao nosso grafo.
+         * Se não, ele cria o nó no builder. Retorna o ID interno (que é também a
+         * posição no builder), ou -1 se o nó não existe no arquivo.
          */
-        private Node getOrCreateNode(long osmId) {
-            // Se já convertemos este nó do OSM para um nó interno, não fazemos nada
-            if (osmIdToInternalId.containsKey(osmId)) {
-                int internalId = osmIdToInternalId.get(osmId);
-                return graph.getNodes().get(internalId);
+        private int getOrCreateNode(int node) {
+            if (node < 0) {
+                // O nó é referenciado pela way mas não foi definido no arquivo.
+                return -1;
             }
-            
-            // Se for a primeira vez que vemos este nó do OSM...
-            // 1. Buscamos suas coordenadas no mapa do Passo 1
-            OsmNode rawNode = allNodes.get(osmId);
-            if (rawNode == null) {
-                // Este é o cenário do seu aviso original. O nó é referenciado mas não definido.
-                // Agora, com o Passo 1, isso deve acontecer com menos frequência.
-                return null; 
+            // Se já convertemos este nó do OSM para um nó interno, não fazemos nada
+            int existingId = internalIdByNode[node];
+            if (existingId >= 0) {
+                return existingId;
             }
             
-            // 2. Criamos um novo nó no nosso formato (model.Node)
-            int newInternalId = internalNodeIdCounter++;
+            // Criamos um novo nó no nosso formato, rotulado com o ID original do OSM.
             // Usamos longitude como X e latitude como Y para consistência
-            Node newNode = new Node(newInternalId, rawNode.lon, rawNode.lat);
-            newNode.setLabel(String.valueOf(osmId)); // Opcional: rotular com o ID original do OSM
-
-            // 3. Adicionamos ao nosso grafo e ao mapa de mapeamento
-            graph.addNode(newNode);
-            osmIdToInternalId.put(osmId, newInternalId);
+            int newInternalId = internalNodeIdCounter++;
+            builder.addNode(newInternalId, nodes.lons[node], nodes.lats[node], String.valueOf(nodes.ids[node]));
+            internalIdByNode[node] = newInternalId;
             
-            return newNode;
+            return newInternalId;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,545 @@
+package io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Leitor do XML do OSM byte a byte, para os pedaços em que o {@link OsmConverter} divide o
+ * arquivo. Cada pedaço começa no início do arquivo ou num {@code <node}, {@code <way} ou
+ * {@code <relation}, e termina logo antes de outro: nenhum desses elementos fica dividido
+ * entre dois pedaços, então cada um pode ser lido numa thread diferente.
+ *
+ * Só olha o que a importação usa: {@code id/lat/lon} dos nós, as referências {@code <nd>} das
+ * ways e as tags que os perfis consultam. Coordenadas com até 15 dígitos significativos (as
+ * do OSM têm 7 casas decimais) são convertidas sem criar strings, com o mesmo resultado de
+ * {@link Double#parseDouble}; as demais passam por ele. Cada way já sai avaliada por todos
+ * os perfis, e as que nenhum aceita são descartadas aqui mesmo.
+ *
+ * Não é um parser XML completo: comentários, instruções e CDATA são pulados, mas não há
+ * validação da estrutura além de elementos e atributos bem fechados.
+ */
+final class OsmXmlScanner {
+    /** Potências de 10 exatas em double (até 10^22). */
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private static final byte[] NODE = ascii("node");
+    private static final byte[] WAY = ascii("way");
+    private static final byte[] RELATION = ascii("relation");
+    private static final byte[] ND = ascii("nd");
+    private static final byte[] TAG = ascii("tag");
+    private static final byte[] ID = ascii("id");
+    private static final byte[] LAT = ascii("lat");
+    private static final byte[] LON = ascii("lon");
+    private static final byte[] REF = ascii("ref");
+    private static final byte[] K = ascii("k");
+    private static final byte[] V = ascii("v");
+    private static final byte[] OSM = ascii("osm");
+    private static final byte[] COMMENT_OPEN = ascii("!--");
+    private static final byte[] COMMENT_CLOSE = ascii("-->");
+    private static final byte[] CDATA_OPEN = ascii("![CDATA[");
+    private static final byte[] CDATA_CLOSE = ascii("]]>");
+    private static final byte[] PI_CLOSE = ascii("?>");
+    private static final byte[] GT = ascii(">");
+
+    private static final int OTHER = 0, IS_NODE = 1, IS_WAY = 2, IS_ND = 3, IS_TAG = 4, IS_RELATION = 5;
+
+    private final RoutingProfile[] profiles;
+    private final RoutingProfile.WayTags tags = new RoutingProfile.WayTags();
+
+    private byte[] buf;
+    private int pos;
+    private int end;
+
+    // Valores dos atributos do elemento atual que interessam: [início, fim) em buf, -1 se ausente
+    private final int[] valueStart = new int[3];
+    private final int[] valueEnd = new int[3];
+
+    OsmXmlScanner(RoutingProfile[] profiles) {
+        this.profiles = profiles;
+    }
+
+    /**
+     * Resultado de um pedaço: nós em arrays paralelos e as ways aceitas por algum perfil, com
+     * suas referências concatenadas e, por perfil, os sentidos e o fator de velocidade.
+     */
+    static final class Chunk {
+        int nodeCount;
+        long[] nodeIds = new long[1024];
+        double[] nodeLats = new double[1024];
+        double[] nodeLons = new double[1024];
+
+        int wayCount;
+        int[] wayOffsets = new int[65];      // refs da way w em [wayOffsets[w], wayOffsets[w + 1])
+        byte[] directions = new byte[64];    // [w * perfis + p]
+        double[] speedFactors = new double[64];
+        int refCount;
+        long[] refs = new long[1024];
+        int[] refIndices;                    // refs já resolvidas para posições na tabela de nós
+
+        long elements;
+        long skipped;
+
+        private void addNode(long id, double lat, double lon) {
+            if (nodeCount == nodeIds.length) {
+                nodeIds = Arrays.copyOf(nodeIds, nodeCount * 2);
+                nodeLats = Arrays.copyOf(nodeLats, nodeCount * 2);
+                nodeLons = Arrays.copyOf(nodeLons, nodeCount * 2);
+            }
+            nodeIds[nodeCount] = id;
+            nodeLats[nodeCount] = lat;
+            nodeLons[nodeCount] = lon;
+            nodeCount++;
+        }
+
+        private void addRef(long ref) {
+            if (refCount == refs.length) refs = Arrays.copyOf(refs, refCount * 2);
+            refs[refCount++] = ref;
+        }
+    }
+
+    Chunk scan(byte[] buf, int from, int to) throws IOException {
+        this.buf = buf;
+        this.pos = from;
+        this.end = to;
+        Chunk chunk = new Chunk();
+        boolean inWay = false;
+        int wayStart = from;
+        int wayRefStart = 0;
+
+        while (true) {
+            int lt = indexOf((byte) '<', pos);
+            if (lt < 0) break;
+            pos = lt + 1;
+            if (pos >= end) throw malformed("'<' no fim do trecho", lt);
+            byte first = buf[pos];
+            if (first == '/') {
+                // Tag de fechamento: só </way> importa
+                pos++;
+                int nameStart = pos;
+                skipName();
+                if (inWay && equals(nameStart, pos, WAY)) {
+                    finishWay(chunk, wayRefStart);
+                    inWay = false;
+                }
+                int gt = indexOf((byte) '>', pos);
+                if (gt < 0) throw malformed("tag de fechamento incompleta", lt);
+                pos = gt + 1;
+                continue;
+            }
+            if (first == '?') {
+                skipPast("?>", lt);
+                continue;
+            }
+            if (first == '!') {
+                if (startsWith("!--")) skipPast("-->", lt);
+                else if (startsWith("![CDATA[")) skipPast("]]>", lt);
+                else skipPast(">", lt);
+                continue;
+            }
+
+            int nameStart = pos;
+            skipName();
+            int kind = kindOf(nameStart, pos);
+            chunk.elements++;
+            boolean selfClosing = readAttributes(kind, lt);
+
+            switch (kind) {
+                case IS_NODE:
+                    if (valueStart[0] >= 0 && valueStart[1] >= 0 && valueStart[2] >= 0) {
+                        try {
+                            chunk.addNode(parseLong(valueStart[0], valueEnd[0]),
+                                    parseDouble(valueStart[1], valueEnd[1]), parseDouble(valueStart[2], valueEnd[2]));
+                        } catch (NumberFormatException e) {
+                            chunk.skipped++;
+                        }
+                    }
+                    break;
+                case IS_WAY:
+                    inWay = true;
+                    wayStart = lt;
+                    tags.clear();
+                    wayRefStart = chunk.refCount;
+                    if (selfClosing) {
+                        finishWay(chunk, wayRefStart);
+                        inWay = false;
+                    }
+                    break;
+                case IS_ND:
+                    if (inWay && valueStart[0] >= 0) {
+                        try {
+                            chunk.addRef(parseLong(valueStart[0], valueEnd[0]));
+                        } catch (NumberFormatException e) {
+                            chunk.skipped++;
+                        }
+                    }
+                    break;
+                case IS_TAG:
+                    // Guarda apenas as tags que os perfis consultam (highway, oneway, access...)
+                    if (inWay && valueStart[0] >= 0) {
+                        String key = string(valueStart[0], valueEnd[0]);
+                        if (RoutingProfile.WayTags.isRelevant(key)) {
+                            tags.put(key, valueStart[1] >= 0 ? string(valueStart[1], valueEnd[1]) : null);
+                        }
+                    }
+                    break;
+                case IS_RELATION:
+                    inWay = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (inWay) throw malformed("<way> sem </way>", wayStart);
+        this.buf = null;
+        return chunk;
+    }
+
+    /** Decide, por perfil, se a way entra no grafo; ways que nenhum perfil aceita são descartadas. */
+    private void finishWay(Chunk chunk, int wayRefStart) {
+        int refs = chunk.refCount - wayRefStart;
+        boolean accepted = false;
+        if (tags.isHighway() && refs > 1) {
+            int p = profiles.length;
+            if ((chunk.wayCount + 1) * p > chunk.directions.length) {
+                chunk.directions = Arrays.copyOf(chunk.directions, chunk.directions.length * 2 + p);
+                chunk.speedFactors = Arrays.copyOf(chunk.speedFactors, chunk.directions.length);
+            }
+            int base = chunk.wayCount * p;
+            for (int i = 0; i < p; i++) {
+                int directions = profiles[i].directions(tags);
+                chunk.directions[base + i] = (byte) directions;
+                if (directions == RoutingProfile.NONE) continue;
+                chunk.speedFactors[base + i] = profiles[i].speedFactor(tags);
+                accepted = true;
+            }
+        }
+        if (!accepted) {
+            chunk.refCount = wayRefStart;
+            return;
+        }
+        if (chunk.wayCount + 2 > chunk.wayOffsets.length) {
+            chunk.wayOffsets = Arrays.copyOf(chunk.wayOffsets, chunk.wayOffsets.length * 2);
+        }
+        chunk.wayOffsets[chunk.wayCount] = wayRefStart;
+        chunk.wayOffsets[++chunk.wayCount] = chunk.refCount;
+    }
+
+    // ------------------------------------------------------------------
+    // Elementos e atributos
+    // ------------------------------------------------------------------
+
+    private int kindOf(int from, int to) {
+        if (equals(from, to, NODE)) return IS_NODE;
+        if (equals(from, to, ND)) return IS_ND;
+        if (equals(from, to, TAG)) return IS_TAG;
+        if (equals(from, to, WAY)) return IS_WAY;
+        if (equals(from, to, RELATION)) return IS_RELATION;
+        return OTHER;
+    }
+
+    /**
+     * Lê os atributos até o fim da tag de abertura, guardando os que o tipo de elemento usa.
+     * Retorna se a tag se fecha sozinha ({@code />}).
+     */
+    private boolean readAttributes(int kind, int elementStart) throws IOException {
+        Arrays.fill(valueStart, -1);
+        while (true) {
+            while (pos < end && isSpace(buf[pos])) pos++;
+            if (pos >= end) throw malformed("elemento incompleto", elementStart);
+            byte b = buf[pos];
+            if (b == '>') {
+                pos++;
+                return false;
+            }
+            if (b == '/') {
+                if (pos + 1 >= end || buf[pos + 1] != '>') throw malformed("'/' fora de lugar", elementStart);
+                pos += 2;
+                return true;
+            }
+            int nameStart = pos;
+            while (pos < end && buf[pos] != '=' && !isSpace(buf[pos])) pos++;
+            int nameEnd = pos;
+            while (pos < end && isSpace(buf[pos])) pos++;
+            if (pos >= end || buf[pos] != '=') throw malformed("atributo sem '='", elementStart);
+            pos++;
+            while (pos < end && isSpace(buf[pos])) pos++;
+            if (pos >= end || (buf[pos] != '"' && buf[pos] != '\'')) throw malformed("valor de atributo sem aspas", elementStart);
+            byte quote = buf[pos];
+            int close = indexOf(quote, pos + 1);
+            if (close < 0) throw malformed("valor de atributo sem fim", elementStart);
+            int slot = slotOf(kind, nameStart, nameEnd);
+            if (slot >= 0) {
+                valueStart[slot] = pos + 1;
+                valueEnd[slot] = close;
+            }
+            pos = close + 1;
+        }
+    }
+
+    private int slotOf(int kind, int from, int to) {
+        switch (kind) {
+            case IS_NODE:
+                if (equals(from, to, ID)) return 0;
+                if (equals(from, to, LAT)) return 1;
+                if (equals(from, to, LON)) return 2;
+                return -1;
+            case IS_ND:
+                return equals(from, to, REF) ? 0 : -1;
+            case IS_TAG:
+                if (equals(from, to, K)) return 0;
+                if (equals(from, to, V)) return 1;
+                return -1;
+            default:
+                return -1;
+        }
+    }
+
+    private void skipName() {
+        while (pos < end) {
+            byte b = buf[pos];
+            if (isSpace(b) || b == '>' || b == '/') return;
+            pos++;
+        }
+    }
+
+    private void skipPast(String terminator, int elementStart) throws IOException {
+        byte[] t = ascii(terminator);
+        for (int i = pos; i + t.length <= end; i++) {
+            if (buf[i] == t[0] && equals(i, i + t.length, t)) {
+                pos = i + t.length;
+                return;
+            }
+        }
+        throw malformed("'" + terminator + "' não encontrado", elementStart);
+    }
+
+    private boolean startsWith(String prefix) {
+        byte[] p = ascii(prefix);
+        return pos + p.length <= end && equals(pos, pos + p.length, p);
+    }
+
+    private int indexOf(byte b, int from) {
+        for (int i = from; i < end; i++) {
+            if (buf[i] == b) return i;
+        }
+        return -1;
+    }
+
+    private boolean equals(int from, int to, byte[] literal) {
+        if (to - from != literal.length) return false;
+        for (int i = 0; i < literal.length; i++) {
+            if (buf[from + i] != literal[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+    }
+
+    private IOException malformed(String what, int at) {
+        return new IOException("XML do OSM mal formado (" + what + ") perto de \""
+                + new String(buf, at, Math.min(40, end - at), StandardCharsets.UTF_8).trim() + "\"");
+    }
+
+    /**
+     * Início do último {@code <node}, {@code <way} ou {@code <relation} em {@code buf[0, length)},
+     * ou -1 se não houver: o ponto onde o {@link OsmConverter} corta os pedaços. {@code buf}
+     * tem de começar fora de comentários e CDATA (no início do arquivo ou num corte anterior).
+     * A busca é para a frente, pulando comentários, CDATA e instruções, para que um
+     * {@code <node} comentado nunca vire ponto de corte; se um deles não fecha dentro do
+     * bloco, o corte fica antes dele.
+     */
+    static int lastElementStart(byte[] buf, int length) {
+        int last = -1;
+        int i = 0;
+        while (i < length) {
+            if (buf[i] != '<') {
+                i++;
+                continue;
+            }
+            int skipTo;
+            if (matchName(buf, i + 1, length, COMMENT_OPEN) >= 0) skipTo = indexOf(buf, i + 4, length, COMMENT_CLOSE);
+            else if (matchName(buf, i + 1, length, CDATA_OPEN) >= 0) skipTo = indexOf(buf, i + 9, length, CDATA_CLOSE);
+            else if (i + 1 < length && buf[i + 1] == '?') skipTo = indexOf(buf, i + 2, length, PI_CLOSE);
+            else {
+                if (isElementStart(buf, i, length, NODE) || isElementStart(buf, i, length, WAY)
+                        || isElementStart(buf, i, length, RELATION)) {
+                    last = i;
+                }
+                i++;
+                continue;
+            }
+            if (skipTo < 0) break; // não fecha neste bloco: o que vem depois não é candidato
+            i = skipTo;
+        }
+        return last;
+    }
+
+    /**
+     * Posição do que vem depois da declaração XML, de comentários e do DOCTYPE em
+     * {@code buf[0, length)}: o primeiro elemento ou, num arquivo que não é XML, o primeiro
+     * texto. -1 se o bloco acaba antes disso.
+     */
+    static int rootStart(byte[] buf, int length) {
+        int i = 0;
+        // Marca de ordem de bytes do UTF-8
+        if (length >= 3 && buf[0] == (byte) 0xEF && buf[1] == (byte) 0xBB && buf[2] == (byte) 0xBF) i = 3;
+        while (i < length) {
+            if (isSpace(buf[i])) {
+                i++;
+                continue;
+            }
+            if (buf[i] != '<' || i + 1 >= length) return i;
+            if (matchName(buf, i + 1, length, COMMENT_OPEN) >= 0) i = indexOf(buf, i + 4, length, COMMENT_CLOSE);
+            else if (buf[i + 1] == '?') i = indexOf(buf, i + 2, length, PI_CLOSE);
+            else if (buf[i + 1] == '!') i = indexOf(buf, i + 2, length, GT);
+            else return i;
+            if (i < 0) return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Se em {@code buf[at]} começa o elemento {@code <osm>}. Serve para recusar arquivos que
+     * não são do OSM (um .poly renomeado, HTML...) em vez de importá-los como um grafo vazio.
+     */
+    static boolean isOsmRoot(byte[] buf, int length, int at) {
+        return at >= 0 && isElementStart(buf, at, length, OSM);
+    }
+
+    /** Se em {@code buf[lt]} começa o elemento {@code name} (seguido de espaço, '>' ou '/'). */
+    private static boolean isElementStart(byte[] buf, int lt, int length, byte[] name) {
+        int nameEnd = matchName(buf, lt + 1, length, name);
+        if (nameEnd < 0 || nameEnd >= length) return false;
+        byte next = buf[nameEnd];
+        return isSpace(next) || next == '>' || next == '/';
+    }
+
+    /** Posição logo depois da primeira ocorrência de {@code terminator} a partir de {@code from}, ou -1. */
+    private static int indexOf(byte[] buf, int from, int length, byte[] terminator) {
+        for (int i = from; i + terminator.length <= length; i++) {
+            if (buf[i] == terminator[0] && matchName(buf, i, length, terminator) >= 0) return i + terminator.length;
+        }
+        return -1;
+    }
+
+    private static int matchName(byte[] buf, int from, int length, byte[] name) {
+        if (from + name.length > length) return -1;
+        for (int i = 0; i < name.length; i++) {
+            if (buf[from + i] != name[i]) return -1;
+        }
+        return from + name.length;
+    }
+
+    // ------------------------------------------------------------------
+    // Valores
+    // ------------------------------------------------------------------
+
+    /** Mesmo resultado de {@link Long#parseLong}, sem criar a string no caso comum. */
+    private long parseLong(int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i] == '-';
+            i++;
+        }
+        if (i == to || to - i > 18) return Long.parseLong(string(from, to));
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) return Long.parseLong(string(from, to));
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Mesmo resultado de {@link Double#parseDouble}. Com mantissa abaixo de 2^53 e expoente
+     * até 22, mantissa e potência de 10 são exatas em double e a divisão, corretamente
+     * arredondada, dá o double mais próximo do decimal; fora disso, delega.
+     */
+    private double parseDouble(int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int decimals = -1;
+        boolean anyDigit = false;
+        for (; i < to; i++) {
+            byte c = buf[i];
+            if (c >= '0' && c <= '9') {
+                if (significant > 0 || c != '0') significant++;
+                if (significant > 15) return Double.parseDouble(string(from, to));
+                mantissa = mantissa * 10 + (c - '0');
+                if (decimals >= 0) decimals++;
+                anyDigit = true;
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                return Double.parseDouble(string(from, to));
+            }
+        }
+        if (!anyDigit || decimals > 22) return Double.parseDouble(string(from, to));
+        double value = decimals > 0 ? mantissa / POW10[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /** Valor de atributo como string, com as entidades e a normalização de espaços do XML. */
+    private String string(int from, int to) {
+        boolean plain = true;
+        for (int i = from; i < to && plain; i++) {
+            byte b = buf[i];
+            plain = b != '&' && b != '\n' && b != '\t' && b != '\r';
+        }
+        String raw = new String(buf, from, to - from, StandardCharsets.UTF_8);
+        return plain ? raw : decode(raw);
+    }
+
+    private static String decode(String raw) {
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c == '\n' || c == '\t' || c == '\r') {
+                sb.append(' ');
+                continue;
+            }
+            int semicolon = c == '&' ? raw.indexOf(';', i) : -1;
+            if (semicolon < 0) {
+                sb.append(c);
+                continue;
+            }
+            String entity = raw.substring(i + 1, semicolon);
+            switch (entity) {
+                case "amp": sb.append('&'); break;
+                case "lt": sb.append('<'); break;
+                case "gt": sb.append('>'); break;
+                case "quot": sb.append('"'); break;
+                case "apos": sb.append('\''); break;
+                default:
+                    try {
+                        if (entity.startsWith("#x")) sb.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+                        else if (entity.startsWith("#")) sb.appendCodePoint(Integer.parseInt(entity.substring(1)));
+                        else sb.append(raw, i, semicolon + 1);
+                    } catch (IllegalArgumentException e) {
+                        sb.append(raw, i, semicolon + 1);
+                    }
+            }
+            i = semicolon;
+        }
+        return sb.toString();
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
\ No newline at end of file
@@ -1,38 +1,43 @@
 package io;
 
+import metrics.ImportPhaseEvent;
 import model.Graph;
+import model.GraphBuilder;
 import model.Node;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.InterruptedIOException;
 
 public class PolyReader {
+    /** Linhas entre dois avisos de progresso (e verificações de cancelamento). */
+    private static final int PROGRESS_INTERVAL = 1 << 16;
 
-    private static class RawEdgeData {
-        int uId;
-        int vId;
-        boolean isDirected;
+    /** O fator 10000 deixa os pesos visíveis e significativos; peso zero vira 0.001. */
+    public static final double WEIGHT_SCALE = 10000;
+    public static final double MINIMUM_WEIGHT = 0.001;
 
-        public RawEdgeData(int uId, int vId, boolean isDirected) {
-            this.uId = uId;
-            this.vId = vId;
-            this.isDirected = isDirected;
-        }
+    /**
+     * Peso que a leitura do .poly daria à aresta entre {@code a} e {@code b}. O .poly não guarda
+     * pesos, então arestas criadas depois (editor, diário) precisam usar a mesma conta para
+     * sobreviver a uma regravação e nova leitura do arquivo.
+     */
+    public static double edgeWeight(Node a, Node b) {
+        return GraphBuilder.euclideanWeight(a.getX(), a.getY(), b.getX(), b.getY(), WEIGHT_SCALE, MINIMUM_WEIGHT);
     }
 
     public Graph readPolyFile(String filepath) throws IOException, NumberFormatException, IllegalArgumentException {
-        Graph graph = new Graph();
+        return readPolyFile(filepath, ProgressListener.NONE);
+    }
 
-        Map<Integer, double[]> nodesRawCoords = new HashMap<>();
-        List<RawEdgeData> edgesToProcess = new ArrayList<>();
-        List<Node> tempNodesListByInternalId = new ArrayList<>();
-        
-        System.out.println("DEBUG: Lendo arquivo .poly: " + filepath);
+    /**
+     * Como {@link #readPolyFile(String)}, informando o andamento das fases (vértices, arestas,
+     * montagem do grafo). Se a thread for interrompida, para e lança {@link InterruptedIOException}.
+     */
+    public Graph readPolyFile(String filepath, ProgressListener progress) throws IOException, NumberFormatException, IllegalArgumentException {
+        GraphBuilder builder;
+        ImportPhaseEvent phase = ImportPhaseEvent.start(filepath, "Lendo vértices");
 
         try (BufferedReader reader = new BufferedReader(new FileReader(filepath))) {
             String line;
@@ -45,22 +50,28 @@ public class PolyReader {
                 throw new IllegalArgumentException("Cabeçalho de vértice mal formatado na linha " + lineIdx + ": " + line);
             }
             int numVerticesExpected = Integer.parseInt(headerNodesParts[0]);
+            builder = new GraphBuilder(numVerticesExpected, 0);
+            int skipped = 0;
             
             for (int i = 0; i < numVerticesExpected; i++) {
+                if (i % PROGRESS_INTERVAL == 0) checkpoint(progress, "Lendo vértices", i, numVerticesExpected);
                 line = reader.readLine(); lineIdx++;
                 if (line == null) throw new IOException("Número inesperado de linhas de vértice. Esperado " + numVerticesExpected + ", lido " + i);
                 String[] parts = line.trim().split("\\s+");
                 if (parts.length < 3) {
+                    skipped++;
                     continue;
                 }
                 int nodeId = Integer.parseInt(parts[0]);
                 double xCoord = Double.parseDouble(parts[1]);
                 double yCoord = Double.parseDouble(parts[2]);
-                
-                nodesRawCoords.put(nodeId, new double[]{xCoord, yCoord});
-                tempNodesListByInternalId.add(new Node(nodeId, xCoord, yCoord));
+                builder.addNode(nodeId, xCoord, yCoord);
             }
             
+            phase.finish(numVerticesExpected - skipped, skipped, 0);
+
+            phase = ImportPhaseEvent.start(filepath, "Lendo arestas");
+            skipped = 0;
             line = reader.readLine(); lineIdx++;
             if (line == null) throw new IOException("Seção de arestas ausente.");
             String[] headerEdgesParts = line.trim().split("\\s+");
@@ -68,52 +79,42 @@ public class PolyReader {
                 throw new IllegalArgumentException("Cabeçalho de aresta mal formatado na linha " + lineIdx + ": " + line);
             }
             int numEdgesExpected = Integer.parseInt(headerEdgesParts[0]);
+            builder.ensureEdgeCapacity(numEdgesExpected);
 
             for (int i = 0; i < numEdgesExpected; i++) {
+                if (i % PROGRESS_INTERVAL == 0) checkpoint(progress, "Lendo arestas", i, numEdgesExpected);
                 line = reader.readLine(); lineIdx++;
                 if (line == null) throw new IOException("Número inesperado de linhas de aresta. Esperado " + numEdgesExpected + ", lido " + i);
                 String[] parts = line.trim().split("\\s+");
                 if (parts.length < 4) {
+                    skipped++;
                     continue;
                 }
                 int uId = Integer.parseInt(parts[1]);
                 int vId = Integer.parseInt(parts[2]);
                 boolean isDirected = (Integer.parseInt(parts[3]) != 0);
-                edgesToProcess.add(new RawEdgeData(uId, vId, isDirected));
+                // Peso calculado no build(): distância euclidiana entre as coordenadas
+                builder.addEdge(uId, vId, isDirected);
             }
+            phase.finish(numEdgesExpected - skipped, skipped, 0);
         }
 
         // A lógica de filtragem de conectividade que existia aqui foi removida para simplificar.
         // O grafo será construído com todos os nós e arestas do arquivo .poly.
 
-        // Adiciona todos os nós ao grafo
-        for (Node node : tempNodesListByInternalId) {
-            graph.addNode(node);
-        }
-
-        // Adiciona as arestas ao grafo final
-        for (RawEdgeData rawEdge : edgesToProcess) {
-            Node uNode = graph.getNodes().get(rawEdge.uId);
-            Node vNode = graph.getNodes().get(rawEdge.vId);
-
-            if (uNode != null && vNode != null) {
-                // Calcula a distância euclidiana com base nas coordenadas
-                double weight = Math.sqrt(Math.pow(uNode.getX() - vNode.getX(), 2) + Math.pow(uNode.getY() - vNode.getY(), 2));
-                
-                // --- CORREÇÃO APLICADA AQUI ---
-                // Aumenta a escala do peso para que seja um número visível e significativo.
-                // O fator 10000 é um exemplo; pode ser ajustado conforme necessário.
-                weight *= 10000; 
-                // --- FIM DA CORREÇÃO ---
+        // Pesos em escala WEIGHT_SCALE (ver edgeWeight).
+        // Arestas com extremidades inexistentes ou repetidas são descartadas no build().
+        checkpoint(progress, "Montando o grafo", 0, 0);
+        phase = ImportPhaseEvent.start(filepath, "Montando o grafo");
+        Graph graph = builder.euclideanWeights(WEIGHT_SCALE, MINIMUM_WEIGHT).buildGraph();
+        phase.finish(graph.getNumVertices() + graph.getNumEdges(), 0, 0);
+        return graph;
+    }
 
-                if (weight == 0) {
-                    weight = 0.001; 
-                }
-                graph.addEdge(uNode.getIdInterno(), vNode.getIdInterno(), weight, rawEdge.isDirected);
-            }
+    private static void checkpoint(ProgressListener progress, String phase, long done, long total) throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Leitura do .poly cancelada.");
         }
-        
-        System.out.println("DEBUG: Leitura do .poly concluída. Grafo final: " + graph.getNumVertices() + " vértices, " + graph.getNumEdges() + " arestas.");
-        return graph;
+        progress.progress(phase, done, total);
     }
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+package io;
+
+import model.Edge;
+import model.Graph;
+import model.Node;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Grava um {@link Graph} no formato .poly lido pelo {@link PolyReader}.
+ *
+ * Vértices e arestas são divididos em blocos de linhas formatados em paralelo, cada um
+ * num buffer de bytes próprio; a thread chamadora grava os buffers no canal na ordem dos
+ * blocos, assim que ficam prontos. Há no máximo {@code 2 * paralelismo} blocos em voo, de
+ * modo que a memória não cresce com o tamanho do grafo e o disco não fica esperando o
+ * formatador.
+ *
+ * O formato não guarda pesos nem geometria: o leitor recalcula o peso de cada aresta
+ * pela distância euclidiana entre as coordenadas. Coordenadas que já têm 6 casas decimais
+ * (as lidas de um .poly) saem em ponto fixo por aritmética inteira; as demais usam
+ * {@link Double#toString(double)}. Nos dois casos o valor relido é exatamente o mesmo,
+ * para que compactações sucessivas não acumulem arredondamento.
+ */
+public class PolyWriter {
+    private static final int LINES_PER_CHUNK = 16384;
+    /** Pior caso de uma linha: id, duas coordenadas em notação científica e separadores. */
+    private static final int MAX_NODE_LINE_BYTES = 11 + 2 * 25 + 3;
+    private static final int MAX_EDGE_LINE_BYTES = 3 * 11 + 2 + 4;
+    private static final double FIXED_SCALE = 1e6;
+    private static final double MAX_FIXED = (double) (1L << 53);
+
+    private final ForkJoinPool pool;
+
+    public PolyWriter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public PolyWriter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /** Grava o arquivo e força os dados para o disco antes de retornar. */
+    public void writePolyFile(Graph graph, String filepath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(graph, channel);
+            // Quem grava um arquivo base (ex.: compactação do diário) depende dele estar no disco
+            channel.force(false);
+        }
+    }
+
+    public void write(Graph graph, WritableByteChannel channel) throws IOException {
+        Node[] nodes = graph.getNodes().values().toArray(new Node[0]);
+        // Uma linha por aresta conceitual: a mão dupla sai uma vez só, pelo arco u < v. Um laço
+        // de mão dupla (u == v) ocupa uma única posição em getAdj() e também sai uma vez só
+        Edge[] edges = new Edge[Math.max(16, graph.getNumEdges())];
+        int edgeCount = 0;
+        for (Map<Integer, Edge> out : graph.getAdj().values()) {
+            for (Edge edge : out.values()) {
+                if (!edge.isDirected() && edge.getU() > edge.getV()) continue;
+                if (edgeCount == edges.length) edges = Arrays.copyOf(edges, edgeCount * 2);
+                edges[edgeCount++] = edge;
+            }
+        }
+
+        Deque<Future<ByteBuffer>> inFlight = new ArrayDeque<>();
+        int maxInFlight = 2 * Math.max(1, pool.getParallelism());
+
+        // Cabeçalho dos vértices: <num_vertices> <dim> <attrs> <boundary_markers>
+        writeFully(channel, ascii(nodes.length + "\t2\t0\t1\n"));
+        for (int from = 0; from < nodes.length; from += LINES_PER_CHUNK) {
+            int start = from;
+            int end = Math.min(nodes.length, from + LINES_PER_CHUNK);
+            submit(inFlight, maxInFlight, channel, () -> formatNodes(nodes, start, end));
+        }
+        drain(inFlight, 0, channel);
+
+        writeFully(channel, ascii(edgeCount + "\t1\n"));
+        Edge[] written = edges;
+        for (int from = 0; from < edgeCount; from += LINES_PER_CHUNK) {
+            int start = from;
+            int end = Math.min(edgeCount, from + LINES_PER_CHUNK);
+            submit(inFlight, maxInFlight, channel, () -> formatEdges(written, start, end));
+        }
+        drain(inFlight, 0, channel);
+        writeFully(channel, ascii("0\n"));
+    }
+
+    private void submit(Deque<Future<ByteBuffer>> inFlight, int maxInFlight, WritableByteChannel channel,
+                        Callable<ByteBuffer> chunk) throws IOException {
+        drain(inFlight, maxInFlight - 1, channel);
+        inFlight.addLast(pool.submit(chunk));
+    }
+
+    /** Grava, em ordem, os blocos mais antigos até restarem no máximo {@code keep} em voo. */
+    private static void drain(Deque<Future<ByteBuffer>> inFlight, int keep, WritableByteChannel channel) throws IOException {
+        while (inFlight.size() > keep) {
+            Future<ByteBuffer> next = inFlight.pollFirst();
+            ByteBuffer buffer;
+            try {
+                buffer = next.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<ByteBuffer> pending : inFlight) pending.cancel(true);
+                throw new InterruptedIOException("Gravação do .poly interrompida.");
+            } catch (ExecutionException e) {
+                for (Future<ByteBuffer> pending : inFlight) pending.cancel(true);
+                throw new IOException("Erro ao formatar o .poly: " + e.getCause(), e.getCause());
+            }
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Dados dos vértices: <id interno> <x> <y>
+    private static ByteBuffer formatNodes(Node[] nodes, int from, int to) {
+        LineBuffer out = new LineBuffer((to - from) * MAX_NODE_LINE_BYTES);
+        for (int i = from; i < to; i++) {
+            Node node = nodes[i];
+            out.putLong(node.getIdInterno());
+            out.put('\t');
+            out.putCoordinate(node.getX());
+            out.put('\t');
+            out.putCoordinate(node.getY());
+            out.put('\n');
+        }
+        return out.toByteBuffer();
+    }
+
+    // Dados das arestas: <id aresta> <origem> <destino> <flag_direcional>
+    private static ByteBuffer formatEdges(Edge[] edges, int from, int to) {
+        LineBuffer out = new LineBuffer((to - from) * MAX_EDGE_LINE_BYTES);
+        for (int i = from; i < to; i++) {
+            Edge edge = edges[i];
+            out.putLong(i);
+            out.put('\t');
+            out.putLong(edge.getU());
+            out.put('\t');
+            out.putLong(edge.getV());
+            out.put('\t');
+            out.put(edge.isDirected() ? '1' : '0');
+            out.put('\n');
+        }
+        return out.toByteBuffer();
+    }
+
+    /** Buffer de bytes ASCII com formatação de números sem passar por String. */
+    private static final class LineBuffer {
+        private byte[] data;
+        private int size;
+        private final byte[] digits = new byte[20];
+
+        LineBuffer(int capacity) {
+            data = new byte[capacity];
+        }
+
+        void put(char c) {
+            ensure(1);
+            data[size++] = (byte) c;
+        }
+
+        void putLong(long value) {
+            ensure(20);
+            if (value < 0) {
+                data[size++] = '-';
+                value = -value;
+            }
+            int count = 0;
+            do {
+                digits[count++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            while (count > 0) data[size++] = digits[--count];
+        }
+
+        /**
+         * Ponto fixo com 6 casas quando {@code value} é exatamente o double mais próximo de
+         * um decimal com 6 casas (o que o leitor reconstruiria); senão a forma mais curta
+         * de {@link Double#toString(double)}.
+         */
+        void putCoordinate(double value) {
+            double scaled = Math.rint(value * FIXED_SCALE);
+            if (Math.abs(scaled) < MAX_FIXED && scaled / FIXED_SCALE == value) {
+                long fixed = (long) scaled;
+                ensure(22);
+                if (fixed < 0 || (fixed == 0 && 1.0 / value < 0)) {
+                    data[size++] = '-';
+                    fixed = -fixed;
+                }
+                putLong(fixed / 1_000_000);
+                data[size++] = '.';
+                long fraction = fixed % 1_000_000;
+                for (long div = 100_000; div > 0; div /= 10) {
+                    data[size++] = (byte) ('0' + (fraction / div) % 10);
+                }
+            } else {
+                String text = Double.toString(value);
+                ensure(text.length());
+                for (int i = 0; i < text.length(); i++) data[size++] = (byte) text.charAt(i);
+            }
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(data, 0, size);
+        }
+    }
+}
\ No newline at end of file
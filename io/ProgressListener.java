@@ -0,0 +1,21 @@
+package io;
+
+/**
+ * Recebe o andamento de uma importação longa, fase a fase. É chamado na thread que faz o
+ * trabalho, a intervalos de milhares de itens; quem atualiza uma interface deve repassar
+ * para a thread dela.
+ *
+ * O cancelamento não passa por aqui: as importações verificam se a própria thread foi
+ * interrompida e, nesse caso, lançam {@link java.io.InterruptedIOException}.
+ */
+public interface ProgressListener {
+    /** Não faz nada; usado pelas sobrecargas sem acompanhamento. */
+    ProgressListener NONE = (phase, done, total) -> { };
+
+    /**
+     * @param phase nome da fase atual (ex.: "Lendo vértices")
+     * @param done  quanto da fase já foi feito, na unidade dela (linhas, bytes...)
+     * @param total total esperado da fase, ou 0 se desconhecido
+     */
+    void progress(String phase, long done, long total);
+}
\ No newline at end of file
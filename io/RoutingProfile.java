@@ -0,0 +1,277 @@
+package io;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Perfil de roteamento aplicado durante a importação do OSM.
+ *
+ * Cada perfil é compilado em tabelas de consulta indexadas pelo tipo de via
+ * ({@code highway=*}): o valor da tag é resolvido uma única vez por way para um
+ * índice denso, e a velocidade de cada perfil vem de um acesso direto a array.
+ * O perfil decide se a way entra no grafo, em que sentido(s) pode ser percorrida
+ * e o fator de velocidade que divide a distância no peso da aresta.
+ */
+public final class RoutingProfile {
+
+    /** Sentidos permitidos para uma way. */
+    public static final int NONE = 0;
+    public static final int FORWARD = 1;
+    public static final int BACKWARD = 2;
+    public static final int BOTH = FORWARD | BACKWARD;
+
+    // --- Tabela global de tipos de via (valor de highway=* -> índice denso) ---
+    private static final String[] HIGHWAY_TYPES = {
+            "<outro>", "motorway", "motorway_link", "trunk", "trunk_link", "primary", "primary_link",
+            "secondary", "secondary_link", "tertiary", "tertiary_link", "unclassified", "residential",
+            "living_street", "service", "road", "track", "cycleway", "footway", "path", "pedestrian",
+            "steps", "bridleway", "corridor", "construction", "proposed", "platform"
+    };
+    private static final int UNKNOWN_HIGHWAY = 0;
+    private static final Map<String, Integer> HIGHWAY_INDEX = new HashMap<>();
+    static {
+        for (int i = 1; i < HIGHWAY_TYPES.length; i++) HIGHWAY_INDEX.put(HIGHWAY_TYPES[i], i);
+    }
+
+    /** Converte o valor de highway=* no índice usado pelas tabelas dos perfis. */
+    public static int highwayIndex(String value) {
+        Integer index = HIGHWAY_INDEX.get(value);
+        return index != null ? index : UNKNOWN_HIGHWAY;
+    }
+
+    // --- Perfis prontos ---
+
+    /**
+     * Comportamento original do importador: toda way com highway=*, sem restrições de acesso,
+     * mão única só com oneway=yes e peso igual à distância.
+     */
+    public static final RoutingProfile ANY_HIGHWAY = new Builder("Todas as vias")
+            .defaultSpeed(1)
+            .speeds(1, HIGHWAY_TYPES)
+            .accessKeys()
+            .legacyOneway()
+            .build();
+
+    public static final RoutingProfile CAR = new Builder("Carro")
+            .speed("motorway", 110).speed("motorway_link", 60)
+            .speed("trunk", 90).speed("trunk_link", 50)
+            .speed("primary", 70).speed("primary_link", 45)
+            .speed("secondary", 60).speed("secondary_link", 40)
+            .speed("tertiary", 50).speed("tertiary_link", 35)
+            .speed("unclassified", 40).speed("residential", 30)
+            .speed("living_street", 10).speed("service", 15).speed("road", 30)
+            .speed("track", 10)
+            .accessKeys("access", "vehicle", "motor_vehicle", "motorcar")
+            .implicitOneway("motorway", "motorway_link")
+            .build();
+
+    public static final RoutingProfile BIKE = new Builder("Bicicleta")
+            .speeds(18, "primary", "primary_link", "secondary", "secondary_link", "tertiary", "tertiary_link",
+                    "unclassified", "residential", "road")
+            .speed("cycleway", 20).speed("living_street", 12).speed("service", 14).speed("track", 12)
+            .speed("path", 12).speed("footway", 6).speed("pedestrian", 6).speed("trunk", 16).speed("trunk_link", 16)
+            .accessKeys("access", "vehicle", "bicycle")
+            .onewayOverrideKey("oneway:bicycle")
+            .build();
+
+    public static final RoutingProfile FOOT = new Builder("A pé")
+            .speeds(5, "primary", "primary_link", "secondary", "secondary_link", "tertiary", "tertiary_link",
+                    "unclassified", "residential", "road", "living_street", "service", "track", "path",
+                    "footway", "pedestrian", "corridor", "platform", "bridleway", "cycleway")
+            .speed("steps", 3).speed("trunk", 4).speed("trunk_link", 4)
+            .accessKeys("access", "foot")
+            .ignoreOneway()
+            .build();
+
+    public static RoutingProfile[] values() {
+        return new RoutingProfile[] { ANY_HIGHWAY, CAR, BIKE, FOOT };
+    }
+
+    private final String name;
+    private final double[] speedByHighway; // 0 = não roteável
+    private final boolean[] implicitOnewayByHighway;
+    private final double maxSpeed;
+    private final String[] accessKeys; // do mais genérico ao mais específico
+    private final boolean followsOneway;
+    private final boolean legacyOneway;
+    private final String onewayOverrideKey;
+
+    private RoutingProfile(Builder builder) {
+        this.name = builder.name;
+        this.speedByHighway = builder.speedByHighway.clone();
+        this.implicitOnewayByHighway = builder.implicitOnewayByHighway.clone();
+        this.accessKeys = builder.accessKeys;
+        this.followsOneway = builder.followsOneway;
+        this.legacyOneway = builder.legacyOneway;
+        this.onewayOverrideKey = builder.onewayOverrideKey;
+        double max = 0;
+        for (double speed : speedByHighway) max = Math.max(max, speed);
+        this.maxSpeed = max;
+    }
+
+    public String getName() { return name; }
+
+    /**
+     * Sentidos em que a way pode ser percorrida neste perfil ({@link #NONE} quando não roteável).
+     */
+    public int directions(WayTags tags) {
+        if (tags.highwayIndex < 0 || speedByHighway[tags.highwayIndex] <= 0) return NONE;
+        if (!hasAccess(tags)) return NONE;
+        if (!followsOneway) return BOTH;
+        if (legacyOneway) return "yes".equals(tags.get("oneway")) ? FORWARD : BOTH;
+
+        String oneway = tags.get("oneway");
+        if (onewayOverrideKey != null && tags.get(onewayOverrideKey) != null) {
+            oneway = tags.get(onewayOverrideKey);
+        }
+        if (oneway != null) {
+            switch (oneway) {
+                case "yes": case "true": case "1": return FORWARD;
+                case "-1": case "reverse": return BACKWARD;
+                case "no": case "false": case "0": return BOTH;
+                default: break;
+            }
+        }
+        if ("roundabout".equals(tags.get("junction")) || implicitOnewayByHighway[tags.highwayIndex]) {
+            return FORWARD;
+        }
+        return BOTH;
+    }
+
+    /**
+     * Fator de velocidade em (0, 1]: velocidade da via relativa à via mais rápida do perfil.
+     * O peso da aresta é a distância dividida por esse fator.
+     */
+    public double speedFactor(WayTags tags) {
+        return speedByHighway[tags.highwayIndex] / maxSpeed;
+    }
+
+    private boolean hasAccess(WayTags tags) {
+        // A tag mais específica presente decide (ex.: bicycle=yes vence access=no)
+        for (int i = accessKeys.length - 1; i >= 0; i--) {
+            String value = tags.get(accessKeys[i]);
+            if (value == null) continue;
+            switch (value) {
+                case "no": case "private": case "agricultural": case "forestry": return false;
+                default: return true;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() { return name; }
+
+    /**
+     * Tags de uma way relevantes para os perfis. Reutilizada entre ways para
+     * não alocar nada por elemento.
+     */
+    public static final class WayTags {
+        private static final String[] KEYS = {
+                "oneway", "junction", "access", "vehicle", "motor_vehicle", "motorcar", "bicycle", "foot", "oneway:bicycle"
+        };
+        private static final Map<String, Integer> KEY_INDEX = new HashMap<>();
+        static {
+            for (int i = 0; i < KEYS.length; i++) KEY_INDEX.put(KEYS[i], i);
+        }
+
+        private final String[] values = new String[KEYS.length];
+        private int highwayIndex = -1;
+
+        public void clear() {
+            Arrays.fill(values, null);
+            highwayIndex = -1;
+        }
+
+        /** Registra uma tag {@code <tag k=... v=...>}; chaves irrelevantes são descartadas. */
+        public void put(String key, String value) {
+            if ("highway".equals(key)) {
+                highwayIndex = highwayIndex(value);
+                return;
+            }
+            Integer index = KEY_INDEX.get(key);
+            if (index != null) values[index] = value;
+        }
+
+        /** Se {@link #put} guardaria a tag; permite nem decodificar o valor das demais. */
+        static boolean isRelevant(String key) {
+            return "highway".equals(key) || KEY_INDEX.containsKey(key);
+        }
+
+        public boolean isHighway() { return highwayIndex >= 0; }
+
+        String get(String key) {
+            Integer index = KEY_INDEX.get(key);
+            return index != null ? values[index] : null;
+        }
+    }
+
+    /**
+     * Monta a tabela de velocidades de um perfil a partir de nomes de tipos de via.
+     */
+    public static final class Builder {
+        private final String name;
+        private final double[] speedByHighway = new double[HIGHWAY_TYPES.length];
+        private final boolean[] implicitOnewayByHighway = new boolean[HIGHWAY_TYPES.length];
+        private String[] accessKeys = { "access" };
+        private boolean followsOneway = true;
+        private boolean legacyOneway;
+        private String onewayOverrideKey;
+
+        public Builder(String name) { this.name = name; }
+
+        public Builder speed(String highway, double kmh) {
+            int index = highwayIndex(highway);
+            if (index == UNKNOWN_HIGHWAY && !HIGHWAY_TYPES[0].equals(highway)) {
+                throw new IllegalArgumentException("Tipo de via desconhecido: " + highway);
+            }
+            speedByHighway[index] = kmh;
+            return this;
+        }
+
+        public Builder speeds(double kmh, String... highways) {
+            for (String highway : highways) speed(highway, kmh);
+            return this;
+        }
+
+        /** Velocidade para valores de highway=* fora da tabela conhecida. */
+        public Builder defaultSpeed(double kmh) {
+            speedByHighway[UNKNOWN_HIGHWAY] = kmh;
+            return this;
+        }
+
+        public Builder accessKeys(String... keys) {
+            this.accessKeys = keys;
+            return this;
+        }
+
+        public Builder implicitOneway(String... highways) {
+            for (String highway : highways) implicitOnewayByHighway[highwayIndex(highway)] = true;
+            return this;
+        }
+
+        public Builder ignoreOneway() {
+            this.followsOneway = false;
+            return this;
+        }
+
+        /**
+         * Regra do importador antigo: só oneway=yes é mão única (no sentido da way); outros
+         * valores, junction=roundabout e {@link #implicitOneway} não contam.
+         */
+        public Builder legacyOneway() {
+            this.legacyOneway = true;
+            return this;
+        }
+
+        public Builder onewayOverrideKey(String key) {
+            this.onewayOverrideKey = key;
+            return this;
+        }
+
+        public RoutingProfile build() {
+            return new RoutingProfile(this);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package io;
+
+import metrics.RouteQueryEvent;
+import model.Edge;
+import model.Graph;
+import model.Node;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Mantém em memória apenas os blocos de um {@link TileStore} que estão em uso.
+ *
+ * Os blocos carregados são fundidos em um único {@link Graph} "vivo", que o
+ * GraphPanel desenha normalmente. Blocos são carregados ao redor da janela visível
+ * ou do corredor de uma consulta de rota e descartados por ordem de uso (LRU)
+ * quando o limite de blocos é ultrapassado.
+ *
+ * Não é thread-safe: cada instância (e o seu grafo) deve ser usada por uma thread de
+ * cada vez. Para buscar fora da thread que desenha, crie outra instância sobre os mesmos
+ * blocos com {@link #TileManager(TileManager)}.
+ */
+public class TileManager {
+    private final Path directory;
+    private final TileStore.TileIndex index;
+    private final Set<Long> existingTiles;
+    private final int maxLoadedTiles;
+    private final Graph graph = new Graph();
+
+    // Ordem de acesso: o primeiro elemento é o bloco usado há mais tempo
+    private final LinkedHashMap<Long, TileStore.TileData> loadedTiles = new LinkedHashMap<>(16, 0.75f, true);
+    // Para nós na borda: blocos vizinhos alcançáveis por alguma aresta
+    private final Map<Integer, Set<Long>> foreignTilesByNode = new HashMap<>();
+    private final Set<Long> pinnedTiles = new HashSet<>();
+    private int tilesLoadedTotal;
+    private int tilesEvictedTotal;
+
+    public TileManager(Path directory, int maxLoadedTiles) throws IOException {
+        this.directory = directory;
+        this.index = TileStore.readIndex(directory);
+        this.existingTiles = new HashSet<>(index.tileKeys);
+        this.maxLoadedTiles = Math.max(1, maxLoadedTiles);
+    }
+
+    /**
+     * Outro gerenciador sobre os mesmos blocos, com grafo e cache próprios e nenhum bloco
+     * carregado. O índice, só de leitura, é compartilhado; nada é lido do disco aqui.
+     */
+    public TileManager(TileManager other) {
+        this.directory = other.directory;
+        this.index = other.index;
+        this.existingTiles = other.existingTiles;
+        this.maxLoadedTiles = other.maxLoadedTiles;
+    }
+
+    /** Grafo com o conteúdo dos blocos atualmente carregados. */
+    public Graph getGraph() { return graph; }
+    public TileStore.TileIndex getIndex() { return index; }
+    public int getLoadedTileCount() { return loadedTiles.size(); }
+    public int getTilesLoadedTotal() { return tilesLoadedTotal; }
+    public int getTilesEvictedTotal() { return tilesEvictedTotal; }
+
+    /**
+     * Garante que os blocos que cobrem o retângulo (mais uma margem de um bloco)
+     * estejam carregados. Retorna true se algum bloco novo foi lido.
+     */
+    public boolean ensureRegionLoaded(double minX, double minY, double maxX, double maxY) {
+        int c0 = Math.max(index.columnAt(Math.min(minX, maxX)) - 1, index.columnAt(index.minX));
+        int c1 = Math.min(index.columnAt(Math.max(minX, maxX)) + 1, index.columnAt(index.maxX));
+        int r0 = Math.max(index.rowAt(Math.min(minY, maxY)) - 1, index.rowAt(index.minY));
+        int r1 = Math.min(index.rowAt(Math.max(minY, maxY)) + 1, index.rowAt(index.maxY));
+
+        List<Long> wanted = new ArrayList<>();
+        for (int c = c0; c <= c1; c++) {
+            for (int r = r0; r <= r1; r++) {
+                long key = TileStore.TileIndex.key(c, r);
+                if (existingTiles.contains(key)) wanted.add(key);
+            }
+        }
+        // Uma janela maior que o limite do cache não deve provocar carga/descarte em loop
+        if (wanted.size() > maxLoadedTiles) {
+            wanted = wanted.subList(0, maxLoadedTiles);
+        }
+
+        boolean changed = false;
+        pinnedTiles.addAll(wanted);
+        // Todos os blocos lidos e descartados contam como uma única mudança do grafo
+        graph.beginUpdate();
+        try {
+            for (long key : wanted) {
+                changed |= touchOrLoad(key);
+            }
+            evictOverflow();
+        } finally {
+            pinnedTiles.removeAll(wanted);
+            graph.endUpdate();
+        }
+        return changed;
+    }
+
+    /**
+     * Dijkstra sobre os blocos: pré-carrega o corredor entre origem e destino e,
+     * quando a fronteira da busca chega a um nó de borda, lê os blocos vizinhos.
+     * Nenhum bloco é descartado durante a consulta, e o grafo muda uma única vez
+     * ({@link Graph#beginUpdate()}) por consulta, qualquer que seja o número de blocos lidos.
+     */
+    public Graph.PathResult dijkstra(int startNodeId, int endNodeId) {
+        return search(startNodeId, endNodeId, false).result;
+    }
+
+    /**
+     * Como {@link #dijkstra(int, int)}, mas lê antes os blocos onde estão {@code start} e
+     * {@code end} (nós de outro grafo, tipicamente o desenhado), para uma instância que ainda
+     * não carregou a região da consulta. A polilinha do caminho é montada antes de os blocos
+     * excedentes serem descartados, então vem completa mesmo que o caminho não caiba no cache.
+     */
+    public Route route(Node start, Node end) {
+        graph.beginUpdate();
+        try {
+            for (Node node : new Node[] { start, end }) {
+                long key = index.tileKeyAt(node.getX(), node.getY());
+                if (existingTiles.contains(key)) touchOrLoad(key);
+            }
+            return search(start.getIdInterno(), end.getIdInterno(), true);
+        } finally {
+            graph.endUpdate();
+        }
+    }
+
+    /** Caminho encontrado por {@link #route} e a sua polilinha, em coordenadas do grafo. */
+    public static final class Route {
+        public final Graph.PathResult result;
+        public final double[] geometry;
+
+        Route(Graph.PathResult result, double[] geometry) {
+            this.result = result;
+            this.geometry = geometry;
+        }
+    }
+
+    private Route search(int startNodeId, int endNodeId, boolean withGeometry) {
+        Node start = graph.getNodes().get(startNodeId);
+        Node end = graph.getNodes().get(endNodeId);
+        if (start == null || end == null) {
+            return new Route(new Graph.PathResult(new ArrayList<>(), Double.POSITIVE_INFINITY, 0, 0), new double[0]);
+        }
+
+        RouteQueryEvent event = RouteQueryEvent.start("TileManager.dijkstra");
+        long startTime = System.nanoTime();
+        pinnedTiles.addAll(loadedTiles.keySet());
+        graph.beginUpdate();
+        try {
+            ensureCorridorLoaded(start, end);
+
+            Map<Integer, Double> distances = new HashMap<>();
+            Map<Integer, Integer> predecessors = new HashMap<>();
+            Set<Integer> visited = new HashSet<>();
+            PriorityQueue<double[]> pq = new PriorityQueue<>((a, b) -> Double.compare(a[1], b[1]));
+            distances.put(startNodeId, 0.0);
+            pq.add(new double[] { startNodeId, 0.0 });
+            int nodesExplored = 0;
+
+            while (!pq.isEmpty()) {
+                double[] entry = pq.poll();
+                int current = (int) entry[0];
+                if (!visited.add(current)) continue;
+                if (current == endNodeId) break;
+                nodesExplored++;
+
+                // Carrega sob demanda os blocos do outro lado das arestas de borda
+                Set<Long> foreign = foreignTilesByNode.get(current);
+                if (foreign != null) {
+                    for (long key : new ArrayList<>(foreign)) {
+                        pinnedTiles.add(key);
+                        touchOrLoad(key);
+                    }
+                }
+
+                Map<Integer, Edge> out = graph.getAdj().get(current);
+                if (out == null) continue;
+                double base = entry[1];
+                for (Edge edge : out.values()) {
+                    int neighbor = edge.getV();
+                    if (visited.contains(neighbor)) continue;
+                    double newDist = base + edge.getWeight();
+                    Double known = distances.get(neighbor);
+                    if (known == null || newDist < known) {
+                        distances.put(neighbor, newDist);
+                        predecessors.put(neighbor, current);
+                        pq.add(new double[] { neighbor, newDist });
+                    }
+                }
+            }
+
+            List<Integer> path = new ArrayList<>();
+            double totalCost = distances.getOrDefault(endNodeId, Double.POSITIVE_INFINITY);
+            if (totalCost != Double.POSITIVE_INFINITY) {
+                Integer current = endNodeId;
+                while (current != null) {
+                    path.add(current);
+                    current = predecessors.get(current);
+                }
+                Collections.reverse(path);
+            }
+            double processingTimeMs = (System.nanoTime() - startTime) / 1_000_000.0;
+            event.finish(startNodeId, endNodeId, totalCost, path.size(), nodesExplored);
+            return new Route(new Graph.PathResult(path, totalCost, processingTimeMs, nodesExplored),
+                    withGeometry ? graph.getPathGeometry(path) : null);
+        } finally {
+            pinnedTiles.clear();
+            try {
+                evictOverflow();
+            } finally {
+                graph.endUpdate();
+            }
+        }
+    }
+
+    private void ensureCorridorLoaded(Node start, Node end) {
+        double minX = Math.min(start.getX(), end.getX());
+        double maxX = Math.max(start.getX(), end.getX());
+        double minY = Math.min(start.getY(), end.getY());
+        double maxY = Math.max(start.getY(), end.getY());
+        int c0 = index.columnAt(minX), c1 = index.columnAt(maxX);
+        int r0 = index.rowAt(minY), r1 = index.rowAt(maxY);
+        // Corredores muito longos ficam a cargo da carga sob demanda durante a busca
+        int budget = maxLoadedTiles;
+        for (int c = c0; c <= c1; c++) {
+            for (int r = r0; r <= r1; r++) {
+                long key = TileStore.TileIndex.key(c, r);
+                if (existingTiles.contains(key) && budget-- > 0) {
+                    pinnedTiles.add(key);
+                    touchOrLoad(key);
+                }
+            }
+        }
+    }
+
+    private boolean touchOrLoad(long key) {
+        if (loadedTiles.get(key) != null) return false; // get() atualiza a ordem LRU
+        TileStore.TileData data;
+        try {
+            data = TileStore.readTile(directory, key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ler o bloco " + TileStore.tileFileName(key), e);
+        }
+
+        Set<Integer> localNodes = new HashSet<>(data.nodeIds.length * 2);
+        for (int i = 0; i < data.nodeIds.length; i++) {
+            Node node = new Node(data.nodeIds[i], data.xs[i], data.ys[i]);
+            node.setLabel(data.labels[i]);
+            graph.addNode(node);
+            localNodes.add(data.nodeIds[i]);
+        }
+        for (int i = 0; i < data.us.length; i++) {
+            int u = data.us[i], v = data.vs[i];
+            if (graph.getNodes().containsKey(u) && graph.getNodes().containsKey(v)) {
+                graph.addEdge(u, v, data.weights[i], data.directed[i], data.geometries[i]);
+            }
+            if (data.otherTiles[i] != key) {
+                // A ponta deste bloco passa a apontar para o bloco vizinho
+                int local = localNodes.contains(u) ? u : v;
+                foreignTilesByNode.computeIfAbsent(local, k -> new HashSet<>(2)).add(data.otherTiles[i]);
+            }
+        }
+        loadedTiles.put(key, data);
+        tilesLoadedTotal++;
+        return true;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Long, TileStore.TileData>> it = loadedTiles.entrySet().iterator();
+        while (loadedTiles.size() > maxLoadedTiles && it.hasNext()) {
+            Map.Entry<Long, TileStore.TileData> eldest = it.next();
+            if (pinnedTiles.contains(eldest.getKey())) continue;
+            unload(eldest.getValue());
+            it.remove();
+            tilesEvictedTotal++;
+        }
+    }
+
+    private void unload(TileStore.TileData data) {
+        for (int i = 0; i < data.us.length; i++) {
+            graph.removeEdge(data.us[i], data.vs[i]);
+        }
+        for (int nodeId : data.nodeIds) {
+            foreignTilesByNode.remove(nodeId);
+            graph.removeDetachedNode(nodeId);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package io;
+
+import model.Edge;
+import model.EdgeGeometry;
+import model.Graph;
+import model.Node;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Armazena um grafo em blocos espaciais (tiles) de uma grade regular no disco.
+ *
+ * O diretório contém um índice ({@value #INDEX_FILE}) com os limites da grade e
+ * um arquivo binário por bloco não vazio. Cada bloco guarda seus nós e todas as
+ * arestas que tocam algum deles; arestas que cruzam a fronteira aparecem nos dois
+ * blocos e registram o bloco da outra ponta, o que permite ao {@link TileManager}
+ * saber quais blocos carregar quando uma busca chega à borda.
+ */
+public class TileStore {
+    public static final String INDEX_FILE = "tiles.idx";
+    private static final int INDEX_MAGIC = 0x47544958; // "GTIX"
+    private static final int TILE_MAGIC = 0x47544C45;  // "GTLE"
+
+    /**
+     * Divide o grafo em blocos com aproximadamente {@code targetNodesPerTile} nós cada.
+     */
+    public static TileIndex write(Graph graph, Path directory, int targetNodesPerTile) throws IOException {
+        double[] bounds = computeBounds(graph);
+        double area = Math.max((bounds[2] - bounds[0]) * (bounds[3] - bounds[1]), 1e-12);
+        int tiles = Math.max(1, graph.getNumVertices() / Math.max(1, targetNodesPerTile));
+        double tileSize = Math.sqrt(area / tiles);
+        if (tileSize <= 0) tileSize = 1.0;
+        return write(graph, directory, tileSize);
+    }
+
+    /**
+     * Divide o grafo em blocos quadrados de lado {@code tileSize} (nas unidades das coordenadas).
+     */
+    public static TileIndex write(Graph graph, Path directory, double tileSize) throws IOException {
+        Files.createDirectories(directory);
+        double[] bounds = computeBounds(graph);
+        TileIndex index = new TileIndex(tileSize, bounds[0], bounds[1], bounds[2], bounds[3]);
+
+        Map<Long, List<Node>> nodesByTile = new HashMap<>();
+        Map<Integer, Long> tileOfNode = new HashMap<>();
+        for (Node node : graph.getNodes().values()) {
+            long key = index.tileKeyAt(node.getX(), node.getY());
+            nodesByTile.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
+            tileOfNode.put(node.getIdInterno(), key);
+        }
+
+        Map<Long, List<Edge>> edgesByTile = new HashMap<>();
+        for (Map<Integer, Edge> out : graph.getAdj().values()) {
+            for (Edge edge : out.values()) {
+                // Arestas de mão dupla existem nos dois sentidos; grava apenas uma vez
+                if (!edge.isDirected() && edge.getU() > edge.getV()) continue;
+                long tileU = tileOfNode.get(edge.getU());
+                long tileV = tileOfNode.get(edge.getV());
+                edgesByTile.computeIfAbsent(tileU, k -> new ArrayList<>()).add(edge);
+                if (tileV != tileU) {
+                    edgesByTile.computeIfAbsent(tileV, k -> new ArrayList<>()).add(edge);
+                }
+            }
+        }
+
+        for (Map.Entry<Long, List<Node>> entry : nodesByTile.entrySet()) {
+            long key = entry.getKey();
+            List<Edge> edges = edgesByTile.getOrDefault(key, new ArrayList<>());
+            writeTile(directory.resolve(tileFileName(key)), entry.getValue(), edges, tileOfNode);
+            index.tileKeys.add(key);
+        }
+        index.numVertices = graph.getNumVertices();
+        index.numEdges = graph.getNumEdges();
+        writeIndex(directory.resolve(INDEX_FILE), index);
+        return index;
+    }
+
+    public static TileIndex readIndex(Path directory) throws IOException {
+        Path file = directory.resolve(INDEX_FILE);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != INDEX_MAGIC) {
+                throw new IOException("Índice de blocos inválido: " + file);
+            }
+            TileIndex index = new TileIndex(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+            index.numVertices = in.readInt();
+            index.numEdges = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) index.tileKeys.add(in.readLong());
+            return index;
+        }
+    }
+
+    public static TileData readTile(Path directory, long key) throws IOException {
+        Path file = directory.resolve(tileFileName(key));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != TILE_MAGIC) {
+                throw new IOException("Arquivo de bloco inválido: " + file);
+            }
+            TileData data = new TileData(key, in.readInt(), in.readInt());
+            for (int i = 0; i < data.nodeIds.length; i++) {
+                data.nodeIds[i] = in.readInt();
+                data.xs[i] = in.readDouble();
+                data.ys[i] = in.readDouble();
+                data.labels[i] = in.readUTF();
+            }
+            for (int i = 0; i < data.us.length; i++) {
+                data.us[i] = in.readInt();
+                data.vs[i] = in.readInt();
+                data.weights[i] = in.readDouble();
+                data.directed[i] = in.readBoolean();
+                data.otherTiles[i] = in.readLong();
+                int points = in.readInt();
+                if (points > 0) {
+                    double[] xs = new double[points];
+                    double[] ys = new double[points];
+                    for (int p = 0; p < points; p++) {
+                        xs[p] = in.readDouble();
+                        ys[p] = in.readDouble();
+                    }
+                    data.geometries[i] = EdgeGeometry.encode(xs, ys, points);
+                }
+            }
+            return data;
+        }
+    }
+
+    static String tileFileName(long key) {
+        return "tile_" + TileIndex.column(key) + "_" + TileIndex.row(key) + ".bin";
+    }
+
+    private static void writeTile(Path file, List<Node> nodes, List<Edge> edges, Map<Integer, Long> tileOfNode) throws IOException {
+        long ownKey = tileOfNode.get(nodes.get(0).getIdInterno());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024))) {
+            out.writeInt(TILE_MAGIC);
+            out.writeInt(nodes.size());
+            out.writeInt(edges.size());
+            for (Node node : nodes) {
+                out.writeInt(node.getIdInterno());
+                out.writeDouble(node.getX());
+                out.writeDouble(node.getY());
+                out.writeUTF(node.getLabel());
+            }
+            for (Edge edge : edges) {
+                long tileU = tileOfNode.get(edge.getU());
+                long tileV = tileOfNode.get(edge.getV());
+                out.writeInt(edge.getU());
+                out.writeInt(edge.getV());
+                out.writeDouble(edge.getWeight());
+                out.writeBoolean(edge.isDirected());
+                out.writeLong(tileU == ownKey ? tileV : tileU);
+                double[] points = edge.getGeometry() != null ? edge.getGeometry().toArray() : new double[0];
+                out.writeInt(points.length / 2);
+                for (double coordinate : points) out.writeDouble(coordinate);
+            }
+        }
+    }
+
+    private static void writeIndex(Path file, TileIndex index) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeDouble(index.tileSize);
+            out.writeDouble(index.minX);
+            out.writeDouble(index.minY);
+            out.writeDouble(index.maxX);
+            out.writeDouble(index.maxY);
+            out.writeInt(index.numVertices);
+            out.writeInt(index.numEdges);
+            out.writeInt(index.tileKeys.size());
+            for (long key : index.tileKeys) out.writeLong(key);
+        }
+    }
+
+    private static double[] computeBounds(Graph graph) {
+        if (graph.getNodes().isEmpty()) return new double[] { 0, 0, 1, 1 };
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (Node node : graph.getNodes().values()) {
+            minX = Math.min(minX, node.getX());
+            minY = Math.min(minY, node.getY());
+            maxX = Math.max(maxX, node.getX());
+            maxY = Math.max(maxY, node.getY());
+        }
+        return new double[] { minX, minY, maxX, maxY };
+    }
+
+    /**
+     * Descrição da grade: origem, lado do bloco, limites do grafo e blocos existentes.
+     */
+    public static class TileIndex {
+        public final double tileSize;
+        public final double minX, minY, maxX, maxY;
+        final List<Long> tileKeys = new ArrayList<>();
+        int numVertices;
+        int numEdges;
+
+        TileIndex(double tileSize, double minX, double minY, double maxX, double maxY) {
+            this.tileSize = tileSize;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        public int getTileCount() { return tileKeys.size(); }
+        public int getNumVertices() { return numVertices; }
+        public int getNumEdges() { return numEdges; }
+
+        public int columnAt(double x) { return (int) Math.floor((x - minX) / tileSize); }
+        public int rowAt(double y) { return (int) Math.floor((y - minY) / tileSize); }
+
+        public long tileKeyAt(double x, double y) {
+            return key(columnAt(x), rowAt(y));
+        }
+
+        public static long key(int column, int row) {
+            return ((long) column << 32) | (row & 0xffffffffL);
+        }
+
+        public static int column(long key) { return (int) (key >> 32); }
+        public static int row(long key) { return (int) key; }
+    }
+
+    /**
+     * Conteúdo de um bloco lido do disco, em arrays paralelos.
+     */
+    public static class TileData {
+        public final long key;
+        public final int[] nodeIds;
+        public final double[] xs, ys;
+        public final String[] labels;
+        public final int[] us, vs;
+        public final double[] weights;
+        public final boolean[] directed;
+        public final long[] otherTiles;
+        public final EdgeGeometry[] geometries;
+
+        TileData(long key, int nodeCount, int edgeCount) {
+            this.key = key;
+            this.nodeIds = new int[nodeCount];
+            this.xs = new double[nodeCount];
+            this.ys = new double[nodeCount];
+            this.labels = new String[nodeCount];
+            this.us = new int[edgeCount];
+            this.vs = new int[edgeCount];
+            this.weights = new double[edgeCount];
+            this.directed = new boolean[edgeCount];
+            this.otherTiles = new long[edgeCount];
+            this.geometries = new EdgeGeometry[edgeCount];
+        }
+    }
+}
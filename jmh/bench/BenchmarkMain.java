@@ -0,0 +1,37 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Ponto de entrada do {@code benchmarks.jar}: aceita as mesmas opções do JMH e liga o
+ * perfilador {@code gc} se ele não foi pedido, para todo resultado vir com a alocação por
+ * operação ({@code gc.alloc.rate.norm}) ao lado do tempo.
+ *
+ * Uso: {@code java -jar target/benchmarks.jar [filtro] [opções do JMH]}
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams()
+                || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        boolean hasGcProfiler = false;
+        for (ProfilerConfig profiler : cli.getProfilers()) {
+            if (profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName())) {
+                hasGcProfiler = true;
+            }
+        }
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(cli);
+        if (!hasGcProfiler) builder.addProfiler(GCProfiler.class);
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package bench;
+
+import io.OsmConverter;
+import io.PolyReader;
+import model.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Importação dos mapas de {@code Mapas/}: leitura do .poly e conversão do .osm. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class LoadBenchmark {
+    /** Nome do mapa, sem extensão; existe em .poly e .osm. */
+    @Param({"map", "Campus2UFG&Regiao"})
+    public String map;
+
+    private String polyPath;
+    private String osmPath;
+
+    @Setup
+    public void locate() {
+        polyPath = MapFiles.path(map + ".poly");
+        osmPath = MapFiles.path(map + ".osm");
+    }
+
+    @Benchmark
+    public Graph readPolyFile() throws IOException {
+        return new PolyReader().readPolyFile(polyPath);
+    }
+
+    @Benchmark
+    public Graph convertOsmToGraph() throws IOException {
+        return new OsmConverter().convertOsmToGraph(osmPath);
+    }
+}
\ No newline at end of file
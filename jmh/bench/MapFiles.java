@@ -0,0 +1,22 @@
+package bench;
+
+import java.io.File;
+
+/**
+ * Localiza os mapas de {@code Mapas/} para os benchmarks. Os forks do JMH herdam o diretório
+ * de trabalho, então basta rodar da raiz do projeto; para outro lugar, use
+ * {@code -jvmArgsAppend -Dmapas.dir=<diretório>}.
+ */
+final class MapFiles {
+    private MapFiles() {
+    }
+
+    static String path(String fileName) {
+        File file = new File(System.getProperty("mapas.dir", "Mapas"), fileName);
+        if (!file.isFile()) {
+            throw new IllegalStateException("Mapa não encontrado: " + file.getAbsolutePath()
+                    + " (rode da raiz do projeto ou defina -Dmapas.dir)");
+        }
+        return file.getPath();
+    }
+}
\ No newline at end of file
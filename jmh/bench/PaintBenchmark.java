@@ -0,0 +1,76 @@
+package bench;
+
+import gui.GraphPanel;
+import io.PolyReader;
+import model.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pintura do {@link GraphPanel} em um {@link BufferedImage}, sem tela ({@code java.awt.headless}).
+ *
+ * {@code repaint}: só o que muda a cada quadro (rotas, seleção, rótulos) sobre os tiles da
+ * camada base já em cache, que é o caso comum ao arrastar o mapa ou mover a seleção.
+ * {@code refitAndPaint}: reenquadra o grafo, o que descarta os tiles, e desenha tudo de novo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+    private static final int WIDTH = 1200;
+    private static final int HEIGHT = 800;
+
+    @Param({"map", "Campus2UFG&Regiao"})
+    public String map;
+
+    private GraphPanel panel;
+    private Graph graph;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup
+    public void load() throws IOException {
+        graph = new PolyReader().readPolyFile(MapFiles.path(map + ".poly"));
+        panel = new GraphPanel();
+        panel.setSize(WIDTH, HEIGHT);
+        panel.setGraph(graph);
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+    }
+
+    @TearDown
+    public void dispose() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage repaint() {
+        panel.paint(g);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage refitAndPaint() {
+        panel.setGraph(graph);
+        panel.paint(g);
+        return image;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package bench;
+
+import io.PolyReader;
+import model.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Graph#removeNode} em nós aleatórios. A remoção altera o grafo, então cada iteração
+ * começa de uma cópia recém-lida e mede um lote de {@link #BATCH} remoções em tempo de disparo
+ * único (a leitura fica fora da medição). O resultado é o tempo do lote inteiro, assim como a
+ * alocação por operação do perfilador gc: divida por {@link #BATCH} para ter o custo de uma remoção.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = RemoveNodeBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = RemoveNodeBenchmark.BATCH)
+@Fork(2)
+public class RemoveNodeBenchmark {
+    static final int BATCH = 100;
+
+    @Param({"map", "Campus2UFG&Regiao"})
+    public String map;
+
+    private String polyPath;
+    private Graph graph;
+    private List<Integer> victims;
+    private int next;
+    private long iteration;
+
+    @Setup(Level.Trial)
+    public void locate() {
+        polyPath = MapFiles.path(map + ".poly");
+    }
+
+    @Setup(Level.Iteration)
+    public void freshGraph() throws IOException {
+        graph = new PolyReader().readPolyFile(polyPath);
+        victims = new ArrayList<>(graph.getNodes().keySet());
+        Collections.shuffle(victims, new Random(iteration++));
+        next = 0;
+    }
+
+    @Benchmark
+    public Graph removeNode() {
+        graph.removeNode(victims.get(next++));
+        return graph;
+    }
+}
\ No newline at end of file
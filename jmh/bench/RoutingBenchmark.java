@@ -0,0 +1,73 @@
+package bench;
+
+import io.PolyReader;
+import model.Graph;
+import model.GraphSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import routing.SnapshotDijkstra;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas entre pares aleatórios (semente fixa), percorridos em ciclo: cada chamada é
+ * uma consulta diferente, e a média cobre pares perto, longe e sem caminho.
+ * Compara o {@link Graph#dijkstra} de objetos com o {@link SnapshotDijkstra} de arrays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RoutingBenchmark {
+    private static final int PAIRS = 1024;
+
+    @Param({"map", "Campus2UFG&Regiao"})
+    public String map;
+
+    private Graph graph;
+    private SnapshotDijkstra snapshotDijkstra;
+    private int[] origins;
+    private int[] destinations;
+    private int next;
+
+    @Setup
+    public void load() throws IOException {
+        graph = new PolyReader().readPolyFile(MapFiles.path(map + ".poly"));
+        snapshotDijkstra = new SnapshotDijkstra(GraphSnapshot.of(graph));
+        List<Integer> ids = new ArrayList<>(graph.getNodes().keySet());
+        Random random = new Random(42);
+        origins = new int[PAIRS];
+        destinations = new int[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            origins[i] = ids.get(random.nextInt(ids.size()));
+            destinations[i] = ids.get(random.nextInt(ids.size()));
+        }
+    }
+
+    @Benchmark
+    public Graph.PathResult graphDijkstra() {
+        int i = next++ & (PAIRS - 1);
+        return graph.dijkstra(origins[i], destinations[i]);
+    }
+
+    @Benchmark
+    public Graph.PathResult snapshotDijkstra() {
+        int i = next++ & (PAIRS - 1);
+        return snapshotDijkstra.route(origins[i], destinations[i]);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Casa lotes de trajetos em paralelo, um trajeto por tarefa, e mede latência
+ * por trajeto e vazão em pontos por segundo.
+ */
+public class BatchMatcher {
+    private final MapMatcher matcher;
+    private final ForkJoinPool pool;
+
+    public BatchMatcher(MapMatcher matcher, ForkJoinPool pool) {
+        this.matcher = matcher;
+        this.pool = pool;
+    }
+
+    public BatchMatcher(MapMatcher matcher) {
+        this(matcher, ForkJoinPool.commonPool());
+    }
+
+    /** Resultado de um trajeto. */
+    public static final class TraceResult {
+        private final GpsTrace trace;
+        private final List<MatchedSegment> segments;
+        private final double latencyMs;
+        private final int unmatchedPoints;
+        private final int breaks;
+        private final int maxLag;
+
+        TraceResult(GpsTrace trace, List<MatchedSegment> segments, double latencyMs, int unmatchedPoints, int breaks, int maxLag) {
+            this.trace = trace;
+            this.segments = segments;
+            this.latencyMs = latencyMs;
+            this.unmatchedPoints = unmatchedPoints;
+            this.breaks = breaks;
+            this.maxLag = maxLag;
+        }
+
+        public GpsTrace getTrace() { return trace; }
+        public List<MatchedSegment> getSegments() { return segments; }
+        public double getLatencyMs() { return latencyMs; }
+        public int getUnmatchedPoints() { return unmatchedPoints; }
+        public int getBreaks() { return breaks; }
+        /** Maior número de pontos pendentes na janela do Viterbi durante o trajeto. */
+        public int getMaxLag() { return maxLag; }
+    }
+
+    /** Resultado do lote, na mesma ordem dos trajetos de entrada. */
+    public static final class BatchResult {
+        private final List<TraceResult> traces;
+        private final double wallTimeMs;
+        private final long totalPoints;
+
+        BatchResult(List<TraceResult> traces, double wallTimeMs, long totalPoints) {
+            this.traces = traces;
+            this.wallTimeMs = wallTimeMs;
+            this.totalPoints = totalPoints;
+        }
+
+        public List<TraceResult> getTraces() { return traces; }
+        public double getWallTimeMs() { return wallTimeMs; }
+        public long getTotalPoints() { return totalPoints; }
+
+        public double getPointsPerSecond() {
+            return wallTimeMs > 0 ? totalPoints / (wallTimeMs / 1000.0) : 0.0;
+        }
+
+        /** Percentil (0-100) da latência por trajeto, em ms. */
+        public double latencyPercentile(double percentile) {
+            if (traces.isEmpty()) return 0.0;
+            double[] latencies = new double[traces.size()];
+            for (int i = 0; i < latencies.length; i++) latencies[i] = traces.get(i).getLatencyMs();
+            Arrays.sort(latencies);
+            int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(latencies.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            long unmatched = 0;
+            for (TraceResult trace : traces) unmatched += trace.getUnmatchedPoints();
+            return String.format(Locale.ROOT,
+                    "%d trajetos, %d pontos em %.1f ms (%.0f pontos/s) | latência p50 %.2f ms, p95 %.2f ms, máx %.2f ms | %d pontos sem candidato",
+                    traces.size(), totalPoints, wallTimeMs, getPointsPerSecond(),
+                    latencyPercentile(50), latencyPercentile(95), latencyPercentile(100), unmatched);
+        }
+    }
+
+    public BatchResult matchAll(List<GpsTrace> traces) {
+        long start = System.nanoTime();
+        TraceResult[] results = new TraceResult[traces.size()];
+        pool.invoke(new MatchTask(traces, results, 0, traces.size()));
+        double wallTimeMs = (System.nanoTime() - start) / 1_000_000.0;
+        long totalPoints = 0;
+        for (GpsTrace trace : traces) totalPoints += trace.size();
+        return new BatchResult(new ArrayList<>(Arrays.asList(results)), wallTimeMs, totalPoints);
+    }
+
+    private final class MatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<GpsTrace> traces;
+        private final TraceResult[] results;
+        private final int from, to;
+
+        MatchTask(List<GpsTrace> traces, TraceResult[] results, int from, int to) {
+            this.traces = traces;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to <= from) return;
+            if (to - from == 1) {
+                results[from] = matchOne(traces.get(from));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MatchTask(traces, results, from, mid), new MatchTask(traces, results, mid, to));
+        }
+    }
+
+    private TraceResult matchOne(GpsTrace trace) {
+        long start = System.nanoTime();
+        MapMatcher.Session session = matcher.newSession();
+        List<MatchedSegment> segments = new ArrayList<>();
+        for (int i = 0; i < trace.size(); i++) segments.addAll(session.push(trace.x(i), trace.y(i)));
+        segments.addAll(session.finish());
+        double latencyMs = (System.nanoTime() - start) / 1_000_000.0;
+        return new TraceResult(trace, segments, latencyMs, session.getUnmatchedPoints(), session.getBreaks(),
+                session.getMaxObservedLag());
+    }
+}
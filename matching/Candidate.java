@@ -0,0 +1,20 @@
+package matching;
+
+/**
+ * Posição candidata de um ponto GPS: um arco do snapshot e a fração percorrida
+ * dele (0 = nó de origem, 1 = nó de destino), com a projeção do ponto.
+ */
+final class Candidate {
+    final int arc;
+    final double fraction;
+    final double x, y;
+    final double distance;   // distância do ponto GPS à projeção
+
+    Candidate(int arc, double fraction, double x, double y, double distance) {
+        this.arc = arc;
+        this.fraction = fraction;
+        this.x = x;
+        this.y = y;
+        this.distance = distance;
+    }
+}
@@ -0,0 +1,84 @@
+package matching;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sequência de pontos GPS de um veículo, nas coordenadas do grafo.
+ */
+public final class GpsTrace {
+    private final String id;
+    private final double[] xs;
+    private final double[] ys;
+
+    public GpsTrace(String id, double[] xs, double[] ys) {
+        if (xs.length != ys.length) throw new IllegalArgumentException("Coordenadas x e y com tamanhos diferentes.");
+        this.id = id;
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    public String getId() { return id; }
+    public int size() { return xs.length; }
+    public double x(int i) { return xs[i]; }
+    public double y(int i) { return ys[i]; }
+
+    /**
+     * Lê trajetos de um arquivo texto com uma linha por ponto: {@code idTrajeto x y}
+     * (separados por espaço, tab, vírgula ou ponto e vírgula). Os pontos de cada
+     * trajeto ficam na ordem do arquivo; linhas vazias e começando por # são ignoradas.
+     */
+    public static List<GpsTrace> readAll(Path file) throws IOException {
+        Map<String, double[]> buffers = new LinkedHashMap<>();
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split("[\\s,;]+");
+                if (parts.length < 3) {
+                    throw new IOException("Linha " + lineNumber + " inválida (esperado: idTrajeto x y): " + line);
+                }
+                double x, y;
+                try {
+                    x = Double.parseDouble(parts[1]);
+                    y = Double.parseDouble(parts[2]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Coordenada inválida na linha " + lineNumber + ": " + line, e);
+                }
+                double[] buffer = buffers.computeIfAbsent(parts[0], k -> new double[32]);
+                int size = sizes.getOrDefault(parts[0], 0);
+                if (2 * size + 2 > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    buffers.put(parts[0], buffer);
+                }
+                buffer[2 * size] = x;
+                buffer[2 * size + 1] = y;
+                sizes.put(parts[0], size + 1);
+            }
+        }
+        List<GpsTrace> traces = new ArrayList<>();
+        for (Map.Entry<String, double[]> entry : buffers.entrySet()) {
+            int size = sizes.get(entry.getKey());
+            double[] xs = new double[size];
+            double[] ys = new double[size];
+            for (int i = 0; i < size; i++) {
+                xs[i] = entry.getValue()[2 * i];
+                ys[i] = entry.getValue()[2 * i + 1];
+            }
+            traces.add(new GpsTrace(entry.getKey(), xs, ys));
+        }
+        return traces;
+    }
+}
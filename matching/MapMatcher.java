@@ -0,0 +1,314 @@
+package matching;
+
+import model.GraphSnapshot;
+import model.GridIndex;
+import routing.SnapshotDijkstra;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Map matching de trajetos GPS por modelo oculto de Markov (HMM) com Viterbi incremental.
+ *
+ * Estados são posições candidatas em arcos próximos de cada ponto, achadas pelo
+ * {@link GridIndex}. A emissão é gaussiana na distância ponto-aresta; a transição
+ * penaliza a diferença entre o comprimento da rota na malha (Dijkstra limitado) e a
+ * distância em linha reta entre os pontos. O decodificador emite um ponto assim que
+ * todos os caminhos sobreviventes concordam sobre ele, ou à força quando a janela
+ * passa de {@link MatchingParameters#getMaxLag()} pontos.
+ *
+ * O matcher é imutável e compartilhável; cada trajeto usa sua própria {@link Session}.
+ */
+public class MapMatcher {
+    private final GraphSnapshot snapshot;
+    private final GridIndex grid;
+    private final MatchingParameters parameters;
+    private final double weightPerUnit;
+    private final ThreadLocal<SnapshotDijkstra> workspace;
+
+    public MapMatcher(GraphSnapshot snapshot, GridIndex grid, MatchingParameters parameters) {
+        this.snapshot = snapshot;
+        this.grid = grid;
+        this.parameters = parameters;
+        this.weightPerUnit = estimateWeightPerUnit(snapshot);
+        this.workspace = ThreadLocal.withInitial(() -> new SnapshotDijkstra(snapshot));
+    }
+
+    public MapMatcher(GraphSnapshot snapshot, MatchingParameters parameters) {
+        this(snapshot, GridIndex.build(snapshot), parameters);
+    }
+
+    public GraphSnapshot getSnapshot() { return snapshot; }
+    public MatchingParameters getParameters() { return parameters; }
+
+    public Session newSession() { return new Session(); }
+
+    /** Casa um trajeto inteiro de uma vez. */
+    public List<MatchedSegment> match(GpsTrace trace) {
+        Session session = newSession();
+        List<MatchedSegment> result = new ArrayList<>();
+        for (int i = 0; i < trace.size(); i++) result.addAll(session.push(trace.x(i), trace.y(i)));
+        result.addAll(session.finish());
+        return result;
+    }
+
+    /**
+     * Quanto de peso corresponde a uma unidade de coordenada (mediana dos arcos).
+     * Nos .poly o peso é a distância euclidiana x10000; em grafos importados por perfil
+     * o fator varia, e a mediana dá uma escala razoável para comparar rota e linha reta.
+     */
+    private static double estimateWeightPerUnit(GraphSnapshot snapshot) {
+        int m = snapshot.getNumArcs();
+        double[] ratios = new double[m];
+        int count = 0;
+        for (int u = 0; u < snapshot.getNumNodes(); u++) {
+            for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                int v = snapshot.head(arc);
+                double length = Math.hypot(snapshot.x(v) - snapshot.x(u), snapshot.y(v) - snapshot.y(u));
+                if (length > 0 && snapshot.weight(arc) > 0) ratios[count++] = snapshot.weight(arc) / length;
+            }
+        }
+        if (count == 0) return 1.0;
+        Arrays.sort(ratios, 0, count);
+        return ratios[count / 2];
+    }
+
+    /** Candidatos do ponto: as posições mais próximas dentro do raio de busca. */
+    private Candidate[] findCandidates(double px, double py) {
+        double radius = parameters.getSearchRadius();
+        List<Candidate> found = new ArrayList<>();
+        grid.forEachArcIn(px - radius, py - radius, px + radius, py + radius, arc -> {
+            int u = snapshot.arcSource(arc);
+            int v = snapshot.head(arc);
+            double ux = snapshot.x(u), uy = snapshot.y(u);
+            double dx = snapshot.x(v) - ux, dy = snapshot.y(v) - uy;
+            double lengthSq = dx * dx + dy * dy;
+            double t = lengthSq > 0 ? ((px - ux) * dx + (py - uy) * dy) / lengthSq : 0.0;
+            t = Math.max(0.0, Math.min(1.0, t));
+            double sx = ux + t * dx, sy = uy + t * dy;
+            double distance = Math.hypot(px - sx, py - sy);
+            if (distance <= radius) found.add(new Candidate(arc, t, sx, sy, distance));
+        });
+        found.sort(Comparator.comparingDouble(c -> c.distance));
+        List<Candidate> result = new ArrayList<>();
+        for (int i = 0; i < found.size() && i < parameters.getMaxCandidates(); i++) {
+            Candidate c = found.get(i);
+            result.add(c);
+            // Mão dupla: a mesma posição também pode ser percorrida no sentido contrário
+            if (!snapshot.isDirected(c.arc)) {
+                int back = snapshot.findArc(snapshot.head(c.arc), snapshot.arcSource(c.arc));
+                if (back >= 0) result.add(new Candidate(back, 1.0 - c.fraction, c.x, c.y, c.distance));
+            }
+        }
+        return result.toArray(new Candidate[0]);
+    }
+
+    private double emission(Candidate c) {
+        double z = c.distance / parameters.getSigma();
+        return -0.5 * z * z;
+    }
+
+    /**
+     * Passo do Viterbi guardado na janela: candidatos do ponto, pontuação
+     * (log-probabilidade) e ponteiro para o candidato anterior.
+     */
+    private static final class Step {
+        final int pointIndex;
+        final double x, y;
+        final Candidate[] candidates;
+        final double[] score;
+        final int[] back;
+
+        Step(int pointIndex, double x, double y, Candidate[] candidates) {
+            this.pointIndex = pointIndex;
+            this.x = x;
+            this.y = y;
+            this.candidates = candidates;
+            this.score = new double[candidates.length];
+            this.back = new int[candidates.length];
+            Arrays.fill(back, -1);
+        }
+
+        int best() {
+            int best = -1;
+            for (int i = 0; i < score.length; i++) {
+                if (score[i] > Double.NEGATIVE_INFINITY && (best < 0 || score[i] > score[best])) best = i;
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Decodificador incremental de um trajeto. Não é thread-safe, mas pode ser usado
+     * por threads diferentes em momentos diferentes (o espaço de busca é por thread).
+     */
+    public final class Session {
+        private final Deque<Step> window = new ArrayDeque<>();
+        private int nextPointIndex;
+        private Candidate lastEmitted;
+        private boolean pendingBreak;
+        private int unmatchedPoints;
+        private int breaks;
+        private int maxObservedLag;
+
+        private Session() { }
+
+        public int getUnmatchedPoints() { return unmatchedPoints; }
+        public int getBreaks() { return breaks; }
+        /** Maior atraso observado, em pontos, entre receber um ponto e emiti-lo. */
+        public int getMaxObservedLag() { return maxObservedLag; }
+
+        /** Recebe o próximo ponto e devolve os segmentos que já puderam ser decididos. */
+        public List<MatchedSegment> push(double x, double y) {
+            int pointIndex = nextPointIndex++;
+            List<MatchedSegment> emitted = new ArrayList<>();
+            Candidate[] candidates = findCandidates(x, y);
+            if (candidates.length == 0) {
+                unmatchedPoints++;
+                return emitted;
+            }
+            Step step = new Step(pointIndex, x, y, candidates);
+            if (window.isEmpty() || !transition(window.peekLast(), step)) {
+                if (!window.isEmpty()) {
+                    // Nenhuma rota possível: fecha a sequência atual e recomeça
+                    flush(emitted);
+                    breaks++;
+                    pendingBreak = true;
+                    lastEmitted = null;
+                }
+                for (int i = 0; i < candidates.length; i++) step.score[i] = emission(candidates[i]);
+            }
+            window.addLast(step);
+            commitConverged(emitted);
+            while (window.size() > parameters.getMaxLag()) forceOldest(emitted);
+            maxObservedLag = Math.max(maxObservedLag, window.size());
+            return emitted;
+        }
+
+        /** Emite os pontos ainda pendentes pelo melhor caminho da janela. */
+        public List<MatchedSegment> finish() {
+            List<MatchedSegment> emitted = new ArrayList<>();
+            flush(emitted);
+            return emitted;
+        }
+
+        /** Preenche as pontuações do novo passo; falso se nenhum candidato é alcançável. */
+        private boolean transition(Step previous, Step current) {
+            SnapshotDijkstra dijkstra = workspace.get();
+            double straight = Math.hypot(current.x - previous.x, current.y - previous.y);
+            double limit = (straight * parameters.getMaxRouteFactor() + 2 * parameters.getSearchRadius()) * weightPerUnit;
+            Arrays.fill(current.score, Double.NEGATIVE_INFINITY);
+            boolean any = false;
+            for (int i = 0; i < previous.candidates.length; i++) {
+                if (previous.score[i] == Double.NEGATIVE_INFINITY) continue;
+                Candidate from = previous.candidates[i];
+                double exitCost = (1.0 - from.fraction) * snapshot.weight(from.arc);
+                boolean searched = false;
+                for (int j = 0; j < current.candidates.length; j++) {
+                    Candidate to = current.candidates[j];
+                    double route;
+                    if (to.arc == from.arc && to.fraction >= from.fraction) {
+                        route = (to.fraction - from.fraction) * snapshot.weight(from.arc);
+                    } else {
+                        if (!searched) {
+                            dijkstra.runBounded(snapshot.head(from.arc), limit - exitCost);
+                            searched = true;
+                        }
+                        int entry = snapshot.arcSource(to.arc);
+                        if (!dijkstra.isSettled(entry)) continue;
+                        route = exitCost + dijkstra.distanceTo(entry) + to.fraction * snapshot.weight(to.arc);
+                    }
+                    if (route > limit) continue;
+                    double deviation = Math.abs(route / weightPerUnit - straight);
+                    double score = previous.score[i] - deviation / parameters.getBeta() + emission(to);
+                    if (score > current.score[j]) {
+                        current.score[j] = score;
+                        current.back[j] = i;
+                        any = true;
+                    }
+                }
+            }
+            return any;
+        }
+
+        /** Emite os passos em que todos os candidatos vivos do último passo concordam. */
+        private void commitConverged(List<MatchedSegment> emitted) {
+            Step[] steps = window.toArray(new Step[0]);
+            int last = steps.length - 1;
+            int[] agreed = new int[steps.length];
+            Arrays.fill(agreed, -2);
+            for (int j = 0; j < steps[last].score.length; j++) {
+                if (steps[last].score[j] == Double.NEGATIVE_INFINITY) continue;
+                int c = j;
+                for (int s = last; s >= 0; s--) {
+                    if (agreed[s] == -2) agreed[s] = c;
+                    else if (agreed[s] != c) agreed[s] = -1;
+                    if (s > 0) c = steps[s].back[c];
+                }
+            }
+            // Se os caminhos concordam em um passo, concordam em todos os anteriores
+            int upTo = -1;
+            for (int s = last - 1; s >= 0; s--) {
+                if (agreed[s] >= 0) { upTo = s; break; }
+            }
+            for (int s = 0; s <= upTo; s++) emit(window.pollFirst(), agreed[s], emitted);
+        }
+
+        /** Janela cheia: decide o passo mais antigo pelo melhor caminho atual e poda o resto. */
+        private void forceOldest(List<MatchedSegment> emitted) {
+            Step[] steps = window.toArray(new Step[0]);
+            int c = steps[steps.length - 1].best();
+            for (int s = steps.length - 1; s > 0; s--) c = steps[s].back[c];
+            emit(window.pollFirst(), c, emitted);
+            // Só sobrevivem os candidatos que descendem da escolha feita
+            boolean[] alive = new boolean[steps[0].candidates.length];
+            alive[c] = true;
+            for (int s = 1; s < steps.length; s++) {
+                boolean[] next = new boolean[steps[s].candidates.length];
+                for (int j = 0; j < next.length; j++) {
+                    int b = steps[s].back[j];
+                    next[j] = steps[s].score[j] > Double.NEGATIVE_INFINITY && b >= 0 && alive[b];
+                    if (!next[j]) steps[s].score[j] = Double.NEGATIVE_INFINITY;
+                }
+                alive = next;
+            }
+        }
+
+        private void flush(List<MatchedSegment> emitted) {
+            if (window.isEmpty()) return;
+            Step[] steps = window.toArray(new Step[0]);
+            int[] chosen = new int[steps.length];
+            int c = steps[steps.length - 1].best();
+            for (int s = steps.length - 1; s >= 0; s--) {
+                chosen[s] = c;
+                if (s > 0) c = steps[s].back[c];
+            }
+            for (int s = 0; s < steps.length; s++) emit(window.pollFirst(), chosen[s], emitted);
+        }
+
+        private void emit(Step step, int index, List<MatchedSegment> emitted) {
+            Candidate c = step.candidates[index];
+            List<Integer> route = lastEmitted != null ? routeBetween(lastEmitted, c) : Collections.emptyList();
+            int u = snapshot.arcSource(c.arc);
+            int v = snapshot.head(c.arc);
+            emitted.add(new MatchedSegment(step.pointIndex, snapshot.nodeId(u), snapshot.nodeId(v), c.fraction,
+                    c.x, c.y, c.distance, route, pendingBreak));
+            pendingBreak = false;
+            lastEmitted = c;
+        }
+
+        /** Reconstrói os nós entre duas posições já decididas (uma busca por ponto emitido). */
+        private List<Integer> routeBetween(Candidate from, Candidate to) {
+            if (from.arc == to.arc && to.fraction >= from.fraction) return Collections.emptyList();
+            SnapshotDijkstra dijkstra = workspace.get();
+            int target = snapshot.arcSource(to.arc);
+            dijkstra.run(snapshot.head(from.arc), target);
+            return dijkstra.pathTo(target);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package matching;
+
+import java.util.List;
+
+/**
+ * Resultado emitido para um ponto GPS: a aresta em que ele foi casado e o trecho
+ * de rota percorrido desde o ponto casado anterior.
+ */
+public final class MatchedSegment {
+    private final int pointIndex;
+    private final int fromNodeId, toNodeId;
+    private final double fraction;
+    private final double snappedX, snappedY;
+    private final double distance;
+    private final List<Integer> route;
+    private final boolean breakBefore;
+
+    MatchedSegment(int pointIndex, int fromNodeId, int toNodeId, double fraction, double snappedX, double snappedY,
+                   double distance, List<Integer> route, boolean breakBefore) {
+        this.pointIndex = pointIndex;
+        this.fromNodeId = fromNodeId;
+        this.toNodeId = toNodeId;
+        this.fraction = fraction;
+        this.snappedX = snappedX;
+        this.snappedY = snappedY;
+        this.distance = distance;
+        this.route = route;
+        this.breakBefore = breakBefore;
+    }
+
+    /** Posição do ponto na sequência enviada ao decodificador (contando os não casados). */
+    public int getPointIndex() { return pointIndex; }
+    /** Aresta casada (IDs internos, no sentido percorrido). */
+    public int getFromNodeId() { return fromNodeId; }
+    public int getToNodeId() { return toNodeId; }
+    public double getFraction() { return fraction; }
+    public double getSnappedX() { return snappedX; }
+    public double getSnappedY() { return snappedY; }
+    /** Distância entre o ponto GPS e a posição casada. */
+    public double getDistance() { return distance; }
+
+    /**
+     * Nós atravessados desde o ponto casado anterior (IDs internos), do fim da aresta
+     * anterior ao início desta. Vazio no primeiro ponto, depois de uma quebra ou
+     * quando os dois pontos estão na mesma aresta.
+     */
+    public List<Integer> getRoute() { return route; }
+
+    /** Verdadeiro quando não havia rota possível a partir do ponto anterior (nova sequência). */
+    public boolean isBreakBefore() { return breakBefore; }
+
+    @Override
+    public String toString() {
+        return "ponto " + pointIndex + " -> aresta " + fromNodeId + "-" + toNodeId
+                + String.format(" (%.2f)", fraction) + (breakBefore ? " [quebra]" : "");
+    }
+}
@@ -0,0 +1,84 @@
+package matching;
+
+/**
+ * Parâmetros do modelo oculto de Markov do map matching. Distâncias estão na
+ * unidade das coordenadas do grafo (a mesma dos pontos GPS).
+ */
+public final class MatchingParameters {
+    private final double sigma;
+    private final double beta;
+    private final double searchRadius;
+    private final int maxCandidates;
+    private final int maxLag;
+    private final double maxRouteFactor;
+
+    private MatchingParameters(Builder builder) {
+        this.sigma = builder.sigma;
+        this.beta = builder.beta;
+        this.searchRadius = builder.searchRadius;
+        this.maxCandidates = builder.maxCandidates;
+        this.maxLag = builder.maxLag;
+        this.maxRouteFactor = builder.maxRouteFactor;
+    }
+
+    /** Desvio padrão do erro de posição do GPS (probabilidade de emissão gaussiana). */
+    public double getSigma() { return sigma; }
+    /** Escala da distribuição exponencial de |rota - distância em linha reta| (transição). */
+    public double getBeta() { return beta; }
+    /** Raio de busca de arestas candidatas em volta de cada ponto. */
+    public double getSearchRadius() { return searchRadius; }
+    /** Máximo de posições candidatas por ponto (as mais próximas). */
+    public int getMaxCandidates() { return maxCandidates; }
+    /** Máximo de pontos mantidos sem decisão antes de forçar a emissão do mais antigo. */
+    public int getMaxLag() { return maxLag; }
+    /** Rotas mais longas que este fator vezes a distância em linha reta são descartadas. */
+    public double getMaxRouteFactor() { return maxRouteFactor; }
+
+    public static final class Builder {
+        private final double sigma;
+        private double beta;
+        private double searchRadius;
+        private int maxCandidates = 8;
+        private int maxLag = 10;
+        private double maxRouteFactor = 3.0;
+
+        public Builder(double sigma) {
+            if (!(sigma > 0)) throw new IllegalArgumentException("sigma deve ser positivo: " + sigma);
+            this.sigma = sigma;
+            this.beta = 2 * sigma;
+            this.searchRadius = 3 * sigma;
+        }
+
+        public Builder beta(double beta) {
+            this.beta = beta;
+            return this;
+        }
+
+        public Builder searchRadius(double radius) {
+            this.searchRadius = radius;
+            return this;
+        }
+
+        public Builder maxCandidates(int count) {
+            this.maxCandidates = count;
+            return this;
+        }
+
+        public Builder maxLag(int points) {
+            this.maxLag = points;
+            return this;
+        }
+
+        public Builder maxRouteFactor(double factor) {
+            this.maxRouteFactor = factor;
+            return this;
+        }
+
+        public MatchingParameters build() {
+            if (maxCandidates < 1 || maxLag < 1 || !(beta > 0) || !(searchRadius > 0) || maxRouteFactor < 1) {
+                throw new IllegalArgumentException("Parâmetros de map matching inválidos.");
+            }
+            return new MatchingParameters(this);
+        }
+    }
+}
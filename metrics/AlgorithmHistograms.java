@@ -0,0 +1,88 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Estatísticas agregadas das buscas de um algoritmo, exportadas por JMX. */
+public final class AlgorithmHistograms implements AlgorithmHistogramsMXBean {
+    private final String algorithm;
+    private final LogHistogram latencyMicros = new LogHistogram();
+    private final LogHistogram settled = new LogHistogram();
+    private final LogHistogram relaxed = new LogHistogram();
+    private final LogHistogram peakFrontier = new LogHistogram();
+    private final LogHistogram allocated = new LogHistogram();
+    private final LongAdder pushes = new LongAdder();
+    private final LongAdder pops = new LongAdder();
+    private final LongAdder stalePops = new LongAdder();
+    private final LongAdder decreaseKeys = new LongAdder();
+
+    AlgorithmHistograms(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public String getAlgorithm() { return algorithm; }
+
+    void record(SearchStats stats) {
+        latencyMicros.record(Math.round(stats.timeMs * 1000));
+        settled.record(stats.settledNodes);
+        relaxed.record(stats.edgesRelaxed);
+        peakFrontier.record(stats.peakFrontier);
+        if (stats.allocatedBytes >= 0) allocated.record(stats.allocatedBytes);
+        pushes.add(stats.heapPushes);
+        pops.add(stats.heapPops);
+        stalePops.add(stats.stalePops);
+        decreaseKeys.add(stats.decreaseKeys);
+    }
+
+    @Override public long getQueries() { return latencyMicros.getCount(); }
+
+    @Override public double getLatencyMeanMs() { return latencyMicros.getMean() / 1000.0; }
+    @Override public double getLatencyP50Ms() { return latencyMicros.percentile(50) / 1000.0; }
+    @Override public double getLatencyP90Ms() { return latencyMicros.percentile(90) / 1000.0; }
+    @Override public double getLatencyP99Ms() { return latencyMicros.percentile(99) / 1000.0; }
+    @Override public double getLatencyMaxMs() { return latencyMicros.getMax() / 1000.0; }
+    @Override public long[] getLatencyHistogram() { return latencyMicros.getCounts(); }
+
+    @Override
+    public double[] getLatencyHistogramBoundsMs() {
+        double[] bounds = new double[latencyMicros.getCounts().length];
+        for (int i = 0; i < bounds.length; i++) bounds[i] = LogHistogram.bucketUpperBound(i) / 1000.0;
+        return bounds;
+    }
+
+    @Override public double getSettledNodesMean() { return settled.getMean(); }
+    @Override public long getSettledNodesP50() { return settled.percentile(50); }
+    @Override public long getSettledNodesP99() { return settled.percentile(99); }
+    @Override public double getEdgesRelaxedMean() { return relaxed.getMean(); }
+    @Override public long getEdgesRelaxedP99() { return relaxed.percentile(99); }
+    @Override public long[] getSettledNodesHistogram() { return settled.getCounts(); }
+
+    @Override
+    public long[] getWorkHistogramBounds() {
+        long[] bounds = new long[settled.getCounts().length];
+        for (int i = 0; i < bounds.length; i++) bounds[i] = LogHistogram.bucketUpperBound(i);
+        return bounds;
+    }
+
+    @Override public long getHeapPushes() { return pushes.sum(); }
+    @Override public long getHeapPops() { return pops.sum(); }
+    @Override public long getStalePops() { return stalePops.sum(); }
+    @Override public long getDecreaseKeys() { return decreaseKeys.sum(); }
+    @Override public long getPeakFrontierP99() { return peakFrontier.percentile(99); }
+    @Override public long getPeakFrontierMax() { return peakFrontier.getMax(); }
+
+    @Override public double getAllocatedBytesMean() { return allocated.getMean(); }
+    @Override public long getAllocatedBytesP99() { return allocated.percentile(99); }
+
+    @Override
+    public void reset() {
+        latencyMicros.reset();
+        settled.reset();
+        relaxed.reset();
+        peakFrontier.reset();
+        allocated.reset();
+        pushes.reset();
+        pops.reset();
+        stalePops.reset();
+        decreaseKeys.reset();
+    }
+}
\ No newline at end of file
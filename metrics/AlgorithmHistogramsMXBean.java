@@ -0,0 +1,39 @@
+package metrics;
+
+/**
+ * Visão JMX das buscas de um algoritmo ({@code grafos:type=SearchMetrics,algorithm=...}).
+ * Latências em milissegundos; as demais grandezas na unidade própria (nós, arcos, bytes).
+ */
+public interface AlgorithmHistogramsMXBean {
+    long getQueries();
+
+    double getLatencyMeanMs();
+    double getLatencyP50Ms();
+    double getLatencyP90Ms();
+    double getLatencyP99Ms();
+    double getLatencyMaxMs();
+    /** Contagem por faixa de latência; a faixa i vai até {@link #getLatencyHistogramBoundsMs()}[i]. */
+    long[] getLatencyHistogram();
+    double[] getLatencyHistogramBoundsMs();
+
+    double getSettledNodesMean();
+    long getSettledNodesP50();
+    long getSettledNodesP99();
+    double getEdgesRelaxedMean();
+    long getEdgesRelaxedP99();
+    /** Contagem por faixa de nós assentados; a faixa i vai até {@link #getWorkHistogramBounds()}[i]. */
+    long[] getSettledNodesHistogram();
+    long[] getWorkHistogramBounds();
+
+    long getHeapPushes();
+    long getHeapPops();
+    long getStalePops();
+    long getDecreaseKeys();
+    long getPeakFrontierP99();
+    long getPeakFrontierMax();
+
+    double getAllocatedBytesMean();
+    long getAllocatedBytesP99();
+
+    void reset();
+}
\ No newline at end of file
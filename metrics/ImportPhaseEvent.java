@@ -0,0 +1,58 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de uma fase de importação (.poly, .osm, conversão para .poly): a duração vem do
+ * próprio evento, os campos dizem quanto foi processado. Com a gravação desligada o custo é
+ * criar o objeto e uma verificação em {@link #finish}.
+ */
+@Name("grafos.ImportPhase")
+@Label("Fase de importação")
+@Category({"Grafos", "Importação"})
+@StackTrace(false)
+public class ImportPhaseEvent extends Event {
+    @Label("Arquivo")
+    String file;
+
+    @Label("Fase")
+    String phase;
+
+    @Label("Itens")
+    @Description("Vértices, arestas, linhas ou elementos XML processados na fase")
+    long items;
+
+    @Label("Ignorados")
+    @Description("Itens descartados (mal formados, acima do limite, referências ausentes)")
+    long skipped;
+
+    @Label("Bytes lidos")
+    @DataAmount
+    long bytes;
+
+    /** Cria o evento e marca o início da fase. */
+    public static ImportPhaseEvent start(String file, String phase) {
+        ImportPhaseEvent event = new ImportPhaseEvent();
+        event.file = file;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    /** Marca o fim da fase e grava, se a gravação estiver ligada. */
+    public void finish(long items, long skipped, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.items = items;
+            this.skipped = skipped;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de valores inteiros não negativos em faixas logarítmicas (quatro por potência
+ * de 2), atualizado sem trava por várias threads. Ocupa memória fixa por mais valores que
+ * receba; os percentis saem pelo limite superior da faixa, com erro de no máximo ~19%.
+ */
+public final class LogHistogram {
+    public static final int BUCKETS_PER_OCTAVE = 4;
+    private static final int BUCKETS = 48 * BUCKETS_PER_OCTAVE; // até 2^48
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucket(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    private static int bucket(long value) {
+        if (value <= 1) return 0;
+        int index = (int) (Math.log(value) / Math.log(2) * BUCKETS_PER_OCTAVE);
+        return Math.min(BUCKETS - 1, index);
+    }
+
+    /** Maior valor que cai na faixa {@code index}. */
+    public static long bucketUpperBound(int index) {
+        return (long) Math.floor(Math.pow(2, (index + 1) / (double) BUCKETS_PER_OCTAVE));
+    }
+
+    public long getCount() { return count.get(); }
+    public long getSum() { return sum.get(); }
+    public long getMax() { return max.get(); }
+
+    public double getMean() {
+        long n = count.get();
+        return n > 0 ? sum.get() / (double) n : 0;
+    }
+
+    /** Valor no percentil {@code p} (0 a 100), pelo limite superior da faixa e nunca acima do máximo. */
+    public long percentile(double p) {
+        long[] snapshot = getCounts();
+        long total = 0;
+        for (long c : snapshot) total += c;
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(bucketUpperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /** Contagem por faixa, até a última faixa não vazia. */
+    public long[] getCounts() {
+        int last = BUCKETS - 1;
+        while (last > 0 && counts.get(last) == 0) last--;
+        long[] snapshot = new long[last + 1];
+        for (int i = 0; i <= last; i++) snapshot[i] = counts.get(i);
+        return snapshot;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
\ No newline at end of file
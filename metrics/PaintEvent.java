@@ -0,0 +1,44 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento JFR de uma pintura do painel do mapa, com o que foi desenhado: tiles da camada base
+ * (visíveis e redesenhados nesta pintura), arcos e nós dos tiles redesenhados, e a camada dinâmica.
+ */
+@Name("grafos.Paint")
+@Label("Pintura do mapa")
+@Category({"Grafos", "Interface"})
+@StackTrace(false)
+public class PaintEvent extends Event {
+    @Label("Largura")
+    public int width;
+
+    @Label("Altura")
+    public int height;
+
+    @Label("Nível de zoom")
+    public int zoomLevel;
+
+    @Label("Tiles visíveis")
+    public int visibleTiles;
+
+    @Label("Tiles redesenhados")
+    public int renderedTiles;
+
+    @Label("Arcos desenhados")
+    public int arcs;
+
+    @Label("Nós desenhados")
+    public int nodes;
+
+    @Label("Rotas")
+    public int routes;
+
+    @Label("Nós da fronteira")
+    public int frontierNodes;
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Evento JFR de uma consulta de rota, em qualquer um dos algoritmos. */
+@Name("grafos.RouteQuery")
+@Label("Consulta de rota")
+@Category({"Grafos", "Roteamento"})
+@StackTrace(false)
+public class RouteQueryEvent extends Event {
+    @Label("Algoritmo")
+    String algorithm;
+
+    @Label("Origem")
+    int origin;
+
+    @Label("Destino")
+    int destination;
+
+    @Label("Custo")
+    double cost;
+
+    @Label("Encontrou caminho")
+    boolean found;
+
+    @Label("Nós no caminho")
+    int pathNodes;
+
+    @Label("Nós explorados")
+    int explored;
+
+    public static RouteQueryEvent start(String algorithm) {
+        RouteQueryEvent event = new RouteQueryEvent();
+        event.algorithm = algorithm;
+        event.begin();
+        return event;
+    }
+
+    /** Marca o fim da consulta e grava, se a gravação estiver ligada. */
+    public void finish(int origin, int destination, double cost, int pathNodes, int explored) {
+        end();
+        if (shouldCommit()) {
+            this.origin = origin;
+            this.destination = destination;
+            this.cost = cost;
+            this.found = pathNodes > 0;
+            this.pathNodes = pathNodes;
+            this.explored = explored;
+            commit();
+        }
+    }
+}
\ No newline at end of file
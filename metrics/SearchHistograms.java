@@ -0,0 +1,71 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link SearchListener} que agrega as buscas por algoritmo em histogramas de latência e de
+ * trabalho e publica cada algoritmo como um MXBean ({@code grafos:type=SearchMetrics,algorithm=...}),
+ * visível no JConsole/VisualVM ou por qualquer cliente JMX.
+ *
+ * Para ligar sem mexer no código, rode com {@code -Dgrafos.searchMetrics=true}: os pontos de
+ * entrada chamam {@link #installIfRequested()}.
+ */
+public final class SearchHistograms implements SearchListener {
+    public static final String ENABLE_PROPERTY = "grafos.searchMetrics";
+    private static final String DOMAIN = "grafos";
+
+    private final ConcurrentMap<String, AlgorithmHistograms> byAlgorithm = new ConcurrentHashMap<>();
+    private final MBeanServer mbeanServer;
+
+    /** @param mbeanServer onde registrar os MXBeans, ou null para só agregar */
+    public SearchHistograms(MBeanServer mbeanServer) {
+        this.mbeanServer = mbeanServer;
+    }
+
+    /** Cria, registra no MBeanServer da plataforma e instala como listener global. */
+    public static SearchHistograms install() {
+        SearchHistograms histograms = new SearchHistograms(ManagementFactory.getPlatformMBeanServer());
+        SearchMetrics.setListener(histograms);
+        return histograms;
+    }
+
+    /** {@link #install()} se a propriedade {@value #ENABLE_PROPERTY} estiver ligada; senão null. */
+    public static SearchHistograms installIfRequested() {
+        return Boolean.getBoolean(ENABLE_PROPERTY) ? install() : null;
+    }
+
+    @Override
+    public void searchCompleted(SearchStats stats) {
+        AlgorithmHistograms histograms = byAlgorithm.get(stats.algorithm);
+        if (histograms == null) histograms = byAlgorithm.computeIfAbsent(stats.algorithm, this::register);
+        histograms.record(stats);
+    }
+
+    public AlgorithmHistograms get(String algorithm) { return byAlgorithm.get(algorithm); }
+
+    public Collection<AlgorithmHistograms> getAll() {
+        return Collections.unmodifiableCollection(byAlgorithm.values());
+    }
+
+    private AlgorithmHistograms register(String algorithm) {
+        AlgorithmHistograms histograms = new AlgorithmHistograms(algorithm);
+        if (mbeanServer != null) {
+            try {
+                ObjectName name = new ObjectName(DOMAIN + ":type=SearchMetrics,algorithm=" + ObjectName.quote(algorithm));
+                if (mbeanServer.isRegistered(name)) mbeanServer.unregisterMBean(name);
+                mbeanServer.registerMBean(histograms, name);
+            } catch (JMException e) {
+                // Sem JMX as métricas continuam disponíveis por get()/getAll()
+                System.err.println("Não foi possível registrar as métricas de " + algorithm + ": " + e.getMessage());
+            }
+        }
+        return histograms;
+    }
+}
\ No newline at end of file
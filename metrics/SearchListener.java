@@ -0,0 +1,15 @@
+package metrics;
+
+/**
+ * Recebe as estatísticas de cada busca de caminho mínimo instrumentada. É chamado na thread
+ * que fez a busca, logo depois dela; implementações compartilhadas precisam ser thread-safe.
+ *
+ * Instale com {@link SearchMetrics#setListener}. Com {@link #NONE} (o padrão) as buscas nem
+ * montam o {@link SearchStats}: o custo fica nos contadores locais do laço.
+ */
+public interface SearchListener {
+    /** Não coleta nada. */
+    SearchListener NONE = stats -> { };
+
+    void searchCompleted(SearchStats stats);
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Ponto único onde as buscas instrumentadas ({@code Graph.dijkstra}, {@code SnapshotDijkstra})
+ * encontram o {@link SearchListener} atual. A leitura é um campo volátil por consulta; com o
+ * listener {@link SearchListener#NONE} nada mais é feito.
+ */
+public final class SearchMetrics {
+    private static volatile SearchListener listener = SearchListener.NONE;
+
+    private SearchMetrics() {
+    }
+
+    public static SearchListener getListener() { return listener; }
+
+    /** Troca o listener global; null desliga a coleta. */
+    public static void setListener(SearchListener newListener) {
+        listener = newListener != null ? newListener : SearchListener.NONE;
+    }
+
+    public static boolean isEnabled() { return listener != SearchListener.NONE; }
+
+    /**
+     * Bytes alocados até agora pela thread atual, ou -1 se a JVM não informa. O MXBean só é
+     * carregado na primeira chamada, então quem nunca liga a coleta não paga por ele.
+     */
+    public static long currentThreadAllocatedBytes() {
+        return Allocation.THREADS != null ? Allocation.THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /** Bytes alocados pela thread desde a leitura {@code before}, ou -1 se a JVM não informa. */
+    public static long allocatedSince(long before) {
+        long after = currentThreadAllocatedBytes();
+        return before >= 0 && after >= 0 ? after - before : -1;
+    }
+
+    private static final class Allocation {
+        static final com.sun.management.ThreadMXBean THREADS = lookup();
+
+        private static com.sun.management.ThreadMXBean lookup() {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+                if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                    return sunThreads;
+                }
+            }
+            return null;
+        }
+    }
+}
\ No newline at end of file
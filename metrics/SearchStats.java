@@ -0,0 +1,47 @@
+package metrics;
+
+import java.util.Locale;
+
+/**
+ * Trabalho feito por uma busca, além do tempo e dos nós explorados de {@code PathResult}.
+ *
+ * Relaxamentos contam os arcos examinados a partir de nós assentados (a cabeça ainda não
+ * assentada); cada um que melhora uma distância vira uma inserção no heap ou um decrease-key.
+ * Remoções obsoletas são as entradas repetidas que o heap sem decrease-key devolve para nós
+ * já visitados e que a busca descarta.
+ */
+public final class SearchStats {
+    public final String algorithm;
+    public final double timeMs;
+    public final int settledNodes;
+    public final long edgesRelaxed;
+    public final long heapPushes;
+    public final long heapPops;
+    public final long stalePops;
+    public final long decreaseKeys;
+    public final int peakFrontier;
+    /** Bytes alocados pela thread durante a busca, ou -1 se a JVM não informa. */
+    public final long allocatedBytes;
+
+    public SearchStats(String algorithm, double timeMs, int settledNodes, long edgesRelaxed, long heapPushes,
+                       long heapPops, long stalePops, long decreaseKeys, int peakFrontier, long allocatedBytes) {
+        this.algorithm = algorithm;
+        this.timeMs = timeMs;
+        this.settledNodes = settledNodes;
+        this.edgesRelaxed = edgesRelaxed;
+        this.heapPushes = heapPushes;
+        this.heapPops = heapPops;
+        this.stalePops = stalePops;
+        this.decreaseKeys = decreaseKeys;
+        this.peakFrontier = peakFrontier;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%s: %.3f ms, %d assentados, %d relaxamentos, heap %d inserções / %d remoções (%d obsoletas) / %d decrease-keys, fronteira máx. %d, %d bytes",
+                algorithm, timeMs, settledNodes, edgesRelaxed, heapPushes, heapPops, stalePops, decreaseKeys,
+                peakFrontier, allocatedBytes);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,286 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Simplifica o grafo colapsando cadeias de nós de grau 2.
+ *
+ * Os "shape points" das vias do OSM viram nós que não oferecem nenhuma decisão de
+ * rota: têm exatamente dois vizinhos e só permitem seguir em frente. Cada cadeia
+ * desses nós entre duas junções vira uma única aresta com o peso somado, e os pontos
+ * removidos ficam guardados na {@link EdgeGeometry} da nova aresta para que o desenho
+ * e a expansão do caminho ({@link Graph#getPathGeometry(List)}) mantenham a forma real da via.
+ *
+ * As junções mantêm seus IDs internos, então seleções e rotas continuam válidas.
+ *
+ * O {@link Graph} guarda uma aresta por par de nós, então uma cadeia que volta à própria
+ * junção, ou que liga duas junções já ligadas por outra aresta ou cadeia, não pode virar uma
+ * aresta só. Nesses casos um nó interno da cadeia (dois, no laço) é mantido como junção e a
+ * cadeia vira duas (três) arestas: nenhuma via é descartada e as distâncias entre junções
+ * são as mesmas do grafo original.
+ */
+public class ChainContractor {
+
+    private Graph source;
+    private Map<Integer, Set<Integer>> inNeighbors;
+    private Set<Integer> visited;
+    private List<Chain> chains;
+
+    /**
+     * Retorna um novo grafo contraído; o grafo original não é alterado.
+     */
+    public Graph contract(Graph graph) {
+        this.source = graph;
+        this.inNeighbors = buildInNeighbors(graph);
+        this.visited = new HashSet<>();
+        this.chains = new ArrayList<>();
+
+        Graph contracted = new Graph();
+
+        // Junções: todo nó que não pode ser colapsado
+        List<Integer> junctions = new ArrayList<>();
+        for (int nodeId : graph.getNodes().keySet()) {
+            if (!isContractible(nodeId)) junctions.add(nodeId);
+        }
+        for (int nodeId : junctions) {
+            copyNode(contracted, nodeId);
+        }
+        for (int junction : junctions) {
+            walkChainsFrom(contracted, junction);
+        }
+
+        // Anéis isolados compostos apenas por nós de grau 2 não alcançam nenhuma junção;
+        // promovemos dois nós vizinhos de cada anel para preservá-lo.
+        for (int nodeId : graph.getNodes().keySet()) {
+            if (visited.contains(nodeId) || contracted.getNodes().containsKey(nodeId)) continue;
+            int neighbor = graph.getAdj().get(nodeId).keySet().iterator().next();
+            copyNode(contracted, nodeId);
+            copyNode(contracted, neighbor);
+            walkChainsFrom(contracted, nodeId);
+            walkChainsFrom(contracted, neighbor);
+        }
+
+        // Arestas diretas primeiro: só as cadeias com nós internos podem ser divididas
+        for (Chain chain : chains) {
+            if (chain.interior.length == 0) emit(contracted, chain);
+        }
+        for (Chain chain : chains) {
+            if (chain.interior.length > 0) emit(contracted, chain);
+        }
+
+        this.source = null;
+        this.inNeighbors = null;
+        this.visited = null;
+        this.chains = null;
+        return contracted;
+    }
+
+    private static Map<Integer, Set<Integer>> buildInNeighbors(Graph graph) {
+        Map<Integer, Set<Integer>> in = new HashMap<>();
+        for (Map.Entry<Integer, Map<Integer, Edge>> entry : graph.getAdj().entrySet()) {
+            for (int v : entry.getValue().keySet()) {
+                in.computeIfAbsent(v, k -> new HashSet<>(4)).add(entry.getKey());
+            }
+        }
+        return in;
+    }
+
+    /**
+     * Um nó é colapsável quando só permite atravessá-lo: dois vizinhos ligados por
+     * arestas de mão dupla, ou uma entrada e uma saída de mão única em sequência.
+     */
+    private boolean isContractible(int nodeId) {
+        Map<Integer, Edge> out = source.getAdj().get(nodeId);
+        Set<Integer> in = inNeighbors.getOrDefault(nodeId, Collections.emptySet());
+        if (out == null) return false;
+
+        if (out.size() == 2 && in.size() == 2 && in.containsAll(out.keySet())) {
+            for (Edge edge : out.values()) {
+                if (edge.isDirected()) return false;
+            }
+            return !out.containsKey(nodeId);
+        }
+        if (out.size() == 1 && in.size() == 1) {
+            int next = out.keySet().iterator().next();
+            int prev = in.iterator().next();
+            if (next == prev || next == nodeId) return false;
+            Edge outEdge = out.get(next);
+            Edge inEdge = source.getAdj().get(prev).get(nodeId);
+            return outEdge.isDirected() && inEdge.isDirected();
+        }
+        return false;
+    }
+
+    /** Registra as cadeias que saem de {@code junction}; as arestas só são criadas em {@link #emit}. */
+    private void walkChainsFrom(Graph contracted, int junction) {
+        for (Edge first : source.getAdj().get(junction).values()) {
+            PointBuffer points = new PointBuffer();
+            double weight = first.getWeight();
+            boolean directed = first.isDirected();
+            points.appendGeometry(first.getGeometry());
+
+            List<Integer> interior = new ArrayList<>();
+            List<Double> weightAt = new ArrayList<>();
+            List<Integer> pointAt = new ArrayList<>();
+            int previous = junction;
+            int current = first.getV();
+            while (!contracted.getNodes().containsKey(current) && isContractible(current)) {
+                visited.add(current);
+                Node node = source.getNodes().get(current);
+                interior.add(current);
+                weightAt.add(weight);
+                pointAt.add(points.count);
+                points.add(node.getX(), node.getY());
+
+                Edge next = nextEdge(current, previous);
+                weight += next.getWeight();
+                points.appendGeometry(next.getGeometry());
+                previous = current;
+                current = next.getV();
+            }
+
+            // A mesma cadeia é percorrida a partir da outra ponta (ou, no laço, no outro sentido)
+            if (!directed && junction > current) continue;
+            if (!directed && junction == current && !interior.isEmpty()
+                    && interior.get(0) > interior.get(interior.size() - 1)) continue;
+            chains.add(new Chain(junction, current, directed, weight, points, interior, weightAt, pointAt));
+        }
+    }
+
+    /**
+     * Cria a aresta da cadeia. Um laço é dividido em três arestas e uma cadeia paralela a uma
+     * aresta já criada, em duas, mantendo os nós internos do ponto de divisão como junções.
+     * Uma aresta do grafo original de um nó para ele mesmo é copiada como está.
+     */
+    private void emit(Graph contracted, Chain chain) {
+        int k = chain.interior.length;
+        if (chain.u == chain.v && k > 0) {
+            // Um laço tem ao menos dois nós internos: um só teria o mesmo vizinho dos dois lados
+            int first = k / 3;
+            split(contracted, chain, first, Math.max(first + 1, 2 * k / 3));
+        } else if (occupied(contracted, chain.u, chain.v, chain.directed)) {
+            split(contracted, chain, k / 2);
+        } else {
+            contracted.addEdge(chain.u, chain.v, chain.weight, chain.directed, chain.piece(-1, k));
+        }
+    }
+
+    /** Se a aresta u-v tomaria o lugar de uma já existente no grafo contraído. */
+    private static boolean occupied(Graph graph, int u, int v, boolean directed) {
+        return graph.getAdj().get(u).containsKey(v) || (!directed && graph.getAdj().get(v).containsKey(u));
+    }
+
+    /** Mantém os nós internos {@code cuts} (em ordem crescente) e cria uma aresta por trecho. */
+    private void split(Graph contracted, Chain chain, int... cuts) {
+        int from = -1;
+        for (int cut : cuts) {
+            copyNode(contracted, chain.interior[cut]);
+            addPiece(contracted, chain, from, cut);
+            from = cut;
+        }
+        addPiece(contracted, chain, from, chain.interior.length);
+    }
+
+    private static void addPiece(Graph contracted, Chain chain, int from, int to) {
+        contracted.addEdge(chain.nodeAt(from), chain.nodeAt(to), chain.weightAt(to) - chain.weightAt(from),
+                chain.directed, chain.piece(from, to));
+    }
+
+    private Edge nextEdge(int current, int previous) {
+        for (Edge edge : source.getAdj().get(current).values()) {
+            if (edge.getV() != previous) return edge;
+        }
+        throw new IllegalStateException("Nó " + current + " não possui continuação na cadeia.");
+    }
+
+    private void copyNode(Graph target, int nodeId) {
+        Node original = source.getNodes().get(nodeId);
+        Node copy = new Node(original.getIdInterno(), original.getX(), original.getY());
+        copy.setLabel(original.getLabel());
+        target.addNode(copy);
+    }
+
+    /**
+     * Cadeia entre as junções {@code u} e {@code v}, com seus nós internos. As posições
+     * -1 e {@code interior.length} são as pontas; {@code weightAt} e {@code pointAt} dão,
+     * para cada nó interno, o peso acumulado desde {@code u} e a posição do nó em {@code points}.
+     */
+    private static final class Chain {
+        final int u, v;
+        final boolean directed;
+        final double weight;
+        final PointBuffer points;
+        final int[] interior;
+        final double[] weightAt;
+        final int[] pointAt;
+
+        Chain(int u, int v, boolean directed, double weight, PointBuffer points,
+              List<Integer> interior, List<Double> weightAt, List<Integer> pointAt) {
+            this.u = u;
+            this.v = v;
+            this.directed = directed;
+            this.weight = weight;
+            this.points = points;
+            this.interior = new int[interior.size()];
+            this.weightAt = new double[interior.size()];
+            this.pointAt = new int[interior.size()];
+            for (int i = 0; i < this.interior.length; i++) {
+                this.interior[i] = interior.get(i);
+                this.weightAt[i] = weightAt.get(i);
+                this.pointAt[i] = pointAt.get(i);
+            }
+        }
+
+        int nodeAt(int position) {
+            if (position < 0) return u;
+            return position < interior.length ? interior[position] : v;
+        }
+
+        double weightAt(int position) {
+            if (position < 0) return 0;
+            return position < interior.length ? weightAt[position] : weight;
+        }
+
+        /** Geometria do trecho entre duas posições, sem os pontos das próprias pontas. */
+        EdgeGeometry piece(int from, int to) {
+            int start = from < 0 ? 0 : pointAt[from] + 1;
+            int end = to < interior.length ? pointAt[to] : points.count;
+            return points.toGeometry(start, end);
+        }
+    }
+
+    /** Acumulador de coordenadas intermediárias de uma cadeia. */
+    private static final class PointBuffer {
+        private double[] xs = new double[8];
+        private double[] ys = new double[8];
+        private int count;
+
+        void add(double x, double y) {
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                ys = Arrays.copyOf(ys, count * 2);
+            }
+            xs[count] = x;
+            ys[count] = y;
+            count++;
+        }
+
+        void appendGeometry(EdgeGeometry geometry) {
+            if (geometry == null) return;
+            double[] inner = geometry.toArray();
+            for (int i = 0; i < inner.length; i += 2) add(inner[i], inner[i + 1]);
+        }
+
+        EdgeGeometry toGeometry(int from, int to) {
+            if (from == 0) return EdgeGeometry.encode(xs, ys, to);
+            return EdgeGeometry.encode(Arrays.copyOfRange(xs, from, to), Arrays.copyOfRange(ys, from, to), to - from);
+        }
+    }
+}
@@ -5,14 +5,19 @@ public class Edge {
     private int v; // Nó de destino (ID interno)
     private double weight; // Peso (distância)
     private boolean isDirected; // Indica se é mão única
-    private String label; // Rótulo para exibição
+    private String label; // Rótulo para exibição (formatado só quando pedido)
+    private EdgeGeometry geometry; // Pontos intermediários (cadeias contraídas), pode ser null
 
     public Edge(int u, int v, double weight, boolean isDirected) {
+        this(u, v, weight, isDirected, null);
+    }
+
+    public Edge(int u, int v, double weight, boolean isDirected, EdgeGeometry geometry) {
         this.u = u;
         this.v = v;
         this.weight = weight;
         this.isDirected = isDirected;
-        this.label = String.format("%.1f", weight);
+        this.geometry = geometry;
     }
 
     // Getters
@@ -20,5 +25,10 @@ public class Edge {
     public int getV() { return v; }
     public double getWeight() { return weight; }
     public boolean isDirected() { return isDirected; }
-    public String getLabel() { return label; }
+    public String getLabel() {
+        // Formatar no construtor custava um String.format por aresta carregada
+        if (label == null) label = String.format("%.1f", weight);
+        return label;
+    }
+    public EdgeGeometry getGeometry() { return geometry; }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Polilinha compacta com os pontos intermediários de uma aresta (sem as extremidades).
+ *
+ * As coordenadas são quantizadas em inteiros (fator SCALE) e gravadas como deltas
+ * zig-zag em varint, de modo que uma cadeia longa de pontos próximos ocupa poucos
+ * bytes por ponto. A orientação segue a aresta u -> v em que foi criada; a aresta
+ * reversa de uma via de mão dupla usa {@link #reversed()}, que compartilha os bytes.
+ */
+public final class EdgeGeometry {
+    /** 1e7 preserva ~1 cm em graus de lat/lon, mais do que suficiente para desenho. */
+    public static final double SCALE = 1e7;
+
+    private final byte[] data;
+    private final int pointCount;
+    private final boolean reversed;
+
+    private EdgeGeometry(byte[] data, int pointCount, boolean reversed) {
+        this.data = data;
+        this.pointCount = pointCount;
+        this.reversed = reversed;
+    }
+
+    /**
+     * Codifica os {@code count} primeiros pontos de {@code xs}/{@code ys}.
+     * Retorna null quando não há pontos intermediários.
+     */
+    public static EdgeGeometry encode(double[] xs, double[] ys, int count) {
+        if (count == 0) return null;
+        byte[] buffer = new byte[count * 2 * 10];
+        int pos = 0;
+        long prevX = 0, prevY = 0;
+        for (int i = 0; i < count; i++) {
+            long qx = Math.round(xs[i] * SCALE);
+            long qy = Math.round(ys[i] * SCALE);
+            pos = writeVarLong(buffer, pos, zigZag(qx - prevX));
+            pos = writeVarLong(buffer, pos, zigZag(qy - prevY));
+            prevX = qx;
+            prevY = qy;
+        }
+        return new EdgeGeometry(Arrays.copyOf(buffer, pos), count, false);
+    }
+
+    /** Mesma polilinha percorrida no sentido oposto (sem copiar os dados). */
+    public EdgeGeometry reversed() {
+        return new EdgeGeometry(data, pointCount, !reversed);
+    }
+
+    public int size() { return pointCount; }
+
+    /** Tamanho codificado em bytes. */
+    public int getEncodedBytes() { return data.length; }
+
+    /**
+     * Decodifica os pontos no sentido da aresta como [x0, y0, x1, y1, ...].
+     */
+    public double[] toArray() {
+        double[] points = new double[pointCount * 2];
+        int pos = 0;
+        long x = 0, y = 0;
+        long[] holder = new long[1];
+        for (int i = 0; i < pointCount; i++) {
+            pos = readVarLong(data, pos, holder);
+            x += unZigZag(holder[0]);
+            pos = readVarLong(data, pos, holder);
+            y += unZigZag(holder[0]);
+            int target = reversed ? (pointCount - 1 - i) : i;
+            points[target * 2] = x / SCALE;
+            points[target * 2 + 1] = y / SCALE;
+        }
+        return points;
+    }
+
+    private static long zigZag(long v) { return (v << 1) ^ (v >> 63); }
+    private static long unZigZag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    private static int writeVarLong(byte[] buffer, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int readVarLong(byte[] buffer, int pos, long[] out) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        out[0] = result;
+        return pos;
+    }
+}
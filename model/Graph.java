@@ -1,5 +1,10 @@
 package model;
 
+import metrics.RouteQueryEvent;
+import metrics.SearchListener;
+import metrics.SearchMetrics;
+import metrics.SearchStats;
+
 import java.util.*;
 
 public class Graph {
@@ -7,6 +12,11 @@ public class Graph {
     private Map<Integer, Map<Integer, Edge>> adj;
     private int numVertices;
     private int numEdges;
+    // Incrementado a cada mudança estrutural; quem guarda dados derivados (snapshots) compara
+    private int modCount;
+    // Entre beginUpdate() e endUpdate() as mudanças só são anotadas, e o modCount muda uma vez no fim
+    private int updateDepth;
+    private boolean changedDuringUpdate;
 
     public Graph() {
         this.nodes = new HashMap<>();
@@ -15,15 +25,52 @@ public class Graph {
         this.numEdges = 0;
     }
 
+    /**
+     * Grafo com os mapas já dimensionados para {@code expectedNodes} nós, evitando
+     * o rehash repetido durante cargas grandes.
+     */
+    public Graph(int expectedNodes) {
+        int capacity = (int) Math.min(1 << 30, (long) (expectedNodes / 0.75f) + 1);
+        this.nodes = new HashMap<>(capacity);
+        this.adj = new HashMap<>(capacity);
+        this.numVertices = 0;
+        this.numEdges = 0;
+    }
+
+    /**
+     * Carga em massa usada pelo {@link GraphBuilder}: nós únicos e arcos já validados
+     * e sem duplicatas, sem nenhuma das verificações de {@link #addEdge}.
+     */
+    void bulkLoad(Node[] newNodes, Edge[][] outgoing, int conceptualEdges) {
+        for (int i = 0; i < newNodes.length; i++) {
+            Map<Integer, Edge> out = new HashMap<>((int) (outgoing[i].length / 0.75f) + 1);
+            for (Edge edge : outgoing[i]) out.put(edge.getV(), edge);
+            nodes.put(newNodes[i].getIdInterno(), newNodes[i]);
+            adj.put(newNodes[i].getIdInterno(), out);
+        }
+        numVertices += newNodes.length;
+        numEdges += conceptualEdges;
+        changed();
+    }
+
     public void addNode(Node node) {
         if (!nodes.containsKey(node.getIdInterno())) {
             nodes.put(node.getIdInterno(), node);
             adj.put(node.getIdInterno(), new HashMap<>());
             numVertices++;
+            changed();
         }
     }
 
     public void addEdge(int uId, int vId, double weight, boolean isDirected) {
+        addEdge(uId, vId, weight, isDirected, null);
+    }
+
+    /**
+     * Adiciona uma aresta com geometria intermediária (orientada de uId para vId).
+     * A aresta reversa de uma via de mão dupla recebe a mesma geometria invertida.
+     */
+    public void addEdge(int uId, int vId, double weight, boolean isDirected, EdgeGeometry geometry) {
         if (!nodes.containsKey(uId) || !nodes.containsKey(vId)) {
             return;
         }
@@ -36,14 +83,15 @@ public class Graph {
             return; // Já existe, não faz nada
         }
         
-        Edge edge = new Edge(uId, vId, weight, isDirected);
+        Edge edge = new Edge(uId, vId, weight, isDirected, geometry);
         adj.get(uId).put(vId, edge);
         
         if (!isDirected) {
-            Edge reverseEdge = new Edge(vId, uId, weight, false);
+            Edge reverseEdge = new Edge(vId, uId, weight, false, geometry != null ? geometry.reversed() : null);
             adj.get(vId).put(uId, reverseEdge);
         }
         numEdges++; // Incrementa apenas uma vez por aresta conceitual
+        changed();
     }
 
     // MÉTODO ATUALIZADO para corrigir a contagem de arestas na remoção de nós
@@ -80,8 +128,29 @@ public class Graph {
         adj.remove(nodeId);
         nodes.remove(nodeId);
         numVertices--;
+        changed();
     }
     
+    /**
+     * Remove um nó cujas arestas incidentes já foram removidas pelo chamador.
+     * Evita a varredura de todas as listas de adjacência feita por {@link #removeNode(int)},
+     * para quem já conhece a vizinhança (ex.: descarte de blocos no TileManager).
+     */
+    public boolean removeDetachedNode(int nodeId) {
+        if (!nodes.containsKey(nodeId)) {
+            return false;
+        }
+        Map<Integer, Edge> outgoing = adj.get(nodeId);
+        if (outgoing != null && !outgoing.isEmpty()) {
+            throw new IllegalStateException("Nó " + nodeId + " ainda possui arestas de saída.");
+        }
+        adj.remove(nodeId);
+        nodes.remove(nodeId);
+        numVertices--;
+        changed();
+        return true;
+    }
+
     public boolean removeEdge(int uId, int vId) {
         if (!adj.containsKey(uId) || !adj.get(uId).containsKey(vId)) {
             return false;
@@ -97,6 +166,7 @@ public class Graph {
         }
         
         numEdges--;
+        changed();
         return true;
     }
 
@@ -105,12 +175,19 @@ public class Graph {
             return new PathResult(new ArrayList<>(), Double.POSITIVE_INFINITY, 0, 0);
         }
 
+        RouteQueryEvent event = RouteQueryEvent.start("Graph.dijkstra");
+        SearchListener listener = SearchMetrics.getListener();
+        boolean measuring = listener != SearchListener.NONE;
+        long allocatedBefore = measuring ? SearchMetrics.currentThreadAllocatedBytes() : 0;
         long startTime = System.nanoTime();
         Map<Integer, Double> distances = new HashMap<>();
         Map<Integer, Integer> predecessors = new HashMap<>();
         PriorityQueue<DijkstraNode> pq = new PriorityQueue<>(Comparator.comparingDouble(DijkstraNode::getDistance));
         Set<Integer> visited = new HashSet<>();
         int nodesExploredCount = 0;
+        // Contadores locais: custam quase nada mesmo com a coleta desligada
+        long relaxed = 0, pushes = 1, pops = 0, stalePops = 0;
+        int peakFrontier = 1;
 
         for (int nodeId : nodes.keySet()) {
             distances.put(nodeId, Double.POSITIVE_INFINITY);
@@ -121,8 +198,10 @@ public class Graph {
         while (!pq.isEmpty()) {
             DijkstraNode currentDNode = pq.poll();
             int currentNodeId = currentDNode.getNodeId();
+            pops++;
 
             if (visited.contains(currentNodeId)) {
+                stalePops++;
                 continue;
             }
 
@@ -138,6 +217,7 @@ public class Graph {
             for (Edge edge : adj.get(currentNodeId).values()) {
                 int neighborId = edge.getV();
                 if (visited.contains(neighborId)) continue;
+                relaxed++;
                 
                 double newDist = distances.get(currentNodeId) + edge.getWeight();
 
@@ -145,6 +225,8 @@ public class Graph {
                     distances.put(neighborId, newDist);
                     predecessors.put(neighborId, currentNodeId);
                     pq.add(new DijkstraNode(neighborId, newDist));
+                    pushes++;
+                    if (pq.size() > peakFrontier) peakFrontier = pq.size();
                 }
             }
         }
@@ -164,13 +246,79 @@ public class Graph {
             Collections.reverse(path);
         }
         
-        return new PathResult(path, totalCost, processingTimeMs, nodesExploredCount);
+        SearchStats stats = null;
+        if (measuring) {
+            // Sem decrease-key: cada melhora é uma nova inserção, e as antigas saem como obsoletas
+            stats = new SearchStats("Graph.dijkstra", processingTimeMs, nodesExploredCount, relaxed, pushes, pops,
+                    stalePops, 0, peakFrontier, SearchMetrics.allocatedSince(allocatedBefore));
+            listener.searchCompleted(stats);
+        }
+        event.finish(startNodeId, endNodeId, totalCost, path.size(), nodesExploredCount);
+        return new PathResult(path, totalCost, processingTimeMs, nodesExploredCount, stats);
     }
+
     
+    /**
+     * Expande um caminho (sequência de IDs de nós) na geometria completa da rota,
+     * incluindo os pontos intermediários das arestas contraídas.
+     * Retorna as coordenadas como [x0, y0, x1, y1, ...].
+     */
+    public double[] getPathGeometry(List<Integer> path) {
+        if (path == null || path.isEmpty()) return new double[0];
+        int capacity = path.size() * 2;
+        for (int i = 0; i < path.size() - 1; i++) {
+            Map<Integer, Edge> out = adj.get(path.get(i));
+            Edge edge = out != null ? out.get(path.get(i + 1)) : null;
+            if (edge != null && edge.getGeometry() != null) capacity += edge.getGeometry().size() * 2;
+        }
+
+        double[] points = new double[capacity];
+        int pos = 0;
+        for (int i = 0; i < path.size(); i++) {
+            Node node = nodes.get(path.get(i));
+            if (node == null) continue;
+            points[pos++] = node.getX();
+            points[pos++] = node.getY();
+            if (i == path.size() - 1) break;
+            Map<Integer, Edge> out = adj.get(path.get(i));
+            Edge edge = out != null ? out.get(path.get(i + 1)) : null;
+            if (edge != null && edge.getGeometry() != null) {
+                double[] inner = edge.getGeometry().toArray();
+                System.arraycopy(inner, 0, points, pos, inner.length);
+                pos += inner.length;
+            }
+        }
+        return pos == points.length ? points : Arrays.copyOf(points, pos);
+    }
+
+    /**
+     * Agrupa as mudanças até o {@link #endUpdate()} correspondente: o {@link #getModCount()}
+     * muda uma única vez no fim, e quem guarda dados derivados (snapshot, grade do desenho)
+     * os refaz uma vez por lote em vez de uma vez por nó ou aresta. Pode ser aninhado.
+     */
+    public void beginUpdate() {
+        updateDepth++;
+    }
+
+    public void endUpdate() {
+        if (updateDepth == 0) throw new IllegalStateException("endUpdate() sem beginUpdate().");
+        if (--updateDepth == 0 && changedDuringUpdate) {
+            changedDuringUpdate = false;
+            modCount++;
+        }
+    }
+
+    private void changed() {
+        if (updateDepth > 0) changedDuringUpdate = true;
+        else modCount++;
+    }
+
     // Getters
     public Map<Integer, Node> getNodes() { return nodes; }
     public int getNumVertices() { return numVertices; }
     public int getNumEdges() { return numEdges; }
+    /** Contador de modificações: muda sempre que nós ou arestas são adicionados ou removidos. */
+    public int getModCount() { return modCount; }
     public Map<Integer, Map<Integer, Edge>> getAdj() { return adj; }
 
     // Classes aninhadas
@@ -190,12 +338,19 @@ public class Graph {
         public final double totalCost;
         public final double processingTimeMs;
         public final int nodesExplored;
+        /** Detalhes da busca, ou null se a coleta ({@link SearchMetrics}) estava desligada. */
+        public final SearchStats stats;
 
         public PathResult(List<Integer> path, double totalCost, double processingTimeMs, int nodesExplored) {
+            this(path, totalCost, processingTimeMs, nodesExplored, null);
+        }
+
+        public PathResult(List<Integer> path, double totalCost, double processingTimeMs, int nodesExplored, SearchStats stats) {
             this.path = path;
             this.totalCost = totalCost;
             this.processingTimeMs = processingTimeMs;
             this.nodesExplored = nodesExplored;
+            this.stats = stats;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,346 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Construção em massa de grafos para os carregadores de arquivo.
+ *
+ * Nós e arestas são acumulados em arrays primitivos pré-dimensionados, sem
+ * nenhuma consulta a mapas por aresta. Toda a validação fica para o
+ * {@link #buildGraph()} / {@link #buildSnapshot()}, que ordenam uma única vez e
+ * resolvem IDs, duplicatas e arestas com extremidades inexistentes.
+ *
+ * As regras são as mesmas de {@link Graph#addNode(Node)} e
+ * {@link Graph#addEdge(int, int, double, boolean)} chamados na ordem de inserção:
+ * o primeiro nó com um ID vence, uma aresta u -> v é ignorada se o arco u -> v
+ * já existe, e uma aresta de mão dupla grava também o arco reverso.
+ */
+public class GraphBuilder {
+    private int nodeCount;
+    private int[] nodeIds;
+    private double[] nodeXs;
+    private double[] nodeYs;
+    private String[] nodeLabels;          // alocado só se algum nó tiver rótulo
+
+    private int edgeCount;
+    private int[] edgeU;
+    private int[] edgeV;
+    private double[] edgeWeights;         // NaN = calcular pela distância euclidiana
+    private boolean[] edgeDirected;
+    private EdgeGeometry[] edgeGeometries; // alocado só se alguma aresta tiver geometria
+
+    private double euclideanScale = 1.0;
+    private double minimumWeight = 0.0;
+
+    private int duplicateNodes;
+    private int duplicateEdges;
+    private int droppedEdges;
+
+    public GraphBuilder(int expectedNodes, int expectedEdges) {
+        int nodes = Math.max(16, expectedNodes);
+        int edges = Math.max(16, expectedEdges);
+        this.nodeIds = new int[nodes];
+        this.nodeXs = new double[nodes];
+        this.nodeYs = new double[nodes];
+        this.edgeU = new int[edges];
+        this.edgeV = new int[edges];
+        this.edgeWeights = new double[edges];
+        this.edgeDirected = new boolean[edges];
+    }
+
+    /**
+     * Pesos das arestas adicionadas sem peso: distância euclidiana vezes {@code scale};
+     * pesos que dariam zero viram {@code minimumWeight}.
+     */
+    public GraphBuilder euclideanWeights(double scale, double minimumWeight) {
+        this.euclideanScale = scale;
+        this.minimumWeight = minimumWeight;
+        return this;
+    }
+
+    /** Adiciona um nó e retorna sua posição no builder (para {@link #nodeX(int)} / {@link #nodeY(int)}). */
+    public int addNode(int id, double x, double y) {
+        if (nodeCount == nodeIds.length) growNodes(nodeCount * 2);
+        nodeIds[nodeCount] = id;
+        nodeXs[nodeCount] = x;
+        nodeYs[nodeCount] = y;
+        return nodeCount++;
+    }
+
+    public int addNode(int id, double x, double y, String label) {
+        int slot = addNode(id, x, y);
+        if (label != null) {
+            if (nodeLabels == null) nodeLabels = new String[nodeIds.length];
+            nodeLabels[slot] = label;
+        }
+        return slot;
+    }
+
+    /** Adiciona {@code count} nós de uma vez a partir de arrays paralelos. */
+    public void addNodes(int[] ids, double[] xs, double[] ys, int count) {
+        if (nodeCount + count > nodeIds.length) growNodes(Math.max(nodeCount + count, nodeIds.length * 2));
+        System.arraycopy(ids, 0, nodeIds, nodeCount, count);
+        System.arraycopy(xs, 0, nodeXs, nodeCount, count);
+        System.arraycopy(ys, 0, nodeYs, nodeCount, count);
+        nodeCount += count;
+    }
+
+    public double nodeX(int slot) { return nodeXs[slot]; }
+    public double nodeY(int slot) { return nodeYs[slot]; }
+
+    public void addEdge(int uId, int vId, double weight, boolean isDirected) {
+        if (edgeCount == edgeU.length) growEdges(edgeCount * 2);
+        edgeU[edgeCount] = uId;
+        edgeV[edgeCount] = vId;
+        edgeWeights[edgeCount] = weight;
+        edgeDirected[edgeCount] = isDirected;
+        edgeCount++;
+    }
+
+    public void addEdge(int uId, int vId, double weight, boolean isDirected, EdgeGeometry geometry) {
+        addEdge(uId, vId, weight, isDirected);
+        if (geometry != null) {
+            if (edgeGeometries == null) edgeGeometries = new EdgeGeometry[edgeU.length];
+            edgeGeometries[edgeCount - 1] = geometry;
+        }
+    }
+
+    /** Aresta cujo peso será a distância euclidiana entre as extremidades (ver {@link #euclideanWeights}). */
+    public void addEdge(int uId, int vId, boolean isDirected) {
+        addEdge(uId, vId, Double.NaN, isDirected);
+    }
+
+    /** Adiciona {@code count} arestas de uma vez; {@code weights} pode ser null (pesos euclidianos). */
+    public void addEdges(int[] us, int[] vs, double[] weights, boolean[] directed, int count) {
+        if (edgeCount + count > edgeU.length) growEdges(Math.max(edgeCount + count, edgeU.length * 2));
+        System.arraycopy(us, 0, edgeU, edgeCount, count);
+        System.arraycopy(vs, 0, edgeV, edgeCount, count);
+        if (weights != null) System.arraycopy(weights, 0, edgeWeights, edgeCount, count);
+        else Arrays.fill(edgeWeights, edgeCount, edgeCount + count, Double.NaN);
+        System.arraycopy(directed, 0, edgeDirected, edgeCount, count);
+        edgeCount += count;
+    }
+
+    /** Garante espaço para mais {@code edges} arestas (ex.: quando a contagem só é conhecida depois dos nós). */
+    public void ensureEdgeCapacity(int edges) {
+        if (edgeCount + edges > edgeU.length) growEdges(edgeCount + edges);
+    }
+
+    public int getNodeCount() { return nodeCount; }
+    public int getEdgeCount() { return edgeCount; }
+
+    /** Nós descartados no último build por repetirem um ID. */
+    public int getDuplicateNodes() { return duplicateNodes; }
+    /** Arestas descartadas no último build porque o arco já existia. */
+    public int getDuplicateEdges() { return duplicateEdges; }
+    /** Arestas descartadas no último build por referenciarem nós inexistentes. */
+    public int getDroppedEdges() { return droppedEdges; }
+
+    private void growNodes(int capacity) {
+        nodeIds = Arrays.copyOf(nodeIds, capacity);
+        nodeXs = Arrays.copyOf(nodeXs, capacity);
+        nodeYs = Arrays.copyOf(nodeYs, capacity);
+        if (nodeLabels != null) nodeLabels = Arrays.copyOf(nodeLabels, capacity);
+    }
+
+    private void growEdges(int capacity) {
+        edgeU = Arrays.copyOf(edgeU, capacity);
+        edgeV = Arrays.copyOf(edgeV, capacity);
+        edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+        edgeDirected = Arrays.copyOf(edgeDirected, capacity);
+        if (edgeGeometries != null) edgeGeometries = Arrays.copyOf(edgeGeometries, capacity);
+    }
+
+    // ------------------------------------------------------------------
+    // Build
+    // ------------------------------------------------------------------
+
+    /** Monta um {@link Graph} com mapas já dimensionados pelo grau final de cada nó. */
+    public Graph buildGraph() {
+        Resolved r = resolve();
+        int n = r.ids.length;
+        Node[] nodes = new Node[n];
+        for (int i = 0; i < n; i++) {
+            int slot = r.slots[i];
+            nodes[i] = new Node(r.ids[i], nodeXs[slot], nodeYs[slot]);
+            if (nodeLabels != null && nodeLabels[slot] != null) nodes[i].setLabel(nodeLabels[slot]);
+        }
+        Edge[][] outgoing = new Edge[n][];
+        for (int i = 0; i < n; i++) outgoing[i] = new Edge[r.firstOut[i + 1] - r.firstOut[i]];
+        for (int i = 0; i < n; i++) {
+            for (int arc = r.firstOut[i]; arc < r.firstOut[i + 1]; arc++) {
+                EdgeGeometry geometry = r.geometry != null ? r.geometry[arc] : null;
+                outgoing[i][arc - r.firstOut[i]] = new Edge(r.ids[i], r.ids[r.head[arc]], r.weight[arc], r.directed[arc], geometry);
+            }
+        }
+        Graph graph = new Graph(n);
+        graph.bulkLoad(nodes, outgoing, r.conceptualEdges);
+        return graph;
+    }
+
+    /**
+     * Monta diretamente o snapshot CSR, sem criar objetos por nó ou aresta.
+     * A geometria das arestas não faz parte do snapshot.
+     */
+    public GraphSnapshot buildSnapshot() {
+        Resolved r = resolve();
+        int n = r.ids.length;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = nodeXs[r.slots[i]];
+            ys[i] = nodeYs[r.slots[i]];
+        }
+        return new GraphSnapshot(r.ids, xs, ys, r.firstOut, r.head, r.weight, r.directed);
+    }
+
+    /** Nós únicos em ordem de ID e arcos finais agrupados pelo nó de origem (CSR). */
+    private static final class Resolved {
+        int[] ids;
+        int[] slots;
+        int[] firstOut;
+        int[] head;
+        double[] weight;
+        boolean[] directed;
+        EdgeGeometry[] geometry;
+        int conceptualEdges;
+    }
+
+    private Resolved resolve() {
+        duplicateNodes = 0;
+        duplicateEdges = 0;
+        droppedEdges = 0;
+
+        // 1. Nós: ordena (id, posição) e mantém a primeira ocorrência de cada ID
+        long[] nodeKeys = new long[nodeCount];
+        for (int i = 0; i < nodeCount; i++) nodeKeys[i] = ((long) nodeIds[i] << 32) | i;
+        Arrays.sort(nodeKeys);
+        int[] ids = new int[nodeCount];
+        int[] slots = new int[nodeCount];
+        int n = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            int id = (int) (nodeKeys[i] >> 32);
+            if (n > 0 && ids[n - 1] == id) { duplicateNodes++; continue; }
+            ids[n] = id;
+            slots[n] = (int) nodeKeys[i];
+            n++;
+        }
+        ids = Arrays.copyOf(ids, n);
+        slots = Arrays.copyOf(slots, n);
+
+        // 2. Extremidades em índices densos; arestas com nós inexistentes são descartadas
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        int[] bucketStart = new int[n + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            from[e] = Arrays.binarySearch(ids, edgeU[e]);
+            to[e] = Arrays.binarySearch(ids, edgeV[e]);
+            if (from[e] < 0 || to[e] < 0) { droppedEdges++; from[e] = -1; continue; }
+            bucketStart[Math.min(from[e], to[e]) + 1]++;
+        }
+
+        // 3. Agrupa pelo par não ordenado {u, v}: contagem pelo menor índice e,
+        //    dentro de cada balde, ordenação por (maior índice, ordem de inserção)
+        for (int i = 0; i < n; i++) bucketStart[i + 1] += bucketStart[i];
+        long[] pairKeys = new long[bucketStart[n]];
+        int[] fill = Arrays.copyOf(bucketStart, n);
+        for (int e = 0; e < edgeCount; e++) {
+            if (from[e] < 0) continue;
+            pairKeys[fill[Math.min(from[e], to[e])]++] = ((long) Math.max(from[e], to[e]) << 32) | e;
+        }
+        for (int i = 0; i < n; i++) {
+            if (bucketStart[i + 1] - bucketStart[i] > 1) Arrays.sort(pairKeys, bucketStart[i], bucketStart[i + 1]);
+        }
+
+        // 4. Reproduz addEdge dentro de cada par: no máximo dois arcos (u -> v e v -> u)
+        int maxArcs = 2 * pairKeys.length;
+        int[] arcTail = new int[maxArcs];
+        int[] arcHead = new int[maxArcs];
+        double[] arcWeight = new double[maxArcs];
+        boolean[] arcDirected = new boolean[maxArcs];
+        EdgeGeometry[] arcGeometry = edgeGeometries != null ? new EdgeGeometry[maxArcs] : null;
+        int arcs = 0;
+        int conceptual = 0;
+        int k = 0;
+        while (k < pairKeys.length) {
+            int low = Math.min(from[(int) pairKeys[k]], to[(int) pairKeys[k]]);
+            int high = (int) (pairKeys[k] >>> 32);
+            int groupEnd = k;
+            while (groupEnd < pairKeys.length && (int) (pairKeys[groupEnd] >>> 32) == high
+                    && Math.min(from[(int) pairKeys[groupEnd]], to[(int) pairKeys[groupEnd]]) == low) {
+                groupEnd++;
+            }
+            // Arco low -> high na posição 0 e high -> low na posição 1 (laço: só a posição 0)
+            int[] edgeOf = { -1, -1 };
+            boolean[] reversed = new boolean[2];
+            for (int g = k; g < groupEnd; g++) {
+                int e = (int) pairKeys[g];
+                int forwardSlot = from[e] == low ? 0 : 1;
+                if (edgeOf[forwardSlot] >= 0) { duplicateEdges++; continue; }
+                edgeOf[forwardSlot] = e;
+                reversed[forwardSlot] = false;
+                if (!edgeDirected[e]) {
+                    int backSlot = low == high ? 0 : 1 - forwardSlot;
+                    edgeOf[backSlot] = e;
+                    reversed[backSlot] = true;
+                }
+                conceptual++;
+            }
+            for (int slot = 0; slot < (low == high ? 1 : 2); slot++) {
+                int e = edgeOf[slot];
+                if (e < 0) continue;
+                int tail = slot == 0 ? low : high;
+                int head = slot == 0 ? high : low;
+                arcTail[arcs] = tail;
+                arcHead[arcs] = head;
+                arcWeight[arcs] = weightOf(e, slots[from[e]], slots[to[e]]);
+                arcDirected[arcs] = edgeDirected[e];
+                if (arcGeometry != null && edgeGeometries[e] != null) {
+                    arcGeometry[arcs] = reversed[slot] ? edgeGeometries[e].reversed() : edgeGeometries[e];
+                }
+                arcs++;
+            }
+            k = groupEnd;
+        }
+
+        // 5. CSR pelo nó de origem
+        Resolved r = new Resolved();
+        r.ids = ids;
+        r.slots = slots;
+        r.conceptualEdges = conceptual;
+        r.firstOut = new int[n + 1];
+        for (int a = 0; a < arcs; a++) r.firstOut[arcTail[a] + 1]++;
+        for (int i = 0; i < n; i++) r.firstOut[i + 1] += r.firstOut[i];
+        r.head = new int[arcs];
+        r.weight = new double[arcs];
+        r.directed = new boolean[arcs];
+        r.geometry = arcGeometry != null ? new EdgeGeometry[arcs] : null;
+        int[] next = Arrays.copyOf(r.firstOut, n);
+        for (int a = 0; a < arcs; a++) {
+            int pos = next[arcTail[a]]++;
+            r.head[pos] = arcHead[a];
+            r.weight[pos] = arcWeight[a];
+            r.directed[pos] = arcDirected[a];
+            if (r.geometry != null) r.geometry[pos] = arcGeometry[a];
+        }
+        return r;
+    }
+
+    /** Peso informado ou, se NaN, a distância euclidiana entre os nós (mesma conta dos leitores). */
+    private double weightOf(int edge, int uSlot, int vSlot) {
+        double weight = edgeWeights[edge];
+        if (!Double.isNaN(weight)) return weight;
+        return euclideanWeight(nodeXs[uSlot], nodeYs[uSlot], nodeXs[vSlot], nodeYs[vSlot], euclideanScale, minimumWeight);
+    }
+
+    /**
+     * Distância euclidiana vezes {@code scale}, ou {@code minimumWeight} se der zero: a conta de
+     * {@link #euclideanWeights}, para quem cria arestas fora do builder com os mesmos pesos.
+     */
+    public static double euclideanWeight(double x1, double y1, double x2, double y2, double scale, double minimumWeight) {
+        double weight = Math.sqrt(Math.pow(x1 - x2, 2) + Math.pow(y1 - y2, 2));
+        weight *= scale;
+        if (weight == 0) weight = minimumWeight;
+        return weight;
+    }
+}
@@ -0,0 +1,269 @@
+package model;
+
+import io.PolyReader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Gerador de grafos sintéticos parecidos com malhas viárias, para testes de escala.
+ *
+ * Duas topologias:
+ * <ul>
+ *   <li>{@link Topology#GRID}: grade com os nós deslocados aleatoriamente da posição ideal
+ *       ({@link #jitter}) e parte dos quarteirões sem rua ({@link #missingEdgeRatio});</li>
+ *   <li>{@link Topology#GEOMETRIC}: pontos uniformes num quadrado, ligados a todos os vizinhos
+ *       dentro de um raio escolhido para dar o {@link #averageDegree} pedido.</li>
+ * </ul>
+ * Nos dois casos a densidade é de um nó por {@code spacing²} e as coordenadas ficam na
+ * mesma escala dos .poly de {@code Mapas/} (arestas de ~20 unidades). Uma fração
+ * {@link #onewayRatio} das ruas vira mão única, com sentido sorteado.
+ *
+ * A mesma configuração e a mesma semente geram sempre o mesmo grafo, na mesma ordem.
+ * O resultado fica em arrays primitivos e pode ir para o {@link GraphBuilder} (e dali para
+ * {@link Graph} ou {@link GraphSnapshot}) ou direto para um arquivo .poly, sem passar por
+ * objetos por nó: é o que permite gerar milhões de nós com pouca memória.
+ */
+public class GraphGenerator {
+    public enum Topology { GRID, GEOMETRIC }
+
+    private final Topology topology;
+    private final int nodeCount;
+    private long seed = 1;
+    private double onewayRatio = 0.2;
+    private double spacing = 20.0;
+    private double jitter = 0.3;
+    private double missingEdgeRatio = 0.15;
+    private double averageDegree = 5.0;
+
+    public GraphGenerator(Topology topology, int nodeCount) {
+        if (nodeCount < 1) throw new IllegalArgumentException("O grafo precisa de pelo menos um nó: " + nodeCount);
+        this.topology = topology;
+        this.nodeCount = nodeCount;
+    }
+
+    public GraphGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /** Fração das ruas em mão única, entre 0 e 1. */
+    public GraphGenerator onewayRatio(double ratio) {
+        this.onewayRatio = checkRatio("onewayRatio", ratio);
+        return this;
+    }
+
+    /** Distância média entre nós vizinhos. */
+    public GraphGenerator spacing(double spacing) {
+        if (!(spacing > 0)) throw new IllegalArgumentException("spacing deve ser positivo: " + spacing);
+        this.spacing = spacing;
+        return this;
+    }
+
+    /** Grade: deslocamento máximo de cada nó, em frações de {@code spacing} (0 = grade perfeita). */
+    public GraphGenerator jitter(double jitter) {
+        this.jitter = checkRatio("jitter", jitter);
+        return this;
+    }
+
+    /** Grade: fração das ligações entre vizinhos que não viram rua. */
+    public GraphGenerator missingEdgeRatio(double ratio) {
+        this.missingEdgeRatio = checkRatio("missingEdgeRatio", ratio);
+        return this;
+    }
+
+    /**
+     * Geométrico: grau médio esperado. Abaixo de ~4,5 o grafo se parte em muitos
+     * componentes pequenos, sem um componente gigante.
+     */
+    public GraphGenerator averageDegree(double degree) {
+        if (!(degree > 0)) throw new IllegalArgumentException("averageDegree deve ser positivo: " + degree);
+        this.averageDegree = degree;
+        return this;
+    }
+
+    private static double checkRatio(String name, double value) {
+        if (!(value >= 0 && value <= 1)) throw new IllegalArgumentException(name + " deve estar entre 0 e 1: " + value);
+        return value;
+    }
+
+    public Result generate() {
+        Result result = new Result(nodeCount);
+        SplittableRandom random = new SplittableRandom(seed);
+        if (topology == Topology.GRID) generateGrid(result, random);
+        else generateGeometric(result, random);
+        return result;
+    }
+
+    /** Atalho para {@code generate().toGraph()}. */
+    public Graph toGraph() {
+        return generate().toGraph();
+    }
+
+    // Nós em ordem de linha; cada nó liga-se ao vizinho da direita e ao de baixo
+    private void generateGrid(Result result, SplittableRandom random) {
+        int columns = (int) Math.ceil(Math.sqrt(nodeCount));
+        result.ensureEdgeCapacity((int) Math.min(Integer.MAX_VALUE - 8, 2L * nodeCount));
+        for (int id = 0; id < nodeCount; id++) {
+            int row = id / columns, column = id % columns;
+            double dx = jitter * (random.nextDouble() - 0.5) * spacing;
+            double dy = jitter * (random.nextDouble() - 0.5) * spacing;
+            result.xs[id] = column * spacing + dx;
+            result.ys[id] = row * spacing + dy;
+        }
+        for (int id = 0; id < nodeCount; id++) {
+            int column = id % columns;
+            if (column + 1 < columns && id + 1 < nodeCount) maybeAddStreet(result, random, id, id + 1);
+            if (id + columns < nodeCount) maybeAddStreet(result, random, id, id + columns);
+        }
+    }
+
+    private void maybeAddStreet(Result result, SplittableRandom random, int u, int v) {
+        if (random.nextDouble() < missingEdgeRatio) return;
+        addStreet(result, random, u, v);
+    }
+
+    private void addStreet(Result result, SplittableRandom random, int u, int v) {
+        if (random.nextDouble() < onewayRatio) {
+            if (random.nextBoolean()) result.addEdge(u, v, true);
+            else result.addEdge(v, u, true);
+        } else {
+            result.addEdge(u, v, false);
+        }
+    }
+
+    /*
+     * Pontos num quadrado de lado sqrt(n) * spacing; o raio r dá grau esperado
+     * n * pi * r² / área = pi * r² / spacing². Os pontos vão para células de lado r
+     * (ordenação por contagem), e cada par só é testado nas 3x3 células em volta, com j > i
+     * para não repetir: a ordem das arestas depende só da semente.
+     */
+    private void generateGeometric(Result result, SplittableRandom random) {
+        double side = Math.sqrt(nodeCount) * spacing;
+        for (int id = 0; id < nodeCount; id++) {
+            result.xs[id] = random.nextDouble() * side;
+            result.ys[id] = random.nextDouble() * side;
+        }
+        double radius = spacing * Math.sqrt(averageDegree / Math.PI);
+        double radius2 = radius * radius;
+        int cells = Math.max(1, (int) Math.min(side / radius, Math.sqrt(nodeCount) + 1));
+        double cellSize = side / cells;
+
+        int[] cellOf = new int[nodeCount];
+        int[] cellStart = new int[cells * cells + 1];
+        for (int id = 0; id < nodeCount; id++) {
+            int cx = Math.min(cells - 1, (int) (result.xs[id] / cellSize));
+            int cy = Math.min(cells - 1, (int) (result.ys[id] / cellSize));
+            cellOf[id] = cy * cells + cx;
+            cellStart[cellOf[id] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) cellStart[c + 1] += cellStart[c];
+        int[] members = new int[nodeCount];
+        int[] fill = Arrays.copyOf(cellStart, cells * cells);
+        for (int id = 0; id < nodeCount; id++) members[fill[cellOf[id]]++] = id;
+
+        result.ensureEdgeCapacity((int) Math.min(Integer.MAX_VALUE - 8, (long) (nodeCount * averageDegree / 2 * 1.1)));
+        for (int u = 0; u < nodeCount; u++) {
+            int cx = cellOf[u] % cells, cy = cellOf[u] / cells;
+            double ux = result.xs[u], uy = result.ys[u];
+            for (int ny = Math.max(0, cy - 1); ny <= Math.min(cells - 1, cy + 1); ny++) {
+                for (int nx = Math.max(0, cx - 1); nx <= Math.min(cells - 1, cx + 1); nx++) {
+                    int cell = ny * cells + nx;
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int v = members[k];
+                        if (v <= u) continue;
+                        double dx = result.xs[v] - ux, dy = result.ys[v] - uy;
+                        if (dx * dx + dy * dy <= radius2) addStreet(result, random, u, v);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Grafo gerado: nós com IDs {@code 0..n-1} e arestas sem peso (o peso é a distância
+     * euclidiana, como no {@link io.PolyReader}).
+     */
+    public static final class Result {
+        private final double[] xs;
+        private final double[] ys;
+        private int[] edgeU = new int[16];
+        private int[] edgeV = new int[16];
+        private boolean[] edgeDirected = new boolean[16];
+        private int edgeCount;
+
+        private Result(int nodeCount) {
+            this.xs = new double[nodeCount];
+            this.ys = new double[nodeCount];
+        }
+
+        private void ensureEdgeCapacity(int capacity) {
+            if (capacity > edgeU.length) {
+                edgeU = Arrays.copyOf(edgeU, capacity);
+                edgeV = Arrays.copyOf(edgeV, capacity);
+                edgeDirected = Arrays.copyOf(edgeDirected, capacity);
+            }
+        }
+
+        private void addEdge(int u, int v, boolean directed) {
+            if (edgeCount == edgeU.length) ensureEdgeCapacity(edgeCount * 2);
+            edgeU[edgeCount] = u;
+            edgeV[edgeCount] = v;
+            edgeDirected[edgeCount] = directed;
+            edgeCount++;
+        }
+
+        public int getNodeCount() { return xs.length; }
+        public int getEdgeCount() { return edgeCount; }
+
+        /** Entrega nós e arestas ao builder em massa, com os mesmos pesos do {@link io.PolyReader}. */
+        public GraphBuilder toBuilder() {
+            int n = xs.length;
+            GraphBuilder builder = new GraphBuilder(n, edgeCount);
+            int[] ids = new int[n];
+            for (int i = 0; i < n; i++) ids[i] = i;
+            builder.addNodes(ids, xs, ys, n);
+            builder.addEdges(edgeU, edgeV, null, edgeDirected, edgeCount);
+            return builder.euclideanWeights(PolyReader.WEIGHT_SCALE, PolyReader.MINIMUM_WEIGHT);
+        }
+
+        public Graph toGraph() {
+            return toBuilder().buildGraph();
+        }
+
+        public GraphSnapshot toSnapshot() {
+            return toBuilder().buildSnapshot();
+        }
+
+        /**
+         * Grava no formato .poly sem montar o grafo. As coordenadas saem com
+         * {@link Double#toString(double)}, então o arquivo relido dá exatamente o mesmo grafo
+         * que {@link #toGraph()}.
+         */
+        public void writePoly(String filepath) throws IOException {
+            try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filepath), StandardCharsets.US_ASCII)) {
+                StringBuilder line = new StringBuilder(64);
+                // Cabeçalho dos vértices: <num_vertices> <dim> <attrs> <boundary_markers>
+                writer.write(xs.length + "\t2\t0\t1\n");
+                for (int id = 0; id < xs.length; id++) {
+                    line.setLength(0);
+                    line.append(id).append('\t').append(xs[id]).append('\t').append(ys[id]).append('\n');
+                    writer.append(line);
+                }
+                writer.write(edgeCount + "\t1\n");
+                for (int e = 0; e < edgeCount; e++) {
+                    line.setLength(0);
+                    line.append(e).append('\t').append(edgeU[e]).append('\t').append(edgeV[e])
+                            .append('\t').append(edgeDirected[e] ? 1 : 0).append('\n');
+                    writer.append(line);
+                }
+                writer.write("0\n");
+            }
+        }
+    }
+}
\ No newline at end of file
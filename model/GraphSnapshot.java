@@ -0,0 +1,156 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Cópia imutável e compacta de um {@link Graph} em arrays primitivos (CSR).
+ *
+ * Os nós recebem índices densos 0..n-1 em ordem crescente de ID interno, e as
+ * arestas de saída de cada nó ocupam um intervalo contíguo dos arrays de arcos.
+ * Uma aresta de mão dupla vira dois arcos. Também mantém a lista reversa (arcos de
+ * entrada) para buscas para trás. Por ser imutável, pode ser compartilhada entre
+ * threads sem sincronização; os algoritmos do pacote {@code routing} trabalham sobre ela.
+ */
+public final class GraphSnapshot {
+    private final int[] nodeIds;     // índice -> ID interno (ordenado)
+    private final double[] xs;
+    private final double[] ys;
+
+    private final int[] firstOut;    // n + 1
+    private final int[] head;        // arco -> nó de destino
+    private final double[] weight;   // arco -> peso
+    private final boolean[] directed;
+
+    private final int[] firstIn;     // n + 1
+    private final int[] tail;        // arco de entrada -> nó de origem
+    private final int[] inArcToArc;  // arco de entrada -> arco de saída correspondente
+
+    GraphSnapshot(int[] nodeIds, double[] xs, double[] ys, int[] firstOut, int[] head, double[] weight, boolean[] directed) {
+        this.nodeIds = nodeIds;
+        this.xs = xs;
+        this.ys = ys;
+        this.firstOut = firstOut;
+        this.head = head;
+        this.weight = weight;
+        this.directed = directed;
+
+        int n = nodeIds.length;
+        int m = head.length;
+        this.firstIn = new int[n + 1];
+        this.tail = new int[m];
+        this.inArcToArc = new int[m];
+        for (int arc = 0; arc < m; arc++) firstIn[head[arc] + 1]++;
+        for (int v = 0; v < n; v++) firstIn[v + 1] += firstIn[v];
+        int[] fill = Arrays.copyOf(firstIn, n);
+        for (int u = 0; u < n; u++) {
+            for (int arc = firstOut[u]; arc < firstOut[u + 1]; arc++) {
+                int slot = fill[head[arc]]++;
+                tail[slot] = u;
+                inArcToArc[slot] = arc;
+            }
+        }
+    }
+
+    /**
+     * Congela o estado atual do grafo.
+     */
+    public static GraphSnapshot of(Graph graph) {
+        int n = graph.getNodes().size();
+        int[] ids = new int[n];
+        int i = 0;
+        for (int id : graph.getNodes().keySet()) ids[i++] = id;
+        Arrays.sort(ids);
+
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        int[] firstOut = new int[n + 1];
+        int arcs = 0;
+        for (int idx = 0; idx < n; idx++) {
+            Node node = graph.getNodes().get(ids[idx]);
+            xs[idx] = node.getX();
+            ys[idx] = node.getY();
+            Map<Integer, Edge> out = graph.getAdj().get(ids[idx]);
+            arcs += out != null ? out.size() : 0;
+            firstOut[idx + 1] = arcs;
+        }
+
+        int[] head = new int[arcs];
+        double[] weight = new double[arcs];
+        boolean[] directed = new boolean[arcs];
+        int arc = 0;
+        for (int idx = 0; idx < n; idx++) {
+            Map<Integer, Edge> out = graph.getAdj().get(ids[idx]);
+            if (out == null) continue;
+            for (Edge edge : out.values()) {
+                head[arc] = Arrays.binarySearch(ids, edge.getV());
+                weight[arc] = edge.getWeight();
+                directed[arc] = edge.isDirected();
+                arc++;
+            }
+        }
+        return new GraphSnapshot(ids, xs, ys, firstOut, head, weight, directed);
+    }
+
+    public int getNumNodes() { return nodeIds.length; }
+    public int getNumArcs() { return head.length; }
+
+    /** Índice denso do nó com o ID interno informado, ou -1 se não existir. */
+    public int indexOf(int nodeId) {
+        int idx = Arrays.binarySearch(nodeIds, nodeId);
+        return idx >= 0 ? idx : -1;
+    }
+
+    public int nodeId(int index) { return nodeIds[index]; }
+    public double x(int index) { return xs[index]; }
+    public double y(int index) { return ys[index]; }
+
+    public int firstOut(int index) { return firstOut[index]; }
+    public int endOut(int index) { return firstOut[index + 1]; }
+    public int head(int arc) { return head[arc]; }
+    public double weight(int arc) { return weight[arc]; }
+    public boolean isDirected(int arc) { return directed[arc]; }
+
+    /** Nó de origem do arco (busca binária nos offsets). */
+    public int arcSource(int arc) {
+        int lo = 0, hi = nodeIds.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (firstOut[mid] <= arc) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    public int firstIn(int index) { return firstIn[index]; }
+    public int endIn(int index) { return firstIn[index + 1]; }
+    public int tail(int inArc) { return tail[inArc]; }
+    /** Arco de saída (índice usado nos arrays de peso) que corresponde ao arco de entrada. */
+    public int inArcToArc(int inArc) { return inArcToArc[inArc]; }
+
+    /** Índice do arco u -> v (índices densos), ou -1. */
+    public int findArc(int u, int v) {
+        for (int arc = firstOut[u]; arc < firstOut[u + 1]; arc++) {
+            if (head[arc] == v) return arc;
+        }
+        return -1;
+    }
+
+    /** Cópia dos pesos dos arcos, útil como métrica inicial para algoritmos customizáveis. */
+    public double[] copyWeights() { return weight.clone(); }
+
+    /**
+     * Lê os pesos atuais das arestas de um grafo com a mesma topologia
+     * (por exemplo, depois de uma atualização de tráfego).
+     */
+    public double[] readWeights(Graph graph) {
+        double[] metric = new double[head.length];
+        for (int u = 0; u < nodeIds.length; u++) {
+            Map<Integer, Edge> out = graph.getAdj().get(nodeIds[u]);
+            for (int arc = firstOut[u]; arc < firstOut[u + 1]; arc++) {
+                Edge edge = out != null ? out.get(nodeIds[head[arc]]) : null;
+                metric[arc] = edge != null ? edge.getWeight() : Double.POSITIVE_INFINITY;
+            }
+        }
+        return metric;
+    }
+}
@@ -0,0 +1,255 @@
+package model;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Índice espacial em grade uniforme sobre um {@link GraphSnapshot}.
+ *
+ * Cada célula guarda os nós que caem nela e os arcos cujo retângulo envolvente a
+ * toca, em listas planas no formato CSR. Um arco de mão dupla entra uma única vez
+ * (o arco de menor índice do par); os demais arcos entram individualmente.
+ * Por padrão o retângulo de um arco é o dos seus extremos; quem desenha arestas com
+ * geometria (cadeias contraídas) pode informar retângulos próprios por arco.
+ * Imutável depois de construído, então pode ser consultado por várias threads.
+ */
+public final class GridIndex {
+    private static final int TARGET_NODES_PER_CELL = 4;
+
+    private final GraphSnapshot snapshot;
+    private final double minX, minY;
+    private final double cellSize;
+    private final int columns, rows;
+    private final int[] nodeStart;   // célula -> início em nodeCells
+    private final int[] nodeCells;
+    private final int[] arcStart;    // célula -> início em arcCells
+    private final int[] arcCells;
+    private final double[] arcBounds; // [x0, y0, x1, y1] por arco, ou null (extremos)
+
+    private GridIndex(GraphSnapshot snapshot, double minX, double minY, double cellSize, int columns, int rows,
+                      int[] nodeStart, int[] nodeCells, int[] arcStart, int[] arcCells, double[] arcBounds) {
+        this.snapshot = snapshot;
+        this.minX = minX;
+        this.minY = minY;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.nodeStart = nodeStart;
+        this.nodeCells = nodeCells;
+        this.arcStart = arcStart;
+        this.arcCells = arcCells;
+        this.arcBounds = arcBounds;
+    }
+
+    /** Grade com tamanho de célula escolhido para ~4 nós por célula. */
+    public static GridIndex build(GraphSnapshot snapshot) {
+        return build(snapshot, (double[]) null);
+    }
+
+    /**
+     * Como {@link #build(GraphSnapshot)}, com o retângulo envolvente de cada arco dado em
+     * {@code arcBounds} ({@code [x0, y0, x1, y1]} por índice de arco) em vez do retângulo
+     * dos extremos. Os retângulos precisam conter os extremos.
+     */
+    public static GridIndex build(GraphSnapshot snapshot, double[] arcBounds) {
+        int n = snapshot.getNumNodes();
+        double[] bounds = bounds(snapshot);
+        double area = Math.max((bounds[2] - bounds[0]) * (bounds[3] - bounds[1]), 1e-12);
+        double cellSize = Math.sqrt(area * TARGET_NODES_PER_CELL / Math.max(1, n));
+        return build(snapshot, cellSize, arcBounds);
+    }
+
+    public static GridIndex build(GraphSnapshot snapshot, double cellSize) {
+        return build(snapshot, cellSize, null);
+    }
+
+    public static GridIndex build(GraphSnapshot snapshot, double cellSize, double[] arcBounds) {
+        if (arcBounds != null && arcBounds.length != 4 * snapshot.getNumArcs()) {
+            throw new IllegalArgumentException("Esperados 4 valores por arco em arcBounds.");
+        }
+        if (!(cellSize > 0)) throw new IllegalArgumentException("Tamanho de célula inválido: " + cellSize);
+        double[] bounds = bounds(snapshot);
+        int columns = Math.max(1, (int) Math.floor((bounds[2] - bounds[0]) / cellSize) + 1);
+        int rows = Math.max(1, (int) Math.floor((bounds[3] - bounds[1]) / cellSize) + 1);
+        if ((long) columns * rows > 16_000_000L) {
+            throw new IllegalArgumentException("Células demais para o índice espacial: " + columns + "x" + rows);
+        }
+        int cells = columns * rows;
+        int n = snapshot.getNumNodes();
+        double minX = bounds[0], minY = bounds[1];
+
+        // Nós: contagem e preenchimento (CSR)
+        int[] nodeStart = new int[cells + 1];
+        int[] cellOfNode = new int[n];
+        for (int v = 0; v < n; v++) {
+            int c = clamp(col(snapshot.x(v), minX, cellSize), columns) + clamp(col(snapshot.y(v), minY, cellSize), rows) * columns;
+            cellOfNode[v] = c;
+            nodeStart[c + 1]++;
+        }
+        for (int c = 0; c < cells; c++) nodeStart[c + 1] += nodeStart[c];
+        int[] nodeCells = new int[n];
+        int[] fill = nodeStart.clone();
+        for (int v = 0; v < n; v++) nodeCells[fill[cellOfNode[v]]++] = v;
+
+        // Arcos: cada um entra em todas as células do seu retângulo envolvente
+        int[] arcStart = new int[cells + 1];
+        double[] box = new double[4];
+        for (int pass = 0; pass < 2; pass++) {
+            int[] arcFill = pass == 1 ? arcStart.clone() : null;
+            int[] arcCells = pass == 1 ? new int[arcStart[cells]] : null;
+            for (int u = 0; u < n; u++) {
+                for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                    if (!isIndexedArc(snapshot, u, arc)) continue;
+                    arcBox(snapshot, arcBounds, u, arc, box);
+                    int c0 = clamp(col(box[0], minX, cellSize), columns);
+                    int c1 = clamp(col(box[2], minX, cellSize), columns);
+                    int r0 = clamp(col(box[1], minY, cellSize), rows);
+                    int r1 = clamp(col(box[3], minY, cellSize), rows);
+                    for (int r = r0; r <= r1; r++) {
+                        for (int c = c0; c <= c1; c++) {
+                            int cell = c + r * columns;
+                            if (pass == 0) arcStart[cell + 1]++;
+                            else arcCells[arcFill[cell]++] = arc;
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int c = 0; c < cells; c++) arcStart[c + 1] += arcStart[c];
+            } else {
+                return new GridIndex(snapshot, minX, minY, cellSize, columns, rows, nodeStart, nodeCells, arcStart, arcCells, arcBounds);
+            }
+        }
+        throw new AssertionError();
+    }
+
+    /** Mão dupla entra só pelo arco de menor índice do par. */
+    private static boolean isIndexedArc(GraphSnapshot snapshot, int u, int arc) {
+        if (snapshot.isDirected(arc)) return true;
+        int v = snapshot.head(arc);
+        int back = snapshot.findArc(v, u);
+        return back < 0 || arc < back;
+    }
+
+    private static void arcBox(GraphSnapshot snapshot, double[] arcBounds, int u, int arc, double[] out) {
+        if (arcBounds != null) {
+            System.arraycopy(arcBounds, 4 * arc, out, 0, 4);
+            return;
+        }
+        int v = snapshot.head(arc);
+        out[0] = Math.min(snapshot.x(u), snapshot.x(v));
+        out[1] = Math.min(snapshot.y(u), snapshot.y(v));
+        out[2] = Math.max(snapshot.x(u), snapshot.x(v));
+        out[3] = Math.max(snapshot.y(u), snapshot.y(v));
+    }
+
+    private static double[] bounds(GraphSnapshot snapshot) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int v = 0; v < snapshot.getNumNodes(); v++) {
+            minX = Math.min(minX, snapshot.x(v));
+            minY = Math.min(minY, snapshot.y(v));
+            maxX = Math.max(maxX, snapshot.x(v));
+            maxY = Math.max(maxY, snapshot.y(v));
+        }
+        if (minX > maxX) return new double[] { 0, 0, 0, 0 };
+        return new double[] { minX, minY, maxX, maxY };
+    }
+
+    private static int col(double value, double origin, double cellSize) {
+        return (int) Math.floor((value - origin) / cellSize);
+    }
+
+    private static int clamp(int value, int count) {
+        return value < 0 ? 0 : (value >= count ? count - 1 : value);
+    }
+
+    public GraphSnapshot getSnapshot() { return snapshot; }
+    public double getCellSize() { return cellSize; }
+
+    /** Visita os índices dos nós dentro do retângulo. */
+    public void forEachNodeIn(double x0, double y0, double x1, double y1, IntConsumer visitor) {
+        int c0 = clamp(col(x0, minX, cellSize), columns), c1 = clamp(col(x1, minX, cellSize), columns);
+        int r0 = clamp(col(y0, minY, cellSize), rows), r1 = clamp(col(y1, minY, cellSize), rows);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = c + r * columns;
+                for (int i = nodeStart[cell]; i < nodeStart[cell + 1]; i++) {
+                    int v = nodeCells[i];
+                    double x = snapshot.x(v), y = snapshot.y(v);
+                    if (x >= x0 && x <= x1 && y >= y0 && y <= y1) visitor.accept(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visita, uma única vez cada, os arcos indexados cujo retângulo envolvente toca o
+     * retângulo de consulta. Sem estado compartilhado: o arco é reportado apenas na
+     * primeira célula comum às duas áreas.
+     */
+    public void forEachArcIn(double x0, double y0, double x1, double y1, IntConsumer visitor) {
+        int c0 = clamp(col(x0, minX, cellSize), columns), c1 = clamp(col(x1, minX, cellSize), columns);
+        int r0 = clamp(col(y0, minY, cellSize), rows), r1 = clamp(col(y1, minY, cellSize), rows);
+        double[] box = new double[4];
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = c + r * columns;
+                for (int i = arcStart[cell]; i < arcStart[cell + 1]; i++) {
+                    int arc = arcCells[i];
+                    arcBox(snapshot, arcBounds, arcBounds != null ? -1 : snapshot.arcSource(arc), arc, box);
+                    double ax0 = box[0], ay0 = box[1], ax1 = box[2], ay1 = box[3];
+                    if (ax1 < x0 || ax0 > x1 || ay1 < y0 || ay0 > y1) continue;
+                    int firstCol = Math.max(c0, clamp(col(ax0, minX, cellSize), columns));
+                    int firstRow = Math.max(r0, clamp(col(ay0, minY, cellSize), rows));
+                    if (c == firstCol && r == firstRow) visitor.accept(arc);
+                }
+            }
+        }
+    }
+
+    /**
+     * Limite superior barato do número de arcos que tocam o retângulo: soma as listas das
+     * células cobertas, sem deduplicar nem testar retângulos. Serve para escolher o nível de
+     * detalhe antes de visitar os arcos.
+     */
+    public int countArcEntriesIn(double x0, double y0, double x1, double y1) {
+        int c0 = clamp(col(x0, minX, cellSize), columns), c1 = clamp(col(x1, minX, cellSize), columns);
+        int r0 = clamp(col(y0, minY, cellSize), rows), r1 = clamp(col(y1, minY, cellSize), rows);
+        int count = 0;
+        for (int r = r0; r <= r1; r++) {
+            count += arcStart[c1 + 1 + r * columns] - arcStart[c0 + r * columns];
+        }
+        return count;
+    }
+
+    /** Nó mais próximo do ponto (índice denso), ou -1 se o grafo estiver vazio. */
+    public int nearestNode(double x, double y) {
+        if (snapshot.getNumNodes() == 0) return -1;
+        int cx = clamp(col(x, minX, cellSize), columns);
+        int cy = clamp(col(y, minY, cellSize), rows);
+        int best = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+        int maxRing = Math.max(columns, rows);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int r = cy - ring; r <= cy + ring; r++) {
+                if (r < 0 || r >= rows) continue;
+                boolean edgeRow = r == cy - ring || r == cy + ring;
+                for (int c = cx - ring; c <= cx + ring; c += edgeRow ? 1 : 2 * ring) {
+                    if (c >= 0 && c < columns) {
+                        int cell = c + r * columns;
+                        for (int i = nodeStart[cell]; i < nodeStart[cell + 1]; i++) {
+                            int v = nodeCells[i];
+                            double dx = snapshot.x(v) - x, dy = snapshot.y(v) - y;
+                            double d = dx * dx + dy * dy;
+                            if (d < bestDist) { bestDist = d; best = v; }
+                        }
+                    }
+                    if (ring == 0) break;
+                }
+            }
+            // Qualquer nó fora dos anéis já visitados está a pelo menos ring * cellSize
+            if (best >= 0 && Math.sqrt(bestDist) <= ring * cellSize) break;
+        }
+        return best;
+    }
+}
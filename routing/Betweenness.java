@@ -0,0 +1,362 @@
+package routing;
+
+import model.GraphSnapshot;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Centralidade de intermediação (betweenness) de nós e arestas pelo algoritmo de Brandes.
+ *
+ * Para cada origem, um Dijkstra conta os menores caminhos (sigma) e, na ordem
+ * inversa de assentamento, as dependências são acumuladas nos nós e nos arcos
+ * "justos" (d[u] + w == d[v]). As origens são divididas entre as threads de um
+ * pool fork-join; cada tarefa pega emprestado um conjunto de arrays de trabalho e
+ * acumuladores livre (há no máximo um por tarefa em execução), somados no final.
+ * Se a thread chamadora for interrompida, o cálculo para com {@link CancellationException}.
+ *
+ * O modo amostrado usa k origens sorteadas e escala o resultado por n/k. A margem
+ * de erro vem da desigualdade de Hoeffding com união sobre todos os nós e arcos.
+ */
+public class Betweenness {
+    private static final int SOURCES_PER_TASK = 16;
+
+    private final GraphSnapshot snapshot;
+    private final ForkJoinPool pool;
+
+    public Betweenness(GraphSnapshot snapshot, ForkJoinPool pool) {
+        this.snapshot = snapshot;
+        this.pool = pool;
+    }
+
+    public Betweenness(GraphSnapshot snapshot) {
+        this(snapshot, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Centralidade calculada, indexada pelos índices densos do snapshot.
+     * Os valores contam pares ordenados (origem, destino).
+     */
+    public static class Result {
+        private final GraphSnapshot snapshot;
+        private final double[] nodeScores;
+        private final double[] arcScores;
+        private final int sources;
+        private final boolean exact;
+        private final double errorBound;   // erro normalizado por origem, 0 se exato
+        private final double confidence;
+        private final double processingTimeMs;
+
+        Result(GraphSnapshot snapshot, double[] nodeScores, double[] arcScores, int sources, boolean exact,
+               double errorBound, double confidence, double processingTimeMs) {
+            this.snapshot = snapshot;
+            this.nodeScores = nodeScores;
+            this.arcScores = arcScores;
+            this.sources = sources;
+            this.exact = exact;
+            this.errorBound = errorBound;
+            this.confidence = confidence;
+            this.processingTimeMs = processingTimeMs;
+        }
+
+        public GraphSnapshot getSnapshot() { return snapshot; }
+        public double[] getNodeScores() { return nodeScores; }
+        public double[] getArcScores() { return arcScores; }
+        public int getSources() { return sources; }
+        public boolean isExact() { return exact; }
+        public double getConfidence() { return confidence; }
+        public double getProcessingTimeMs() { return processingTimeMs; }
+
+        /**
+         * Erro máximo normalizado com a confiança informada: vale para a contribuição
+         * média por origem dividida pelo seu máximo (n-2 para nós, n-1 para arcos).
+         */
+        public double getErrorBound() { return errorBound; }
+
+        /** Erro máximo absoluto de cada valor de nó, na mesma unidade de {@link #nodeScore(int)}. */
+        public double getNodeErrorBound() {
+            int n = snapshot.getNumNodes();
+            return errorBound * n * Math.max(1, n - 2);
+        }
+
+        /** Erro máximo absoluto de cada valor de arco. */
+        public double getArcErrorBound() {
+            int n = snapshot.getNumNodes();
+            return errorBound * n * Math.max(1, n - 1);
+        }
+
+        public double nodeScore(int nodeId) {
+            int index = snapshot.indexOf(nodeId);
+            return index < 0 ? 0.0 : nodeScores[index];
+        }
+
+        /**
+         * Centralidade da aresta u-v (IDs internos). Em mão dupla soma os dois sentidos,
+         * que é o que interessa para monitorar o trecho de via.
+         */
+        public double edgeScore(int uId, int vId) {
+            int u = snapshot.indexOf(uId);
+            int v = snapshot.indexOf(vId);
+            if (u < 0 || v < 0) return 0.0;
+            int arc = snapshot.findArc(u, v);
+            if (arc < 0) return 0.0;
+            double score = arcScores[arc];
+            if (!snapshot.isDirected(arc)) {
+                int back = snapshot.findArc(v, u);
+                if (back >= 0) score += arcScores[back];
+            }
+            return score;
+        }
+
+        /** Maior valor de {@link #edgeScore(int, int)}, para normalizar rampas de cor. */
+        public double getMaxEdgeScore() {
+            double max = 0;
+            for (int u = 0; u < snapshot.getNumNodes(); u++) {
+                for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                    max = Math.max(max, edgeScore(snapshot.nodeId(u), snapshot.nodeId(snapshot.head(arc))));
+                }
+            }
+            return max;
+        }
+
+        /** Os {@code k} arcos mais centrais, em ordem decrescente. */
+        public int[] topArcs(int k) {
+            Integer[] arcs = new Integer[arcScores.length];
+            for (int i = 0; i < arcs.length; i++) arcs[i] = i;
+            Arrays.sort(arcs, (a, b) -> Double.compare(arcScores[b], arcScores[a]));
+            int[] top = new int[Math.min(k, arcs.length)];
+            for (int i = 0; i < top.length; i++) top[i] = arcs[i];
+            return top;
+        }
+
+        @Override
+        public String toString() {
+            if (exact) {
+                return String.format(Locale.ROOT, "betweenness exata (%d origens, %.0f ms)", sources, processingTimeMs);
+            }
+            return String.format(Locale.ROOT, "betweenness aproximada (%d origens, erro <= %.3f com %.0f%% de confiança, %.0f ms)",
+                    sources, errorBound, confidence * 100, processingTimeMs);
+        }
+    }
+
+    /** Centralidade exata: uma busca por nó do grafo. */
+    public Result computeExact() {
+        int n = snapshot.getNumNodes();
+        int[] sources = new int[n];
+        for (int i = 0; i < n; i++) sources[i] = i;
+        return compute(sources, 1.0, true, 0.0, 1.0);
+    }
+
+    /**
+     * Centralidade aproximada a partir de {@code samples} origens sorteadas sem repetição.
+     *
+     * @param confidence probabilidade de todos os valores estarem dentro da margem, ex.: 0.95
+     */
+    public Result computeSampled(int samples, double confidence, long seed) {
+        int n = snapshot.getNumNodes();
+        if (samples >= n) return computeExact();
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++) all[i] = i;
+        Random random = new Random(seed);
+        for (int i = 0; i < samples; i++) {
+            int j = i + random.nextInt(n - i);
+            int tmp = all[i];
+            all[i] = all[j];
+            all[j] = tmp;
+        }
+        int[] sources = Arrays.copyOf(all, samples);
+        double errorBound = hoeffdingBound(samples, confidence, n + snapshot.getNumArcs());
+        return compute(sources, (double) n / samples, false, errorBound, confidence);
+    }
+
+    /**
+     * Número de origens para que o erro normalizado fique abaixo de {@code epsilon}
+     * em todos os nós e arcos com a confiança pedida:
+     * k = ln(2(n + m) / (1 - confiança)) / (2 epsilon^2).
+     */
+    public int samplesFor(double epsilon, double confidence) {
+        double failure = 1.0 - confidence;
+        int quantities = Math.max(1, snapshot.getNumNodes() + snapshot.getNumArcs());
+        return (int) Math.ceil(Math.log(2.0 * quantities / failure) / (2 * epsilon * epsilon));
+    }
+
+    /** Hoeffding para variáveis em [0, 1], com união sobre {@code quantities} estimativas. */
+    private static double hoeffdingBound(int samples, double confidence, int quantities) {
+        double failure = 1.0 - confidence;
+        return Math.sqrt(Math.log(2.0 * Math.max(1, quantities) / failure) / (2.0 * samples));
+    }
+
+    private Result compute(int[] sources, double scale, boolean exact, double errorBound, double confidence) {
+        long startTime = System.nanoTime();
+        Workspaces workspaces = new Workspaces();
+        try {
+            // Fora do pool: um get() direto na tarefa poderia executá-la nesta thread, sem atender à interrupção
+            CompletableFuture.runAsync(() -> new SourceTask(sources, 0, sources.length, workspaces).invoke(), pool).get();
+        } catch (InterruptedException e) {
+            // As tarefas ainda em execução param na próxima origem
+            workspaces.cancelled = true;
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Cálculo da centralidade cancelado.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+
+        // Junta os acumuladores de todos os conjuntos de trabalho
+        int n = snapshot.getNumNodes();
+        double[] nodeScores = new double[n];
+        double[] arcScores = new double[snapshot.getNumArcs()];
+        for (Workspace workspace : workspaces.all) {
+            for (int v = 0; v < n; v++) nodeScores[v] += workspace.nodeAcc[v];
+            for (int a = 0; a < arcScores.length; a++) arcScores[a] += workspace.arcAcc[a];
+        }
+        if (scale != 1.0) {
+            for (int v = 0; v < n; v++) nodeScores[v] *= scale;
+            for (int a = 0; a < arcScores.length; a++) arcScores[a] *= scale;
+        }
+        double processingTimeMs = (System.nanoTime() - startTime) / 1_000_000.0;
+        return new Result(snapshot, nodeScores, arcScores, sources.length, exact, errorBound, confidence, processingTimeMs);
+    }
+
+    private final class SourceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] sources;
+        private final int from, to;
+        private final Workspaces workspaces;
+
+        SourceTask(int[] sources, int from, int to, Workspaces workspaces) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.workspaces = workspaces;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SOURCES_PER_TASK) {
+                Workspace workspace = workspaces.borrow();
+                try {
+                    for (int i = from; i < to; i++) {
+                        if (workspaces.cancelled) throw new CancellationException("Cálculo da centralidade cancelado.");
+                        workspace.accumulate(sources[i]);
+                    }
+                } finally {
+                    workspaces.free.add(workspace);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SourceTask(sources, from, mid, workspaces), new SourceTask(sources, mid, to, workspaces));
+        }
+    }
+
+    /**
+     * Conjuntos de trabalho de um cálculo: cada tarefa folha pega um livre (ou cria um novo) e
+     * o devolve ao terminar, então nada fica preso às threads do pool depois do cálculo.
+     */
+    private final class Workspaces {
+        final ConcurrentLinkedQueue<Workspace> all = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Workspace> free = new ConcurrentLinkedQueue<>();
+        volatile boolean cancelled;
+
+        Workspace borrow() {
+            Workspace workspace = free.poll();
+            if (workspace == null) {
+                workspace = new Workspace(snapshot);
+                all.add(workspace);
+            }
+            return workspace;
+        }
+    }
+
+    /**
+     * Arrays de trabalho e acumuladores de uma tarefa em execução.
+     */
+    private static final class Workspace {
+        final GraphSnapshot g;
+        final double[] dist;
+        final double[] sigma;
+        final double[] dependency;
+        final int[] settleOrder;
+        final int[] position;     // posição na ordem de assentamento (-1 se não assentado)
+        final IndexedMinHeap heap;
+        final double[] nodeAcc;
+        final double[] arcAcc;
+
+        Workspace(GraphSnapshot g) {
+            this.g = g;
+            int n = g.getNumNodes();
+            this.dist = new double[n];
+            this.sigma = new double[n];
+            this.dependency = new double[n];
+            this.settleOrder = new int[n];
+            this.position = new int[n];
+            this.heap = new IndexedMinHeap(n);
+            this.nodeAcc = new double[n];
+            this.arcAcc = new double[g.getNumArcs()];
+            Arrays.fill(dist, Double.POSITIVE_INFINITY);
+            Arrays.fill(position, -1);
+        }
+
+        void accumulate(int source) {
+            // Dijkstra contando menores caminhos
+            int settledCount = 0;
+            dist[source] = 0.0;
+            sigma[source] = 1.0;
+            heap.insertOrDecrease(source, 0.0);
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                position[u] = settledCount;
+                settleOrder[settledCount++] = u;
+                double du = dist[u];
+                for (int arc = g.firstOut(u), end = g.endOut(u); arc < end; arc++) {
+                    int v = g.head(arc);
+                    if (position[v] >= 0) continue;
+                    double nd = du + g.weight(arc);
+                    if (nd < dist[v]) {
+                        dist[v] = nd;
+                        sigma[v] = sigma[u];
+                        heap.insertOrDecrease(v, nd);
+                    } else if (nd == dist[v]) {
+                        sigma[v] += sigma[u];
+                    }
+                }
+            }
+
+            // Acumulação das dependências na ordem inversa
+            for (int i = settledCount - 1; i >= 0; i--) {
+                int w = settleOrder[i];
+                double coefficient = (1.0 + dependency[w]) / sigma[w];
+                for (int a = g.firstIn(w), end = g.endIn(w); a < end; a++) {
+                    int u = g.tail(a);
+                    int arc = g.inArcToArc(a);
+                    if (position[u] < 0 || position[u] >= i) continue;
+                    if (dist[u] + g.weight(arc) != dist[w]) continue;
+                    double contribution = sigma[u] * coefficient;
+                    arcAcc[arc] += contribution;
+                    dependency[u] += contribution;
+                }
+                if (w != source) nodeAcc[w] += dependency[w];
+            }
+
+            // Busca completa: todo nó alcançado foi assentado
+            for (int i = 0; i < settledCount; i++) {
+                int v = settleOrder[i];
+                dist[v] = Double.POSITIVE_INFINITY;
+                sigma[v] = 0.0;
+                dependency[v] = 0.0;
+                position[v] = -1;
+            }
+        }
+    }
+}
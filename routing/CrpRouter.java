@@ -0,0 +1,425 @@
+package routing;
+
+import metrics.RouteQueryEvent;
+import model.Graph;
+import model.GraphSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Customizable Route Planning (CRP) sobre uma partição multinível.
+ *
+ * A preparação tem três fases independentes:
+ * <ol>
+ *   <li>partição (só depende da topologia; ver {@link InertialFlowPartitioner});</li>
+ *   <li>topologia do overlay: nós de entrada/saída de cada célula em cada nível;</li>
+ *   <li>customização: para cada célula, a matriz (clique) de custos entrada -> saída
+ *       sob a métrica atual, calculada em paralelo de baixo para cima.</li>
+ * </ol>
+ * Uma nova métrica (ex.: pesos de tráfego) só refaz a fase 3. A consulta é um Dijkstra
+ * multinível que usa o grafo original perto da origem e do destino e as cliques do
+ * nível mais alto possível no resto; os atalhos são desempacotados no caminho completo.
+ */
+public class CrpRouter {
+    private final GraphSnapshot snapshot;
+    private final int levels;
+    private final int[][] cellOf;           // [nível][nó]
+    private final int[] cellCount;          // [nível]
+
+    // Topologia do overlay por nível: entradas e saídas de cada célula em listas planas
+    private final int[][] entryOffsets;     // [nível][célula] -> início em entryNodes
+    private final int[][] entryNodes;
+    private final int[][] exitOffsets;
+    private final int[][] exitNodes;
+    private final int[][] entryIndexOf;     // [nível][nó] -> posição entre as entradas da sua célula (-1)
+    private final int[][] exitIndexOf;
+    private final int[][] cliqueOffsets;    // [nível][célula] -> início da matriz em cliques[nível]
+
+    // Dependente da métrica; trocada de uma vez ao fim de cada customização
+    private volatile Customization current;
+
+    private final ThreadLocal<Workspace> workspaces;
+    private final ThreadLocal<Workspace> unpackWorkspaces;
+    private double lastCustomizationMs;
+
+    private CrpRouter(GraphSnapshot snapshot, int[][] cellOf) {
+        this.snapshot = snapshot;
+        this.levels = cellOf.length;
+        this.cellOf = cellOf;
+        this.cellCount = new int[levels];
+        int n = snapshot.getNumNodes();
+        for (int l = 0; l < levels; l++) {
+            int max = -1;
+            for (int v = 0; v < n; v++) max = Math.max(max, cellOf[l][v]);
+            cellCount[l] = max + 1;
+        }
+
+        entryOffsets = new int[levels][];
+        entryNodes = new int[levels][];
+        exitOffsets = new int[levels][];
+        exitNodes = new int[levels][];
+        entryIndexOf = new int[levels][];
+        exitIndexOf = new int[levels][];
+        cliqueOffsets = new int[levels][];
+        for (int l = 0; l < levels; l++) buildLevelTopology(l);
+
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(snapshot.getNumNodes()));
+        this.unpackWorkspaces = ThreadLocal.withInitial(() -> new Workspace(snapshot.getNumNodes()));
+    }
+
+    /**
+     * Particiona o grafo, prepara a topologia do overlay e customiza com os pesos do snapshot.
+     *
+     * @param maxCellSizes tamanhos máximos de célula do nível mais fino ao mais grosso, ex.: {256, 4096, 65536}
+     */
+    public static CrpRouter build(GraphSnapshot snapshot, int[] maxCellSizes) {
+        int[][] cellOf = new InertialFlowPartitioner().partition(snapshot, maxCellSizes);
+        CrpRouter router = new CrpRouter(snapshot, cellOf);
+        router.customize(snapshot.copyWeights());
+        return router;
+    }
+
+    public GraphSnapshot getSnapshot() { return snapshot; }
+    public int getLevels() { return levels; }
+    public int getCellCount(int level) { return cellCount[level]; }
+    public double getLastCustomizationMs() { return lastCustomizationMs; }
+
+    /** Número de nós de fronteira (entradas + saídas) em um nível. */
+    public int getBoundaryNodeCount(int level) {
+        return entryNodes[level].length + exitNodes[level].length;
+    }
+
+    /**
+     * Aplica uma nova métrica (peso por arco do snapshot) recalculando todas as cliques.
+     * As células de um mesmo nível são independentes e processadas em paralelo.
+     * Consultas em andamento continuam usando a métrica anterior até a troca final.
+     */
+    public void customize(double[] newMetric) {
+        if (newMetric.length != snapshot.getNumArcs()) {
+            throw new IllegalArgumentException("A métrica deve ter um peso por arco (" + snapshot.getNumArcs() + ").");
+        }
+        long start = System.nanoTime();
+        Customization next = new Customization(newMetric.clone(), new double[levels][]);
+        for (int l = 0; l < levels; l++) {
+            final int level = l;
+            int cells = cellCount[level];
+            next.cliques[level] = new double[cliqueOffsets[level][cells]];
+            IntStream.range(0, cells).parallel().forEach(cell -> customizeCell(next, level, cell));
+        }
+        this.current = next;
+        lastCustomizationMs = (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    /** Atalho para {@link #customize(double[])} lendo os pesos atuais de um grafo com a mesma topologia. */
+    public void customize(Graph graph) {
+        customize(snapshot.readWeights(graph));
+    }
+
+    /**
+     * Consulta de menor caminho entre dois nós (IDs internos) com o caminho completo desempacotado.
+     */
+    public Graph.PathResult route(int startNodeId, int endNodeId) {
+        int s = snapshot.indexOf(startNodeId);
+        int t = snapshot.indexOf(endNodeId);
+        if (s < 0 || t < 0) {
+            return new Graph.PathResult(new ArrayList<>(), Double.POSITIVE_INFINITY, 0, 0);
+        }
+        RouteQueryEvent event = RouteQueryEvent.start("CrpRouter");
+        long start = System.nanoTime();
+        Customization custom = current;
+        double[] metric = custom.metric;
+        double[][] cliques = custom.cliques;
+        Workspace ws = workspaces.get();
+        ws.reset();
+        ws.touch(s);
+        ws.distance[s] = 0.0;
+        ws.heap.insertOrDecrease(s, 0.0);
+        int explored = 0;
+
+        while (!ws.heap.isEmpty()) {
+            int u = ws.heap.poll();
+            explored++;
+            if (u == t) break;
+            double du = ws.distance[u];
+            int level = queryLevel(u, s, t);
+
+            if (level == 0) {
+                for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                    relax(ws, u, snapshot.head(arc), du + metric[arc], -1);
+                }
+                continue;
+            }
+            int li = level - 1;
+            int cell = cellOf[li][u];
+            int entry = entryIndexOf[li][u];
+            if (entry >= 0) {
+                int exitsStart = exitOffsets[li][cell];
+                int exitCount = exitOffsets[li][cell + 1] - exitsStart;
+                int base = cliqueOffsets[li][cell] + entry * exitCount;
+                for (int x = 0; x < exitCount; x++) {
+                    double cost = cliques[li][base + x];
+                    if (cost < Double.POSITIVE_INFINITY) {
+                        relax(ws, u, exitNodes[li][exitsStart + x], du + cost, level);
+                    }
+                }
+            }
+            // Arcos que saem da célula neste nível
+            for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                int w = snapshot.head(arc);
+                if (cellOf[li][w] != cell) relax(ws, u, w, du + metric[arc], -1);
+            }
+        }
+        ws.heap.clear();
+
+        double cost = ws.stamp[t] == ws.currentStamp ? ws.distance[t] : Double.POSITIVE_INFINITY;
+        List<Integer> path = new ArrayList<>();
+        if (cost < Double.POSITIVE_INFINITY) {
+            path = unpack(ws, s, t, metric);
+        }
+        double processingTimeMs = (System.nanoTime() - start) / 1_000_000.0;
+        event.finish(startNodeId, endNodeId, cost, path.size(), explored);
+        return new Graph.PathResult(path, cost, processingTimeMs, explored);
+    }
+
+    /**
+     * Nível de busca de um nó: o nível mais alto em que ele não divide célula
+     * nem com a origem nem com o destino (0 = usa o grafo original).
+     */
+    private int queryLevel(int v, int s, int t) {
+        for (int l = levels - 1; l >= 0; l--) {
+            int c = cellOf[l][v];
+            if (c != cellOf[l][s] && c != cellOf[l][t]) return l + 1;
+        }
+        return 0;
+    }
+
+    private static void relax(Workspace ws, int u, int v, double nd, int viaLevel) {
+        ws.touch(v);
+        if (nd < ws.distance[v]) {
+            ws.distance[v] = nd;
+            ws.parent[v] = u;
+            ws.parentLevel[v] = viaLevel;
+            ws.heap.insertOrDecrease(v, nd);
+        }
+    }
+
+    /** Reconstrói o caminho, expandindo cada atalho de clique com uma busca restrita à sua célula. */
+    private List<Integer> unpack(Workspace ws, int s, int t, double[] metric) {
+        List<int[]> hops = new ArrayList<>(); // {de, para, nível do atalho ou -1}
+        int v = t;
+        while (v != s) {
+            int p = ws.parent[v];
+            hops.add(new int[] { p, v, ws.parentLevel[v] });
+            v = p;
+        }
+        Collections.reverse(hops);
+
+        List<Integer> path = new ArrayList<>();
+        path.add(snapshot.nodeId(s));
+        for (int[] hop : hops) {
+            if (hop[2] < 0) {
+                path.add(snapshot.nodeId(hop[1]));
+            } else {
+                int li = hop[2] - 1;
+                appendRestrictedPath(path, hop[0], hop[1], li, cellOf[li][hop[0]], metric);
+            }
+        }
+        return path;
+    }
+
+    /** Dijkstra no grafo original limitado aos nós de uma célula; acrescenta o trecho sem o nó inicial. */
+    private void appendRestrictedPath(List<Integer> path, int from, int to, int level, int cell, double[] metric) {
+        Workspace ws = unpackWorkspaces.get();
+        ws.reset();
+        ws.touch(from);
+        ws.distance[from] = 0.0;
+        ws.heap.insertOrDecrease(from, 0.0);
+        while (!ws.heap.isEmpty()) {
+            int u = ws.heap.poll();
+            if (u == to) break;
+            double du = ws.distance[u];
+            for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                int w = snapshot.head(arc);
+                if (cellOf[level][w] == cell) relax(ws, u, w, du + metric[arc], -1);
+            }
+        }
+        ws.heap.clear();
+
+        int start = path.size();
+        for (int v = to; v != from; v = ws.parent[v]) {
+            path.add(snapshot.nodeId(v));
+        }
+        Collections.reverse(path.subList(start, path.size()));
+    }
+
+    // ------------------------------------------------------------------
+    // Preparação
+    // ------------------------------------------------------------------
+
+    private void buildLevelTopology(int l) {
+        int n = snapshot.getNumNodes();
+        int cells = cellCount[l];
+        boolean[] isEntry = new boolean[n];
+        boolean[] isExit = new boolean[n];
+        for (int u = 0; u < n; u++) {
+            for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                int w = snapshot.head(arc);
+                if (cellOf[l][u] != cellOf[l][w]) {
+                    isExit[u] = true;
+                    isEntry[w] = true;
+                }
+            }
+        }
+        int[] entryCount = new int[cells + 1];
+        int[] exitCount = new int[cells + 1];
+        for (int v = 0; v < n; v++) {
+            if (isEntry[v]) entryCount[cellOf[l][v] + 1]++;
+            if (isExit[v]) exitCount[cellOf[l][v] + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            entryCount[c + 1] += entryCount[c];
+            exitCount[c + 1] += exitCount[c];
+        }
+        entryOffsets[l] = entryCount;
+        exitOffsets[l] = exitCount;
+        entryNodes[l] = new int[entryCount[cells]];
+        exitNodes[l] = new int[exitCount[cells]];
+        entryIndexOf[l] = new int[n];
+        exitIndexOf[l] = new int[n];
+        Arrays.fill(entryIndexOf[l], -1);
+        Arrays.fill(exitIndexOf[l], -1);
+        int[] entryFill = Arrays.copyOf(entryCount, cells);
+        int[] exitFill = Arrays.copyOf(exitCount, cells);
+        for (int v = 0; v < n; v++) {
+            int c = cellOf[l][v];
+            if (isEntry[v]) {
+                entryIndexOf[l][v] = entryFill[c] - entryCount[c];
+                entryNodes[l][entryFill[c]++] = v;
+            }
+            if (isExit[v]) {
+                exitIndexOf[l][v] = exitFill[c] - exitCount[c];
+                exitNodes[l][exitFill[c]++] = v;
+            }
+        }
+        int[] offsets = new int[cells + 1];
+        for (int c = 0; c < cells; c++) {
+            long size = (long) (entryCount[c + 1] - entryCount[c]) * (exitCount[c + 1] - exitCount[c]);
+            offsets[c + 1] = Math.toIntExact(offsets[c] + size);
+        }
+        cliqueOffsets[l] = offsets;
+    }
+
+    /**
+     * Calcula a clique de uma célula: uma busca por entrada, limitada à célula.
+     * No nível 1 a busca usa o grafo original; acima, usa as cliques das subcélulas
+     * e os arcos de fronteira entre elas.
+     */
+    private void customizeCell(Customization custom, int li, int cell) {
+        int entriesStart = entryOffsets[li][cell];
+        int entryCount = entryOffsets[li][cell + 1] - entriesStart;
+        int exitsStart = exitOffsets[li][cell];
+        int exitCount = exitOffsets[li][cell + 1] - exitsStart;
+        if (entryCount == 0 || exitCount == 0) return;
+
+        Workspace ws = workspaces.get();
+        double[] metric = custom.metric;
+        double[][] cliques = custom.cliques;
+        double[] clique = cliques[li];
+        int base = cliqueOffsets[li][cell];
+        for (int e = 0; e < entryCount; e++) {
+            int source = entryNodes[li][entriesStart + e];
+            ws.reset();
+            ws.touch(source);
+            ws.distance[source] = 0.0;
+            ws.heap.insertOrDecrease(source, 0.0);
+            while (!ws.heap.isEmpty()) {
+                int u = ws.heap.poll();
+                double du = ws.distance[u];
+                if (li == 0) {
+                    for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                        int w = snapshot.head(arc);
+                        if (cellOf[0][w] == cell) relax(ws, u, w, du + metric[arc], -1);
+                    }
+                    continue;
+                }
+                int sub = li - 1;
+                int subCell = cellOf[sub][u];
+                int subEntry = entryIndexOf[sub][u];
+                if (subEntry >= 0) {
+                    int subExitsStart = exitOffsets[sub][subCell];
+                    int subExitCount = exitOffsets[sub][subCell + 1] - subExitsStart;
+                    int subBase = cliqueOffsets[sub][subCell] + subEntry * subExitCount;
+                    for (int x = 0; x < subExitCount; x++) {
+                        double cost = cliques[sub][subBase + x];
+                        if (cost < Double.POSITIVE_INFINITY) {
+                            relax(ws, u, exitNodes[sub][subExitsStart + x], du + cost, -1);
+                        }
+                    }
+                }
+                if (exitIndexOf[sub][u] >= 0) {
+                    for (int arc = snapshot.firstOut(u); arc < snapshot.endOut(u); arc++) {
+                        int w = snapshot.head(arc);
+                        if (cellOf[sub][w] != subCell && cellOf[li][w] == cell) {
+                            relax(ws, u, w, du + metric[arc], -1);
+                        }
+                    }
+                }
+            }
+            for (int x = 0; x < exitCount; x++) {
+                int exit = exitNodes[li][exitsStart + x];
+                clique[base + e * exitCount + x] = ws.stamp[exit] == ws.currentStamp ? ws.distance[exit] : Double.POSITIVE_INFINITY;
+            }
+        }
+        ws.heap.clear();
+    }
+
+    /** Métrica e cliques calculadas a partir dela. */
+    private static final class Customization {
+        final double[] metric;
+        final double[][] cliques; // [nível][...] matriz entradas x saídas por célula
+
+        Customization(double[] metric, double[][] cliques) {
+            this.metric = metric;
+            this.cliques = cliques;
+        }
+    }
+
+    /** Espaço de trabalho por thread, reaproveitado com carimbos de versão. */
+    private static final class Workspace {
+        final double[] distance;
+        final int[] parent;
+        final int[] parentLevel;
+        final int[] stamp;
+        final IndexedMinHeap heap;
+        int currentStamp;
+
+        Workspace(int n) {
+            distance = new double[n];
+            parent = new int[n];
+            parentLevel = new int[n];
+            stamp = new int[n];
+            heap = new IndexedMinHeap(n);
+        }
+
+        void reset() {
+            heap.clear();
+            if (++currentStamp == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                currentStamp = 1;
+            }
+        }
+
+        void touch(int v) {
+            if (stamp[v] != currentStamp) {
+                stamp[v] = currentStamp;
+                distance[v] = Double.POSITIVE_INFINITY;
+                parent[v] = -1;
+                parentLevel[v] = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package routing;
+
+import model.GraphSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Caminhos mínimos de uma origem para todos os nós por delta-stepping paralelo.
+ *
+ * Os nós ficam em baldes de largura {@code delta} pela distância provisória. Em
+ * cada balde, arestas leves (peso <= delta) são relaxadas em fases paralelas até o
+ * balde esvaziar; depois as arestas pesadas dos nós assentados no balde são
+ * relaxadas uma única vez. As distâncias ficam em um {@link AtomicLongArray} com os
+ * bits do double e são atualizadas por CAS (para doubles não negativos a ordem dos
+ * bits é a mesma ordem numérica).
+ *
+ * Cada distância final é a menor soma, na ordem do caminho, entre todos os caminhos
+ * até o nó; é exatamente o valor que o Dijkstra calcula, bit a bit, qualquer que
+ * seja a ordem das relaxações. Os predecessores são escolhidos depois, entre as
+ * arestas "justas" (d[u] + w == d[v]).
+ *
+ * Não é thread-safe: uma instância executa uma origem por vez, usando o pool para
+ * paralelizar internamente.
+ */
+public class DeltaStepping {
+    private static final int PARALLEL_THRESHOLD = 512;
+    private static final long INFINITY_BITS = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+
+    private final GraphSnapshot snapshot;
+    private final double delta;
+    private final ForkJoinPool pool;
+    private final AtomicLongArray distance;
+    private final AtomicIntegerArray mark;   // deduplicação por fase
+    private final int[] bucketStamp;         // deduplicação por balde (só na thread coordenadora)
+    private int phase;
+    private int bucketVersion;
+
+    public DeltaStepping(GraphSnapshot snapshot, double delta, ForkJoinPool pool) {
+        if (!(delta > 0)) throw new IllegalArgumentException("delta deve ser positivo: " + delta);
+        this.snapshot = snapshot;
+        this.delta = delta;
+        this.pool = pool;
+        int n = snapshot.getNumNodes();
+        this.distance = new AtomicLongArray(n);
+        this.mark = new AtomicIntegerArray(n);
+        this.bucketStamp = new int[n];
+    }
+
+    public DeltaStepping(GraphSnapshot snapshot, double delta) {
+        this(snapshot, delta, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sugestão de delta: peso médio dos arcos vezes o grau médio, o ponto de
+     * partida usual em grafos viários (poucos reprocessamentos, baldes cheios).
+     */
+    public static double suggestDelta(GraphSnapshot snapshot) {
+        int m = snapshot.getNumArcs();
+        int n = Math.max(1, snapshot.getNumNodes());
+        if (m == 0) return 1.0;
+        double total = 0;
+        for (int arc = 0; arc < m; arc++) total += snapshot.weight(arc);
+        double avg = total / m;
+        return avg > 0 ? avg * Math.max(1.0, (double) m / n) : 1.0;
+    }
+
+    public double getDelta() { return delta; }
+
+    /**
+     * Resultado de uma execução: distâncias e predecessores por índice denso.
+     */
+    public static class Result {
+        public final double[] distances;
+        public final int[] parents;
+        public final int bucketsProcessed;
+        public final int phases;
+        public final double processingTimeMs;
+
+        Result(double[] distances, int[] parents, int bucketsProcessed, int phases, double processingTimeMs) {
+            this.distances = distances;
+            this.parents = parents;
+            this.bucketsProcessed = bucketsProcessed;
+            this.phases = phases;
+            this.processingTimeMs = processingTimeMs;
+        }
+
+        /** Caminho até o índice informado, como índices densos (vazio se inalcançável). */
+        public List<Integer> pathTo(int index) {
+            List<Integer> path = new ArrayList<>();
+            if (distances[index] == Double.POSITIVE_INFINITY) return path;
+            for (int v = index; v >= 0; v = parents[v]) path.add(v);
+            Collections.reverse(path);
+            return path;
+        }
+    }
+
+    /** Executa a partir de {@code source} (índice denso). */
+    public Result run(int source) {
+        long startTime = System.nanoTime();
+        int n = snapshot.getNumNodes();
+        for (int v = 0; v < n; v++) distance.set(v, INFINITY_BITS);
+        distance.set(source, Double.doubleToRawLongBits(0.0));
+
+        TreeMap<Long, IntList> buckets = new TreeMap<>();
+        IntList first = new IntList();
+        first.add(source);
+        buckets.put(0L, first);
+        int bucketsProcessed = 0;
+        int phases = 0;
+
+        while (!buckets.isEmpty()) {
+            Map.Entry<Long, IntList> entry = buckets.pollFirstEntry();
+            long current = entry.getKey();
+            IntList frontier = filterBucket(entry.getValue(), current);
+            if (frontier.size == 0) continue;
+            bucketsProcessed++;
+            IntList settled = new IntList();
+            int settledVersion = nextBucketVersion();
+
+            // Fases leves: repetem enquanto algum nó voltar para o balde atual
+            while (frontier.size > 0) {
+                phases++;
+                for (int i = 0; i < frontier.size; i++) {
+                    int v = frontier.data[i];
+                    if (bucketStamp[v] != settledVersion) {
+                        bucketStamp[v] = settledVersion;
+                        settled.add(v);
+                    }
+                }
+                IntList improved = relaxAll(frontier, true);
+                frontier = new IntList();
+                distribute(improved, current, frontier, buckets);
+            }
+
+            // Fase pesada: uma vez por balde, com todos os nós assentados nele
+            phases++;
+            IntList improved = relaxAll(settled, false);
+            distribute(improved, current, null, buckets);
+        }
+
+        double[] result = new double[n];
+        for (int v = 0; v < n; v++) result[v] = Double.longBitsToDouble(distance.get(v));
+        int[] parents = computeParents(result, source);
+        double processingTimeMs = (System.nanoTime() - startTime) / 1_000_000.0;
+        return new Result(result, parents, bucketsProcessed, phases, processingTimeMs);
+    }
+
+    private long bucketOf(double d) {
+        return (long) Math.floor(d / delta);
+    }
+
+    /** Remove do balde entradas obsoletas (o nó já desceu para outro balde) e repetidas. */
+    private IntList filterBucket(IntList entries, long bucket) {
+        int version = nextBucketVersion();
+        IntList result = new IntList();
+        for (int i = 0; i < entries.size; i++) {
+            int v = entries.data[i];
+            if (bucketStamp[v] == version) continue;
+            if (bucketOf(Double.longBitsToDouble(distance.get(v))) != bucket) continue;
+            bucketStamp[v] = version;
+            result.add(v);
+        }
+        return result;
+    }
+
+    /** Coloca cada nó melhorado no balde da sua distância atual (o balde corrente vai para {@code sameBucket}). */
+    private void distribute(IntList improved, long current, IntList sameBucket, TreeMap<Long, IntList> buckets) {
+        for (int i = 0; i < improved.size; i++) {
+            int v = improved.data[i];
+            long b = bucketOf(Double.longBitsToDouble(distance.get(v)));
+            if (b == current && sameBucket != null) {
+                sameBucket.add(v);
+            } else {
+                buckets.computeIfAbsent(b, k -> new IntList()).add(v);
+            }
+        }
+    }
+
+    /**
+     * Relaxa as arestas leves (ou pesadas) dos nós informados. Listas pequenas são
+     * processadas na própria thread; as grandes são divididas entre as threads do pool.
+     */
+    private IntList relaxAll(IntList nodes, boolean light) {
+        int currentPhase = nextPhase();
+        if (nodes.size < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+            IntList out = new IntList();
+            relaxRange(nodes.data, 0, nodes.size, light, currentPhase, out);
+            return out;
+        }
+        int chunks = pool.getParallelism() * 4;
+        int chunkSize = (nodes.size + chunks - 1) / chunks;
+        List<Callable<IntList>> tasks = new ArrayList<>(chunks);
+        for (int from = 0; from < nodes.size; from += chunkSize) {
+            int begin = from;
+            int end = Math.min(nodes.size, from + chunkSize);
+            tasks.add(() -> {
+                IntList out = new IntList();
+                relaxRange(nodes.data, begin, end, light, currentPhase, out);
+                return out;
+            });
+        }
+        IntList merged = new IntList();
+        try {
+            for (Future<IntList> future : pool.invokeAll(tasks)) merged.addAll(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Delta-stepping interrompido.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha em uma fase do delta-stepping.", e.getCause());
+        }
+        return merged;
+    }
+
+    private void relaxRange(int[] nodes, int begin, int end, boolean light, int currentPhase, IntList out) {
+        for (int i = begin; i < end; i++) {
+            int u = nodes[i];
+            double du = Double.longBitsToDouble(distance.get(u));
+            for (int arc = snapshot.firstOut(u), arcEnd = snapshot.endOut(u); arc < arcEnd; arc++) {
+                double w = snapshot.weight(arc);
+                if ((w <= delta) != light) continue;
+                int v = snapshot.head(arc);
+                if (relax(v, du + w)) {
+                    int previous = mark.get(v);
+                    if (previous != currentPhase && mark.compareAndSet(v, previous, currentPhase)) out.add(v);
+                }
+            }
+        }
+    }
+
+    /** Mínimo atômico: grava {@code candidate} se for menor que a distância atual. */
+    private boolean relax(int v, double candidate) {
+        long candidateBits = Double.doubleToRawLongBits(candidate);
+        long currentBits = distance.get(v);
+        while (candidateBits < currentBits) {
+            if (distance.compareAndSet(v, currentBits, candidateBits)) return true;
+            currentBits = distance.get(v);
+        }
+        return false;
+    }
+
+    /**
+     * Predecessores a partir das distâncias finais. Um arco justo com d[u] < d[v]
+     * resolve o nó em paralelo; nós que só têm arcos justos de peso zero (mesma
+     * distância) são ligados depois, a partir de nós já resolvidos, para não formar ciclos.
+     */
+    private int[] computeParents(double[] dist, int source) {
+        int n = dist.length;
+        int[] parents = new int[n];
+        Arrays.fill(parents, -1);
+        try {
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(v -> {
+                if (v == source || dist[v] == Double.POSITIVE_INFINITY) return;
+                for (int a = snapshot.firstIn(v), end = snapshot.endIn(v); a < end; a++) {
+                    int u = snapshot.tail(a);
+                    if (dist[u] < dist[v] && dist[u] + snapshot.weight(snapshot.inArcToArc(a)) == dist[v]) {
+                        parents[v] = u;
+                        return;
+                    }
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Delta-stepping interrompido.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao calcular predecessores.", e.getCause());
+        }
+
+        IntList pending = new IntList();
+        for (int v = 0; v < n; v++) {
+            if (v != source && parents[v] < 0 && dist[v] < Double.POSITIVE_INFINITY) pending.add(v);
+        }
+        boolean changed = true;
+        while (pending.size > 0 && changed) {
+            changed = false;
+            IntList still = new IntList();
+            for (int i = 0; i < pending.size; i++) {
+                int v = pending.data[i];
+                for (int a = snapshot.firstIn(v), end = snapshot.endIn(v); a < end; a++) {
+                    int u = snapshot.tail(a);
+                    boolean resolved = u == source || parents[u] >= 0;
+                    if (resolved && dist[u] + snapshot.weight(snapshot.inArcToArc(a)) == dist[v]) {
+                        parents[v] = u;
+                        changed = true;
+                        break;
+                    }
+                }
+                if (parents[v] < 0) still.add(v);
+            }
+            pending = still;
+        }
+        return parents;
+    }
+
+    private int nextPhase() {
+        phase++;
+        if (phase == Integer.MAX_VALUE) {
+            for (int v = 0; v < mark.length(); v++) mark.set(v, 0);
+            phase = 1;
+        }
+        return phase;
+    }
+
+    private int nextBucketVersion() {
+        bucketVersion++;
+        if (bucketVersion == Integer.MAX_VALUE) {
+            Arrays.fill(bucketStamp, 0);
+            bucketVersion = 1;
+        }
+        return bucketVersion;
+    }
+
+    /** Lista crescente de ints, sem boxing. */
+    private static final class IntList {
+        int[] data = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > data.length) data = Arrays.copyOf(data, Math.max(size + other.size, data.length * 2));
+            System.arraycopy(other.data, 0, data, size, other.size);
+            size += other.size;
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package routing;
+
+import metrics.RouteQueryEvent;
+import model.Graph;
+import model.GraphSnapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Oráculo de distâncias por rotulação de hubs (Pruned Landmark Labeling).
+ *
+ * Cada nó guarda um rótulo de saída (hubs alcançáveis a partir dele) e um de
+ * entrada (hubs que o alcançam), com a distância até cada hub. Como todo menor
+ * caminho passa por algum hub comum, a distância s -> t é o mínimo de
+ * out(s)[h] + in(t)[h], obtido por um merge dos dois rótulos ordenados pelo rank
+ * do hub. Os rótulos ficam em arrays planos (offsets + hubs + distâncias) e podem
+ * ser gravados em disco e abertos por mapeamento de memória.
+ *
+ * Cada entrada guarda também o vizinho seguinte no caminho até o hub, o que
+ * permite reconstruir a rota sem nenhuma busca no grafo.
+ */
+public class HubLabels {
+    private static final int FILE_MAGIC = 0x48554C42; // "HULB"
+    private static final int FILE_VERSION = 1;
+    private static final int ORDER_SAMPLES = 32;
+
+    private final int n;
+    private final IntBuffer nodeIds;       // índice -> ID interno (ordenado)
+    private final IntBuffer rankToNode;    // rank do hub -> índice do nó
+    // Rótulos de saída: nó -> hubs que ele alcança
+    private final IntBuffer outOffsets;
+    private final IntBuffer outHubs;       // rank do hub
+    private final DoubleBuffer outDists;
+    private final IntBuffer outNext;       // próximo nó no caminho até o hub (-1 no próprio hub)
+    // Rótulos de entrada: nó -> hubs que o alcançam
+    private final IntBuffer inOffsets;
+    private final IntBuffer inHubs;
+    private final DoubleBuffer inDists;
+    private final IntBuffer inPrev;        // nó anterior no caminho a partir do hub
+
+    private HubLabels(int n, IntBuffer nodeIds, IntBuffer rankToNode,
+                      IntBuffer outOffsets, IntBuffer outHubs, DoubleBuffer outDists, IntBuffer outNext,
+                      IntBuffer inOffsets, IntBuffer inHubs, DoubleBuffer inDists, IntBuffer inPrev) {
+        this.n = n;
+        this.nodeIds = nodeIds;
+        this.rankToNode = rankToNode;
+        this.outOffsets = outOffsets;
+        this.outHubs = outHubs;
+        this.outDists = outDists;
+        this.outNext = outNext;
+        this.inOffsets = inOffsets;
+        this.inHubs = inHubs;
+        this.inDists = inDists;
+        this.inPrev = inPrev;
+    }
+
+    // ------------------------------------------------------------------
+    // Construção
+    // ------------------------------------------------------------------
+
+    /**
+     * Calcula os rótulos de todos os nós. O custo cresce rapidamente com o tamanho
+     * do grafo; confira {@link #getStatistics()} para saber se o mapa é adequado.
+     */
+    public static HubLabels build(GraphSnapshot g) {
+        int n = g.getNumNodes();
+        int[] rankToNode = computeOrder(g);
+        int[] rankOf = new int[n];
+        for (int r = 0; r < n; r++) rankOf[rankToNode[r]] = r;
+
+        LabelLists out = new LabelLists(n);
+        LabelLists in = new LabelLists(n);
+        double[] hubDist = new double[n]; // por rank: distância do rótulo do hub atual
+        Arrays.fill(hubDist, Double.POSITIVE_INFINITY);
+
+        double[] dist = new double[n];
+        int[] pred = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        int[] touched = new int[n];
+
+        for (int rank = 0; rank < n; rank++) {
+            int hub = rankToNode[rank];
+
+            // Busca para frente: hub -> v, grava em in(v)
+            out.load(hub, hubDist);
+            int touchedCount = prunedSearch(g, hub, rank, true, in, hubDist, dist, pred, heap, touched);
+            out.unload(hub, hubDist);
+            resetTouched(touched, touchedCount, dist);
+
+            // Busca para trás: v -> hub, grava em out(v)
+            in.load(hub, hubDist);
+            touchedCount = prunedSearch(g, hub, rank, false, out, hubDist, dist, pred, heap, touched);
+            in.unload(hub, hubDist);
+            resetTouched(touched, touchedCount, dist);
+        }
+
+        int[] ids = new int[n];
+        for (int v = 0; v < n; v++) ids[v] = g.nodeId(v);
+        int[][] outFlat = out.flatten();
+        int[][] inFlat = in.flatten();
+        return new HubLabels(n, IntBuffer.wrap(ids), IntBuffer.wrap(rankToNode),
+                IntBuffer.wrap(outFlat[0]), IntBuffer.wrap(outFlat[1]), DoubleBuffer.wrap(out.flatDists()), IntBuffer.wrap(outFlat[2]),
+                IntBuffer.wrap(inFlat[0]), IntBuffer.wrap(inFlat[1]), DoubleBuffer.wrap(in.flatDists()), IntBuffer.wrap(inFlat[2]));
+    }
+
+    /**
+     * Dijkstra podado a partir do hub. Um nó é podado quando os rótulos já
+     * existentes provam uma distância menor ou igual: nem ganha o hub, nem é expandido.
+     */
+    private static int prunedSearch(GraphSnapshot g, int hub, int rank, boolean forward, LabelLists target,
+                                    double[] hubDist, double[] dist, int[] pred, IndexedMinHeap heap, int[] touched) {
+        int touchedCount = 0;
+        dist[hub] = 0.0;
+        pred[hub] = -1;
+        touched[touchedCount++] = hub;
+        heap.insertOrDecrease(hub, 0.0);
+        while (!heap.isEmpty()) {
+            int v = heap.poll();
+            double d = dist[v];
+            if (target.queryAgainst(v, hubDist) <= d) continue;
+            target.add(v, rank, d, pred[v]);
+
+            int begin = forward ? g.firstOut(v) : g.firstIn(v);
+            int end = forward ? g.endOut(v) : g.endIn(v);
+            for (int a = begin; a < end; a++) {
+                int w = forward ? g.head(a) : g.tail(a);
+                double nd = d + g.weight(forward ? a : g.inArcToArc(a));
+                if (nd < dist[w]) {
+                    if (dist[w] == Double.POSITIVE_INFINITY) touched[touchedCount++] = w;
+                    dist[w] = nd;
+                    pred[w] = v;
+                    heap.insertOrDecrease(w, nd);
+                }
+            }
+        }
+        return touchedCount;
+    }
+
+    private static void resetTouched(int[] touched, int count, double[] dist) {
+        for (int i = 0; i < count; i++) dist[touched[i]] = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Ordem de importância dos hubs: nós que cobrem mais caminhos em árvores de
+     * menores caminhos amostradas vêm primeiro (grau como desempate).
+     */
+    private static int[] computeOrder(GraphSnapshot g) {
+        int n = g.getNumNodes();
+        long[] score = new long[n];
+        Random random = new Random(42);
+        SnapshotDijkstra dijkstra = new SnapshotDijkstra(g);
+        int samples = Math.min(ORDER_SAMPLES, n);
+        int[] parent = new int[n];
+        long[] subtree = new long[n];
+        Integer[] byDistance = new Integer[n];
+        for (int s = 0; s < samples; s++) {
+            int root = random.nextInt(n);
+            double[] d = dijkstra.distancesFrom(root);
+            // Pais na árvore e ordem decrescente de distância para acumular subárvores
+            for (int v = 0; v < n; v++) {
+                parent[v] = -1;
+                subtree[v] = d[v] < Double.POSITIVE_INFINITY ? 1 : 0;
+                for (int a = g.firstIn(v); a < g.endIn(v) && v != root; a++) {
+                    int u = g.tail(a);
+                    if (d[u] + g.weight(g.inArcToArc(a)) == d[v]) { parent[v] = u; break; }
+                }
+            }
+            for (int v = 0; v < n; v++) byDistance[v] = v;
+            Arrays.sort(byDistance, (a, b) -> Double.compare(d[b], d[a]));
+            for (int v : byDistance) {
+                if (parent[v] >= 0) subtree[parent[v]] += subtree[v];
+            }
+            for (int v = 0; v < n; v++) score[v] += subtree[v];
+        }
+        Integer[] nodes = new Integer[n];
+        for (int v = 0; v < n; v++) nodes[v] = v;
+        Arrays.sort(nodes, (a, b) -> {
+            int c = Long.compare(score[b], score[a]);
+            if (c != 0) return c;
+            int degA = g.endOut(a) - g.firstOut(a) + g.endIn(a) - g.firstIn(a);
+            int degB = g.endOut(b) - g.firstOut(b) + g.endIn(b) - g.firstIn(b);
+            return Integer.compare(degB, degA);
+        });
+        int[] rankToNode = new int[n];
+        for (int r = 0; r < n; r++) rankToNode[r] = nodes[r];
+        return rankToNode;
+    }
+
+    // ------------------------------------------------------------------
+    // Consultas
+    // ------------------------------------------------------------------
+
+    public int getNumNodes() { return n; }
+
+    /** Distância entre dois nós (IDs internos); infinito se não houver caminho. */
+    public double distance(int sourceId, int targetId) {
+        int s = indexOf(sourceId);
+        int t = indexOf(targetId);
+        if (s < 0 || t < 0) return Double.POSITIVE_INFINITY;
+        return distanceVia(s, t, meetingHub(s, t));
+    }
+
+    /**
+     * Menor caminho reconstruído pelos ponteiros guardados nos rótulos.
+     */
+    public Graph.PathResult route(int sourceId, int targetId) {
+        long start = System.nanoTime();
+        int s = indexOf(sourceId);
+        int t = indexOf(targetId);
+        if (s < 0 || t < 0) return new Graph.PathResult(new ArrayList<>(), Double.POSITIVE_INFINITY, 0, 0);
+
+        RouteQueryEvent event = RouteQueryEvent.start("HubLabels");
+        int hubRank = meetingHub(s, t);
+        double cost = distanceVia(s, t, hubRank);
+        List<Integer> path = new ArrayList<>();
+        if (hubRank >= 0) {
+            int hub = rankToNode.get(hubRank);
+            // s -> hub seguindo os "próximos" dos rótulos de saída
+            int v = s;
+            while (v != hub) {
+                path.add(nodeIds.get(v));
+                v = outNext.get(findEntry(outOffsets, outHubs, v, hubRank));
+            }
+            // hub -> t: os ponteiros de entrada apontam para trás, então montamos invertido
+            List<Integer> tail = new ArrayList<>();
+            v = t;
+            while (v != hub) {
+                tail.add(nodeIds.get(v));
+                v = inPrev.get(findEntry(inOffsets, inHubs, v, hubRank));
+            }
+            path.add(nodeIds.get(hub));
+            for (int i = tail.size() - 1; i >= 0; i--) path.add(tail.get(i));
+        }
+        double processingTimeMs = (System.nanoTime() - start) / 1_000_000.0;
+        event.finish(sourceId, targetId, cost, path.size(), 0);
+        return new Graph.PathResult(path, cost, processingTimeMs, 0);
+    }
+
+    /** Merge dos rótulos ordenados: rank do hub com menor soma, ou -1 se não há hub comum. */
+    private int meetingHub(int s, int t) {
+        int i = outOffsets.get(s), iEnd = outOffsets.get(s + 1);
+        int j = inOffsets.get(t), jEnd = inOffsets.get(t + 1);
+        double best = Double.POSITIVE_INFINITY;
+        int bestRank = -1;
+        while (i < iEnd && j < jEnd) {
+            int hi = outHubs.get(i), hj = inHubs.get(j);
+            if (hi == hj) {
+                double d = outDists.get(i) + inDists.get(j);
+                if (d < best) { best = d; bestRank = hi; }
+                i++;
+                j++;
+            } else if (hi < hj) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return bestRank;
+    }
+
+    private double distanceVia(int s, int t, int hubRank) {
+        if (hubRank < 0) return Double.POSITIVE_INFINITY;
+        return outDists.get(findEntry(outOffsets, outHubs, s, hubRank))
+                + inDists.get(findEntry(inOffsets, inHubs, t, hubRank));
+    }
+
+    private static int findEntry(IntBuffer offsets, IntBuffer hubs, int v, int hubRank) {
+        int lo = offsets.get(v), hi = offsets.get(v + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int h = hubs.get(mid);
+            if (h < hubRank) lo = mid + 1;
+            else if (h > hubRank) hi = mid - 1;
+            else return mid;
+        }
+        throw new IllegalStateException("Rótulo sem o hub esperado (arquivo de rótulos inconsistente?).");
+    }
+
+    private int indexOf(int nodeId) {
+        int lo = 0, hi = n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int id = nodeIds.get(mid);
+            if (id < nodeId) lo = mid + 1;
+            else if (id > nodeId) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // ------------------------------------------------------------------
+    // Estatísticas
+    // ------------------------------------------------------------------
+
+    public LabelStatistics getStatistics() {
+        return new LabelStatistics(n, outOffsets, inOffsets);
+    }
+
+    /**
+     * Tamanho dos rótulos. Rótulos médios de poucas centenas de entradas dão
+     * consultas em microssegundos; muito acima disso o mapa é grande demais.
+     */
+    public static class LabelStatistics {
+        public final int nodes;
+        public final long outEntries, inEntries;
+        public final double avgOut, avgIn;
+        public final int maxOut, maxIn;
+
+        LabelStatistics(int nodes, IntBuffer outOffsets, IntBuffer inOffsets) {
+            this.nodes = nodes;
+            int mo = 0, mi = 0;
+            for (int v = 0; v < nodes; v++) {
+                mo = Math.max(mo, outOffsets.get(v + 1) - outOffsets.get(v));
+                mi = Math.max(mi, inOffsets.get(v + 1) - inOffsets.get(v));
+            }
+            this.outEntries = nodes > 0 ? outOffsets.get(nodes) : 0;
+            this.inEntries = nodes > 0 ? inOffsets.get(nodes) : 0;
+            this.avgOut = nodes > 0 ? (double) outEntries / nodes : 0;
+            this.avgIn = nodes > 0 ? (double) inEntries / nodes : 0;
+            this.maxOut = mo;
+            this.maxIn = mi;
+        }
+
+        /** Bytes ocupados pelos rótulos (hub + distância + ponteiro por entrada). */
+        public long getLabelBytes() {
+            return (outEntries + inEntries) * (4 + 8 + 4) + 2L * (nodes + 1) * 4;
+        }
+
+        public boolean isSuitableForInteractiveUse() {
+            return avgOut + avgIn <= 1000 && getLabelBytes() <= 2L * 1024 * 1024 * 1024;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d nós | rótulo médio saída %.1f / entrada %.1f | máx %d / %d | %.1f MB | %s",
+                    nodes, avgOut, avgIn, maxOut, maxIn, getLabelBytes() / (1024.0 * 1024.0),
+                    isSuitableForInteractiveUse() ? "adequado para consultas interativas" : "rótulos grandes demais para este mapa");
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Persistência
+    // ------------------------------------------------------------------
+
+    /** Grava os rótulos em um arquivo binário (ordem de bytes nativa, pronto para mmap). */
+    public void save(Path file) throws IOException {
+        long outCount = outOffsets.get(n);
+        long inCount = inOffsets.get(n);
+        long size = headerBytes() + (long) n * 4 * 2 + (long) (n + 1) * 4 * 2
+                + outCount * (4 + 8 + 4) + inCount * (4 + 8 + 4);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.nativeOrder());
+            buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(n).putInt(0)
+                    .putLong(outCount).putLong(inCount);
+            putInts(buffer, nodeIds, n);
+            putInts(buffer, rankToNode, n);
+            putInts(buffer, outOffsets, n + 1);
+            putInts(buffer, inOffsets, n + 1);
+            putDoubles(buffer, outDists, (int) outCount);
+            putDoubles(buffer, inDists, (int) inCount);
+            putInts(buffer, outHubs, (int) outCount);
+            putInts(buffer, outNext, (int) outCount);
+            putInts(buffer, inHubs, (int) inCount);
+            putInts(buffer, inPrev, (int) inCount);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Abre rótulos gravados com {@link #save(Path)}. Com {@code memoryMapped} os
+     * arrays ficam no arquivo mapeado e só as páginas consultadas vão para a memória.
+     */
+    public static HubLabels load(Path file, boolean memoryMapped) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Arquivo de rótulos maior que 2 GB não suportado: " + file);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!memoryMapped) {
+                ByteBuffer heap = ByteBuffer.allocate((int) channel.size());
+                heap.put(buffer);
+                heap.flip();
+                buffer = heap;
+            }
+            buffer.order(ByteOrder.nativeOrder());
+            if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) {
+                throw new IOException("Arquivo de rótulos inválido ou de versão diferente: " + file);
+            }
+            int n = buffer.getInt();
+            buffer.getInt();
+            int outCount = Math.toIntExact(buffer.getLong());
+            int inCount = Math.toIntExact(buffer.getLong());
+            IntBuffer nodeIds = sliceInts(buffer, n);
+            IntBuffer rankToNode = sliceInts(buffer, n);
+            IntBuffer outOffsets = sliceInts(buffer, n + 1);
+            IntBuffer inOffsets = sliceInts(buffer, n + 1);
+            DoubleBuffer outDists = sliceDoubles(buffer, outCount);
+            DoubleBuffer inDists = sliceDoubles(buffer, inCount);
+            IntBuffer outHubs = sliceInts(buffer, outCount);
+            IntBuffer outNext = sliceInts(buffer, outCount);
+            IntBuffer inHubs = sliceInts(buffer, inCount);
+            IntBuffer inPrev = sliceInts(buffer, inCount);
+            return new HubLabels(n, nodeIds, rankToNode, outOffsets, outHubs, outDists, outNext,
+                    inOffsets, inHubs, inDists, inPrev);
+        }
+    }
+
+    private static int headerBytes() { return 4 * 4 + 8 * 2; }
+
+    private static void putInts(ByteBuffer buffer, IntBuffer values, int count) {
+        for (int i = 0; i < count; i++) buffer.putInt(values.get(i));
+    }
+
+    private static void putDoubles(ByteBuffer buffer, DoubleBuffer values, int count) {
+        for (int i = 0; i < count; i++) buffer.putDouble(values.get(i));
+    }
+
+    private static IntBuffer sliceInts(ByteBuffer buffer, int count) {
+        ByteBuffer slice = buffer.slice().order(buffer.order());
+        slice.limit(count * 4);
+        buffer.position(buffer.position() + count * 4);
+        return slice.asIntBuffer();
+    }
+
+    private static DoubleBuffer sliceDoubles(ByteBuffer buffer, int count) {
+        ByteBuffer slice = buffer.slice().order(buffer.order());
+        slice.limit(count * 8);
+        buffer.position(buffer.position() + count * 8);
+        return slice.asDoubleBuffer();
+    }
+
+    /**
+     * Rótulos em construção: listas crescentes por nó, achatadas no final.
+     */
+    private static final class LabelLists {
+        private final int[][] hubs;
+        private final double[][] dists;
+        private final int[][] pointers;
+        private final int[] sizes;
+
+        LabelLists(int n) {
+            hubs = new int[n][];
+            dists = new double[n][];
+            pointers = new int[n][];
+            sizes = new int[n];
+        }
+
+        void add(int v, int hubRank, double d, int pointer) {
+            int size = sizes[v];
+            if (hubs[v] == null) {
+                hubs[v] = new int[4];
+                dists[v] = new double[4];
+                pointers[v] = new int[4];
+            } else if (size == hubs[v].length) {
+                hubs[v] = Arrays.copyOf(hubs[v], size * 2);
+                dists[v] = Arrays.copyOf(dists[v], size * 2);
+                pointers[v] = Arrays.copyOf(pointers[v], size * 2);
+            }
+            hubs[v][size] = hubRank;
+            dists[v][size] = d;
+            pointers[v][size] = pointer;
+            sizes[v] = size + 1;
+        }
+
+        /** Copia o rótulo de v para um array indexado por rank (para a poda). */
+        void load(int v, double[] byRank) {
+            for (int i = 0; i < sizes[v]; i++) byRank[hubs[v][i]] = dists[v][i];
+        }
+
+        void unload(int v, double[] byRank) {
+            for (int i = 0; i < sizes[v]; i++) byRank[hubs[v][i]] = Double.POSITIVE_INFINITY;
+        }
+
+        /** Menor distância provada pelos hubs de v combinados com o rótulo carregado. */
+        double queryAgainst(int v, double[] byRank) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < sizes[v]; i++) {
+                double d = byRank[hubs[v][i]] + dists[v][i];
+                if (d < best) best = d;
+            }
+            return best;
+        }
+
+        /** Retorna {offsets, hubs, ponteiros}. */
+        int[][] flatten() {
+            int n = sizes.length;
+            int[] offsets = new int[n + 1];
+            for (int v = 0; v < n; v++) offsets[v + 1] = offsets[v] + sizes[v];
+            int[] flatHubs = new int[offsets[n]];
+            int[] flatPointers = new int[offsets[n]];
+            for (int v = 0; v < n; v++) {
+                if (sizes[v] == 0) continue;
+                System.arraycopy(hubs[v], 0, flatHubs, offsets[v], sizes[v]);
+                System.arraycopy(pointers[v], 0, flatPointers, offsets[v], sizes[v]);
+            }
+            return new int[][] { offsets, flatHubs, flatPointers };
+        }
+
+        double[] flatDists() {
+            int total = 0;
+            for (int size : sizes) total += size;
+            double[] flat = new double[total];
+            int pos = 0;
+            for (int v = 0; v < sizes.length; v++) {
+                if (sizes[v] == 0) continue;
+                System.arraycopy(dists[v], 0, flat, pos, sizes[v]);
+                pos += sizes[v];
+            }
+            return flat;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package routing;
+
+import java.util.Arrays;
+
+/**
+ * Heap binário de índices densos (0..capacity-1) com prioridade double e
+ * decrease-key. Pode ser reutilizado entre buscas com {@link #clear()} em
+ * tempo proporcional ao número de elementos ainda no heap.
+ */
+final class IndexedMinHeap {
+    private final int[] heap;        // posição -> índice do nó
+    private final double[] keys;     // índice do nó -> prioridade
+    private final int[] position;    // índice do nó -> posição no heap (-1 se ausente)
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        this.heap = new int[Math.max(1, capacity)];
+        this.keys = new double[Math.max(1, capacity)];
+        this.position = new int[Math.max(1, capacity)];
+        Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty() { return size == 0; }
+    int size() { return size; }
+    boolean contains(int node) { return position[node] >= 0; }
+    double peekKey() { return keys[heap[0]]; }
+    int peek() { return heap[0]; }
+    /** Nó na posição {@code i} do heap (0..size-1), sem ordem garantida além da raiz. */
+    int at(int i) { return heap[i]; }
+
+    /** Insere o nó ou diminui sua prioridade. Retorna false se a prioridade atual já era menor ou igual. */
+    boolean insertOrDecrease(int node, double key) {
+        int pos = position[node];
+        if (pos < 0) {
+            keys[node] = key;
+            heap[size] = node;
+            position[node] = size;
+            siftUp(size++);
+            return true;
+        }
+        if (key >= keys[node]) return false;
+        keys[node] = key;
+        siftUp(pos);
+        return true;
+    }
+
+    int poll() {
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) position[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int pos) {
+        int node = heap[pos];
+        double key = keys[node];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            int parentNode = heap[parent];
+            if (keys[parentNode] <= key) break;
+            heap[pos] = parentNode;
+            position[parentNode] = pos;
+            pos = parent;
+        }
+        heap[pos] = node;
+        position[node] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int node = heap[pos];
+        double key = keys[node];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) child = right;
+            if (keys[heap[child]] >= key) break;
+            heap[pos] = heap[child];
+            position[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = node;
+        position[node] = pos;
+    }
+}
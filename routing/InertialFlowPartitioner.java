@@ -0,0 +1,276 @@
+package routing;
+
+import model.GraphSnapshot;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Particionamento multinível por bisseção recursiva com Inertial Flow.
+ *
+ * Para cada bisseção, os nós são ordenados pela projeção das coordenadas em
+ * algumas direções fixas; uma fração em cada ponta vira fonte/sorvedouro e um
+ * fluxo máximo de capacidade unitária encontra o menor corte entre elas. A direção
+ * com menor corte vence. As duas metades são divididas em paralelo (fork-join).
+ *
+ * O resultado é aninhado: cada célula de um nível é união de células do nível abaixo.
+ */
+public class InertialFlowPartitioner {
+    private static final double[][] DIRECTIONS = { {1, 0}, {0, 1}, {1, 1}, {1, -1} };
+    private static final int PARALLEL_THRESHOLD = 20_000;
+
+    private final double balance;
+
+    /**
+     * @param balance fração dos nós usada como fonte (e como sorvedouro) em cada bisseção, ex.: 0.25
+     */
+    public InertialFlowPartitioner(double balance) {
+        if (balance <= 0 || balance >= 0.5) {
+            throw new IllegalArgumentException("balance deve estar em (0, 0.5): " + balance);
+        }
+        this.balance = balance;
+    }
+
+    public InertialFlowPartitioner() {
+        this(0.25);
+    }
+
+    /**
+     * Particiona o grafo em níveis aninhados.
+     *
+     * @param maxCellSizes tamanho máximo de célula por nível, do mais fino ao mais grosso;
+     *                     ao menos um nível, todos positivos e estritamente crescentes
+     * @return {@code cellOf[level][nodeIndex]}, com IDs de célula densos por nível
+     */
+    public int[][] partition(GraphSnapshot snapshot, int[] maxCellSizes) {
+        if (maxCellSizes.length == 0) {
+            throw new IllegalArgumentException("Informe o tamanho de célula de pelo menos um nível.");
+        }
+        if (maxCellSizes[0] < 1) {
+            throw new IllegalArgumentException("O tamanho de célula deve ser positivo: " + maxCellSizes[0]);
+        }
+        for (int i = 1; i < maxCellSizes.length; i++) {
+            if (maxCellSizes[i] <= maxCellSizes[i - 1]) {
+                throw new IllegalArgumentException("Os tamanhos de célula devem ser crescentes por nível.");
+            }
+        }
+        int n = snapshot.getNumNodes();
+        int levels = maxCellSizes.length;
+        int[][] cellOf = new int[levels][n];
+        AtomicInteger[] counters = new AtomicInteger[levels];
+        for (int l = 0; l < levels; l++) counters[l] = new AtomicInteger();
+
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++) all[i] = i;
+        // Marcas por nó: conjuntos disjuntos nunca disputam a mesma posição dos arrays
+        int[] owner = new int[n];
+        int[] localIndex = new int[n];
+        Arrays.fill(owner, -1);
+
+        Context context = new Context(snapshot, maxCellSizes, cellOf, counters, owner, localIndex);
+        ForkJoinPool.commonPool().invoke(new SplitTask(context, all, levels - 1, new AtomicInteger(1)));
+        return cellOf;
+    }
+
+    private static final class Context {
+        final GraphSnapshot snapshot;
+        final int[] maxCellSizes;
+        final int[][] cellOf;
+        final AtomicInteger[] counters;
+        final int[] owner;
+        final int[] localIndex;
+
+        Context(GraphSnapshot snapshot, int[] maxCellSizes, int[][] cellOf, AtomicInteger[] counters, int[] owner, int[] localIndex) {
+            this.snapshot = snapshot;
+            this.maxCellSizes = maxCellSizes;
+            this.cellOf = cellOf;
+            this.counters = counters;
+            this.owner = owner;
+            this.localIndex = localIndex;
+        }
+    }
+
+    private final class SplitTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Context ctx;
+        private final int[] nodes;
+        private final int level;
+        private final AtomicInteger taskIds;
+
+        SplitTask(Context ctx, int[] nodes, int level, AtomicInteger taskIds) {
+            this.ctx = ctx;
+            this.nodes = nodes;
+            this.level = level;
+            this.taskIds = taskIds;
+        }
+
+        @Override
+        protected void compute() {
+            if (level < 0 || nodes.length == 0) return;
+            if (nodes.length <= ctx.maxCellSizes[level]) {
+                // Vira célula neste nível e continua a divisão para os níveis mais finos
+                int cell = ctx.counters[level].getAndIncrement();
+                for (int v : nodes) ctx.cellOf[level][v] = cell;
+                new SplitTask(ctx, nodes, level - 1, taskIds).compute();
+                return;
+            }
+            int[][] halves = bisect(ctx, nodes, taskIds.getAndIncrement());
+            SplitTask left = new SplitTask(ctx, halves[0], level, taskIds);
+            SplitTask right = new SplitTask(ctx, halves[1], level, taskIds);
+            if (nodes.length >= PARALLEL_THRESHOLD) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+        }
+    }
+
+    /**
+     * Divide o conjunto em dois pelo menor corte entre as direções testadas.
+     */
+    private int[][] bisect(Context ctx, int[] nodes, int taskId) {
+        GraphSnapshot g = ctx.snapshot;
+        int size = nodes.length;
+        for (int i = 0; i < size; i++) {
+            ctx.owner[nodes[i]] = taskId;
+            ctx.localIndex[nodes[i]] = i;
+        }
+
+        // Subgrafo induzido, não direcionado, em CSR local (arcos em pares residuais)
+        int[] degree = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            int v = nodes[i];
+            for (int arc = g.firstOut(v); arc < g.endOut(v); arc++) {
+                int w = g.head(arc);
+                if (w != v && ctx.owner[w] == taskId) { degree[i + 1]++; degree[ctx.localIndex[w] + 1]++; }
+            }
+        }
+        for (int i = 0; i < size; i++) degree[i + 1] += degree[i];
+        int[] first = degree;
+        int[] target = new int[first[size]];
+        int[] twin = new int[first[size]];
+        int[] fill = Arrays.copyOf(first, size);
+        for (int i = 0; i < size; i++) {
+            int v = nodes[i];
+            for (int arc = g.firstOut(v); arc < g.endOut(v); arc++) {
+                int w = g.head(arc);
+                if (w == v || ctx.owner[w] != taskId) continue;
+                int j = ctx.localIndex[w];
+                int a = fill[i]++;
+                int b = fill[j]++;
+                target[a] = j;
+                target[b] = i;
+                twin[a] = b;
+                twin[b] = a;
+            }
+        }
+
+        int terminals = Math.max(1, (int) (size * balance));
+        boolean[] bestSide = null;
+        int bestCut = Integer.MAX_VALUE;
+        int bestImbalance = Integer.MAX_VALUE;
+        Integer[] order = new Integer[size];
+        double[] projection = new double[size];
+
+        for (double[] dir : DIRECTIONS) {
+            for (int i = 0; i < size; i++) {
+                projection[i] = g.x(nodes[i]) * dir[0] + g.y(nodes[i]) * dir[1];
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(projection[a], projection[b]));
+
+            byte[] role = new byte[size]; // 1 = fonte, 2 = sorvedouro
+            for (int k = 0; k < terminals; k++) {
+                role[order[k]] = 1;
+                role[order[size - 1 - k]] = 2;
+            }
+            int[] flow = new int[target.length];
+            int cut = maxFlow(first, target, twin, flow, role, size);
+            boolean[] side = sourceSide(first, target, flow, role, size);
+            int sourceCount = 0;
+            for (boolean s : side) if (s) sourceCount++;
+            int imbalance = Math.abs(size - 2 * sourceCount);
+            if (sourceCount == 0 || sourceCount == size) continue;
+            if (cut < bestCut || (cut == bestCut && imbalance < bestImbalance)) {
+                bestCut = cut;
+                bestImbalance = imbalance;
+                bestSide = side;
+            }
+        }
+
+        if (bestSide == null) {
+            // Conjunto degenerado (ex.: todos os nós no mesmo ponto): divide pela ordem
+            bestSide = new boolean[size];
+            for (int k = 0; k < size / 2; k++) bestSide[order[k]] = true;
+        }
+
+        int count = 0;
+        for (boolean s : bestSide) if (s) count++;
+        int[] a = new int[count];
+        int[] b = new int[size - count];
+        int ia = 0, ib = 0;
+        for (int i = 0; i < size; i++) {
+            if (bestSide[i]) a[ia++] = nodes[i]; else b[ib++] = nodes[i];
+        }
+        return new int[][] { a, b };
+    }
+
+    /**
+     * Fluxo máximo de capacidade unitária (caminhos aumentantes por BFS) entre
+     * todos os nós-fonte e todos os nós-sorvedouro. Retorna o valor do corte.
+     */
+    private static int maxFlow(int[] first, int[] target, int[] twin, int[] flow, byte[] role, int size) {
+        int[] parentArc = new int[size];
+        int[] queue = new int[size];
+        int total = 0;
+        while (true) {
+            Arrays.fill(parentArc, -2);
+            int headQ = 0, tailQ = 0;
+            for (int i = 0; i < size; i++) {
+                if (role[i] == 1) { parentArc[i] = -1; queue[tailQ++] = i; }
+            }
+            int reached = -1;
+            while (headQ < tailQ && reached < 0) {
+                int u = queue[headQ++];
+                for (int a = first[u]; a < first[u + 1]; a++) {
+                    int w = target[a];
+                    if (parentArc[w] != -2 || flow[a] >= 1) continue;
+                    parentArc[w] = a;
+                    if (role[w] == 2) { reached = w; break; }
+                    queue[tailQ++] = w;
+                }
+            }
+            if (reached < 0) return total;
+            int v = reached;
+            while (parentArc[v] >= 0) {
+                int a = parentArc[v];
+                flow[a]++;
+                flow[twin[a]]--;
+                v = target[twin[a]];
+            }
+            total++;
+        }
+    }
+
+    /** Nós alcançáveis a partir das fontes no grafo residual: o lado da fonte do corte mínimo. */
+    private static boolean[] sourceSide(int[] first, int[] target, int[] flow, byte[] role, int size) {
+        boolean[] seen = new boolean[size];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int i = 0; i < size; i++) {
+            if (role[i] == 1) { seen[i] = true; queue.add(i); }
+        }
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            for (int a = first[u]; a < first[u + 1]; a++) {
+                int w = target[a];
+                if (!seen[w] && flow[a] < 1) { seen[w] = true; queue.add(w); }
+            }
+        }
+        return seen;
+    }
+}
@@ -0,0 +1,280 @@
+package routing;
+
+import model.GraphSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Instalações mais próximas (postos, depósitos...) sobre um {@link GraphSnapshot}.
+ *
+ * {@link #assign} roda um único Dijkstra multi-fonte com todas as instalações semeadas a
+ * distância zero: cada nó sai rotulado com a instalação mais próxima e a distância até ela,
+ * formando as células de Voronoi da rede, pelo custo de uma busca em vez de uma por
+ * instalação. {@link #nearest} é a variante inversa, para um ponto só: busca a partir do
+ * nó de consulta e para assim que assenta as k instalações mais próximas.
+ *
+ * Para um ponto fora da malha, encaixe-o antes no nó mais próximo
+ * ({@code GridIndex.nearestNode}). O espaço de trabalho de {@link #nearest} é reutilizado
+ * entre consultas, como no {@link SnapshotDijkstra}: use uma instância por thread.
+ */
+public class NearestFacility {
+
+    /** Sentido das distâncias em grafos com mão única. */
+    public enum Direction {
+        /** Do nó até a instalação (ex.: qual posto atende quem está aqui). */
+        TO_FACILITY,
+        /** Da instalação até o nó (ex.: de qual depósito sai a entrega). */
+        FROM_FACILITY
+    }
+
+    private final GraphSnapshot snapshot;
+    private final double[] distance;
+    private final int[] parent;
+    private final int[] stamp;
+    private final boolean[] settled;
+    private final IndexedMinHeap heap;
+    private int currentStamp;
+    private int lastExplored;
+
+    public NearestFacility(GraphSnapshot snapshot) {
+        this.snapshot = snapshot;
+        int n = snapshot.getNumNodes();
+        this.distance = new double[n];
+        this.parent = new int[n];
+        this.stamp = new int[n];
+        this.settled = new boolean[n];
+        this.heap = new IndexedMinHeap(n);
+    }
+
+    public GraphSnapshot getSnapshot() { return snapshot; }
+
+    /** Conjunto de instalações indexado para consulta em O(1) por nó. */
+    public static final class Facilities {
+        private final int[] nodeIds;
+        private final int[] indices;
+        private final int[] slotOfIndex;
+
+        private Facilities(int[] nodeIds, int[] indices, int[] slotOfIndex) {
+            this.nodeIds = nodeIds;
+            this.indices = indices;
+            this.slotOfIndex = slotOfIndex;
+        }
+
+        public int size() { return nodeIds.length; }
+        public int nodeId(int slot) { return nodeIds[slot]; }
+    }
+
+    /**
+     * Prepara o conjunto de instalações (IDs internos de nós). IDs repetidos contam uma vez;
+     * IDs fora do snapshot geram {@link IllegalArgumentException}.
+     */
+    public Facilities facilities(int... facilityNodeIds) {
+        int[] slotOfIndex = new int[snapshot.getNumNodes()];
+        Arrays.fill(slotOfIndex, -1);
+        int[] ids = new int[facilityNodeIds.length];
+        int[] indices = new int[facilityNodeIds.length];
+        int count = 0;
+        for (int id : facilityNodeIds) {
+            int index = snapshot.indexOf(id);
+            if (index < 0) throw new IllegalArgumentException("Instalação em nó inexistente: " + id);
+            if (slotOfIndex[index] >= 0) continue;
+            slotOfIndex[index] = count;
+            ids[count] = id;
+            indices[count] = index;
+            count++;
+        }
+        return new Facilities(Arrays.copyOf(ids, count), Arrays.copyOf(indices, count), slotOfIndex);
+    }
+
+    /** Células de Voronoi da rede: instalação mais próxima e distância de cada nó. */
+    public static final class Cells {
+        private final GraphSnapshot snapshot;
+        private final Facilities facilities;
+        private final int[] owner;
+        private final double[] distance;
+        private final int[] cellSizes;
+        private final int unreached;
+        private final double processingTimeMs;
+
+        Cells(GraphSnapshot snapshot, Facilities facilities, int[] owner, double[] distance, double processingTimeMs) {
+            this.snapshot = snapshot;
+            this.facilities = facilities;
+            this.owner = owner;
+            this.distance = distance;
+            this.processingTimeMs = processingTimeMs;
+            this.cellSizes = new int[facilities.size()];
+            int missing = 0;
+            for (int slot : owner) {
+                if (slot >= 0) cellSizes[slot]++;
+                else missing++;
+            }
+            this.unreached = missing;
+        }
+
+        /** Instalação (ID interno) mais próxima do nó, ou -1 se nenhuma o alcança. */
+        public int facilityOf(int nodeId) {
+            int index = snapshot.indexOf(nodeId);
+            if (index < 0 || owner[index] < 0) return -1;
+            return facilities.nodeId(owner[index]);
+        }
+
+        /** Distância entre o nó e sua instalação (infinito se não alcançado). */
+        public double distanceOf(int nodeId) {
+            int index = snapshot.indexOf(nodeId);
+            return index < 0 ? Double.POSITIVE_INFINITY : distance[index];
+        }
+
+        /** Posição da instalação dona do nó de índice denso {@code index} em {@link Facilities}, ou -1. */
+        public int ownerSlot(int index) { return owner[index]; }
+        public double distanceAt(int index) { return distance[index]; }
+
+        /** Número de nós na célula da instalação na posição {@code slot}. */
+        public int cellSize(int slot) { return cellSizes[slot]; }
+        public Facilities getFacilities() { return facilities; }
+        public int getUnreachedNodes() { return unreached; }
+        public double getProcessingTimeMs() { return processingTimeMs; }
+    }
+
+    /**
+     * Rotula todos os nós com a instalação mais próxima num único Dijkstra multi-fonte.
+     * Empates de distância ficam com a instalação de menor posição no conjunto, para que o
+     * resultado não dependa da ordem do heap.
+     */
+    public Cells assign(Facilities facilities, Direction direction) {
+        long start = System.nanoTime();
+        int n = snapshot.getNumNodes();
+        boolean reverse = direction == Direction.TO_FACILITY;
+        double[] dist = new double[n];
+        int[] owner = new int[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(owner, -1);
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        for (int slot = 0; slot < facilities.size(); slot++) {
+            int index = facilities.indices[slot];
+            dist[index] = 0.0;
+            owner[index] = slot;
+            queue.insertOrDecrease(index, 0.0);
+        }
+
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            done[u] = true;
+            double du = dist[u];
+            int label = owner[u];
+            int first = reverse ? snapshot.firstIn(u) : snapshot.firstOut(u);
+            int end = reverse ? snapshot.endIn(u) : snapshot.endOut(u);
+            for (int i = first; i < end; i++) {
+                int v = reverse ? snapshot.tail(i) : snapshot.head(i);
+                if (done[v]) continue;
+                double nd = du + snapshot.weight(reverse ? snapshot.inArcToArc(i) : i);
+                if (nd < dist[v] || (nd == dist[v] && label < owner[v])) {
+                    dist[v] = nd;
+                    owner[v] = label;
+                    queue.insertOrDecrease(v, nd);
+                }
+            }
+        }
+        return new Cells(snapshot, facilities, owner, dist, (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    /** Uma instalação encontrada por {@link #nearest}. */
+    public static final class Hit {
+        private final int facilityId;
+        private final double distance;
+        private final List<Integer> path;
+
+        Hit(int facilityId, double distance, List<Integer> path) {
+            this.facilityId = facilityId;
+            this.distance = distance;
+            this.path = path;
+        }
+
+        public int getFacilityId() { return facilityId; }
+        public double getDistance() { return distance; }
+        /** Caminho (IDs internos) no sentido da consulta: do nó à instalação ou vice-versa. */
+        public List<Integer> getPath() { return path; }
+
+        @Override
+        public String toString() {
+            return String.format("instalação %d (%.2f)", facilityId, distance);
+        }
+    }
+
+    /**
+     * As {@code k} instalações mais próximas de {@code nodeId}, em ordem de distância.
+     * A busca para ao assentar a k-ésima, então o custo depende só da vizinhança
+     * necessária. Devolve menos de k se o resto não é alcançável.
+     */
+    public List<Hit> nearest(int nodeId, Facilities facilities, int k, Direction direction) {
+        int source = snapshot.indexOf(nodeId);
+        List<Hit> hits = new ArrayList<>(Math.max(0, Math.min(k, facilities.size())));
+        lastExplored = 0;
+        if (source < 0 || k <= 0) return hits;
+        // Do nó à instalação segue os arcos de saída; da instalação ao nó, os de chegada
+        boolean reverse = direction == Direction.FROM_FACILITY;
+
+        reset();
+        touch(source);
+        distance[source] = 0.0;
+        heap.insertOrDecrease(source, 0.0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled[u] = true;
+            lastExplored++;
+            if (facilities.slotOfIndex[u] >= 0) {
+                hits.add(new Hit(snapshot.nodeId(u), distance[u], pathTo(u, reverse)));
+                if (hits.size() == k) break;
+            }
+            double du = distance[u];
+            int first = reverse ? snapshot.firstIn(u) : snapshot.firstOut(u);
+            int end = reverse ? snapshot.endIn(u) : snapshot.endOut(u);
+            for (int i = first; i < end; i++) {
+                int v = reverse ? snapshot.tail(i) : snapshot.head(i);
+                touch(v);
+                if (settled[v]) continue;
+                double nd = du + snapshot.weight(reverse ? snapshot.inArcToArc(i) : i);
+                if (nd < distance[v]) {
+                    distance[v] = nd;
+                    parent[v] = u;
+                    heap.insertOrDecrease(v, nd);
+                }
+            }
+        }
+        heap.clear();
+        return hits;
+    }
+
+    /** Nós assentados pela última chamada de {@link #nearest}. */
+    public int getLastExplored() { return lastExplored; }
+
+    private List<Integer> pathTo(int index, boolean reverse) {
+        List<Integer> path = new ArrayList<>();
+        for (int current = index; current >= 0; current = parent[current]) {
+            path.add(snapshot.nodeId(current));
+        }
+        // A busca reversa já anda da instalação para a consulta
+        if (!reverse) Collections.reverse(path);
+        return path;
+    }
+
+    private void reset() {
+        currentStamp++;
+        if (currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+    }
+
+    private void touch(int v) {
+        if (stamp[v] != currentStamp) {
+            stamp[v] = currentStamp;
+            distance[v] = Double.POSITIVE_INFINITY;
+            parent[v] = -1;
+            settled[v] = false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,201 @@
+package routing;
+
+import metrics.RouteQueryEvent;
+import metrics.SearchListener;
+import metrics.SearchMetrics;
+import metrics.SearchStats;
+import model.Graph;
+import model.GraphSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dijkstra sobre um {@link GraphSnapshot} com arrays primitivos reutilizáveis.
+ *
+ * Cada instância guarda seu espaço de trabalho (distâncias, predecessores e heap)
+ * e o reaproveita entre consultas usando carimbos de versão, então uma consulta
+ * custa apenas o que explora. Não é thread-safe: use uma instância por thread.
+ */
+public class SnapshotDijkstra {
+    private final GraphSnapshot snapshot;
+    private final double[] distance;
+    private final int[] parent;
+    private final int[] stamp;
+    private final boolean[] settled;
+    private final int[] targetStamp;
+    private final IndexedMinHeap heap;
+    private int currentStamp;
+    private double[] metric;
+    private SearchStats lastStats;
+
+    public SnapshotDijkstra(GraphSnapshot snapshot) {
+        this.snapshot = snapshot;
+        int n = snapshot.getNumNodes();
+        this.distance = new double[n];
+        this.parent = new int[n];
+        this.stamp = new int[n];
+        this.settled = new boolean[n];
+        this.targetStamp = new int[n];
+        this.heap = new IndexedMinHeap(n);
+    }
+
+    public GraphSnapshot getSnapshot() { return snapshot; }
+
+    /** Usa pesos alternativos (indexados por arco) em vez dos pesos do snapshot. */
+    public void setMetric(double[] metric) { this.metric = metric; }
+
+    /**
+     * Menor caminho entre dois nós (IDs internos), no mesmo formato de {@link Graph#dijkstra(int, int)}.
+     */
+    public Graph.PathResult route(int startNodeId, int endNodeId) {
+        int source = snapshot.indexOf(startNodeId);
+        int target = snapshot.indexOf(endNodeId);
+        if (source < 0 || target < 0) {
+            return new Graph.PathResult(new ArrayList<>(), Double.POSITIVE_INFINITY, 0, 0);
+        }
+        RouteQueryEvent event = RouteQueryEvent.start("SnapshotDijkstra");
+        long startTime = System.nanoTime();
+        int explored = run(source, target);
+        double processingTimeMs = (System.nanoTime() - startTime) / 1_000_000.0;
+        double cost = distanceTo(target);
+        List<Integer> path = pathTo(target);
+        event.finish(startNodeId, endNodeId, cost, path.size(), explored);
+        return new Graph.PathResult(path, cost, processingTimeMs, explored, lastStats);
+    }
+
+    /**
+     * Executa a busca a partir de {@code source} (índice denso) até assentar {@code target}
+     * ou esgotar o grafo se {@code target} for -1. Retorna o número de nós assentados.
+     */
+    public int run(int source, int target) {
+        return search(source, target, Double.POSITIVE_INFINITY, null);
+    }
+
+    /**
+     * Busca a partir de {@code source} até assentar todos os {@code targets} (índices densos),
+     * para montar uma linha de matriz de distâncias sem explorar o grafo inteiro.
+     * Retorna o número de nós assentados.
+     */
+    public int runToTargets(int source, int[] targets) {
+        return search(source, -1, Double.POSITIVE_INFINITY, targets);
+    }
+
+    /**
+     * Busca limitada: assenta apenas os nós a distância até {@code maxDistance}.
+     * Nós alcançados mas não assentados guardam só uma distância provisória;
+     * confira {@link #isSettled(int)} antes de usar {@link #distanceTo(int)}.
+     */
+    public int runBounded(int source, double maxDistance) {
+        return search(source, -1, maxDistance, null);
+    }
+
+    private int search(int source, int target, double maxDistance, int[] targets) {
+        SearchListener listener = SearchMetrics.getListener();
+        boolean measuring = listener != SearchListener.NONE;
+        long allocatedBefore = measuring ? SearchMetrics.currentThreadAllocatedBytes() : 0;
+        long startTime = measuring ? System.nanoTime() : 0;
+        reset();
+        int pendingTargets = 0;
+        if (targets != null) {
+            for (int t : targets) {
+                if (targetStamp[t] != currentStamp) {
+                    targetStamp[t] = currentStamp;
+                    pendingTargets++;
+                }
+            }
+        }
+        touch(source);
+        distance[source] = 0.0;
+        heap.insertOrDecrease(source, 0.0);
+        int explored = 0;
+        long relaxed = 0, pushes = 1, decreaseKeys = 0;
+        int peakFrontier = 1;
+
+        while (!heap.isEmpty()) {
+            if (heap.peekKey() > maxDistance) break;
+            int u = heap.poll();
+            settled[u] = true;
+            explored++;
+            if (u == target) break;
+            if (pendingTargets > 0 && targetStamp[u] == currentStamp && --pendingTargets == 0) break;
+            double du = distance[u];
+            for (int arc = snapshot.firstOut(u), end = snapshot.endOut(u); arc < end; arc++) {
+                int v = snapshot.head(arc);
+                touch(v);
+                if (settled[v]) continue;
+                relaxed++;
+                double nd = du + (metric != null ? metric[arc] : snapshot.weight(arc));
+                if (nd < distance[v]) {
+                    // Distância finita e não assentado: o nó já está no heap
+                    if (distance[v] == Double.POSITIVE_INFINITY) pushes++; else decreaseKeys++;
+                    distance[v] = nd;
+                    parent[v] = u;
+                    heap.insertOrDecrease(v, nd);
+                    if (heap.size() > peakFrontier) peakFrontier = heap.size();
+                }
+            }
+        }
+        heap.clear();
+        lastStats = null;
+        if (measuring) {
+            lastStats = new SearchStats("SnapshotDijkstra", (System.nanoTime() - startTime) / 1_000_000.0, explored,
+                    relaxed, pushes, explored, 0, decreaseKeys, peakFrontier, SearchMetrics.allocatedSince(allocatedBefore));
+            listener.searchCompleted(lastStats);
+        }
+        return explored;
+    }
+
+    /** Detalhes da última busca, ou null se a coleta ({@link SearchMetrics}) estava desligada. */
+    public SearchStats getLastStats() { return lastStats; }
+
+    /** Distância calculada pela última busca (infinito se não alcançado). */
+    public double distanceTo(int index) {
+        return stamp[index] == currentStamp ? distance[index] : Double.POSITIVE_INFINITY;
+    }
+
+    public boolean isSettled(int index) {
+        return stamp[index] == currentStamp && settled[index];
+    }
+
+    /** Caminho (IDs internos) até o índice informado segundo a última busca. */
+    public List<Integer> pathTo(int index) {
+        List<Integer> path = new ArrayList<>();
+        if (distanceTo(index) == Double.POSITIVE_INFINITY) return path;
+        int current = index;
+        while (current >= 0) {
+            path.add(snapshot.nodeId(current));
+            current = parent[current];
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Todas as distâncias a partir de {@code source} (índice denso). */
+    public double[] distancesFrom(int source) {
+        run(source, -1);
+        double[] result = new double[snapshot.getNumNodes()];
+        for (int v = 0; v < result.length; v++) result[v] = distanceTo(v);
+        return result;
+    }
+
+    private void reset() {
+        currentStamp++;
+        if (currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            Arrays.fill(targetStamp, 0);
+            currentStamp = 1;
+        }
+    }
+
+    private void touch(int v) {
+        if (stamp[v] != currentStamp) {
+            stamp[v] = currentStamp;
+            distance[v] = Double.POSITIVE_INFINITY;
+            parent[v] = -1;
+            settled[v] = false;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package routing;
+
+import metrics.RouteQueryEvent;
+import metrics.SearchListener;
+import metrics.SearchMetrics;
+import metrics.SearchStats;
+import model.Graph;
+import model.GraphSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Roteamento especulativo: assim que a origem é escolhida, uma thread de baixa prioridade
+ * começa a árvore de menores caminhos a partir dela, em fatias de {@value #SLICE} nós,
+ * até {@code maxSettledNodes} nós assentados. Enquanto o usuário procura o destino a CPU
+ * trabalha; quando a consulta chega, o destino muitas vezes já está na árvore e a resposta
+ * é só seguir os predecessores. Se não estiver, a mesma busca continua de onde parou
+ * (heap e distâncias preservados) até assentá-lo.
+ *
+ * A busca de fundo e a consulta compartilham um único espaço de trabalho, protegido por
+ * um lock que a thread de fundo só segura durante uma fatia. {@link #cancel()} e
+ * {@link #start(int)} invalidam a busca em andamento por um contador de geração.
+ */
+public class SpeculativeRouter implements AutoCloseable {
+    /** Nós assentados por fatia; entre fatias o lock fica livre para a consulta. */
+    private static final int SLICE = 4096;
+
+    /** De onde veio a resposta de {@link #query}. */
+    public enum Source {
+        /** Destino já assentado pela busca de fundo: só a reconstrução do caminho. */
+        SPECULATIVE_TREE,
+        /** Busca de fundo ainda não tinha chegado ao destino e foi continuada. */
+        RESUMED_SEARCH,
+        /** Não havia árvore para essa origem: busca feita do zero. */
+        COLD_SEARCH
+    }
+
+    /** Resposta de uma consulta. */
+    public static final class Answer {
+        public final Graph.PathResult result;
+        public final Source source;
+        /** Nós que a busca de fundo já tinha assentado quando a consulta chegou. */
+        public final int settledBeforeQuery;
+
+        Answer(Graph.PathResult result, Source source, int settledBeforeQuery) {
+            this.result = result;
+            this.source = source;
+            this.settledBeforeQuery = settledBeforeQuery;
+        }
+    }
+
+    private final GraphSnapshot snapshot;
+    private final int maxSettledNodes;
+    private final ExecutorService executor;
+
+    private final Object lock = new Object();
+    private final double[] distance;
+    private final int[] parent;
+    private final int[] stamp;
+    private final boolean[] settled;
+    private final IndexedMinHeap heap;
+    private int currentStamp;
+    private int source = -1;
+    private int settledCount;
+    // Contadores acumulados por advance()/seed(); cada consulta reporta a diferença
+    private long relaxedCount, pushCount, decreaseKeyCount;
+    private int peakFrontier;
+    private volatile long generation;
+
+    public SpeculativeRouter(GraphSnapshot snapshot, int maxSettledNodes) {
+        this.snapshot = snapshot;
+        this.maxSettledNodes = maxSettledNodes;
+        int n = snapshot.getNumNodes();
+        this.distance = new double[n];
+        this.parent = new int[n];
+        this.stamp = new int[n];
+        this.settled = new boolean[n];
+        this.heap = new IndexedMinHeap(n);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "roteamento-especulativo");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    public GraphSnapshot getSnapshot() { return snapshot; }
+
+    /** Descarta a árvore atual e começa outra, em segundo plano, a partir do nó {@code originId}. */
+    public void start(int originId) {
+        int origin = snapshot.indexOf(originId);
+        long myGeneration = ++generation;
+        synchronized (lock) {
+            seed(origin);
+        }
+        if (origin < 0) return;
+        executor.execute(() -> grow(myGeneration));
+    }
+
+    /** Interrompe a busca de fundo e esquece a origem (ex.: seleção reiniciada). */
+    public void cancel() {
+        generation++;
+        synchronized (lock) {
+            source = -1;
+            heap.clear();
+        }
+    }
+
+    /** Nós assentados até agora pela busca atual. */
+    public int getSettledCount() {
+        synchronized (lock) {
+            return settledCount;
+        }
+    }
+
+    /**
+     * IDs dos nós já rotulados e ainda não assentados pela busca atual: a fronteira da
+     * árvore, para exibição. Vazio se não há busca ou se ela esgotou o grafo.
+     */
+    public int[] getFrontier() {
+        synchronized (lock) {
+            if (source < 0) return new int[0];
+            int[] frontier = new int[heap.size()];
+            for (int i = 0; i < frontier.length; i++) frontier[i] = snapshot.nodeId(heap.at(i));
+            return frontier;
+        }
+    }
+
+    private void grow(long myGeneration) {
+        while (true) {
+            synchronized (lock) {
+                if (generation != myGeneration || heap.isEmpty() || settledCount >= maxSettledNodes) return;
+                advance(-1, SLICE);
+            }
+            // Dá a vez à consulta (e ao resto da aplicação) entre as fatias
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Menor caminho entre {@code originId} e {@code destinationId}. Para a busca de fundo,
+     * usa a árvore dela se a origem é a mesma e a continua se o destino ainda não foi
+     * assentado; para outra origem, faz a busca do zero no mesmo espaço de trabalho.
+     * Se a thread chamadora for interrompida, para com {@link CancellationException}.
+     */
+    public Answer query(int originId, int destinationId) {
+        int origin = snapshot.indexOf(originId);
+        int target = snapshot.indexOf(destinationId);
+        if (origin < 0 || target < 0) {
+            return new Answer(new Graph.PathResult(new ArrayList<>(), Double.POSITIVE_INFINITY, 0, 0), Source.COLD_SEARCH, 0);
+        }
+        generation++;
+        synchronized (lock) {
+            RouteQueryEvent event = RouteQueryEvent.start("SpeculativeRouter");
+            SearchListener listener = SearchMetrics.getListener();
+            boolean measuring = listener != SearchListener.NONE;
+            long allocatedBefore = measuring ? SearchMetrics.currentThreadAllocatedBytes() : 0;
+            long startTime = System.nanoTime();
+            long relaxedBefore = relaxedCount, pushesBefore = pushCount, decreaseKeysBefore = decreaseKeyCount;
+            Source answerSource;
+            int before;
+            if (source != origin) {
+                seed(origin);
+                before = 0;
+                answerSource = Source.COLD_SEARCH;
+            } else {
+                before = settledCount;
+                answerSource = isSettled(target) ? Source.SPECULATIVE_TREE : Source.RESUMED_SEARCH;
+            }
+            peakFrontier = heap.size();
+            // Em fatias, para que uma consulta cancelada pare logo; o que ela já assentou
+            // continua valendo para a próxima consulta com a mesma origem
+            while (!isSettled(target) && !heap.isEmpty()) {
+                if (Thread.currentThread().isInterrupted()) throw new CancellationException("Consulta cancelada.");
+                advance(target, SLICE);
+            }
+            double processingTimeMs = (System.nanoTime() - startTime) / 1_000_000.0;
+            double cost = stamp[target] == currentStamp ? distance[target] : Double.POSITIVE_INFINITY;
+            List<Integer> path = new ArrayList<>();
+            if (cost != Double.POSITIVE_INFINITY) {
+                for (int current = target; current >= 0; current = parent[current]) path.add(snapshot.nodeId(current));
+                Collections.reverse(path);
+            }
+            SearchStats stats = null;
+            if (measuring) {
+                // Só o trabalho desta consulta: o que a busca de fundo já tinha feito não entra
+                int settledByQuery = settledCount - before;
+                stats = new SearchStats("SpeculativeRouter", processingTimeMs, settledByQuery, relaxedCount - relaxedBefore,
+                        pushCount - pushesBefore, settledByQuery, 0, decreaseKeyCount - decreaseKeysBefore, peakFrontier,
+                        SearchMetrics.allocatedSince(allocatedBefore));
+                listener.searchCompleted(stats);
+            }
+            event.finish(originId, destinationId, cost, path.size(), settledCount - before);
+            return new Answer(new Graph.PathResult(path, cost, processingTimeMs, settledCount, stats), answerSource, before);
+        }
+    }
+
+    @Override
+    public void close() {
+        generation++;
+        executor.shutdownNow();
+    }
+
+    // --- Dijkstra retomável (chamado com o lock) ---
+
+    private void seed(int origin) {
+        heap.clear();
+        currentStamp++;
+        if (currentStamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+        source = origin;
+        settledCount = 0;
+        if (origin < 0) return;
+        touch(origin);
+        distance[origin] = 0.0;
+        heap.insertOrDecrease(origin, 0.0);
+        pushCount++;
+    }
+
+    /** Assenta até {@code budget} nós, parando antes se assentar {@code target}. */
+    private void advance(int target, int budget) {
+        for (int done = 0; done < budget && !heap.isEmpty(); done++) {
+            int u = heap.poll();
+            settled[u] = true;
+            settledCount++;
+            double du = distance[u];
+            for (int arc = snapshot.firstOut(u), end = snapshot.endOut(u); arc < end; arc++) {
+                int v = snapshot.head(arc);
+                touch(v);
+                if (settled[v]) continue;
+                relaxedCount++;
+                double nd = du + snapshot.weight(arc);
+                if (nd < distance[v]) {
+                    if (distance[v] == Double.POSITIVE_INFINITY) pushCount++; else decreaseKeyCount++;
+                    distance[v] = nd;
+                    parent[v] = u;
+                    heap.insertOrDecrease(v, nd);
+                    if (heap.size() > peakFrontier) peakFrontier = heap.size();
+                }
+            }
+            if (u == target) return;
+        }
+    }
+
+    private boolean isSettled(int index) {
+        return stamp[index] == currentStamp && settled[index];
+    }
+
+    private void touch(int v) {
+        if (stamp[v] != currentStamp) {
+            stamp[v] = currentStamp;
+            distance[v] = Double.POSITIVE_INFINITY;
+            parent[v] = -1;
+            settled[v] = false;
+        }
+    }
+}
\ No newline at end of file
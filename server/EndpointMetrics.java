@@ -0,0 +1,41 @@
+package server;
+
+import metrics.LogHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores e histograma de latência de um endpoint, atualizados sem trava pelas
+ * requisições concorrentes. O histograma ({@link LogHistogram}, em microssegundos) ocupa
+ * memória fixa por mais que o servidor fique no ar, o que basta para acompanhar a cauda.
+ */
+final class EndpointMetrics {
+    private final String name;
+    private final AtomicLong errors = new AtomicLong();
+    private final LogHistogram latencyMicros = new LogHistogram();
+
+    EndpointMetrics(String name) {
+        this.name = name;
+    }
+
+    String getName() { return name; }
+
+    void record(long nanos, boolean error) {
+        if (error) errors.incrementAndGet();
+        latencyMicros.record(nanos / 1000);
+    }
+
+    /** Latência (ms) no percentil {@code p} (0 a 100), pelo limite superior da faixa. */
+    double percentileMs(double p) {
+        return latencyMicros.percentile(p) / 1000.0;
+    }
+
+    /** Objeto JSON com contagens, média e percentis. */
+    String toJson() {
+        return String.format(Locale.ROOT,
+                "{\"requests\":%d,\"errors\":%d,\"meanMs\":%.3f,\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                latencyMicros.getCount(), errors.get(), latencyMicros.getMean() / 1000.0, percentileMs(50),
+                percentileMs(90), percentileMs(99), latencyMicros.getMax() / 1000.0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,403 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.CompressedInput;
+import io.OsmConverter;
+import io.PolyReader;
+import metrics.SearchHistograms;
+import model.Graph;
+import model.GraphSnapshot;
+import model.GridIndex;
+import routing.SnapshotDijkstra;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor HTTP local (com.sun.net.httpserver) que responde consultas de roteamento sobre
+ * um {@link GraphSnapshot} imutável, para outros processos da máquina.
+ *
+ * <ul>
+ *   <li>{@code GET /route?from=ID&to=ID}: custo, nós explorados e caminho;</li>
+ *   <li>{@code GET /matrix?sources=ID,ID&targets=ID,ID}: distâncias origem x destino,
+ *       uma linha por origem, enviada assim que calculada;</li>
+ *   <li>{@code GET /nearest?x=X&y=Y}: nó mais próximo de uma coordenada;</li>
+ *   <li>{@code GET /metrics}: requisições, erros e percentis de latência por endpoint.</li>
+ * </ul>
+ *
+ * Cada requisição roda na sua própria thread virtual (Java 21+, obtida por reflexão para o
+ * código continuar compilando em versões anteriores, que usam um pool de threads comuns).
+ * O snapshot é compartilhado sem trava; os espaços de trabalho do Dijkstra, que têm o
+ * tamanho do grafo, ficam num pool limitado por um semáforo, então milhares de conexões
+ * abertas não viram milhares de cópias desses arrays. As respostas são JSON escrito direto
+ * no corpo (chunked) e a conexão continua aberta para a próxima requisição (keep-alive do
+ * HTTP/1.1).
+ */
+public class RoutingServer {
+    /** Limite de origens e de destinos por matriz. */
+    private static final int MAX_MATRIX_SIDE = 1000;
+
+    static {
+        // Corpo em blocos sai em várias escritas pequenas; com Nagle e ACK atrasado cada
+        // resposta esperava ~40 ms no keep-alive. Lido pelo HttpServer ao criar o primeiro.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final GraphSnapshot snapshot;
+    private final GridIndex index;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Semaphore searchSlots;
+    private final ConcurrentLinkedQueue<SnapshotDijkstra> workspaces = new ConcurrentLinkedQueue<>();
+    private final Map<String, EndpointMetrics> metrics = new LinkedHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private long startTime;
+
+    public RoutingServer(Graph graph, InetSocketAddress address) throws IOException {
+        this(GraphSnapshot.of(graph), address, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param maxConcurrentSearches buscas simultâneas (e espaços de trabalho alocados);
+     *                              as demais requisições esperam a vez
+     */
+    public RoutingServer(GraphSnapshot snapshot, InetSocketAddress address, int maxConcurrentSearches) throws IOException {
+        this.snapshot = snapshot;
+        this.index = GridIndex.build(snapshot);
+        this.searchSlots = new Semaphore(Math.max(1, maxConcurrentSearches));
+        this.server = HttpServer.create(address, 0);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        register("/route", this::route);
+        register("/matrix", this::matrix);
+        register("/nearest", this::nearest);
+        register("/metrics", params -> this::writeMetrics);
+    }
+
+    /** Executor de uma thread virtual por tarefa, ou null se a JVM não tiver threads virtuais. */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public void start() {
+        startTime = System.nanoTime();
+        server.start();
+    }
+
+    /** Para de aceitar conexões e espera até {@code delaySeconds} pelas requisições em curso. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int getPort() { return server.getAddress().getPort(); }
+    public boolean usesVirtualThreads() { return virtualThreads; }
+    public GraphSnapshot getSnapshot() { return snapshot; }
+
+    // ---------------------------------------------------------------- endpoints
+
+    /** Valida os parâmetros e devolve quem escreve o corpo da resposta. */
+    private interface Endpoint {
+        /**
+         * @throws IllegalArgumentException parâmetro ausente ou inválido (400)
+         * @throws NoSuchElementException    nó inexistente (404)
+         */
+        Body prepare(Map<String, String> params);
+    }
+
+    /** Escreve o corpo JSON depois que o status 200 já foi enviado. */
+    private interface Body {
+        void write(Writer out) throws IOException;
+    }
+
+    private Body route(Map<String, String> params) {
+        int from = nodeParam(params, "from");
+        int to = nodeParam(params, "to");
+        Graph.PathResult result;
+        SnapshotDijkstra dijkstra = acquireWorkspace();
+        try {
+            result = dijkstra.route(from, to);
+        } finally {
+            releaseWorkspace(dijkstra);
+        }
+        return out -> {
+            out.write("{\"from\":" + from + ",\"to\":" + to + ",\"cost\":" + number(result.totalCost)
+                    + ",\"explored\":" + result.nodesExplored + ",\"ms\":" + number(result.processingTimeMs)
+                    + ",\"path\":[");
+            List<Integer> path = result.path;
+            for (int i = 0; i < path.size(); i++) {
+                if (i > 0) out.write(',');
+                out.write(Integer.toString(path.get(i)));
+            }
+            out.write("]}");
+        };
+    }
+
+    private Body matrix(Map<String, String> params) {
+        int[] sources = nodeListParam(params, "sources");
+        int[] targets = nodeListParam(params, "targets");
+        int[] sourceIndices = indicesOf(sources);
+        int[] targetIndices = indicesOf(targets);
+        return out -> {
+            out.write("{\"sources\":");
+            writeIds(out, sources);
+            out.write(",\"targets\":");
+            writeIds(out, targets);
+            out.write(",\"distances\":[");
+            double[] row = new double[targetIndices.length];
+            for (int s = 0; s < sourceIndices.length; s++) {
+                // O espaço de trabalho volta ao pool antes da escrita: um cliente que lê
+                // devagar trava só a própria conexão, não as buscas das outras
+                SnapshotDijkstra dijkstra = acquireWorkspace();
+                try {
+                    dijkstra.runToTargets(sourceIndices[s], targetIndices);
+                    for (int t = 0; t < targetIndices.length; t++) row[t] = dijkstra.distanceTo(targetIndices[t]);
+                } finally {
+                    releaseWorkspace(dijkstra);
+                }
+                out.write(s > 0 ? ",\n[" : "\n[");
+                for (int t = 0; t < row.length; t++) {
+                    if (t > 0) out.write(',');
+                    out.write(number(row[t]));
+                }
+                out.write(']');
+                // Cada linha sai num bloco próprio: o cliente começa a ler antes do fim
+                out.flush();
+            }
+            out.write("]}");
+        };
+    }
+
+    private Body nearest(Map<String, String> params) {
+        double x = doubleParam(params, "x");
+        double y = doubleParam(params, "y");
+        int v = index.nearestNode(x, y);
+        if (v < 0) throw new NoSuchElementException("grafo vazio");
+        double dx = snapshot.x(v) - x, dy = snapshot.y(v) - y;
+        return out -> out.write("{\"node\":" + snapshot.nodeId(v) + ",\"x\":" + number(snapshot.x(v))
+                + ",\"y\":" + number(snapshot.y(v)) + ",\"distance\":" + number(Math.sqrt(dx * dx + dy * dy)) + "}");
+    }
+
+    private void writeMetrics(Writer out) throws IOException {
+        out.write(String.format(Locale.ROOT,
+                "{\"uptimeMs\":%d,\"inFlight\":%d,\"virtualThreads\":%b,\"nodes\":%d,\"arcs\":%d,\"endpoints\":{",
+                (System.nanoTime() - startTime) / 1_000_000, inFlight.get(), virtualThreads,
+                snapshot.getNumNodes(), snapshot.getNumArcs()));
+        boolean first = true;
+        for (EndpointMetrics endpoint : metrics.values()) {
+            if (!first) out.write(',');
+            first = false;
+            out.write("\"" + endpoint.getName() + "\":" + endpoint.toJson());
+        }
+        out.write("}}");
+    }
+
+    // ---------------------------------------------------------------- infraestrutura HTTP
+
+    private void register(String path, Endpoint endpoint) {
+        EndpointMetrics endpointMetrics = new EndpointMetrics(path.substring(1));
+        metrics.put(path, endpointMetrics);
+        server.createContext(path, exchange -> {
+            // O HttpServer casa contextos por prefixo: /routex e /route/abc também chegariam aqui
+            if (path.equals(exchange.getRequestURI().getPath())) handle(exchange, endpoint, endpointMetrics);
+            else notFound(exchange);
+        });
+    }
+
+    private static void notFound(HttpExchange exchange) {
+        try {
+            sendError(exchange, 404, "caminho desconhecido: " + exchange.getRequestURI().getPath());
+        } catch (IOException e) {
+            // Cliente desconectou: nada a fazer
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint, EndpointMetrics endpointMetrics) {
+        long start = System.nanoTime();
+        inFlight.incrementAndGet();
+        boolean error = true;
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "use GET");
+                return;
+            }
+            Body body;
+            try {
+                body = endpoint.prepare(parseQuery(exchange.getRequestURI().getRawQuery()));
+            } catch (NoSuchElementException e) {
+                sendError(exchange, 404, e.getMessage());
+                return;
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0); // tamanho 0: corpo em blocos (chunked)
+            Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+            body.write(out);
+            out.flush();
+            error = false;
+        } catch (IOException | RuntimeException e) {
+            // Cliente desconectou no meio da resposta ou falha inesperada: a conexão é descartada
+        } finally {
+            exchange.close();
+            inFlight.decrementAndGet();
+            endpointMetrics.record(System.nanoTime() - start, error);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = ("{\"error\":\"" + escape(message) + "\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("parâmetro '" + name + "' ausente");
+        return value;
+    }
+
+    private int nodeParam(Map<String, String> params, String name) {
+        int nodeId = parseInt(required(params, name), name);
+        if (snapshot.indexOf(nodeId) < 0) throw new NoSuchElementException("nó " + nodeId + " não existe");
+        return nodeId;
+    }
+
+    private int[] nodeListParam(Map<String, String> params, String name) {
+        String[] parts = required(params, name).split(",");
+        if (parts.length > MAX_MATRIX_SIDE) {
+            throw new IllegalArgumentException("'" + name + "' aceita no máximo " + MAX_MATRIX_SIDE + " nós");
+        }
+        int[] ids = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ids[i] = parseInt(parts[i].trim(), name);
+            if (snapshot.indexOf(ids[i]) < 0) throw new NoSuchElementException("nó " + ids[i] + " não existe");
+        }
+        return ids;
+    }
+
+    private int[] indicesOf(int[] nodeIds) {
+        int[] indices = new int[nodeIds.length];
+        for (int i = 0; i < nodeIds.length; i++) indices[i] = snapshot.indexOf(nodeIds[i]);
+        return indices;
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("valor inválido para '" + name + "': " + value);
+        }
+    }
+
+    private static double doubleParam(Map<String, String> params, String name) {
+        String value = required(params, name);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("valor inválido para '" + name + "': " + value);
+        }
+    }
+
+    private SnapshotDijkstra acquireWorkspace() {
+        searchSlots.acquireUninterruptibly();
+        SnapshotDijkstra dijkstra = workspaces.poll();
+        return dijkstra != null ? dijkstra : new SnapshotDijkstra(snapshot);
+    }
+
+    private void releaseWorkspace(SnapshotDijkstra dijkstra) {
+        workspaces.offer(dijkstra);
+        searchSlots.release();
+    }
+
+    private static void writeIds(Writer out, int[] ids) throws IOException {
+        out.write('[');
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) out.write(',');
+            out.write(Integer.toString(ids[i]));
+        }
+        out.write(']');
+    }
+
+    /** Número JSON; infinito (sem caminho) vira null. */
+    private static String number(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "null";
+    }
+
+    private static String escape(String text) {
+        if (text == null) return "";
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    // ---------------------------------------------------------------- linha de comando
+
+    /** Uso: {@code java server.RoutingServer <mapa.poly|mapa.osm> [porta]}; escuta só em localhost. */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: java server.RoutingServer <mapa.poly|mapa.osm> [porta]");
+            System.exit(1);
+        }
+        SearchHistograms.installIfRequested();
+        String base = CompressedInput.stripCompressionSuffix(args[0]).toLowerCase(Locale.ROOT);
+        Graph graph = base.endsWith(".osm")
+                ? new OsmConverter().convertOsmToGraph(args[0])
+                : new PolyReader().readPolyFile(args[0]);
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        RoutingServer server = new RoutingServer(graph, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.start();
+        System.out.println("Servidor de rotas em http://localhost:" + server.getPort()
+                + " (" + (server.usesVirtualThreads() ? "threads virtuais" : "pool de threads") + ")");
+    }
+}
\ No newline at end of file